@@ -8,6 +8,7 @@ package eu.fraho.spring.securityJwt.base.starter;
 
 import eu.fraho.spring.securityJwt.base.config.RefreshCookieProperties;
 import eu.fraho.spring.securityJwt.base.config.RefreshProperties;
+import eu.fraho.spring.securityJwt.base.config.TokenCacheProperties;
 import eu.fraho.spring.securityJwt.base.config.TokenCookieProperties;
 import eu.fraho.spring.securityJwt.base.config.TokenHeaderProperties;
 import eu.fraho.spring.securityJwt.base.config.TokenProperties;
@@ -15,23 +16,31 @@ import eu.fraho.spring.securityJwt.base.config.TotpProperties;
 import eu.fraho.spring.securityJwt.base.controller.LoginRestController;
 import eu.fraho.spring.securityJwt.base.controller.LogoutRestController;
 import eu.fraho.spring.securityJwt.base.dto.JwtUser;
+import eu.fraho.spring.securityJwt.base.metrics.JwtMetrics;
+import eu.fraho.spring.securityJwt.base.metrics.RefreshStoreMetricsPostProcessor;
 import eu.fraho.spring.securityJwt.base.service.JwtTokenService;
 import eu.fraho.spring.securityJwt.base.service.JwtTokenServiceImpl;
 import eu.fraho.spring.securityJwt.base.service.LoginService;
 import eu.fraho.spring.securityJwt.base.service.LoginServiceImpl;
+import eu.fraho.spring.securityJwt.base.service.PasswordUpgradeService;
+import eu.fraho.spring.securityJwt.base.service.RefreshStoreExecutor;
 import eu.fraho.spring.securityJwt.base.service.RefreshService;
 import eu.fraho.spring.securityJwt.base.service.RefreshServiceImpl;
+import eu.fraho.spring.securityJwt.base.service.TotpReplayStore;
 import eu.fraho.spring.securityJwt.base.service.TotpService;
 import eu.fraho.spring.securityJwt.base.service.TotpServiceImpl;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.config.BeanDefinition;
 import org.springframework.boot.autoconfigure.AutoConfigureBefore;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Scope;
 import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
@@ -47,10 +56,11 @@ public class SecurityJwtBaseAutoConfiguration {
     }
 
     @Bean
-    public TotpService totpService() {
+    public TotpService totpService(final ObjectProvider<TotpReplayStore> totpReplayStore) {
         log.debug("Register TotpService");
         TotpServiceImpl totpService = new TotpServiceImpl();
         totpService.setTotpProperties(totpProperties());
+        totpReplayStore.ifUnique(totpService::setTotpReplayStore);
         return totpService;
     }
 
@@ -67,7 +77,7 @@ public class SecurityJwtBaseAutoConfiguration {
     }
 
     @Bean
-    public JwtTokenService jwtTokenService() {
+    public JwtTokenService jwtTokenService(final ObjectProvider<JwtMetrics> jwtMetrics) {
         log.debug("Register JwtTokenService");
         JwtTokenServiceImpl jwtTokenService = new JwtTokenServiceImpl();
         jwtTokenService.setTokenProperties(tokenProperties());
@@ -75,10 +85,18 @@ public class SecurityJwtBaseAutoConfiguration {
         jwtTokenService.setTokenCookieProperties(tokenCookieProperties());
         jwtTokenService.setTokenHeaderProperties(tokenHeaderProperties());
         jwtTokenService.setRefreshCookieProperties(refreshCookieProperties());
+        jwtTokenService.setTokenCacheProperties(tokenCacheProperties());
         jwtTokenService.setJwtUser(this::jwtUser);
+        jwtMetrics.ifAvailable(jwtTokenService::setJwtMetrics);
         return jwtTokenService;
     }
 
+    @Bean
+    public static RefreshStoreMetricsPostProcessor refreshStoreMetricsPostProcessor(final ObjectProvider<JwtMetrics> jwtMetrics) {
+        log.debug("Register RefreshStoreMetricsPostProcessor");
+        return new RefreshStoreMetricsPostProcessor(jwtMetrics);
+    }
+
     @Bean
     public TokenCookieProperties tokenCookieProperties() {
         log.debug("Register TokenCookieProperties");
@@ -97,6 +115,19 @@ public class SecurityJwtBaseAutoConfiguration {
         return new RefreshCookieProperties();
     }
 
+    @Bean
+    public TokenCacheProperties tokenCacheProperties() {
+        log.debug("Register TokenCacheProperties");
+        return new TokenCacheProperties();
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public RefreshStoreExecutor refreshStoreExecutor() {
+        log.debug("Register RefreshStoreExecutor");
+        return new RefreshStoreExecutor();
+    }
+
     @Bean
     @ConditionalOnMissingBean
     public PasswordEncoder passwordEncoder() {
@@ -125,20 +156,38 @@ public class SecurityJwtBaseAutoConfiguration {
     public LoginService loginService(final AuthenticationManager authenticationManager,
                                      final JwtTokenService jwtTokenService,
                                      final UserDetailsService userDetailsService,
-                                     final TotpService totpService) {
+                                     final TotpService totpService,
+                                     final ObjectProvider<JwtMetrics> jwtMetrics,
+                                     final ObjectProvider<PasswordUpgradeService> passwordUpgradeService) {
         LoginServiceImpl service = new LoginServiceImpl();
         service.setAuthenticationManager(authenticationManager);
         service.setJwtTokenService(jwtTokenService);
         service.setUserDetailsService(userDetailsService);
         service.setTotpService(totpService);
+        jwtMetrics.ifAvailable(service::setJwtMetrics);
+        passwordUpgradeService.ifAvailable(service::setPasswordUpgradeService);
+        return service;
+    }
+
+    @Bean
+    @ConditionalOnBean(UserDetailsPasswordService.class)
+    @ConditionalOnMissingBean
+    public PasswordUpgradeService passwordUpgradeService(final PasswordEncoder passwordEncoder,
+                                                         final UserDetailsPasswordService userDetailsPasswordService) {
+        log.debug("Register PasswordUpgradeService");
+        PasswordUpgradeService service = new PasswordUpgradeService();
+        service.setPasswordEncoder(passwordEncoder);
+        service.setUserDetailsPasswordService(userDetailsPasswordService);
         return service;
     }
 
     @Bean
     @ConditionalOnMissingBean
-    public RefreshService refreshService(final JwtTokenService jwtTokenService) {
+    public RefreshService refreshService(final JwtTokenService jwtTokenService,
+                                         final ObjectProvider<JwtMetrics> jwtMetrics) {
         RefreshServiceImpl service = new RefreshServiceImpl();
         service.setJwtTokenService(jwtTokenService);
+        jwtMetrics.ifAvailable(service::setJwtMetrics);
         return service;
     }
 
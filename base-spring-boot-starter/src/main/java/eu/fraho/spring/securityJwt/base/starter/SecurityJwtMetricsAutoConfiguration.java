@@ -0,0 +1,37 @@
+/*
+ * MIT Licence
+ * Copyright (c) 2026 Simon Frankenberger
+ *
+ * Please see LICENCE.md for complete licence text.
+ */
+package eu.fraho.spring.securityJwt.base.starter;
+
+import eu.fraho.spring.securityJwt.base.metrics.JwtMetrics;
+import eu.fraho.spring.securityJwt.base.metrics.MicrometerJwtMetrics;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.AutoConfigureAfter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConditionalOnClass(MeterRegistry.class)
+@AutoConfigureAfter(name = {
+        // spring boot 3.x
+        "org.springframework.boot.actuate.autoconfigure.metrics.CompositeMeterRegistryAutoConfiguration",
+        // spring boot 4.x
+        "org.springframework.boot.micrometer.metrics.autoconfigure.CompositeMeterRegistryAutoConfiguration"
+})
+@Slf4j
+public class SecurityJwtMetricsAutoConfiguration {
+    @Bean
+    @ConditionalOnBean(MeterRegistry.class)
+    @ConditionalOnMissingBean
+    public JwtMetrics jwtMetrics(final MeterRegistry meterRegistry) {
+        log.debug("Register MicrometerJwtMetrics");
+        return new MicrometerJwtMetrics(meterRegistry);
+    }
+}
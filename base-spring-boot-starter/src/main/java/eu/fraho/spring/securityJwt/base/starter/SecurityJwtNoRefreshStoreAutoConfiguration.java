@@ -9,8 +9,11 @@ package eu.fraho.spring.securityJwt.base.starter;
 import eu.fraho.spring.securityJwt.base.config.RefreshCookieProperties;
 import eu.fraho.spring.securityJwt.base.config.TokenCookieProperties;
 import eu.fraho.spring.securityJwt.base.controller.RefreshRestController;
+import eu.fraho.spring.securityJwt.base.service.AsyncRefreshTokenStore;
+import eu.fraho.spring.securityJwt.base.service.ExecutorAsyncRefreshTokenStore;
 import eu.fraho.spring.securityJwt.base.service.JwtTokenService;
 import eu.fraho.spring.securityJwt.base.service.NullTokenStore;
+import eu.fraho.spring.securityJwt.base.service.RefreshStoreExecutor;
 import eu.fraho.spring.securityJwt.base.service.RefreshTokenStore;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.boot.autoconfigure.AutoConfigureAfter;
@@ -30,6 +33,17 @@ public class SecurityJwtNoRefreshStoreAutoConfiguration {
         return new NullTokenStore();
     }
 
+    @Bean
+    @ConditionalOnMissingBean
+    public AsyncRefreshTokenStore asyncRefreshTokenStore(final RefreshTokenStore refreshTokenStore,
+                                                         final RefreshStoreExecutor refreshStoreExecutor) {
+        log.debug("Register ExecutorAsyncRefreshTokenStore");
+        ExecutorAsyncRefreshTokenStore store = new ExecutorAsyncRefreshTokenStore();
+        store.setRefreshTokenStore(refreshTokenStore);
+        store.setExecutor(refreshStoreExecutor.getExecutor());
+        return store;
+    }
+
     @Bean
     @Conditional(ConditionalOnRefreshEnabled.class)
     public RefreshRestController refreshRestController(final JwtTokenService jwtTokenService,
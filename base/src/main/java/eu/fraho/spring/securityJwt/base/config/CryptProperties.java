@@ -7,6 +7,7 @@
 package eu.fraho.spring.securityJwt.base.config;
 
 import eu.fraho.spring.securityJwt.base.dto.CryptAlgorithm;
+import eu.fraho.spring.securityJwt.base.dto.TimeWithPeriod;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
@@ -40,6 +41,23 @@ public class CryptProperties implements InitializingBean {
      */
     private CryptAlgorithm algorithm = CryptAlgorithm.SHA512;
 
+    /**
+     * Maximum number of passwords hashed or checked concurrently during authentication. Further logins wait for a
+     * free slot, so a login storm cannot occupy every request thread. Use 0 to disable the limit.
+     */
+    private int maxConcurrent = 0;
+
+    /**
+     * Maximum number of logins waiting for a free slot when {@link #maxConcurrent} is reached.
+     * Further logins are rejected immediately with 503 (Service Unavailable).
+     */
+    private int maxQueued = 100;
+
+    /**
+     * Maximum time a login waits for a free slot before it is rejected with 503 (Service Unavailable).
+     */
+    private TimeWithPeriod maxWait = new TimeWithPeriod("5 seconds");
+
     @Override
     public void afterPropertiesSet() {
         if (algorithm.isRoundsSupported() && (rounds < 10_000 || rounds > 100_000_000)) {
@@ -52,6 +70,16 @@ public class CryptProperties implements InitializingBean {
                     10, cost, 19, 12);
             cost = 12;
         }
+        if (maxConcurrent < 0 || maxConcurrent > 1024) {
+            log.warn("Concurrent password checks out of bounds ({} <= {} <= {}), forcing to default ({})",
+                    0, maxConcurrent, 1024, 0);
+            maxConcurrent = 0;
+        }
+        if (maxQueued < 0 || maxQueued > 100_000) {
+            log.warn("Queued password checks out of bounds ({} <= {} <= {}), forcing to default ({})",
+                    0, maxQueued, 100_000, 100);
+            maxQueued = 100;
+        }
         if (algorithm.isInsecure()) {
             log.warn("Using insecure crypt variant {}. Consider upgrading to a stronger one.", algorithm);
         }
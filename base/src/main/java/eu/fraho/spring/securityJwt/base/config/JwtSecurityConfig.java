@@ -7,6 +7,8 @@
 package eu.fraho.spring.securityJwt.base.config;
 
 import eu.fraho.spring.securityJwt.base.JwtAuthenticationTokenFilter;
+import eu.fraho.spring.securityJwt.base.metrics.JwtMetrics;
+import eu.fraho.spring.securityJwt.base.password.BoundedPasswordEncoder;
 import eu.fraho.spring.securityJwt.base.service.JwtTokenService;
 import lombok.AllArgsConstructor;
 import lombok.NoArgsConstructor;
@@ -46,10 +48,13 @@ public class JwtSecurityConfig {
     private UserDetailsService userDetailsService;
     private PasswordEncoder passwordEncoder;
     private JwtTokenService jwtTokenService;
+    private CryptProperties cryptProperties;
+    private JwtMetrics jwtMetrics = JwtMetrics.NOOP;
 
     @Bean
     public AuthenticationProvider authenticationProvider() {
         log.debug("Configuring AuthenticationManagerBuilder");
+        PasswordEncoder passwordEncoder = authenticationPasswordEncoder();
         try {
             // try default constructor [3.0.0 - 4.0.0[
             DaoAuthenticationProvider authProvider = new DaoAuthenticationProvider();
@@ -70,6 +75,17 @@ public class JwtSecurityConfig {
         }
     }
 
+    private PasswordEncoder authenticationPasswordEncoder() {
+        if (cryptProperties == null || cryptProperties.getMaxConcurrent() == 0) {
+            return passwordEncoder;
+        }
+        log.debug("Limiting concurrent password checks to {}", cryptProperties.getMaxConcurrent());
+        BoundedPasswordEncoder encoder = new BoundedPasswordEncoder(passwordEncoder, cryptProperties.getMaxConcurrent(),
+                cryptProperties.getMaxQueued(), cryptProperties.getMaxWait().toMillis());
+        jwtMetrics.bindPasswordEncoder(encoder);
+        return encoder;
+    }
+
     @Bean
     public JwtAuthenticationTokenFilter authenticationTokenFilterBean() {
         log.debug("Creating JwtAuthenticationTokenFilter");
@@ -120,4 +136,14 @@ public class JwtSecurityConfig {
     public void setJwtTokenService(JwtTokenService jwtTokenService) {
         this.jwtTokenService = jwtTokenService;
     }
+
+    @Autowired(required = false)
+    public void setCryptProperties(CryptProperties cryptProperties) {
+        this.cryptProperties = cryptProperties;
+    }
+
+    @Autowired(required = false)
+    public void setJwtMetrics(@NonNull JwtMetrics jwtMetrics) {
+        this.jwtMetrics = jwtMetrics;
+    }
 }
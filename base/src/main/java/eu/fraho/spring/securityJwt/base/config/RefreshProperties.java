@@ -56,6 +56,14 @@ public class RefreshProperties implements InitializingBean {
     @NonNull
     private String path = "/auth/refresh";
 
+    /**
+     * Write new refresh tokens to the store in parallel to signing the access token on login and refresh, using the
+     * {@link eu.fraho.spring.securityJwt.base.service.AsyncRefreshTokenStore}.<br>
+     * Reduces the latency of issuing tokens when the store is remote. Stores without asynchronous support run their
+     * operations using the shared {@link eu.fraho.spring.securityJwt.base.service.RefreshStoreExecutor}.
+     */
+    private boolean parallelStore = false;
+
     @NestedConfigurationProperty
     private RefreshCookieProperties cookie = new RefreshCookieProperties();
 
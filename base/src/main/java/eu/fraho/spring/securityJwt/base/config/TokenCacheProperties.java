@@ -0,0 +1,46 @@
+/*
+ * MIT Licence
+ * Copyright (c) 2026 Simon Frankenberger
+ *
+ * Please see LICENCE.md for complete licence text.
+ */
+package eu.fraho.spring.securityJwt.base.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@ConfigurationProperties(prefix = "fraho.jwt.token.cache")
+@Component
+@Getter
+@Setter
+@Slf4j
+public class TokenCacheProperties implements InitializingBean {
+    /**
+     * Enables the cache of already verified access tokens. Clients usually send the same token with many requests,
+     * so caching the result of the signature check saves the expensive verification (especially for RSA and ECDSA).
+     * Tokens are only kept until they expire.
+     */
+    private boolean enabled = false;
+
+    /**
+     * Maximum number of verified tokens held in the cache. When the limit is reached, the least recently used
+     * token is evicted.
+     */
+    private int maxSize = 10_000;
+
+    @Override
+    public void afterPropertiesSet() {
+        if (maxSize < 1 || maxSize > 10_000_000) {
+            log.warn("Token cache size out of bounds ({} <= {} <= {}), forcing to default ({})",
+                    1, maxSize, 10_000_000, 10_000);
+            maxSize = 10_000;
+        }
+        if (enabled) {
+            log.info("Enabling cache for verified access tokens");
+        }
+    }
+}
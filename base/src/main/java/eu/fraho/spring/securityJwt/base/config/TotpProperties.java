@@ -33,6 +33,20 @@ public class TotpProperties implements InitializingBean {
      */
     private int length = 16;
 
+    /**
+     * Maximum number of decoded TOTP secrets held in memory to speed up the verification of codes. When the limit
+     * is reached, the least recently used secret is evicted.
+     */
+    private int cacheSize = 1024;
+
+    /**
+     * Accept each TOTP code only once per user. Without this, a code may be used again as long as it is within
+     * the variance window.<br>
+     * The used codes are shared between all nodes when the refresh tokens are stored using data-redis or memcache,
+     * otherwise they are held in memory.
+     */
+    private boolean replayProtection = false;
+
     @Override
     public void afterPropertiesSet() {
         if (variance < 1 || variance > 20) {
@@ -45,5 +59,10 @@ public class TotpProperties implements InitializingBean {
                     8, length, 64, 16);
             length = 16;
         }
+        if (cacheSize < 1 || cacheSize > 1_000_000) {
+            log.warn("TOTP cache size out of bounds ({} <= {} <= {}), forcing to default ({})",
+                    1, cacheSize, 1_000_000, 1024);
+            cacheSize = 1024;
+        }
     }
 }
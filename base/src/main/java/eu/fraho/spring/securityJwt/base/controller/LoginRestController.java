@@ -45,6 +45,7 @@ public class LoginRestController implements CookieSupport {
             @ApiResponse(responseCode = "200", description = "Generated token"),
             @ApiResponse(responseCode = "400", description = "Missing a required field in the request"),
             @ApiResponse(responseCode = "401", description = "Either the credentials are wrong or the user has no access to this api"),
+            @ApiResponse(responseCode = "503", description = "Too many concurrent logins, only if fraho.crypt.maxConcurrent is set"),
     })
     public ResponseEntity<AuthenticationResponse> login(HttpServletResponse response,
                                                         @RequestBody AuthenticationRequest authenticationRequest) {
@@ -0,0 +1,20 @@
+/*
+ * MIT Licence
+ * Copyright (c) 2026 Simon Frankenberger
+ *
+ * Please see LICENCE.md for complete licence text.
+ */
+package eu.fraho.spring.securityJwt.base.dto;
+
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * A refresh token together with the id of the user it was issued to.
+ */
+@Value
+@Builder
+public class RefreshTokenEntry {
+    Long userId;
+    RefreshToken token;
+}
@@ -0,0 +1,37 @@
+/*
+ * MIT Licence
+ * Copyright (c) 2026 Simon Frankenberger
+ *
+ * Please see LICENCE.md for complete licence text.
+ */
+package eu.fraho.spring.securityJwt.base.dto;
+
+/**
+ * Outcome of the verification of an access token.
+ */
+public enum TokenVerificationResult {
+    /**
+     * The signature and all claims are valid
+     */
+    VALID,
+    /**
+     * The signature does not match the configured key
+     */
+    INVALID_SIGNATURE,
+    /**
+     * The token has no expiration or is already expired (exp)
+     */
+    EXPIRED,
+    /**
+     * The token is not valid yet (nbf)
+     */
+    NOT_YET_VALID,
+    /**
+     * The token was issued in the future (iat)
+     */
+    ISSUED_IN_FUTURE,
+    /**
+     * The token or its claims could not be parsed
+     */
+    PARSE_ERROR
+}
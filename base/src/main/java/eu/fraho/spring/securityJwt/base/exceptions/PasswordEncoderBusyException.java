@@ -0,0 +1,17 @@
+/*
+ * MIT Licence
+ * Copyright (c) 2026 Simon Frankenberger
+ *
+ * Please see LICENCE.md for complete licence text.
+ */
+package eu.fraho.spring.securityJwt.base.exceptions;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class PasswordEncoderBusyException extends SecurityException {
+    public PasswordEncoderBusyException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * MIT Licence
+ * Copyright (c) 2026 Simon Frankenberger
+ *
+ * Please see LICENCE.md for complete licence text.
+ */
+package eu.fraho.spring.securityJwt.base.metrics;
+
+import eu.fraho.spring.securityJwt.base.dto.TokenVerificationResult;
+import eu.fraho.spring.securityJwt.base.password.BoundedPasswordEncoder;
+import eu.fraho.spring.securityJwt.base.service.VerifiedTokenCache;
+
+/**
+ * Receives timings and outcomes of the token pipeline.
+ * <p>
+ * All methods default to doing nothing, so an implementation only has to override what it is interested in.
+ * The durations are measured with {@link System#nanoTime()}.
+ *
+ * @see MicrometerJwtMetrics
+ */
+public interface JwtMetrics {
+    /**
+     * Implementation which discards everything. Used when no metrics are configured.
+     */
+    JwtMetrics NOOP = new JwtMetrics() {
+    };
+
+    /**
+     * An access token was signed (or signing failed).
+     *
+     * @param nanos   The duration
+     * @param success If the token was generated
+     */
+    default void recordTokenGeneration(long nanos, boolean success) {
+    }
+
+    /**
+     * An access token was verified.
+     *
+     * @param nanos  The duration
+     * @param result The outcome of the verification
+     */
+    default void recordTokenVerification(long nanos, TokenVerificationResult result) {
+    }
+
+    /**
+     * A user was parsed from an access token, including the verification (or cache lookup).
+     *
+     * @param nanos   The duration
+     * @param success If a user could be parsed from the token
+     */
+    default void recordTokenParse(long nanos, boolean success) {
+    }
+
+    /**
+     * A single phase of a login was executed.
+     *
+     * @param phase   The phase
+     * @param nanos   The duration
+     * @param success If the phase completed successfully
+     */
+    default void recordLoginPhase(LoginPhase phase, long nanos, boolean success) {
+    }
+
+    /**
+     * A refresh token was used to issue new tokens.
+     *
+     * @param nanos   The duration
+     * @param success If new tokens were issued
+     */
+    default void recordRefresh(long nanos, boolean success) {
+    }
+
+    /**
+     * Called once when the cache of verified tokens is created, allowing to monitor its statistics.
+     *
+     * @param cache The cache
+     */
+    default void bindTokenCache(VerifiedTokenCache cache) {
+    }
+
+    /**
+     * Called once when the password encoder used for authentication is bounded, allowing to monitor its queue.
+     *
+     * @param encoder The bounded password encoder
+     */
+    default void bindPasswordEncoder(BoundedPasswordEncoder encoder) {
+    }
+
+    /**
+     * Create the metrics for a single refresh token store.
+     * Called once per store when it is first used.
+     *
+     * @param store The name of the store (simple class name of the implementation)
+     * @return The metrics of that store
+     */
+    default RefreshStoreMetrics refreshStore(String store) {
+        return RefreshStoreMetrics.NOOP;
+    }
+}
@@ -0,0 +1,33 @@
+/*
+ * MIT Licence
+ * Copyright (c) 2026 Simon Frankenberger
+ *
+ * Please see LICENCE.md for complete licence text.
+ */
+package eu.fraho.spring.securityJwt.base.metrics;
+
+/**
+ * The single steps of a login, as executed by {@link eu.fraho.spring.securityJwt.base.service.LoginServiceImpl}.
+ */
+public enum LoginPhase {
+    /**
+     * Authentication against the AuthenticationManager (password check)
+     */
+    AUTHENTICATION,
+    /**
+     * Loading the user from the UserDetailsService
+     */
+    USER_LOAD,
+    /**
+     * Checking the api access and the TOTP
+     */
+    TOTP,
+    /**
+     * Signing the access token
+     */
+    SIGNING,
+    /**
+     * Generating the refresh token and saving it to the store
+     */
+    REFRESH_STORE
+}
@@ -0,0 +1,181 @@
+/*
+ * MIT Licence
+ * Copyright (c) 2026 Simon Frankenberger
+ *
+ * Please see LICENCE.md for complete licence text.
+ */
+package eu.fraho.spring.securityJwt.base.metrics;
+
+import eu.fraho.spring.securityJwt.base.dto.TokenVerificationResult;
+import eu.fraho.spring.securityJwt.base.password.BoundedPasswordEncoder;
+import eu.fraho.spring.securityJwt.base.service.VerifiedTokenCache;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publishes the metrics to a micrometer {@link MeterRegistry}.
+ * <p>
+ * All meters are registered upfront, so recording a value does not need any lookups.
+ * <table>
+ * <caption>Published meters</caption>
+ * <tr><th>Name</th><th>Type</th><th>Tags</th></tr>
+ * <tr><td>fraho.jwt.token.generate</td><td>Timer</td><td>outcome</td></tr>
+ * <tr><td>fraho.jwt.token.verify</td><td>Timer</td><td>result</td></tr>
+ * <tr><td>fraho.jwt.token.parse</td><td>Timer</td><td>outcome</td></tr>
+ * <tr><td>fraho.jwt.token.cache.requests</td><td>FunctionCounter</td><td>result</td></tr>
+ * <tr><td>fraho.jwt.token.cache.size</td><td>Gauge</td><td></td></tr>
+ * <tr><td>fraho.jwt.login</td><td>Timer</td><td>phase, outcome</td></tr>
+ * <tr><td>fraho.jwt.refresh</td><td>Timer</td><td>outcome</td></tr>
+ * <tr><td>fraho.jwt.refresh.store</td><td>Timer (with histogram)</td><td>store, operation, outcome</td></tr>
+ * <tr><td>fraho.jwt.refresh.store.results</td><td>DistributionSummary</td><td>store, operation</td></tr>
+ * <tr><td>fraho.jwt.password.active</td><td>Gauge</td><td></td></tr>
+ * <tr><td>fraho.jwt.password.queued</td><td>Gauge</td><td></td></tr>
+ * <tr><td>fraho.jwt.password.rejected</td><td>FunctionCounter</td><td></td></tr>
+ * </table>
+ */
+@Slf4j
+public class MicrometerJwtMetrics implements JwtMetrics {
+    private static final String SUCCESS = "success";
+    private static final String FAILURE = "failure";
+
+    private final MeterRegistry registry;
+    private final Timer[] generate;
+    private final Timer[] parse;
+    private final Timer[] refresh;
+    private final Map<TokenVerificationResult, Timer> verify = new EnumMap<>(TokenVerificationResult.class);
+    private final Map<LoginPhase, Timer[]> login = new EnumMap<>(LoginPhase.class);
+
+    public MicrometerJwtMetrics(@NonNull MeterRegistry registry) {
+        this.registry = registry;
+        generate = outcomeTimers("fraho.jwt.token.generate", "Duration of signing access tokens");
+        parse = outcomeTimers("fraho.jwt.token.parse", "Duration of parsing users from access tokens");
+        refresh = outcomeTimers("fraho.jwt.refresh", "Duration of issuing new tokens using a refresh token");
+        for (TokenVerificationResult result : TokenVerificationResult.values()) {
+            verify.put(result, Timer.builder("fraho.jwt.token.verify")
+                    .description("Duration of verifying access tokens")
+                    .tag("result", tagValue(result))
+                    .register(registry));
+        }
+        for (LoginPhase phase : LoginPhase.values()) {
+            login.put(phase, outcomeTimers("fraho.jwt.login", "Duration of the single login phases", "phase", tagValue(phase)));
+        }
+    }
+
+    private static String tagValue(Enum<?> value) {
+        return value.name().toLowerCase(Locale.ROOT);
+    }
+
+    private static int index(boolean success) {
+        return success ? 0 : 1;
+    }
+
+    private Timer[] outcomeTimers(String name, String description, String... tags) {
+        return outcomeTimers(name, description, false, tags);
+    }
+
+    private Timer[] outcomeTimers(String name, String description, boolean histogram, String... tags) {
+        return new Timer[]{
+                Timer.builder(name).description(description).tags(tags).tag("outcome", SUCCESS)
+                        .publishPercentileHistogram(histogram).register(registry),
+                Timer.builder(name).description(description).tags(tags).tag("outcome", FAILURE)
+                        .publishPercentileHistogram(histogram).register(registry)
+        };
+    }
+
+    @Override
+    public void recordTokenGeneration(long nanos, boolean success) {
+        generate[index(success)].record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void recordTokenVerification(long nanos, TokenVerificationResult result) {
+        verify.get(result).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void recordTokenParse(long nanos, boolean success) {
+        parse[index(success)].record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void recordLoginPhase(LoginPhase phase, long nanos, boolean success) {
+        login.get(phase)[index(success)].record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void recordRefresh(long nanos, boolean success) {
+        refresh[index(success)].record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void bindTokenCache(VerifiedTokenCache cache) {
+        log.debug("Binding metrics for verified token cache");
+        FunctionCounter.builder("fraho.jwt.token.cache.requests", cache, VerifiedTokenCache::getHits)
+                .description("Lookups in the cache of verified access tokens")
+                .tag("result", "hit")
+                .register(registry);
+        FunctionCounter.builder("fraho.jwt.token.cache.requests", cache, VerifiedTokenCache::getMisses)
+                .description("Lookups in the cache of verified access tokens")
+                .tag("result", "miss")
+                .register(registry);
+        Gauge.builder("fraho.jwt.token.cache.size", cache, VerifiedTokenCache::size)
+                .description("Number of cached verified access tokens")
+                .register(registry);
+    }
+
+    @Override
+    public void bindPasswordEncoder(BoundedPasswordEncoder encoder) {
+        log.debug("Binding metrics for bounded password encoder");
+        Gauge.builder("fraho.jwt.password.active", encoder, BoundedPasswordEncoder::getActive)
+                .description("Number of passwords currently hashed or checked")
+                .register(registry);
+        Gauge.builder("fraho.jwt.password.queued", encoder, BoundedPasswordEncoder::getQueued)
+                .description("Number of logins waiting for a password check")
+                .register(registry);
+        FunctionCounter.builder("fraho.jwt.password.rejected", encoder, BoundedPasswordEncoder::getRejected)
+                .description("Logins rejected because too many passwords were checked concurrently")
+                .register(registry);
+    }
+
+    @Override
+    public RefreshStoreMetrics refreshStore(String store) {
+        log.debug("Registering metrics for refresh token store {}", store);
+        return new MicrometerRefreshStoreMetrics(store);
+    }
+
+    private class MicrometerRefreshStoreMetrics implements RefreshStoreMetrics {
+        private final Map<RefreshStoreOperation, Timer[]> timers = new EnumMap<>(RefreshStoreOperation.class);
+        private final Map<RefreshStoreOperation, DistributionSummary> results = new EnumMap<>(RefreshStoreOperation.class);
+
+        private MicrometerRefreshStoreMetrics(String store) {
+            for (RefreshStoreOperation operation : RefreshStoreOperation.values()) {
+                timers.put(operation, outcomeTimers("fraho.jwt.refresh.store", "Duration of refresh token store operations",
+                        true, "store", store, "operation", tagValue(operation)));
+                results.put(operation, DistributionSummary.builder("fraho.jwt.refresh.store.results")
+                        .description("Number of tokens affected by refresh token store operations")
+                        .tags("store", store, "operation", tagValue(operation))
+                        .register(registry));
+            }
+        }
+
+        @Override
+        public void recordOperation(RefreshStoreOperation operation, long nanos, boolean success) {
+            timers.get(operation)[index(success)].record(nanos, TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public void recordResultSize(RefreshStoreOperation operation, int size) {
+            results.get(operation).record(size);
+        }
+    }
+}
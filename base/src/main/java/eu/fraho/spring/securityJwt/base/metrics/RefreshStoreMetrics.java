@@ -0,0 +1,40 @@
+/*
+ * MIT Licence
+ * Copyright (c) 2026 Simon Frankenberger
+ *
+ * Please see LICENCE.md for complete licence text.
+ */
+package eu.fraho.spring.securityJwt.base.metrics;
+
+/**
+ * Receives timings and result sizes of a single refresh token store.
+ *
+ * @see JwtMetrics#refreshStore(String)
+ */
+public interface RefreshStoreMetrics {
+    /**
+     * Implementation which discards everything.
+     */
+    RefreshStoreMetrics NOOP = new RefreshStoreMetrics() {
+    };
+
+    /**
+     * An operation was executed on the store.
+     *
+     * @param operation The operation
+     * @param nanos     The duration
+     * @param success   If the operation completed without an exception
+     */
+    default void recordOperation(RefreshStoreOperation operation, long nanos, boolean success) {
+    }
+
+    /**
+     * An operation returned a result.
+     * The size is the number of listed or revoked tokens, for single token operations it is either 0 or 1.
+     *
+     * @param operation The operation
+     * @param size      The size of the result
+     */
+    default void recordResultSize(RefreshStoreOperation operation, int size) {
+    }
+}
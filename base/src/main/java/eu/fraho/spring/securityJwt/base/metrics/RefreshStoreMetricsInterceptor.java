@@ -0,0 +1,174 @@
+/*
+ * MIT Licence
+ * Copyright (c) 2026 Simon Frankenberger
+ *
+ * Please see LICENCE.md for complete licence text.
+ */
+package eu.fraho.spring.securityJwt.base.metrics;
+
+import eu.fraho.spring.securityJwt.base.service.RefreshTokenStore;
+import lombok.NonNull;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.support.AopUtils;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Records the latency, outcome and result size of every {@link RefreshStoreOperation} on a {@link RefreshTokenStore}.
+ * <p>
+ * The metrics are tagged with the simple class name of the store implementation, the {@link JwtMetrics} are
+ * looked up on the first invocation of each store.
+ * <p>
+ * The stream returned by {@link RefreshTokenStore#streamTokens(Long, int)} fetches its pages while it is consumed, so
+ * the operation is recorded once the stream is exhausted, fails or is closed. The duration covers the creation of the
+ * stream and the fetching of the pages, but not the time spent by the consumer. The result size is the number of
+ * consumed tokens.
+ *
+ * @see RefreshStoreMetricsPostProcessor
+ */
+public class RefreshStoreMetricsInterceptor implements MethodInterceptor {
+    private final Supplier<JwtMetrics> jwtMetrics;
+    private final Map<Class<?>, RefreshStoreMetrics> stores = new ConcurrentHashMap<>();
+
+    public RefreshStoreMetricsInterceptor(@NonNull Supplier<JwtMetrics> jwtMetrics) {
+        this.jwtMetrics = jwtMetrics;
+    }
+
+    static int resultSize(Object result) {
+        if (result instanceof Optional<?> optional) {
+            return optional.isPresent() ? 1 : 0;
+        } else if (result instanceof Boolean bool) {
+            return bool ? 1 : 0;
+        } else if (result instanceof Number number) {
+            return number.intValue();
+        } else if (result instanceof Collection<?> collection) {
+            return collection.size();
+        } else if (result instanceof Map<?, ?> map) {
+            int size = 0;
+            for (Object value : map.values()) {
+                size += value instanceof List<?> list ? list.size() : 1;
+            }
+            return size;
+        }
+        return -1;
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        RefreshStoreOperation operation = RefreshStoreOperation.of(invocation.getMethod());
+        if (operation == null) {
+            return invocation.proceed();
+        }
+
+        RefreshStoreMetrics metrics = stores.computeIfAbsent(AopUtils.getTargetClass(invocation.getThis()),
+                type -> jwtMetrics.get().refreshStore(type.getSimpleName()));
+        long start = System.nanoTime();
+        if (operation == RefreshStoreOperation.STREAM_TOKENS) {
+            Stream<?> stream;
+            try {
+                stream = (Stream<?>) invocation.proceed();
+            } catch (Throwable t) {
+                metrics.recordOperation(operation, System.nanoTime() - start, false);
+                throw t;
+            }
+            return meteredStream(stream, metrics, System.nanoTime() - start);
+        }
+
+        boolean success = false;
+        try {
+            Object result = invocation.proceed();
+            success = true;
+            int size = resultSize(result);
+            if (size >= 0) {
+                metrics.recordResultSize(operation, size);
+            }
+            return result;
+        } finally {
+            metrics.recordOperation(operation, System.nanoTime() - start, success);
+        }
+    }
+
+    private static <T> Stream<T> meteredStream(Stream<T> stream, RefreshStoreMetrics metrics, long nanos) {
+        MeteredSpliterator<T> spliterator = new MeteredSpliterator<>(stream.spliterator(), metrics, nanos);
+        return StreamSupport.stream(spliterator, stream.isParallel())
+                .onClose(stream::close)
+                .onClose(() -> spliterator.record(true));
+    }
+
+    private static final class MeteredSpliterator<T> extends Spliterators.AbstractSpliterator<T> implements Consumer<T> {
+        private final Spliterator<T> delegate;
+        private final RefreshStoreMetrics metrics;
+        private final AtomicBoolean recorded = new AtomicBoolean();
+        private long nanos;
+        private int count;
+        private Consumer<? super T> action;
+        private long consuming;
+        private boolean consumerFailed;
+
+        private MeteredSpliterator(Spliterator<T> delegate, RefreshStoreMetrics metrics, long nanos) {
+            // not sized, so counting the stream still fetches all pages
+            super(delegate.estimateSize(), delegate.characteristics() & ~(Spliterator.SIZED | Spliterator.SUBSIZED));
+            this.delegate = delegate;
+            this.metrics = metrics;
+            this.nanos = nanos;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) {
+            this.action = action;
+            consuming = 0;
+            long start = System.nanoTime();
+            boolean advanced;
+            try {
+                advanced = delegate.tryAdvance(this);
+            } catch (RuntimeException | Error e) {
+                nanos += System.nanoTime() - start - consuming;
+                // failures of the consumer are not caused by the store, the stream is recorded when it is closed
+                if (!consumerFailed) {
+                    record(false);
+                }
+                throw e;
+            }
+            nanos += System.nanoTime() - start - consuming;
+            if (!advanced) {
+                record(true);
+            }
+            return advanced;
+        }
+
+        @Override
+        public void accept(T element) {
+            count++;
+            long start = System.nanoTime();
+            try {
+                action.accept(element);
+            } catch (RuntimeException | Error e) {
+                consumerFailed = true;
+                throw e;
+            } finally {
+                consuming += System.nanoTime() - start;
+            }
+        }
+
+        private void record(boolean success) {
+            if (recorded.compareAndSet(false, true)) {
+                metrics.recordOperation(RefreshStoreOperation.STREAM_TOKENS, nanos, success);
+                if (success) {
+                    metrics.recordResultSize(RefreshStoreOperation.STREAM_TOKENS, count);
+                }
+            }
+        }
+    }
+}
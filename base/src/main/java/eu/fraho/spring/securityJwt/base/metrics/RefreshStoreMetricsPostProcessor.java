@@ -0,0 +1,46 @@
+/*
+ * MIT Licence
+ * Copyright (c) 2026 Simon Frankenberger
+ *
+ * Please see LICENCE.md for complete licence text.
+ */
+package eu.fraho.spring.securityJwt.base.metrics;
+
+import eu.fraho.spring.securityJwt.base.service.RefreshTokenStore;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.aop.framework.AbstractAdvisingBeanPostProcessor;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.beans.factory.ObjectProvider;
+
+/**
+ * Instruments every {@link RefreshTokenStore} bean with a {@link RefreshStoreMetricsInterceptor}, including stores
+ * provided by third-party addons.
+ * <p>
+ * The stores are proxied by class, so they can still be injected using their concrete type.
+ * When a store is already proxied (e.g. because of {@code @Transactional}), the interceptor is added in front of
+ * the existing advisors, so the measured duration includes the commit.
+ * Stores which do not support refresh tokens and applications without a {@link JwtMetrics} bean are left untouched.
+ */
+@Slf4j
+public class RefreshStoreMetricsPostProcessor extends AbstractAdvisingBeanPostProcessor {
+    private final ObjectProvider<JwtMetrics> jwtMetrics;
+
+    public RefreshStoreMetricsPostProcessor(@NonNull ObjectProvider<JwtMetrics> jwtMetrics) {
+        this.jwtMetrics = jwtMetrics;
+        this.advisor = new DefaultPointcutAdvisor(new RefreshStoreMetricsInterceptor(
+                () -> jwtMetrics.getIfAvailable(() -> JwtMetrics.NOOP)));
+        setBeforeExistingAdvisors(true);
+        setProxyTargetClass(true);
+    }
+
+    @Override
+    protected boolean isEligible(Object bean, String beanName) {
+        if (!(bean instanceof RefreshTokenStore store) || !store.isRefreshTokenSupported()
+                || jwtMetrics.getIfAvailable() == null) {
+            return false;
+        }
+        log.debug("Instrumenting refresh token store {}", beanName);
+        return super.isEligible(bean, beanName);
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * MIT Licence
+ * Copyright (c) 2026 Simon Frankenberger
+ *
+ * Please see LICENCE.md for complete licence text.
+ */
+package eu.fraho.spring.securityJwt.base.metrics;
+
+import eu.fraho.spring.securityJwt.base.service.RefreshTokenStore;
+
+import java.lang.reflect.Method;
+import java.util.Collection;
+
+/**
+ * The instrumented operations of a {@link RefreshTokenStore}.
+ */
+public enum RefreshStoreOperation {
+    /**
+     * {@link RefreshTokenStore#saveToken(eu.fraho.spring.securityJwt.base.dto.JwtUser, String)}
+     */
+    SAVE_TOKEN,
+    /**
+     * {@link RefreshTokenStore#useToken(String)}
+     */
+    USE_TOKEN,
+    /**
+     * {@link RefreshTokenStore#listTokens(eu.fraho.spring.securityJwt.base.dto.JwtUser)}
+     */
+    LIST_TOKENS,
+    /**
+     * {@link RefreshTokenStore#listTokens()}
+     */
+    LIST_ALL_TOKENS,
+    /**
+     * {@link RefreshTokenStore#streamTokens(Long, int)}, recorded when the stream is exhausted, fails or is closed.
+     * The duration includes fetching the pages, the result size is the number of consumed tokens.
+     */
+    STREAM_TOKENS,
+    /**
+     * {@link RefreshTokenStore#revokeToken(String)}
+     */
+    REVOKE_TOKEN,
+    /**
+     * {@link RefreshTokenStore#revokeTokens(eu.fraho.spring.securityJwt.base.dto.JwtUser)}
+     */
+    REVOKE_TOKENS,
+    /**
+     * {@link RefreshTokenStore#revokeTokens(java.util.Collection)}
+     */
+    REVOKE_TOKEN_LIST,
+    /**
+     * {@link RefreshTokenStore#revokeTokensOfUsers(java.util.Collection)}
+     */
+    REVOKE_USERS_TOKENS,
+    /**
+     * {@link RefreshTokenStore#revokeTokens()}
+     */
+    REVOKE_ALL_TOKENS;
+
+    /**
+     * Map a method of the {@link RefreshTokenStore} interface to the operation.
+     *
+     * @param method The invoked method
+     * @return The operation, or {@code null} if the method is not instrumented
+     */
+    public static RefreshStoreOperation of(Method method) {
+        boolean all = method.getParameterCount() == 0;
+        return switch (method.getName()) {
+            case "saveToken" -> SAVE_TOKEN;
+            case "useToken" -> USE_TOKEN;
+            case "listTokens" -> all ? LIST_ALL_TOKENS : LIST_TOKENS;
+            case "streamTokens" -> STREAM_TOKENS;
+            case "revokeToken" -> REVOKE_TOKEN;
+            case "revokeTokens" -> all ? REVOKE_ALL_TOKENS
+                    : Collection.class.equals(method.getParameterTypes()[0]) ? REVOKE_TOKEN_LIST : REVOKE_TOKENS;
+            case "revokeTokensOfUsers" -> REVOKE_USERS_TOKENS;
+            default -> null;
+        };
+    }
+}
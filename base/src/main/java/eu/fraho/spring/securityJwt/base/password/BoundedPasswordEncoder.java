@@ -0,0 +1,131 @@
+/*
+ * MIT Licence
+ * Copyright (c) 2026 Simon Frankenberger
+ *
+ * Please see LICENCE.md for complete licence text.
+ */
+package eu.fraho.spring.securityJwt.base.password;
+
+import eu.fraho.spring.securityJwt.base.exceptions.PasswordEncoderBusyException;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Limits the number of passwords hashed or checked concurrently by the delegate.
+ * <p>
+ * Callers wait for a free slot, up to {@code maxQueued} callers at once and at most {@code maxWaitMillis} each.
+ * All other callers are rejected immediately with a {@link PasswordEncoderBusyException} (503).
+ * This keeps a login storm from occupying every request thread, so requests using an access token are still served.
+ * <p>
+ * The hashing is executed on the calling thread, as {@link PasswordEncoder} is synchronous anyway.
+ */
+@Slf4j
+public class BoundedPasswordEncoder implements PasswordEncoder {
+    private final PasswordEncoder delegate;
+    private final Semaphore permits;
+    private final int maxConcurrent;
+    private final int maxQueued;
+    private final long maxWaitMillis;
+    private final AtomicInteger queued = new AtomicInteger();
+    private final LongAdder rejected = new LongAdder();
+
+    public BoundedPasswordEncoder(@NonNull PasswordEncoder delegate, int maxConcurrent, int maxQueued, long maxWaitMillis) {
+        if (maxConcurrent < 1) {
+            throw new IllegalArgumentException("The concurrency has to be positive");
+        }
+        if (maxQueued < 0 || maxWaitMillis < 0) {
+            throw new IllegalArgumentException("The queue size and wait time may not be negative");
+        }
+        this.delegate = delegate;
+        this.permits = new Semaphore(maxConcurrent, true);
+        this.maxConcurrent = maxConcurrent;
+        this.maxQueued = maxQueued;
+        this.maxWaitMillis = maxWaitMillis;
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return bounded(() -> delegate.encode(rawPassword));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return bounded(() -> delegate.matches(rawPassword, encodedPassword));
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        // only inspects the encoded password, no need to wait for a slot
+        return delegate.upgradeEncoding(encodedPassword);
+    }
+
+    /**
+     * @return The delegate which does the actual hashing
+     */
+    public PasswordEncoder getDelegate() {
+        return delegate;
+    }
+
+    /**
+     * @return The number of passwords currently hashed or checked
+     */
+    public int getActive() {
+        return maxConcurrent - permits.availablePermits();
+    }
+
+    /**
+     * @return The number of callers currently waiting for a free slot
+     */
+    public int getQueued() {
+        return queued.get();
+    }
+
+    /**
+     * @return The number of callers rejected since the creation of this encoder
+     */
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    private <T> T bounded(Supplier<T> action) {
+        acquire();
+        try {
+            return action.get();
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void acquire() {
+        if (permits.tryAcquire()) {
+            return;
+        }
+        if (queued.incrementAndGet() > maxQueued) {
+            queued.decrementAndGet();
+            reject("Too many concurrent password checks");
+        }
+        try {
+            if (!permits.tryAcquire(maxWaitMillis, TimeUnit.MILLISECONDS)) {
+                reject("Timed out waiting for a password check");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            reject("Interrupted while waiting for a password check");
+        } finally {
+            queued.decrementAndGet();
+        }
+    }
+
+    private void reject(String message) {
+        rejected.increment();
+        log.debug("Rejecting password check: {}", message);
+        throw new PasswordEncoderBusyException(message);
+    }
+}
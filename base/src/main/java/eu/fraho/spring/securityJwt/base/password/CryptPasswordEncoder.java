@@ -19,16 +19,14 @@ import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Component;
 
 import java.security.SecureRandom;
-import java.util.Base64;
-import java.util.Base64.Encoder;
 
 @Component
 @Slf4j
 @NoArgsConstructor
 @AllArgsConstructor
 public class CryptPasswordEncoder implements PasswordEncoder {
+    private static final String SALT_CHARS = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz";
     private final SecureRandom random = new SecureRandom();
-    private final Encoder encoder = Base64.getUrlEncoder();
     private CryptProperties cryptProperties;
 
     private static boolean slowEquals(CharSequence a, CharSequence b) {
@@ -49,11 +47,12 @@ public class CryptPasswordEncoder implements PasswordEncoder {
             log.trace("Encoding password with param={}", cryptParam);
             return BCrypt.hashpw(rawPassword.toString(), cryptParam);
         } else if (algorithm.isRoundsSupported()) {
-            cryptParam = String.format("%srounds=%d$%s$", algorithm.getPrefix(), cryptProperties.getRounds(), generateSalt(algorithm));
+            log.trace("Encoding password with rounds={}", cryptProperties.getRounds());
+            return ShaCrypt.crypt(rawPassword, algorithm, cryptProperties.getRounds(), generateSalt(algorithm));
         } else if (CryptAlgorithm.DES.equals(algorithm)) {
             cryptParam = generateSalt(algorithm);
         } else {
-            cryptParam = String.format("%s%s$", algorithm.getPrefix(), generateSalt(algorithm));
+            cryptParam = algorithm.getPrefix() + generateSalt(algorithm) + '$';
         }
         log.trace("Encoding password with param={}", cryptParam);
         return Crypt.crypt(rawPassword.toString(), cryptParam);
@@ -66,19 +65,58 @@ public class CryptPasswordEncoder implements PasswordEncoder {
         }
         if (encodedPassword.startsWith(CryptAlgorithm.BLOWFISH.getPrefix())) {
             return BCrypt.checkpw(rawPassword.toString(), encodedPassword);
+        } else if (ShaCrypt.isSupported(encodedPassword)) {
+            return ShaCrypt.matches(rawPassword, encodedPassword);
         } else {
             return slowEquals(encodedPassword, Crypt.crypt(rawPassword.toString(), encodedPassword));
         }
     }
 
+    /**
+     * Check if the encoded password should be encoded again, because it does not use the configured algorithm,
+     * rounds or cost. Lowering the rounds or cost also results in an upgrade.
+     *
+     * @param encodedPassword The encoded password
+     * @return {@code true} if the password should be encoded again
+     */
+    @Override
+    @SuppressWarnings("deprecation")
+    public boolean upgradeEncoding(String encodedPassword) {
+        if (encodedPassword == null || encodedPassword.isEmpty()) {
+            return false;
+        }
+        CryptAlgorithm algorithm = cryptProperties.getAlgorithm();
+        if (CryptAlgorithm.DES.equals(algorithm)) {
+            // des has no prefix at all
+            return encodedPassword.charAt(0) == '$';
+        } else if (!encodedPassword.startsWith(algorithm.getPrefix())) {
+            return true;
+        } else if (CryptAlgorithm.BLOWFISH.equals(algorithm)) {
+            return getCost(encodedPassword) != cryptProperties.getCost();
+        } else if (algorithm.isRoundsSupported()) {
+            return ShaCrypt.getRounds(encodedPassword) != cryptProperties.getRounds();
+        }
+        return false;
+    }
+
+    private static int getCost(String encodedPassword) {
+        // $2a$NN$...
+        int start = CryptAlgorithm.BLOWFISH.getPrefix().length();
+        if (encodedPassword.length() < start + 3 || encodedPassword.charAt(start + 2) != '$') {
+            return -1;
+        }
+        int high = Character.digit(encodedPassword.charAt(start), 10);
+        int low = Character.digit(encodedPassword.charAt(start + 1), 10);
+        return high < 0 || low < 0 ? -1 : high * 10 + low;
+    }
+
     protected String generateSalt(CryptAlgorithm algorithm) {
-        final byte[] bytes = new byte[algorithm.getSaltLength() * 2];
-        random.nextBytes(bytes);
-        String salt = encoder.encodeToString(bytes);
-        salt = salt.replaceAll("[-_]", "");
-        String realSalt = salt.substring(0, algorithm.getSaltLength());
-        log.trace("Generated salt with length={}", realSalt.length());
-        return realSalt;
+        final char[] salt = new char[algorithm.getSaltLength()];
+        for (int i = 0; i < salt.length; i++) {
+            salt[i] = SALT_CHARS.charAt(random.nextInt(SALT_CHARS.length()));
+        }
+        log.trace("Generated salt with length={}", salt.length);
+        return new String(salt);
     }
 
     @Autowired
@@ -0,0 +1,341 @@
+/*
+ * MIT Licence
+ * Copyright (c) 2026 Simon Frankenberger
+ *
+ * Please see LICENCE.md for complete licence text.
+ */
+package eu.fraho.spring.securityJwt.base.password;
+
+import eu.fraho.spring.securityJwt.base.dto.CryptAlgorithm;
+import org.apache.commons.codec.digest.Crypt;
+
+import java.nio.charset.StandardCharsets;
+import java.security.DigestException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+/**
+ * SHA-256 and SHA-512 based crypt as specified by Ulrich Drepper, producing the same results as
+ * {@link org.apache.commons.codec.digest.Sha2Crypt}.
+ * <p>
+ * The parameters of an encoded password are parsed in a single pass without regular expressions. Each thread reuses
+ * one message digest per algorithm and its buffers, instead of creating a new digest and arrays for every round.
+ * The computed hash is compared in constant time to the encoded one, without building the crypt string.
+ * Encoded passwords which this class would not have produced itself (e.g. with a truncated salt or rounds out of
+ * bounds) are delegated to commons-codec.
+ */
+public final class ShaCrypt {
+    /**
+     * Rounds used if the encoded password does not specify them.
+     */
+    public static final int ROUNDS_DEFAULT = 5000;
+    public static final int ROUNDS_MIN = 1000;
+    public static final int ROUNDS_MAX = 999_999_999;
+
+    private static final int SALT_MAX_LENGTH = 16;
+    private static final String ROUNDS_PREFIX = "rounds=";
+    private static final String B64 = "./0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz";
+    private static final ThreadLocal<State> STATES = ThreadLocal.withInitial(State::new);
+
+    private ShaCrypt() {
+    }
+
+    /**
+     * @param encodedPassword The encoded password
+     * @return {@code true} if the password was encoded using SHA-256 or SHA-512 crypt
+     */
+    public static boolean isSupported(String encodedPassword) {
+        return Variant.of(encodedPassword) != null;
+    }
+
+    /**
+     * Get the rounds of the encoded password.
+     *
+     * @param encodedPassword The encoded password, using SHA-256 or SHA-512 crypt
+     * @return The rounds, {@link #ROUNDS_DEFAULT} if none are given or -1 if they are not in canonical form
+     * @throws IllegalArgumentException if the encoded password is not supported
+     */
+    public static int getRounds(String encodedPassword) {
+        Variant variant = Variant.of(encodedPassword);
+        if (variant == null) {
+            throw new IllegalArgumentException("Unsupported encoded password");
+        }
+        int pos = variant.prefix.length();
+        if (!encodedPassword.startsWith(ROUNDS_PREFIX, pos)) {
+            return ROUNDS_DEFAULT;
+        }
+        int start = pos + ROUNDS_PREFIX.length();
+        return parseRounds(encodedPassword, start, encodedPassword.indexOf('$', start));
+    }
+
+    /**
+     * Encode the password.
+     *
+     * @param rawPassword The password to encode
+     * @param algorithm   Either {@link CryptAlgorithm#SHA256} or {@link CryptAlgorithm#SHA512}
+     * @param rounds      The number of rounds, forced into the bounds of {@link #ROUNDS_MIN} and {@link #ROUNDS_MAX}
+     * @param salt        The salt, 1 to 16 characters of {@code [./0-9A-Za-z]}
+     * @return The encoded password, including the algorithm, rounds and salt
+     * @throws IllegalArgumentException if the algorithm or salt is not supported
+     */
+    public static String crypt(CharSequence rawPassword, CryptAlgorithm algorithm, int rounds, String salt) {
+        Variant variant = Variant.of(algorithm.getPrefix());
+        if (variant == null || !algorithm.isRoundsSupported()) {
+            throw new IllegalArgumentException("Unsupported algorithm " + algorithm);
+        }
+        if (!isSalt(salt, 0, salt.length())) {
+            throw new IllegalArgumentException("Invalid salt value");
+        }
+        int effectiveRounds = Math.max(ROUNDS_MIN, Math.min(ROUNDS_MAX, rounds));
+
+        State state = STATES.get();
+        int length = state.hash(variant, rawPassword, salt, 0, salt.length(), effectiveRounds);
+        StringBuilder result = new StringBuilder(variant.prefix.length() + 20 + salt.length() + length)
+                .append(variant.prefix).append(ROUNDS_PREFIX).append(effectiveRounds).append('$')
+                .append(salt).append('$');
+        for (int i = 0; i < length; i++) {
+            result.append((char) state.out[i]);
+        }
+        return result.toString();
+    }
+
+    /**
+     * Check if the raw password matches the encoded one.
+     *
+     * @param rawPassword     The password to check
+     * @param encodedPassword The encoded password, using SHA-256 or SHA-512 crypt
+     * @return {@code true} if the passwords match
+     * @throws IllegalArgumentException if the encoded password is not supported
+     */
+    public static boolean matches(CharSequence rawPassword, String encodedPassword) {
+        Variant variant = Variant.of(encodedPassword);
+        if (variant == null) {
+            throw new IllegalArgumentException("Unsupported encoded password");
+        }
+
+        int pos = variant.prefix.length();
+        int rounds = ROUNDS_DEFAULT;
+        if (encodedPassword.startsWith(ROUNDS_PREFIX, pos)) {
+            int start = pos + ROUNDS_PREFIX.length();
+            int end = encodedPassword.indexOf('$', start);
+            rounds = parseRounds(encodedPassword, start, end);
+            pos = end + 1;
+        }
+        int saltEnd = encodedPassword.indexOf('$', pos);
+        if (rounds < 0 || saltEnd < 0 || !isSalt(encodedPassword, pos, saltEnd)
+                || encodedPassword.length() - saltEnd - 1 != variant.hashLength) {
+            // not produced by this implementation, let commons-codec handle all edge cases
+            return slowEquals(encodedPassword, Crypt.crypt(rawPassword.toString(), encodedPassword));
+        }
+
+        State state = STATES.get();
+        int length = state.hash(variant, rawPassword, encodedPassword, pos, saltEnd, rounds);
+        int diff = 0;
+        for (int i = 0; i < length; i++) {
+            diff |= state.out[i] ^ encodedPassword.charAt(saltEnd + 1 + i);
+        }
+        return diff == 0;
+    }
+
+    private static boolean slowEquals(CharSequence a, CharSequence b) {
+        int diff = a.length() ^ b.length();
+        for (int i = 0; i < a.length() && i < b.length(); i++) {
+            diff |= a.charAt(i) ^ b.charAt(i);
+        }
+        return diff == 0;
+    }
+
+    /**
+     * @return The rounds, or -1 if they are not in canonical form or out of bounds
+     */
+    private static int parseRounds(String value, int start, int end) {
+        if (end <= start || end - start > 9 || value.charAt(start) == '0') {
+            return -1;
+        }
+        int rounds = 0;
+        for (int i = start; i < end; i++) {
+            char c = value.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            rounds = rounds * 10 + (c - '0');
+        }
+        return rounds < ROUNDS_MIN ? -1 : rounds;
+    }
+
+    private static boolean isSalt(String value, int start, int end) {
+        if (end <= start || end - start > SALT_MAX_LENGTH) {
+            return false;
+        }
+        for (int i = start; i < end; i++) {
+            if (B64.indexOf(value.charAt(i)) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private enum Variant {
+        SHA256("$5$", "SHA-256", 43, new int[]{
+                0, 10, 20, 21, 1, 11, 12, 22, 2, 3, 13, 23, 24, 4, 14,
+                15, 25, 5, 6, 16, 26, 27, 7, 17, 18, 28, 8, 9, 19, 29,
+                -1, 31, 30}),
+        SHA512("$6$", "SHA-512", 86, new int[]{
+                0, 21, 42, 22, 43, 1, 44, 2, 23, 3, 24, 45, 25, 46, 4,
+                47, 5, 26, 6, 27, 48, 28, 49, 7, 50, 8, 29, 9, 30, 51,
+                31, 52, 10, 53, 11, 32, 12, 33, 54, 34, 55, 13, 56, 14, 35,
+                15, 36, 57, 37, 58, 16, 59, 17, 38, 18, 39, 60, 40, 61, 19,
+                62, 20, 41, -1, -1, 63});
+
+        private final String prefix;
+        private final String digest;
+        private final int hashLength;
+        // byte indices of the digest encoded in groups of three, the last group is shorter, -1 is a zero byte
+        private final int[] order;
+
+        Variant(String prefix, String digest, int hashLength, int[] order) {
+            this.prefix = prefix;
+            this.digest = digest;
+            this.hashLength = hashLength;
+            this.order = order;
+        }
+
+        private static Variant of(String encodedPassword) {
+            if (encodedPassword.startsWith(SHA512.prefix)) {
+                return SHA512;
+            } else if (encodedPassword.startsWith(SHA256.prefix)) {
+                return SHA256;
+            }
+            return null;
+        }
+    }
+
+    private static final class State {
+        private final MessageDigest[] digests = new MessageDigest[Variant.values().length];
+        private final byte[] alt = new byte[64];
+        private final byte[] temp = new byte[64];
+        private final byte[] salt = new byte[SALT_MAX_LENGTH];
+        private final byte[] s = new byte[SALT_MAX_LENGTH];
+        private final byte[] out = new byte[86];
+        private byte[] p = new byte[64];
+
+        private State() {
+            for (Variant variant : Variant.values()) {
+                try {
+                    digests[variant.ordinal()] = MessageDigest.getInstance(variant.digest);
+                } catch (NoSuchAlgorithmException e) {
+                    throw new IllegalStateException(variant.digest + " is not supported by this JVM", e);
+                }
+            }
+        }
+
+        /**
+         * Compute the hash and write its encoded form to {@link #out}.
+         *
+         * @return The length of the encoded hash
+         */
+        private int hash(Variant variant, CharSequence rawPassword, String saltSource, int saltStart, int saltEnd, int rounds) {
+            MessageDigest md = digests[variant.ordinal()];
+            md.reset();
+            int bs = md.getDigestLength();
+            int saltLen = saltEnd - saltStart;
+            for (int i = 0; i < saltLen; i++) {
+                salt[i] = (byte) saltSource.charAt(saltStart + i);
+            }
+            byte[] key = rawPassword.toString().getBytes(StandardCharsets.UTF_8);
+            int keyLen = key.length;
+            if (p.length < keyLen) {
+                p = new byte[Math.max(keyLen, p.length * 2)];
+            }
+
+            try {
+                // digest B
+                md.update(key);
+                md.update(salt, 0, saltLen);
+                md.update(key);
+                md.digest(alt, 0, bs);
+
+                // digest A
+                md.update(key);
+                md.update(salt, 0, saltLen);
+                int cnt;
+                for (cnt = keyLen; cnt > bs; cnt -= bs) {
+                    md.update(alt, 0, bs);
+                }
+                md.update(alt, 0, cnt);
+                for (cnt = keyLen; cnt > 0; cnt >>= 1) {
+                    if ((cnt & 1) != 0) {
+                        md.update(alt, 0, bs);
+                    } else {
+                        md.update(key);
+                    }
+                }
+                md.digest(alt, 0, bs);
+
+                // sequence P
+                for (int i = 0; i < keyLen; i++) {
+                    md.update(key);
+                }
+                md.digest(temp, 0, bs);
+                for (int i = 0; i < keyLen; i += bs) {
+                    System.arraycopy(temp, 0, p, i, Math.min(bs, keyLen - i));
+                }
+
+                // sequence S
+                int dsRounds = 16 + (alt[0] & 0xff);
+                for (int i = 0; i < dsRounds; i++) {
+                    md.update(salt, 0, saltLen);
+                }
+                md.digest(temp, 0, bs);
+                System.arraycopy(temp, 0, s, 0, saltLen);
+
+                for (int i = 0; i < rounds; i++) {
+                    if ((i & 1) != 0) {
+                        md.update(p, 0, keyLen);
+                    } else {
+                        md.update(alt, 0, bs);
+                    }
+                    if (i % 3 != 0) {
+                        md.update(s, 0, saltLen);
+                    }
+                    if (i % 7 != 0) {
+                        md.update(p, 0, keyLen);
+                    }
+                    if ((i & 1) != 0) {
+                        md.update(alt, 0, bs);
+                    } else {
+                        md.update(p, 0, keyLen);
+                    }
+                    md.digest(alt, 0, bs);
+                }
+            } catch (DigestException e) {
+                throw new IllegalStateException("Buffer too short for " + variant.digest, e);
+            } finally {
+                // do not leave anything derived from the password behind
+                Arrays.fill(key, (byte) 0);
+                Arrays.fill(p, 0, keyLen, (byte) 0);
+                Arrays.fill(temp, (byte) 0);
+            }
+            return encode(variant);
+        }
+
+        private int encode(Variant variant) {
+            int[] order = variant.order;
+            int pos = 0;
+            for (int i = 0; i < order.length; i += 3) {
+                int w = (byteAt(order[i]) << 16) | (byteAt(order[i + 1]) << 8) | byteAt(order[i + 2]);
+                int n = Math.min(4, variant.hashLength - pos);
+                for (int j = 0; j < n; j++) {
+                    out[pos++] = (byte) B64.charAt(w & 0x3f);
+                    w >>>= 6;
+                }
+            }
+            return pos;
+        }
+
+        private int byteAt(int index) {
+            return index < 0 ? 0 : alt[index] & 0xff;
+        }
+    }
+}
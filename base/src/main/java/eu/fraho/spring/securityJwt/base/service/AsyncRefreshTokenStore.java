@@ -0,0 +1,47 @@
+/*
+ * MIT Licence
+ * Copyright (c) 2026 Simon Frankenberger
+ *
+ * Please see LICENCE.md for complete licence text.
+ */
+package eu.fraho.spring.securityJwt.base.service;
+
+import eu.fraho.spring.securityJwt.base.dto.JwtUser;
+
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Non-blocking variants of the {@link RefreshTokenStore} operations which are used while issuing tokens.
+ * <p>
+ * Stores whose client supports asynchronous requests implement this interface directly, all other stores are
+ * adapted by {@link ExecutorAsyncRefreshTokenStore}, which runs the blocking calls on other threads.
+ * Failures are reported by completing the returned future exceptionally.
+ */
+public interface AsyncRefreshTokenStore {
+    /**
+     * Asynchronous variant of {@link RefreshTokenStore#saveToken(JwtUser, String)}.
+     *
+     * @param user  The token is valid for the given user
+     * @param token The token to save
+     * @return A future which completes when the token was saved
+     */
+    CompletableFuture<Void> saveTokenAsync(JwtUser user, String token);
+
+    /**
+     * Asynchronous variant of {@link RefreshTokenStore#useToken(String)}.
+     *
+     * @param token The token to use
+     * @param <T>   The type of the userdetails, could be a custom implementation
+     * @return A future of the user, which is empty if the token was not valid
+     */
+    <T extends JwtUser> CompletableFuture<Optional<T>> useTokenAsync(String token);
+
+    /**
+     * Asynchronous variant of {@link RefreshTokenStore#revokeToken(String)}.
+     *
+     * @param token The token to revoke
+     * @return A future which is <code>true</code> if the token was found and revoked
+     */
+    CompletableFuture<Boolean> revokeTokenAsync(String token);
+}
@@ -0,0 +1,139 @@
+/*
+ * MIT Licence
+ * Copyright (c) 2026 Simon Frankenberger
+ *
+ * Please see LICENCE.md for complete licence text.
+ */
+package eu.fraho.spring.securityJwt.base.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Size bounded cache which can be read concurrently without any lock.
+ * <p>
+ * Each entry remembers the time of its last access. When the cache grows beyond its size, a single thread evicts the
+ * least recently used entries, while all other threads continue without waiting. The eviction removes a batch of
+ * {@code maxSize / 16} additional entries, so the cost of finding the oldest entries is spread over many puts.
+ * Concurrent puts may exceed the size shortly, until the running eviction has caught up.
+ *
+ * @param <K> Type of the keys
+ * @param <V> Type of the values
+ */
+public class BoundedCache<K, V> {
+    private final Map<K, Node<V>> map;
+    private final ReentrantLock evictionLock = new ReentrantLock();
+    private final int maxSize;
+    private final int evictionBatch;
+
+    public BoundedCache(int maxSize) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("The cache size has to be positive");
+        }
+        this.maxSize = maxSize;
+        this.evictionBatch = maxSize / 16;
+        this.map = new ConcurrentHashMap<>(Math.min(maxSize, 1024));
+    }
+
+    /**
+     * Lookup an entry and mark it as recently used.
+     *
+     * @param key The key to lookup
+     * @return The cached value, or null if the key is unknown
+     */
+    public V get(K key) {
+        Node<V> node = map.get(key);
+        if (node == null) {
+            return null;
+        }
+        node.lastAccess = System.nanoTime();
+        return node.value;
+    }
+
+    /**
+     * Add or replace an entry, evicting the least recently used ones if the cache is full.
+     *
+     * @param key   The key of the entry
+     * @param value The value to cache, not null
+     */
+    public void put(K key, V value) {
+        map.put(key, new Node<>(value));
+        if (map.size() > maxSize) {
+            evict();
+        }
+    }
+
+    /**
+     * Remove the entry, but only if it still holds the given value.
+     *
+     * @param key   The key of the entry
+     * @param value The value which has to be cached
+     */
+    public void remove(K key, V value) {
+        map.computeIfPresent(key, (k, node) -> node.value == value ? null : node);
+    }
+
+    /**
+     * Remove all entries.
+     */
+    public void clear() {
+        map.clear();
+    }
+
+    /**
+     * @return The current number of entries
+     */
+    public int size() {
+        return map.size();
+    }
+
+    private void evict() {
+        if (!evictionLock.tryLock()) {
+            // another thread is already evicting
+            return;
+        }
+        try {
+            int count = map.size() - maxSize + evictionBatch;
+            if (count <= evictionBatch) {
+                return;
+            }
+            List<Map.Entry<K, Node<V>>> entries = new ArrayList<>(map.entrySet());
+            if (entries.isEmpty()) {
+                return;
+            }
+            // the access times are copied first, as they may change while sorting
+            long[] times = new long[entries.size()];
+            for (int i = 0; i < times.length; i++) {
+                times[i] = entries.get(i).getValue().lastAccess;
+            }
+            long[] sorted = times.clone();
+            Arrays.sort(sorted);
+            long threshold = sorted[Math.min(count, sorted.length) - 1];
+
+            int removed = 0;
+            for (int i = 0; i < times.length && removed < count; i++) {
+                if (times[i] <= threshold) {
+                    Map.Entry<K, Node<V>> entry = entries.get(i);
+                    // skip entries which were replaced in the meantime
+                    map.remove(entry.getKey(), entry.getValue());
+                    removed++;
+                }
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    private static final class Node<V> {
+        private final V value;
+        private volatile long lastAccess = System.nanoTime();
+
+        private Node(V value) {
+            this.value = value;
+        }
+    }
+}
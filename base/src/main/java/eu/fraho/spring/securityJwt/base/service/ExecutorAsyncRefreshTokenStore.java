@@ -0,0 +1,73 @@
+/*
+ * MIT Licence
+ * Copyright (c) 2026 Simon Frankenberger
+ *
+ * Please see LICENCE.md for complete licence text.
+ */
+package eu.fraho.spring.securityJwt.base.service;
+
+import eu.fraho.spring.securityJwt.base.dto.JwtUser;
+import lombok.NoArgsConstructor;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Adapts a blocking {@link RefreshTokenStore} to the {@link AsyncRefreshTokenStore} by running its
+ * operations using an executor.
+ * <p>
+ * If no executor is set, a private {@link RefreshStoreExecutor} is used.
+ */
+@SuppressWarnings("SpringJavaAutowiredMembersInspection")
+@Slf4j
+@NoArgsConstructor
+public class ExecutorAsyncRefreshTokenStore implements AsyncRefreshTokenStore, InitializingBean, DisposableBean {
+    private RefreshTokenStore refreshTokenStore;
+    private Executor executor;
+    private RefreshStoreExecutor ownedExecutor;
+
+    @Override
+    public CompletableFuture<Void> saveTokenAsync(JwtUser user, String token) {
+        return CompletableFuture.runAsync(() -> refreshTokenStore.saveToken(user, token), executor);
+    }
+
+    @Override
+    public <T extends JwtUser> CompletableFuture<Optional<T>> useTokenAsync(String token) {
+        return CompletableFuture.supplyAsync(() -> refreshTokenStore.<T>useToken(token), executor);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> revokeTokenAsync(String token) {
+        return CompletableFuture.supplyAsync(() -> refreshTokenStore.revokeToken(token), executor);
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        if (executor == null) {
+            ownedExecutor = new RefreshStoreExecutor();
+            executor = ownedExecutor.getExecutor();
+        }
+    }
+
+    @Override
+    public void destroy() {
+        if (ownedExecutor != null) {
+            ownedExecutor.destroy();
+        }
+    }
+
+    @Autowired
+    public void setRefreshTokenStore(@NonNull RefreshTokenStore refreshTokenStore) {
+        this.refreshTokenStore = refreshTokenStore;
+    }
+
+    public void setExecutor(@NonNull Executor executor) {
+        this.executor = executor;
+    }
+}
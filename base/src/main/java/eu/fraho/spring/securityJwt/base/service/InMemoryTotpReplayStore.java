@@ -0,0 +1,98 @@
+/*
+ * MIT Licence
+ * Copyright (c) 2026 Simon Frankenberger
+ *
+ * Please see LICENCE.md for complete licence text.
+ */
+package eu.fraho.spring.securityJwt.base.service;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Holds the used TOTP codes in memory of this node.
+ * <p>
+ * The codes are split into stripes by the user, each guarded by its own lock, so concurrent logins of different
+ * users rarely contend. A lookup is a single hash map access. Expired codes are removed from a stripe at most once
+ * per second, when the stripe is accessed.
+ */
+public class InMemoryTotpReplayStore implements TotpReplayStore {
+    private static final int STRIPES = 64;
+    private static final long PURGE_INTERVAL = 1_000L;
+
+    private final Stripe[] stripes = new Stripe[STRIPES];
+
+    public InMemoryTotpReplayStore() {
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    @Override
+    public boolean markUsed(Long userId, long step, Duration expiration) {
+        long now = System.currentTimeMillis();
+        Key key = new Key(userId, step);
+        Stripe stripe = stripes[key.hashCode & (STRIPES - 1)];
+        synchronized (stripe) {
+            stripe.purge(now);
+            Long expiresAt = stripe.used.get(key);
+            if (expiresAt != null && expiresAt > now) {
+                return false;
+            }
+            stripe.used.put(key, now + expiration.toMillis());
+            return true;
+        }
+    }
+
+    /**
+     * @return The current number of used codes, including expired ones which were not removed yet
+     */
+    public int size() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                size += stripe.used.size();
+            }
+        }
+        return size;
+    }
+
+    private static final class Stripe {
+        private final Map<Key, Long> used = new HashMap<>();
+        private long nextPurge;
+
+        private void purge(long now) {
+            if (now < nextPurge) {
+                return;
+            }
+            used.values().removeIf(expiresAt -> expiresAt <= now);
+            nextPurge = now + PURGE_INTERVAL;
+        }
+    }
+
+    private static final class Key {
+        private final Long userId;
+        private final long step;
+        private final int hashCode;
+
+        private Key(Long userId, long step) {
+            this.userId = userId;
+            this.step = step;
+            int hash = 31 * Objects.hashCode(userId) + Long.hashCode(step);
+            // spread the bits, the stripe is selected by the lowest ones
+            hashCode = hash ^ (hash >>> 16);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key other && step == other.step && Objects.equals(userId, other.userId);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+}
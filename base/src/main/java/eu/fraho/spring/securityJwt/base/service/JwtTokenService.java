@@ -12,11 +12,15 @@ import com.nimbusds.jwt.SignedJWT;
 import eu.fraho.spring.securityJwt.base.dto.AccessToken;
 import eu.fraho.spring.securityJwt.base.dto.JwtUser;
 import eu.fraho.spring.securityJwt.base.dto.RefreshToken;
+import eu.fraho.spring.securityJwt.base.dto.RefreshTokenEntry;
 import jakarta.servlet.http.HttpServletRequest;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
 
 public interface JwtTokenService {
     /**
@@ -112,6 +116,25 @@ public interface JwtTokenService {
 
     RefreshToken generateRefreshToken(JwtUser user);
 
+    /**
+     * Generate a refresh token like {@link #generateRefreshToken(JwtUser)}, but write it to the store asynchronously
+     * if the property {@code fraho.jwt.refresh.parallelStore} is enabled. Otherwise the token is stored before
+     * this method returns.
+     *
+     * @param user The refresh token will be issued to this user
+     * @return A future of the refresh token, which completes when the token was stored
+     */
+    CompletableFuture<RefreshToken> generateRefreshTokenAsync(JwtUser user);
+
+    /**
+     * Check if {@link #generateRefreshTokenAsync(JwtUser)} writes the token to the store asynchronously, so the
+     * access token may be signed in the meantime.
+     *
+     * @return {@code true} when the property {@code fraho.jwt.refresh.parallelStore} is enabled and the store
+     * supports it
+     */
+    boolean isRefreshStoreParallel();
+
     /**
      * Use and invalidate a refresh token for the given user using the default device id.
      * Each refresh token may only be used once.
@@ -154,6 +177,16 @@ public interface JwtTokenService {
 
     List<RefreshToken> listRefreshTokens(JwtUser user);
 
+    /**
+     * Stream the currently active refresh tokens from the backend cache, fetching them in pages.
+     * The returned stream has to be closed after use.
+     *
+     * @param userId   only return the tokens of this user, or {@code null} for the tokens of all users
+     * @param pageSize number of tokens to fetch from the backend at once
+     * @return lazily populated stream of refresh tokens
+     */
+    Stream<RefreshTokenEntry> streamRefreshTokens(Long userId, int pageSize);
+
     /**
      * Revoke the given token from the stored refresh token list
      *
@@ -178,6 +211,22 @@ public interface JwtTokenService {
      */
     int revokeRefreshTokens(JwtUser user);
 
+    /**
+     * Revoke the given tokens from the stored refresh token list at once
+     *
+     * @param tokens The tokens to revoke
+     * @return count of revoked tokens
+     */
+    int revokeRefreshTokens(Collection<String> tokens);
+
+    /**
+     * Revokes all refresh tokens from the stored refresh token list for the specified users at once
+     *
+     * @param userIds The ids of the users which tokens should be revoked
+     * @return count of revoked tokens
+     */
+    int revokeRefreshTokensOfUsers(Collection<Long> userIds);
+
     /**
      * Revoke all tokens from the stored refresh token list
      *
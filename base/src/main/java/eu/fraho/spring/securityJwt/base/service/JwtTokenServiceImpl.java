@@ -12,20 +12,24 @@ import com.nimbusds.jwt.JWTClaimsSet;
 import com.nimbusds.jwt.SignedJWT;
 import eu.fraho.spring.securityJwt.base.config.RefreshCookieProperties;
 import eu.fraho.spring.securityJwt.base.config.RefreshProperties;
+import eu.fraho.spring.securityJwt.base.config.TokenCacheProperties;
 import eu.fraho.spring.securityJwt.base.config.TokenCookieProperties;
 import eu.fraho.spring.securityJwt.base.config.TokenHeaderProperties;
 import eu.fraho.spring.securityJwt.base.config.TokenProperties;
 import eu.fraho.spring.securityJwt.base.dto.AccessToken;
 import eu.fraho.spring.securityJwt.base.dto.JwtUser;
 import eu.fraho.spring.securityJwt.base.dto.RefreshToken;
+import eu.fraho.spring.securityJwt.base.dto.RefreshTokenEntry;
+import eu.fraho.spring.securityJwt.base.dto.TokenVerificationResult;
 import eu.fraho.spring.securityJwt.base.exceptions.FeatureNotConfiguredException;
-import jakarta.servlet.http.Cookie;
+import eu.fraho.spring.securityJwt.base.metrics.JwtMetrics;
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.NoArgsConstructor;
 import lombok.NonNull;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.InitializingBean;
 import org.springframework.beans.factory.ObjectFactory;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Component;
@@ -33,14 +37,15 @@ import org.springframework.stereotype.Component;
 import java.security.SecureRandom;
 import java.text.ParseException;
 import java.time.ZonedDateTime;
-import java.util.Arrays;
 import java.util.Base64;
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
-import java.util.Objects;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
 
 @Component
 @Slf4j
@@ -52,25 +57,58 @@ public class JwtTokenServiceImpl implements JwtTokenService, InitializingBean {
     private TokenCookieProperties tokenCookieProperties;
     private TokenHeaderProperties tokenHeaderProperties;
     private RefreshCookieProperties refreshCookieProperties;
+    private TokenCacheProperties tokenCacheProperties;
     private ObjectFactory<JwtUser> jwtUser;
     private RefreshTokenStore refreshTokenStore;
+    private ObjectProvider<AsyncRefreshTokenStore> asyncRefreshTokenStore;
+    private VerifiedTokenCache verifiedTokenCache;
+    private TokenExtractor accessTokenExtractor;
+    private TokenExtractor refreshTokenExtractor;
+    private JwtMetrics jwtMetrics = JwtMetrics.NOOP;
 
     @Override
     public void afterPropertiesSet() {
         if (tokenProperties.getSigner() == null) {
             log.warn("No private key specified. This service may neither issue new tokens nor use refresh tokens.");
         }
+        if (tokenCacheProperties.isEnabled()) {
+            verifiedTokenCache = new VerifiedTokenCache(tokenCacheProperties.getMaxSize());
+            jwtMetrics.bindTokenCache(verifiedTokenCache);
+        }
+        accessTokenExtractor = TokenExtractor.of(tokenHeaderProperties, tokenCookieProperties);
+        refreshTokenExtractor = TokenExtractor.of(null, refreshCookieProperties);
+    }
+
+    /**
+     * @return The cache of verified access tokens, or an empty optional if the cache is disabled
+     */
+    public Optional<VerifiedTokenCache> getVerifiedTokenCache() {
+        return Optional.ofNullable(verifiedTokenCache);
     }
 
     @Override
     @SuppressWarnings("unchecked")
     public <T extends JwtUser> Optional<T> parseUser(String token) {
+        long start = System.nanoTime();
         Optional<T> result = Optional.empty();
         try {
-            SignedJWT signedJWT = SignedJWT.parse(token);
-            if (validateToken(signedJWT)) {
-                log.debug("Successfully validated token by client");
-                JWTClaimsSet claims = signedJWT.getJWTClaimsSet();
+            JWTClaimsSet claims = null;
+            if (verifiedTokenCache != null) {
+                claims = verifiedTokenCache.get(token, tokenProperties.getVerifier());
+            }
+            if (claims != null) {
+                log.debug("Token was already validated, using cached claims");
+            } else {
+                SignedJWT signedJWT = SignedJWT.parse(token);
+                if (validateToken(signedJWT)) {
+                    log.debug("Successfully validated token by client");
+                    claims = signedJWT.getJWTClaimsSet();
+                    if (verifiedTokenCache != null) {
+                        verifiedTokenCache.put(token, claims, tokenProperties.getVerifier());
+                    }
+                }
+            }
+            if (claims != null) {
                 T user = (T) jwtUser.getObject();
                 user.applyClaims(claims);
                 log.debug("AbstractToken resulted in user {}", user);
@@ -78,13 +116,26 @@ public class JwtTokenServiceImpl implements JwtTokenService, InitializingBean {
             }
         } catch (ParseException e) {
             log.warn("Could not parse token", e);
+            jwtMetrics.recordTokenVerification(System.nanoTime() - start, TokenVerificationResult.PARSE_ERROR);
         }
+        jwtMetrics.recordTokenParse(System.nanoTime() - start, result.isPresent());
         return result;
     }
 
     @Override
-
     public <T extends JwtUser> AccessToken generateToken(T user) throws JOSEException {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            AccessToken result = signToken(user);
+            success = true;
+            return result;
+        } finally {
+            jwtMetrics.recordTokenGeneration(System.nanoTime() - start, success);
+        }
+    }
+
+    private <T extends JwtUser> AccessToken signToken(T user) throws JOSEException {
         if (tokenProperties.getSigner() == null) {
             throw new FeatureNotConfiguredException("Access token signing is not enabled.");
         }
@@ -120,44 +171,59 @@ public class JwtTokenServiceImpl implements JwtTokenService, InitializingBean {
 
     @Override
     public boolean validateToken(String token) {
-        SignedJWT signedJWT;
+        long start = System.nanoTime();
+        TokenVerificationResult result;
         try {
-            signedJWT = SignedJWT.parse(token);
+            result = verifyToken(SignedJWT.parse(token));
         } catch (ParseException e) {
             log.error("Supplied token did not validate", e);
-            return false;
+            result = TokenVerificationResult.PARSE_ERROR;
         }
-        return validateToken(signedJWT);
+        jwtMetrics.recordTokenVerification(System.nanoTime() - start, result);
+        return result == TokenVerificationResult.VALID;
     }
 
     @Override
     public boolean validateToken(SignedJWT signedJWT) {
-        boolean result;
+        long start = System.nanoTime();
+        TokenVerificationResult result = verifyToken(signedJWT);
+        jwtMetrics.recordTokenVerification(System.nanoTime() - start, result);
+        return result == TokenVerificationResult.VALID;
+    }
+
+    private TokenVerificationResult verifyToken(SignedJWT signedJWT) {
+        TokenVerificationResult result;
         try {
-            result = signedJWT.verify(tokenProperties.getVerifier());
-            log.debug("AbstractToken signature verified, result={}", result);
-            result &= areClaimsValid(signedJWT.getJWTClaimsSet());
+            boolean signatureValid = signedJWT.verify(tokenProperties.getVerifier());
+            log.debug("AbstractToken signature verified, result={}", signatureValid);
+            result = signatureValid ? checkClaims(signedJWT.getJWTClaimsSet()) : TokenVerificationResult.INVALID_SIGNATURE;
             log.debug("Claims verified, result={}", result);
-        } catch (ParseException | JOSEException e) {
+        } catch (ParseException e) {
             log.error("Supplied token did not validate", e);
-            result = false;
+            result = TokenVerificationResult.PARSE_ERROR;
+        } catch (JOSEException e) {
+            log.error("Supplied token did not validate", e);
+            result = TokenVerificationResult.INVALID_SIGNATURE;
         }
         return result;
     }
 
-    private boolean areClaimsValid(JWTClaimsSet claims) {
+    private TokenVerificationResult checkClaims(JWTClaimsSet claims) {
         Date now = new Date();
         Date exp = Optional.ofNullable(claims.getExpirationTime()).orElse(new Date(0));
         Date nbf = Optional.ofNullable(claims.getNotBeforeTime()).orElse(new Date(0));
         Date iat = Optional.ofNullable(claims.getIssueTime()).orElse(new Date(0));
 
         log.debug("Validating claims");
-        boolean result = iat.before(now);
-        log.debug("iat={} < now={}, result={}", iat, now, result);
-        result &= nbf.before(now);
-        log.debug("nbf={} < now={}, result={}", nbf, now, result);
-        result &= exp.after(now);
-        log.debug("exp={} > now={}, result={}", exp, now, result);
+        TokenVerificationResult result = TokenVerificationResult.VALID;
+        if (!exp.after(now)) {
+            result = TokenVerificationResult.EXPIRED;
+        } else if (!nbf.before(now)) {
+            result = TokenVerificationResult.NOT_YET_VALID;
+        } else if (!iat.before(now)) {
+            result = TokenVerificationResult.ISSUED_IN_FUTURE;
+        }
+        log.debug("exp={}, nbf={}, iat={}, now={}, result={}", exp, nbf, iat, now, result);
         return result;
     }
 
@@ -169,54 +235,52 @@ public class JwtTokenServiceImpl implements JwtTokenService, InitializingBean {
 
     @Override
     public Optional<String> getAccessToken(HttpServletRequest request) {
-        Optional<String> result = Optional.empty();
-        if (tokenHeaderProperties.isEnabled()) {
-            log.debug("Extracting token from header");
-            result = extractHeaderToken(tokenHeaderProperties.getNames(), request);
-        }
-        if (!result.isPresent() && tokenCookieProperties.isEnabled()) {
-            log.debug("Extracting token from cookies");
-            result = extractCookieToken(tokenCookieProperties.getNames(), request.getCookies());
-        }
-        return result;
+        log.debug("Extracting token from request");
+        return Optional.ofNullable(accessTokenExtractor.extract(request));
     }
 
     @Override
     public Optional<String> getRefreshToken(HttpServletRequest request) {
-        Optional<String> result = Optional.empty();
-        if (refreshCookieProperties.isEnabled()) {
-            log.debug("Extracting refreshtoken from cookies");
-            result = extractCookieToken(refreshCookieProperties.getNames(), request.getCookies());
-        }
-        return result;
+        log.debug("Extracting refreshtoken from request");
+        return Optional.ofNullable(refreshTokenExtractor.extract(request));
     }
 
-    private Optional<String> extractHeaderToken(String[] names, HttpServletRequest request) {
-        return Arrays.stream(names)
-                .map(request::getHeader)
-                .filter(Objects::nonNull)
-                .findFirst()
-                .map(e -> e.startsWith("Bearer ") ? e.substring(7) : e);
+    @Override
+    public RefreshToken generateRefreshToken(JwtUser user) {
+        final String token = newRefreshTokenValue();
+        log.debug("Generated refresh token, storing at configured store");
+        refreshTokenStore.saveToken(user, token);
+        return toRefreshToken(token);
     }
 
-    private Optional<String> extractCookieToken(String[] names, Cookie[] cookies) {
-        Optional<String> result = Optional.empty();
-        if (cookies != null) {
-            result = Arrays.stream(names)
-                    .flatMap(name -> Arrays.stream(cookies).filter(c -> Objects.equals(c.getName(), name)))
-                    .findFirst()
-                    .map(Cookie::getValue);
+    @Override
+    public CompletableFuture<RefreshToken> generateRefreshTokenAsync(JwtUser user) {
+        AsyncRefreshTokenStore asyncStore = getParallelStore();
+        if (asyncStore == null) {
+            return CompletableFuture.completedFuture(generateRefreshToken(user));
         }
-        return result;
+        final String token = newRefreshTokenValue();
+        log.debug("Generated refresh token, storing asynchronously at configured store");
+        return asyncStore.saveTokenAsync(user, token).thenApply(v -> toRefreshToken(token));
     }
 
     @Override
-    public RefreshToken generateRefreshToken(JwtUser user) {
+    public boolean isRefreshStoreParallel() {
+        return getParallelStore() != null;
+    }
+
+    private AsyncRefreshTokenStore getParallelStore() {
+        return refreshProperties.isParallelStore() && asyncRefreshTokenStore != null
+                ? asyncRefreshTokenStore.getIfUnique() : null;
+    }
+
+    private String newRefreshTokenValue() {
         byte[] data = new byte[refreshProperties.getLength()];
         random.nextBytes(data);
-        final String token = Base64.getEncoder().encodeToString(data);
-        log.debug("Generated refresh token, storing at configured store");
-        refreshTokenStore.saveToken(user, token);
+        return Base64.getEncoder().encodeToString(data);
+    }
+
+    private RefreshToken toRefreshToken(String token) {
         return RefreshToken.builder()
                 .token(token)
                 .expiresIn(refreshProperties.getExpiration().toSeconds())
@@ -254,6 +318,11 @@ public class JwtTokenServiceImpl implements JwtTokenService, InitializingBean {
         return refreshTokenStore.listTokens(user);
     }
 
+    @Override
+    public Stream<RefreshTokenEntry> streamRefreshTokens(Long userId, int pageSize) {
+        return refreshTokenStore.streamTokens(userId, pageSize);
+    }
+
     @Override
     public boolean revokeRefreshToken(RefreshToken token) {
         return refreshTokenStore.revokeToken(token.getToken());
@@ -269,6 +338,16 @@ public class JwtTokenServiceImpl implements JwtTokenService, InitializingBean {
         return refreshTokenStore.revokeTokens(user);
     }
 
+    @Override
+    public int revokeRefreshTokens(Collection<String> tokens) {
+        return refreshTokenStore.revokeTokens(tokens);
+    }
+
+    @Override
+    public int revokeRefreshTokensOfUsers(Collection<Long> userIds) {
+        return refreshTokenStore.revokeTokensOfUsers(userIds);
+    }
+
     @Override
     public int clearTokens() {
         return refreshTokenStore.revokeTokens();
@@ -299,14 +378,29 @@ public class JwtTokenServiceImpl implements JwtTokenService, InitializingBean {
         this.refreshCookieProperties = refreshCookieProperties;
     }
 
+    @Autowired
+    public void setTokenCacheProperties(@NonNull TokenCacheProperties tokenCacheProperties) {
+        this.tokenCacheProperties = tokenCacheProperties;
+    }
+
     @Autowired
     public void setJwtUser(@NonNull ObjectFactory<JwtUser> jwtUser) {
         this.jwtUser = jwtUser;
     }
 
+    @Autowired(required = false)
+    public void setJwtMetrics(@NonNull JwtMetrics jwtMetrics) {
+        this.jwtMetrics = jwtMetrics;
+    }
+
     @Autowired
     @Lazy
     public void setRefreshTokenStore(@NonNull RefreshTokenStore refreshTokenStore) {
         this.refreshTokenStore = refreshTokenStore;
     }
+
+    @Autowired
+    public void setAsyncRefreshTokenStore(@NonNull ObjectProvider<AsyncRefreshTokenStore> asyncRefreshTokenStore) {
+        this.asyncRefreshTokenStore = asyncRefreshTokenStore;
+    }
 }
@@ -12,6 +12,8 @@ import eu.fraho.spring.securityJwt.base.dto.AuthenticationRequest;
 import eu.fraho.spring.securityJwt.base.dto.AuthenticationResponse;
 import eu.fraho.spring.securityJwt.base.dto.JwtUser;
 import eu.fraho.spring.securityJwt.base.dto.RefreshToken;
+import eu.fraho.spring.securityJwt.base.metrics.JwtMetrics;
+import eu.fraho.spring.securityJwt.base.metrics.LoginPhase;
 import lombok.NoArgsConstructor;
 import lombok.NonNull;
 import lombok.extern.slf4j.Slf4j;
@@ -26,6 +28,8 @@ import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.stereotype.Component;
 
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
 
 @Component
 @Slf4j
@@ -39,19 +43,26 @@ public class LoginServiceImpl implements LoginService {
 
     private TotpService totpService;
 
+    private JwtMetrics jwtMetrics = JwtMetrics.NOOP;
+
+    private PasswordUpgradeService passwordUpgradeService;
+
     @Override
     public AuthenticationResponse checkLogin(AuthenticationRequest authenticationRequest) throws AuthenticationException {
         // Perform the basic security
-        Authentication authentication = tryAuthentication(authenticationRequest);
+        Authentication authentication = timed(LoginPhase.AUTHENTICATION, () -> tryAuthentication(authenticationRequest));
         log.info("Successfully authenticated against database for {}", authenticationRequest.getUsername());
 
         // Load the userdetails from the backend
         log.info("Fetching userdetails from backend");
-        JwtUser userDetails = (JwtUser) userDetailsService.loadUserByUsername(authenticationRequest.getUsername());
+        JwtUser userDetails = timed(LoginPhase.USER_LOAD, () -> (JwtUser) userDetailsService.loadUserByUsername(authenticationRequest.getUsername()));
 
         // Verify that the user may access this api and his TOTP (if present / provided) is valid
         log.info("Checking api access right and totp");
-        if (!userDetails.isApiAccessAllowed() || !isTotpOk(authenticationRequest.getTotp().orElse(null), userDetails)) {
+        long start = System.nanoTime();
+        boolean accessAllowed = userDetails.isApiAccessAllowed() && isTotpOk(authenticationRequest.getTotp().orElse(null), userDetails);
+        jwtMetrics.recordLoginPhase(LoginPhase.TOTP, System.nanoTime() - start, accessAllowed);
+        if (!accessAllowed) {
             log.info("User {} may not access api or the provided TOTP is invalid", userDetails.getUsername());
             throw new BadCredentialsException("Invalid TOTP or insufficient access rights");
         }
@@ -59,19 +70,22 @@ public class LoginServiceImpl implements LoginService {
         log.debug("Everything ok, setting SecurityContext");
         SecurityContextHolder.getContext().setAuthentication(authentication);
 
-        log.debug("Generating access token");
-        AccessToken accessToken;
-        try {
-            accessToken = jwtTokenService.generateToken(userDetails);
-        } catch (JOSEException e) {
-            log.info("Error creating an access token for {}", userDetails.getUsername(), e);
-            throw new BadCredentialsException("Token generation failed");
+        if (passwordUpgradeService != null) {
+            // the password has been verified, so an outdated hash may be replaced in the background
+            passwordUpgradeService.upgradeIfNeeded(userDetails, authenticationRequest.getPassword());
         }
 
+        if (jwtTokenService.isRefreshTokenSupported() && jwtTokenService.isRefreshStoreParallel()) {
+            return generateTokensInParallel(userDetails);
+        }
+
+        log.debug("Generating access token");
+        AccessToken accessToken = generateAccessToken(userDetails);
+
         RefreshToken refreshToken;
         if (jwtTokenService.isRefreshTokenSupported()) {
             log.debug("Generating refresh token");
-            refreshToken = jwtTokenService.generateRefreshToken(userDetails);
+            refreshToken = timed(LoginPhase.REFRESH_STORE, () -> jwtTokenService.generateRefreshToken(userDetails));
         } else {
             log.debug("Refresh tokens are disabled");
             refreshToken = null;
@@ -80,6 +94,61 @@ public class LoginServiceImpl implements LoginService {
         return AuthenticationResponse.builder().accessToken(accessToken).refreshToken(refreshToken).build();
     }
 
+    private AuthenticationResponse generateTokensInParallel(JwtUser userDetails) {
+        log.debug("Generating refresh token");
+        // the refresh token is written to the store while the access token is signed
+        CompletableFuture<RefreshToken> refreshToken = timedAsync(LoginPhase.REFRESH_STORE, () -> jwtTokenService.generateRefreshTokenAsync(userDetails));
+        boolean success = false;
+        try {
+            log.debug("Generating access token");
+            AccessToken accessToken = generateAccessToken(userDetails);
+            AuthenticationResponse response = AuthenticationResponse.builder().accessToken(accessToken)
+                    .refreshToken(RefreshTokenFutures.await(refreshToken)).build();
+            success = true;
+            return response;
+        } finally {
+            if (!success) {
+                RefreshTokenFutures.revoke(jwtTokenService, refreshToken);
+            }
+        }
+    }
+
+    private AccessToken generateAccessToken(JwtUser userDetails) {
+        return timed(LoginPhase.SIGNING, () -> {
+            try {
+                return jwtTokenService.generateToken(userDetails);
+            } catch (JOSEException e) {
+                log.info("Error creating an access token for {}", userDetails.getUsername(), e);
+                throw new BadCredentialsException("Token generation failed");
+            }
+        });
+    }
+
+    private <T> T timed(LoginPhase phase, Supplier<T> action) {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            T result = action.get();
+            success = true;
+            return result;
+        } finally {
+            jwtMetrics.recordLoginPhase(phase, System.nanoTime() - start, success);
+        }
+    }
+
+    private <T> CompletableFuture<T> timedAsync(LoginPhase phase, Supplier<CompletableFuture<T>> action) {
+        long start = System.nanoTime();
+        CompletableFuture<T> result;
+        try {
+            result = action.get();
+        } catch (RuntimeException e) {
+            jwtMetrics.recordLoginPhase(phase, System.nanoTime() - start, false);
+            throw e;
+        }
+        return result.whenComplete((value, error) ->
+                jwtMetrics.recordLoginPhase(phase, System.nanoTime() - start, error == null));
+    }
+
     protected Authentication tryAuthentication(AuthenticationRequest authenticationRequest) {
         return authenticationManager.authenticate(
                 new UsernamePasswordAuthenticationToken(
@@ -93,7 +162,7 @@ public class LoginServiceImpl implements LoginService {
         return userDetails.getTotpSecret().map(secret -> {
                     log.debug("User has a totp secret set, let's check the supplied pin");
                     return Optional.ofNullable(totp).map(code -> {
-                                boolean result = totpService.verifyCode(secret, code);
+                                boolean result = totpService.verifyCodeOnce(userDetails.getId(), secret, code);
                                 log.debug("Pin verification returned {}", result);
                                 return result;
                             }
@@ -121,4 +190,14 @@ public class LoginServiceImpl implements LoginService {
     public void setTotpService(@NonNull TotpService totpService) {
         this.totpService = totpService;
     }
+
+    @Autowired(required = false)
+    public void setJwtMetrics(@NonNull JwtMetrics jwtMetrics) {
+        this.jwtMetrics = jwtMetrics;
+    }
+
+    @Autowired(required = false)
+    public void setPasswordUpgradeService(@NonNull PasswordUpgradeService passwordUpgradeService) {
+        this.passwordUpgradeService = passwordUpgradeService;
+    }
 }
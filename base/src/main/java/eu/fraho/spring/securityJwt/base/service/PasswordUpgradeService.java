@@ -0,0 +1,130 @@
+/*
+ * MIT Licence
+ * Copyright (c) 2026 Simon Frankenberger
+ *
+ * Please see LICENCE.md for complete licence text.
+ */
+package eu.fraho.spring.securityJwt.base.service;
+
+import lombok.NoArgsConstructor;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encodes the password of a user again after a successful login, if {@link PasswordEncoder#upgradeEncoding(String)}
+ * reports the stored hash as outdated (e.g. after changing the algorithm, rounds or cost).
+ * <p>
+ * The new hash is computed in the background and stored using the {@link UserDetailsPasswordService}, so the login
+ * is not delayed. At most {@link #MAX_PENDING} upgrades are pending at once, further ones are skipped and happen on
+ * a later login. Each user is upgraded only once at a time.
+ */
+@SuppressWarnings("SpringJavaAutowiredMembersInspection")
+@Slf4j
+@NoArgsConstructor
+public class PasswordUpgradeService implements InitializingBean, DisposableBean {
+    /**
+     * Maximum number of upgrades waiting to be executed.
+     */
+    public static final int MAX_PENDING = 100;
+
+    private final Set<String> pending = ConcurrentHashMap.newKeySet();
+    private PasswordEncoder passwordEncoder;
+    private UserDetailsPasswordService userDetailsPasswordService;
+    private Executor executor;
+    private ExecutorService ownedExecutor;
+
+    /**
+     * Schedule an upgrade of the stored password, if it is outdated.
+     * The raw password has to be verified against the stored one before.
+     *
+     * @param user        The authenticated user, including the stored password
+     * @param rawPassword The password used to authenticate
+     * @return {@code true} if an upgrade was scheduled
+     */
+    public boolean upgradeIfNeeded(UserDetails user, CharSequence rawPassword) {
+        if (rawPassword == null || !passwordEncoder.upgradeEncoding(user.getPassword())) {
+            return false;
+        }
+        String username = user.getUsername();
+        if (pending.size() >= MAX_PENDING || !pending.add(username)) {
+            log.debug("Skipping password upgrade of {}", username);
+            return false;
+        }
+        try {
+            executor.execute(() -> upgrade(user, rawPassword));
+            return true;
+        } catch (RejectedExecutionException e) {
+            log.debug("Could not schedule password upgrade of {}", username, e);
+            pending.remove(username);
+            return false;
+        }
+    }
+
+    /**
+     * @return The number of upgrades currently pending
+     */
+    public int getPending() {
+        return pending.size();
+    }
+
+    private void upgrade(UserDetails user, CharSequence rawPassword) {
+        try {
+            userDetailsPasswordService.updatePassword(user, passwordEncoder.encode(rawPassword));
+            log.info("Upgraded password encoding of {}", user.getUsername());
+        } catch (RuntimeException e) {
+            log.warn("Could not upgrade password encoding of {}", user.getUsername(), e);
+        } finally {
+            pending.remove(user.getUsername());
+        }
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        if (executor == null) {
+            // a single thread, so upgrades never compete with logins for more than one core
+            ThreadPoolExecutor threadPool = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), r -> {
+                Thread thread = new Thread(r, "fraho-jwt-password-upgrade");
+                thread.setDaemon(true);
+                return thread;
+            });
+            ownedExecutor = threadPool;
+            executor = threadPool;
+        }
+    }
+
+    @Override
+    public void destroy() {
+        if (ownedExecutor != null) {
+            ownedExecutor.shutdown();
+        }
+    }
+
+    @Autowired
+    public void setPasswordEncoder(@NonNull PasswordEncoder passwordEncoder) {
+        this.passwordEncoder = passwordEncoder;
+    }
+
+    @Autowired
+    public void setUserDetailsPasswordService(@NonNull UserDetailsPasswordService userDetailsPasswordService) {
+        this.userDetailsPasswordService = userDetailsPasswordService;
+    }
+
+    public void setExecutor(@NonNull Executor executor) {
+        this.executor = executor;
+    }
+}
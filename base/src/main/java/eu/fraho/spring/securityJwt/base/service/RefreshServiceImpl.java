@@ -12,6 +12,7 @@ import eu.fraho.spring.securityJwt.base.dto.AuthenticationResponse;
 import eu.fraho.spring.securityJwt.base.dto.JwtUser;
 import eu.fraho.spring.securityJwt.base.dto.RefreshToken;
 import eu.fraho.spring.securityJwt.base.exceptions.FeatureNotConfiguredException;
+import eu.fraho.spring.securityJwt.base.metrics.JwtMetrics;
 import lombok.NoArgsConstructor;
 import lombok.NonNull;
 import lombok.extern.slf4j.Slf4j;
@@ -21,6 +22,7 @@ import org.springframework.security.core.AuthenticationException;
 import org.springframework.stereotype.Component;
 
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 @Component
 @Slf4j
@@ -28,8 +30,22 @@ import java.util.Optional;
 public class RefreshServiceImpl implements RefreshService {
     private JwtTokenService jwtTokenService;
 
+    private JwtMetrics jwtMetrics = JwtMetrics.NOOP;
+
     @Override
     public AuthenticationResponse checkRefresh(String token) throws AuthenticationException {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            AuthenticationResponse response = doCheckRefresh(token);
+            success = true;
+            return response;
+        } finally {
+            jwtMetrics.recordRefresh(System.nanoTime() - start, success);
+        }
+    }
+
+    private AuthenticationResponse doCheckRefresh(String token) {
         if (!jwtTokenService.isRefreshTokenSupported()) {
             log.info("Refresh token support is disabled");
             throw new FeatureNotConfiguredException("Refresh token support is disabled");
@@ -56,22 +72,50 @@ public class RefreshServiceImpl implements RefreshService {
             throw new BadCredentialsException("Insufficient accesss rights");
         }
 
-        log.debug("User may access api, generating new access token");
-        AccessToken accessToken;
-        try {
-            accessToken = jwtTokenService.generateToken(userDetails);
-        } catch (JOSEException e) {
-            log.info("Error creating an access token for {}", userDetails.getUsername(), e);
-            throw new BadCredentialsException("Token generation failed");
+        log.debug("User may access api, generating new tokens");
+        if (jwtTokenService.isRefreshStoreParallel()) {
+            return generateTokensInParallel(userDetails);
         }
 
+        AccessToken accessToken = generateAccessToken(userDetails);
         log.debug("Generating new refresh token");
         RefreshToken refreshToken = jwtTokenService.generateRefreshToken(userDetails);
         return AuthenticationResponse.builder().accessToken(accessToken).refreshToken(refreshToken).build();
     }
 
+    private AuthenticationResponse generateTokensInParallel(JwtUser userDetails) {
+        // the new refresh token is written to the store while the access token is signed
+        CompletableFuture<RefreshToken> refreshToken = jwtTokenService.generateRefreshTokenAsync(userDetails);
+        boolean success = false;
+        try {
+            AccessToken accessToken = generateAccessToken(userDetails);
+            AuthenticationResponse response = AuthenticationResponse.builder().accessToken(accessToken)
+                    .refreshToken(RefreshTokenFutures.await(refreshToken)).build();
+            success = true;
+            return response;
+        } finally {
+            if (!success) {
+                RefreshTokenFutures.revoke(jwtTokenService, refreshToken);
+            }
+        }
+    }
+
+    private AccessToken generateAccessToken(JwtUser userDetails) {
+        try {
+            return jwtTokenService.generateToken(userDetails);
+        } catch (JOSEException e) {
+            log.info("Error creating an access token for {}", userDetails.getUsername(), e);
+            throw new BadCredentialsException("Token generation failed");
+        }
+    }
+
     @Autowired
     public void setJwtTokenService(@NonNull JwtTokenService jwtTokenService) {
         this.jwtTokenService = jwtTokenService;
     }
+
+    @Autowired(required = false)
+    public void setJwtMetrics(@NonNull JwtMetrics jwtMetrics) {
+        this.jwtMetrics = jwtMetrics;
+    }
 }
@@ -0,0 +1,82 @@
+/*
+ * MIT Licence
+ * Copyright (c) 2026 Simon Frankenberger
+ *
+ * Please see LICENCE.md for complete licence text.
+ */
+package eu.fraho.spring.securityJwt.base.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the blocking operations of the refresh token stores on other threads. A single instance is shared by all
+ * stores of the application context.
+ * <p>
+ * When running on Java 21 or newer, a new virtual thread is started for each operation. On older runtimes a pool
+ * of at most {@link #POOL_SIZE} daemon threads is used, queueing up to {@link #MAX_QUEUED} operations. When the
+ * queue is full, the operation is executed by the calling thread instead, which slows down the callers instead of
+ * starting an unbounded number of threads.
+ * <p>
+ * This class deliberately does not implement {@link Executor}, so it does not replace the task executor of the
+ * application when registered as a bean.
+ */
+@Slf4j
+public class RefreshStoreExecutor implements DisposableBean {
+    /**
+     * Maximum number of pool threads, if virtual threads are not available.
+     */
+    public static final int POOL_SIZE = Math.max(8, 4 * Runtime.getRuntime().availableProcessors());
+
+    /**
+     * Maximum number of queued operations, if virtual threads are not available.
+     */
+    public static final int MAX_QUEUED = 1_000;
+
+    private final ExecutorService executor = newExecutorService();
+
+    private static ExecutorService newExecutorService() {
+        try {
+            // virtual threads are available since java 21, but this library still supports java 17
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            log.debug("Virtual threads are not available, using a pool of {} threads", POOL_SIZE);
+            AtomicInteger counter = new AtomicInteger();
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(POOL_SIZE, POOL_SIZE, 60L, TimeUnit.SECONDS,
+                    new ArrayBlockingQueue<>(MAX_QUEUED), r -> {
+                Thread thread = new Thread(r, "fraho-jwt-refresh-store-" + counter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }, (r, executor) -> {
+                // unlike the CallerRunsPolicy, never drop operations silently, the caller would wait forever
+                if (executor.isShutdown()) {
+                    throw new RejectedExecutionException("The refresh store executor has been shut down");
+                }
+                r.run();
+            });
+            pool.allowCoreThreadTimeOut(true);
+            return pool;
+        }
+    }
+
+    /**
+     * @return The executor to run blocking store operations with
+     */
+    public Executor getExecutor() {
+        return executor;
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdown();
+    }
+}
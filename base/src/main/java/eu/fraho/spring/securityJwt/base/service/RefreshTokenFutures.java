@@ -0,0 +1,66 @@
+/*
+ * MIT Licence
+ * Copyright (c) 2026 Simon Frankenberger
+ *
+ * Please see LICENCE.md for complete licence text.
+ */
+package eu.fraho.spring.securityJwt.base.service;
+
+import eu.fraho.spring.securityJwt.base.dto.RefreshToken;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Helpers for refresh tokens which are written to the store while the access token is signed.
+ */
+@Slf4j
+final class RefreshTokenFutures {
+    private RefreshTokenFutures() {
+    }
+
+    /**
+     * Wait for the future and rethrow the original exception if it failed.
+     *
+     * @param future The future to wait for
+     * @param <T>    Type of the result
+     * @return The result of the future
+     */
+    static <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Wait until the refresh token was stored and revoke it again, as it will never reach the client.
+     * Errors are only logged, so they do not hide the failure which caused the revocation.
+     *
+     * @param jwtTokenService The service to revoke the token with
+     * @param future          The refresh token which is being stored
+     */
+    static void revoke(JwtTokenService jwtTokenService, CompletableFuture<RefreshToken> future) {
+        RefreshToken token;
+        try {
+            token = future.join();
+        } catch (CompletionException | CancellationException e) {
+            // the token was not stored
+            return;
+        }
+        if (token == null) {
+            return;
+        }
+        try {
+            jwtTokenService.revokeRefreshToken(token);
+        } catch (RuntimeException e) {
+            log.warn("Could not revoke unused refresh token", e);
+        }
+    }
+}
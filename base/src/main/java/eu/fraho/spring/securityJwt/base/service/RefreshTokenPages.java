@@ -0,0 +1,78 @@
+/*
+ * MIT Licence
+ * Copyright (c) 2026 Simon Frankenberger
+ *
+ * Please see LICENCE.md for complete licence text.
+ */
+package eu.fraho.spring.securityJwt.base.service;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Helper for the implementations of {@link RefreshTokenStore#streamTokens(Long, int)}.
+ */
+public final class RefreshTokenPages {
+    private RefreshTokenPages() {
+    }
+
+    /**
+     * Create a stream which fetches the elements page by page while it is consumed.
+     * The next page is only requested after all elements of the current page were consumed.
+     *
+     * @param nextPage Returns the next page, which may be empty if further pages follow,
+     *                 or {@code null} after the last page
+     * @param <T>      The type of the elements
+     * @return A lazily populated stream
+     */
+    public static <T> Stream<T> stream(Supplier<List<T>> nextPage) {
+        return StreamSupport.stream(new PageSpliterator<>(nextPage), false);
+    }
+
+    /**
+     * Check the requested page size.
+     *
+     * @param pageSize The page size
+     * @throws IllegalArgumentException if the page size is lower than 1
+     */
+    public static void checkPageSize(int pageSize) {
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("The page size has to be positive, got " + pageSize);
+        }
+    }
+
+    private static final class PageSpliterator<T> extends Spliterators.AbstractSpliterator<T> {
+        private final Supplier<List<T>> nextPage;
+        private Iterator<T> current = Collections.emptyIterator();
+        private boolean finished;
+
+        private PageSpliterator(Supplier<List<T>> nextPage) {
+            super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL);
+            this.nextPage = nextPage;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) {
+            while (!current.hasNext()) {
+                if (finished) {
+                    return false;
+                }
+                List<T> page = nextPage.get();
+                if (page == null) {
+                    finished = true;
+                    return false;
+                }
+                current = page.iterator();
+            }
+            action.accept(current.next());
+            return true;
+        }
+    }
+}
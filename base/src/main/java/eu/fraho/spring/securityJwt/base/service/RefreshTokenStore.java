@@ -8,11 +8,14 @@ package eu.fraho.spring.securityJwt.base.service;
 
 import eu.fraho.spring.securityJwt.base.dto.JwtUser;
 import eu.fraho.spring.securityJwt.base.dto.RefreshToken;
+import eu.fraho.spring.securityJwt.base.dto.RefreshTokenEntry;
 import org.springframework.beans.factory.InitializingBean;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface RefreshTokenStore extends InitializingBean {
     /**
@@ -52,6 +55,30 @@ public interface RefreshTokenStore extends InitializingBean {
 
     Map<Long, List<RefreshToken>> listTokens();
 
+    /**
+     * Stream the tokens stored at the implementation.<br>
+     * Contrary to {@link #listTokens()} the tokens are fetched from the backend in pages of the given size
+     * while the stream is consumed, so not all tokens have to be held in memory at once.
+     * The stream has to be closed after use, as the implementation may hold a cursor until then.
+     * <p>
+     * The default implementation is an adapter to {@link #listTokens(JwtUser)} and {@link #listTokens()}
+     * for stores without native support.
+     *
+     * @param userId   Only return the tokens of this user, or {@code null} to return the tokens of all users
+     * @param pageSize Number of tokens to fetch from the backend at once
+     * @return A lazily populated stream of the tokens
+     */
+    default Stream<RefreshTokenEntry> streamTokens(Long userId, int pageSize) {
+        RefreshTokenPages.checkPageSize(pageSize);
+        if (userId != null) {
+            JwtUser user = new JwtUser();
+            user.setId(userId);
+            return listTokens(user).stream().map(token -> new RefreshTokenEntry(userId, token));
+        }
+        return listTokens().entrySet().stream()
+                .flatMap(entry -> entry.getValue().stream().map(token -> new RefreshTokenEntry(entry.getKey(), token)));
+    }
+
     /**
      * Revoke a single token.
      *
@@ -68,6 +95,42 @@ public interface RefreshTokenStore extends InitializingBean {
      */
     int revokeTokens(JwtUser user);
 
+    /**
+     * Revoke the given tokens at once.<br>
+     * The default implementation revokes the tokens one after another, implementations should override this
+     * method to revoke them using as few round trips as possible.
+     *
+     * @param tokens The tokens to revoke
+     * @return The count of revoked tokens.
+     */
+    default int revokeTokens(Collection<String> tokens) {
+        int count = 0;
+        for (String token : tokens) {
+            if (revokeToken(token)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Revoke all tokens of the given users at once (e.g. when a tenant is disabled).<br>
+     * The default implementation revokes the tokens of one user after another, implementations should override
+     * this method to revoke them using as few round trips as possible.
+     *
+     * @param userIds The ids of the users which tokens should be revoked
+     * @return The count of revoked tokens.
+     */
+    default int revokeTokensOfUsers(Collection<Long> userIds) {
+        int count = 0;
+        for (Long userId : userIds) {
+            JwtUser user = new JwtUser();
+            user.setId(userId);
+            count += revokeTokens(user);
+        }
+        return count;
+    }
+
     /**
      * Revoke all tokens stored at this implementation.
      *
@@ -0,0 +1,106 @@
+/*
+ * MIT Licence
+ * Copyright (c) 2026 Simon Frankenberger
+ *
+ * Please see LICENCE.md for complete licence text.
+ */
+package eu.fraho.spring.securityJwt.base.service;
+
+import eu.fraho.spring.securityJwt.base.config.CookieProperties;
+import eu.fraho.spring.securityJwt.base.config.TokenHeaderProperties;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.NonNull;
+
+/**
+ * Extracts tokens from the headers and cookies of incoming requests.
+ * <p>
+ * The header and cookie names are copied once upon creation, so the extraction itself is a plain scan over
+ * the configured headers and a single pass over the sent cookies.
+ * Headers always take precedence over cookies. When multiple cookies match, the one whose name comes first in the
+ * configuration wins.
+ */
+public class TokenExtractor {
+    private static final String BEARER_PREFIX = "Bearer ";
+    private static final String[] NONE = new String[0];
+
+    private final String[] headerNames;
+    private final String[] cookieNames;
+
+    public TokenExtractor(@NonNull String[] headerNames, @NonNull String[] cookieNames) {
+        this.headerNames = headerNames.clone();
+        this.cookieNames = cookieNames.clone();
+    }
+
+    /**
+     * Create an extractor which honors the given configuration. Disabled sources are skipped entirely.
+     *
+     * @param headerProperties The header configuration, may be null if tokens are never sent as headers
+     * @param cookieProperties The cookie configuration, may be null if tokens are never sent as cookies
+     * @return A new extractor
+     */
+    public static TokenExtractor of(TokenHeaderProperties headerProperties, CookieProperties cookieProperties) {
+        String[] headers = headerProperties != null && headerProperties.isEnabled() ? headerProperties.getNames() : NONE;
+        String[] cookies = cookieProperties != null && cookieProperties.isEnabled() ? cookieProperties.getNames() : NONE;
+        return new TokenExtractor(headers, cookies);
+    }
+
+    /**
+     * Extract the token from the given request.
+     *
+     * @param request The current request
+     * @return The token, or null if the request did not contain one
+     */
+    public String extract(HttpServletRequest request) {
+        String result = extractHeader(request);
+        if (result == null) {
+            result = extractCookie(request);
+        }
+        return result;
+    }
+
+    private String extractHeader(HttpServletRequest request) {
+        for (String name : headerNames) {
+            String value = request.getHeader(name);
+            if (value != null) {
+                // the parser requires a string, so this is the only copy we can't avoid
+                return value.startsWith(BEARER_PREFIX) ? value.substring(BEARER_PREFIX.length()) : value;
+            }
+        }
+        return null;
+    }
+
+    private String extractCookie(HttpServletRequest request) {
+        if (cookieNames.length == 0) {
+            return null;
+        }
+
+        Cookie[] cookies = request.getCookies();
+        if (cookies == null) {
+            return null;
+        }
+
+        String result = null;
+        int bestIndex = cookieNames.length;
+        for (Cookie cookie : cookies) {
+            int index = indexOf(cookie.getName(), bestIndex);
+            if (index < bestIndex) {
+                result = cookie.getValue();
+                bestIndex = index;
+                if (index == 0) {
+                    break;
+                }
+            }
+        }
+        return result;
+    }
+
+    private int indexOf(String name, int limit) {
+        for (int i = 0; i < limit; i++) {
+            if (cookieNames[i].equals(name)) {
+                return i;
+            }
+        }
+        return limit;
+    }
+}
@@ -0,0 +1,30 @@
+/*
+ * MIT Licence
+ * Copyright (c) 2026 Simon Frankenberger
+ *
+ * Please see LICENCE.md for complete licence text.
+ */
+package eu.fraho.spring.securityJwt.base.service;
+
+import java.time.Duration;
+
+/**
+ * Registry of the TOTP codes which were already used, so each code is only accepted once per user.
+ * <p>
+ * The codes are identified by the user and their time step, as there is only a single valid code per step.
+ * Refresh token stores whose backend is shared between nodes implement this interface directly, otherwise
+ * the used codes are held by an {@link InMemoryTotpReplayStore}.
+ *
+ * @see eu.fraho.spring.securityJwt.base.config.TotpProperties#isReplayProtection()
+ */
+public interface TotpReplayStore {
+    /**
+     * Atomically mark the code of the user at the given time step as used.
+     *
+     * @param userId     The id of the user
+     * @param step       The time step of the code
+     * @param expiration How long the mark has to be kept, afterwards the code is rejected anyway
+     * @return {@code true} if the code was not used before
+     */
+    boolean markUsed(Long userId, long step, Duration expiration);
+}
@@ -17,6 +17,21 @@ public interface TotpService {
      */
     boolean verifyCode(String secret, int code);
 
+    /**
+     * Verify the given code against the stored secret and make sure that each code is only accepted once per user.
+     * The default implementation does not protect against replays and only verifies the code.
+     *
+     * @param userId The id of the user
+     * @param secret The shared secret between client and server
+     * @param code   The code to verify
+     * @return {@code true} if the given code is within the configured variance bounds and was not used before.
+     * @throws NullPointerException if secret is null
+     * @see TotpReplayStore
+     */
+    default boolean verifyCodeOnce(Long userId, String secret, int code) {
+        return verifyCode(secret, code);
+    }
+
     /**
      * Generate a new shared secret.
      *
@@ -18,6 +18,8 @@ import org.springframework.beans.factory.InitializingBean;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import java.time.Duration;
+
 @Component
 @Slf4j
 @NoArgsConstructor
@@ -26,10 +28,31 @@ public class TotpServiceImpl implements TotpService, InitializingBean {
     private final Base32 base32 = new Base32();
     private TotpProperties totpProperties;
     private Totp totp;
+    private TotpVerifier totpVerifier;
+    private TotpReplayStore totpReplayStore;
 
     @Override
     public boolean verifyCode(String secret, int code) {
-        return totp.verifyCode(base32.decode(secret), code);
+        return totpVerifier.verifyCode(secret, code);
+    }
+
+    @Override
+    public boolean verifyCodeOnce(Long userId, String secret, int code) {
+        if (!totpProperties.isReplayProtection()) {
+            return verifyCode(secret, code);
+        }
+        long now = System.currentTimeMillis();
+        long step = totpVerifier.findStep(secret, code, now);
+        if (step < 0) {
+            return false;
+        }
+        // the code is accepted until its step leaves the variance window
+        long validUntil = (step + totpProperties.getVariance() + 1) * TotpVerifier.STEP_MILLIS;
+        boolean unused = totpReplayStore.markUsed(userId, step, Duration.ofMillis(Math.max(1_000L, validUntil - now)));
+        if (!unused) {
+            log.info("TOTP code of user {} was already used", userId);
+        }
+        return unused;
     }
 
     @Override
@@ -42,6 +65,11 @@ public class TotpServiceImpl implements TotpService, InitializingBean {
         this.totpProperties = totpProperties;
     }
 
+    @Autowired(required = false)
+    public void setTotpReplayStore(@NonNull TotpReplayStore totpReplayStore) {
+        this.totpReplayStore = totpReplayStore;
+    }
+
     @Override
     public void afterPropertiesSet() {
         totp = new Totp(TotpSettings.builder()
@@ -49,5 +77,10 @@ public class TotpServiceImpl implements TotpService, InitializingBean {
                 .secretLength(totpProperties.getLength())
                 .build()
         );
+        totpVerifier = new TotpVerifier(totpProperties.getVariance(), totpProperties.getCacheSize());
+        if (totpProperties.isReplayProtection() && totpReplayStore == null) {
+            log.info("Using in-memory store for used TOTP codes");
+            totpReplayStore = new InMemoryTotpReplayStore();
+        }
     }
 }
@@ -0,0 +1,177 @@
+/*
+ * MIT Licence
+ * Copyright (c) 2026 Simon Frankenberger
+ *
+ * Please see LICENCE.md for complete licence text.
+ */
+package eu.fraho.spring.securityJwt.base.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.codec.binary.Base32;
+
+import javax.crypto.Mac;
+import javax.crypto.ShortBufferException;
+import javax.crypto.spec.SecretKeySpec;
+import java.security.InvalidKeyException;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Verifies TOTP codes (RFC 6238 with HMAC-SHA1, 30 second steps and 6 digits) within a window of steps.
+ * <p>
+ * The decoded keys of recently used secrets are held in a bounded cache, so the base32 decoding is skipped for
+ * repeated attempts. Each thread reuses a single {@link Mac} along with its buffers, which is only re-initialized
+ * when the key changes. Verifying a code with a cached secret does not allocate any arrays.
+ * When the cache is full, the least recently used secrets are evicted (see {@link BoundedCache}).
+ */
+@Slf4j
+public class TotpVerifier {
+    /**
+     * Duration of a single time step in milliseconds.
+     */
+    public static final long STEP_MILLIS = 30_000L;
+    private static final String ALGORITHM = "HmacSHA1";
+    private static final int MODULO = 1_000_000;
+
+    private final ThreadLocal<State> states = ThreadLocal.withInitial(State::new);
+    private final Base32 base32 = new Base32();
+    private final BoundedCache<String, SecretKeySpec> keys;
+    private final int variance;
+
+    public TotpVerifier(int variance, int maxSize) {
+        if (variance < 0) {
+            throw new IllegalArgumentException("The variance may not be negative");
+        }
+        this.variance = variance;
+        keys = new BoundedCache<>(maxSize);
+    }
+
+    /**
+     * Verify the code against the current time.
+     *
+     * @param secret The base32 encoded secret
+     * @param code   The code to verify
+     * @return {@code true} if the code matches any step within the variance
+     */
+    public boolean verifyCode(String secret, int code) {
+        return verifyCode(secret, code, System.currentTimeMillis());
+    }
+
+    /**
+     * Verify the code against the given time.
+     *
+     * @param secret     The base32 encoded secret
+     * @param code       The code to verify
+     * @param timeMillis The time in milliseconds since the epoch
+     * @return {@code true} if the code matches any step within the variance
+     */
+    public boolean verifyCode(String secret, int code, long timeMillis) {
+        return findStep(secret, code, timeMillis) >= 0;
+    }
+
+    /**
+     * Find the time step of the code within the variance of the given time.
+     *
+     * @param secret     The base32 encoded secret
+     * @param code       The code to verify
+     * @param timeMillis The time in milliseconds since the epoch
+     * @return The time step of the code, or -1 if the code is invalid
+     */
+    public long findStep(String secret, int code, long timeMillis) {
+        SecretKeySpec key = getKey(secret);
+        if (key == null) {
+            return -1;
+        }
+        State state = states.get();
+        if (!state.init(key)) {
+            return -1;
+        }
+        long step = timeMillis / STEP_MILLIS;
+        for (long i = step - variance; i <= step + variance; i++) {
+            if (state.code(i) == code) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Remove all cached secrets.
+     */
+    public void clear() {
+        keys.clear();
+        log.debug("Cleared TOTP secret cache");
+    }
+
+    /**
+     * @return The current number of cached secrets
+     */
+    public int size() {
+        return keys.size();
+    }
+
+    private SecretKeySpec getKey(String secret) {
+        SecretKeySpec key = keys.get(secret);
+        if (key != null) {
+            return key;
+        }
+
+        byte[] decoded = base32.decode(secret);
+        if (decoded.length == 0) {
+            // empty secrets are not cached, they cannot be used as a key
+            return null;
+        }
+        key = new SecretKeySpec(decoded, ALGORITHM);
+        keys.put(secret, key);
+        return key;
+    }
+
+    private static final class State {
+        private final Mac mac;
+        private final byte[] counter = new byte[Long.BYTES];
+        private final byte[] hash;
+        private SecretKeySpec key;
+
+        private State() {
+            try {
+                mac = Mac.getInstance(ALGORITHM);
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(ALGORITHM + " is not supported by this JVM", e);
+            }
+            hash = new byte[mac.getMacLength()];
+        }
+
+        private boolean init(SecretKeySpec key) {
+            if (this.key == key) {
+                return true;
+            }
+            try {
+                mac.init(key);
+                this.key = key;
+                return true;
+            } catch (InvalidKeyException e) {
+                log.debug("Invalid TOTP secret", e);
+                this.key = null;
+                return false;
+            }
+        }
+
+        private int code(long step) {
+            for (int i = Long.BYTES - 1; i >= 0; i--) {
+                counter[i] = (byte) step;
+                step >>>= 8;
+            }
+            try {
+                mac.update(counter);
+                mac.doFinal(hash, 0);
+            } catch (ShortBufferException e) {
+                throw new IllegalStateException("Buffer too short for " + ALGORITHM, e);
+            }
+            int offset = hash[hash.length - 1] & 0xf;
+            int binary = ((hash[offset] & 0x7f) << 24)
+                    | ((hash[offset + 1] & 0xff) << 16)
+                    | ((hash[offset + 2] & 0xff) << 8)
+                    | (hash[offset + 3] & 0xff);
+            return binary % MODULO;
+        }
+    }
+}
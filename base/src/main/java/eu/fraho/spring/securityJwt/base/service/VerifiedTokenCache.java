@@ -0,0 +1,149 @@
+/*
+ * MIT Licence
+ * Copyright (c) 2026 Simon Frankenberger
+ *
+ * Please see LICENCE.md for complete licence text.
+ */
+package eu.fraho.spring.securityJwt.base.service;
+
+import com.nimbusds.jwt.JWTClaimsSet;
+import lombok.extern.slf4j.Slf4j;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded cache of access tokens which already passed the signature and claims verification.
+ * <p>
+ * Tokens are referenced by their SHA-256 hash, so the cache never holds the raw tokens. An entry is only returned
+ * until the expiration time of its token is reached and when it was verified by the same verifier as requested.
+ * The latter ensures that reloading the keys (see {@link eu.fraho.spring.securityJwt.base.config.TokenProperties#loadKeys()})
+ * implicitly invalidates all cached entries.
+ * When the cache is full, the least recently used tokens are evicted (see {@link BoundedCache}). Lookups do not take
+ * any lock, so concurrent requests are not serialized by the cache.
+ */
+@Slf4j
+public class VerifiedTokenCache {
+    private static final ThreadLocal<MessageDigest> DIGEST = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported by this JVM", e);
+        }
+    });
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final BoundedCache<Key, Entry> cache;
+
+    public VerifiedTokenCache(int maxSize) {
+        cache = new BoundedCache<>(maxSize);
+    }
+
+    /**
+     * Lookup the claims of an already verified token.
+     *
+     * @param token    The serialized token
+     * @param verifier The verifier which is currently used to validate tokens
+     * @return The cached claims, or null if the token is unknown, expired or was verified by another verifier
+     */
+    public JWTClaimsSet get(String token, Object verifier) {
+        Key key = new Key(token);
+        long now = System.currentTimeMillis();
+        Entry entry = cache.get(key);
+        if (entry != null && (entry.expiresAt <= now || entry.verifier != verifier)) {
+            cache.remove(key, entry);
+            entry = null;
+        }
+
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry.claims;
+    }
+
+    /**
+     * Remember the claims of a successfully verified token.
+     * Tokens without an expiration time are not cached at all.
+     *
+     * @param token    The serialized token
+     * @param claims   The claims of the verified token
+     * @param verifier The verifier which was used to validate the token
+     */
+    public void put(String token, JWTClaimsSet claims, Object verifier) {
+        Date expiration = claims.getExpirationTime();
+        if (expiration == null) {
+            return;
+        }
+        Entry entry = new Entry(claims, expiration.getTime(), verifier);
+        cache.put(new Key(token), entry);
+    }
+
+    /**
+     * Remove all cached tokens.
+     */
+    public void clear() {
+        cache.clear();
+        log.debug("Cleared verified token cache");
+    }
+
+    /**
+     * @return The current number of cached tokens, including already expired ones which were not evicted yet
+     */
+    public int size() {
+        return cache.size();
+    }
+
+    /**
+     * @return The number of lookups which returned cached claims
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * @return The number of lookups which did not find a (valid) cached token
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    private static final class Key {
+        private final byte[] hash;
+        private final int hashCode;
+
+        private Key(String token) {
+            MessageDigest digest = DIGEST.get();
+            hash = digest.digest(token.getBytes(StandardCharsets.US_ASCII));
+            hashCode = (hash[0] << 24) | ((hash[1] & 0xff) << 16) | ((hash[2] & 0xff) << 8) | (hash[3] & 0xff);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key && Arrays.equals(hash, ((Key) o).hash);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+
+    private static final class Entry {
+        private final JWTClaimsSet claims;
+        private final long expiresAt;
+        private final Object verifier;
+
+        private Entry(JWTClaimsSet claims, long expiresAt, Object verifier) {
+            this.claims = claims;
+            this.expiresAt = expiresAt;
+            this.verifier = verifier;
+        }
+    }
+}
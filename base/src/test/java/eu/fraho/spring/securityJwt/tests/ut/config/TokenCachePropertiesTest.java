@@ -0,0 +1,35 @@
+/*
+ * MIT Licence
+ * Copyright (c) 2026 Simon Frankenberger
+ *
+ * Please see LICENCE.md for complete licence text.
+ */
+package eu.fraho.spring.securityJwt.tests.ut.config;
+
+import eu.fraho.spring.securityJwt.base.config.TokenCacheProperties;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class TokenCachePropertiesTest {
+    private TokenCacheProperties getNewInstance() {
+        return new TokenCacheProperties();
+    }
+
+    @Test
+    public void testDefaultConfig() {
+        getNewInstance().afterPropertiesSet();
+    }
+
+    @Test
+    public void testMaxSizeBounds() {
+        TokenCacheProperties conf = getNewInstance();
+
+        conf.setMaxSize(0);
+        conf.afterPropertiesSet();
+        Assertions.assertEquals(10_000, conf.getMaxSize(), "Max size did not reset to default");
+
+        conf.setMaxSize(Integer.MAX_VALUE);
+        conf.afterPropertiesSet();
+        Assertions.assertEquals(10_000, conf.getMaxSize(), "Max size did not reset to default");
+    }
+}
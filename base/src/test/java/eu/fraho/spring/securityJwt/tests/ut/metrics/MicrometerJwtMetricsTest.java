@@ -0,0 +1,62 @@
+/*
+ * MIT Licence
+ * Copyright (c) 2026 Simon Frankenberger
+ *
+ * Please see LICENCE.md for complete licence text.
+ */
+package eu.fraho.spring.securityJwt.tests.ut.metrics;
+
+import eu.fraho.spring.securityJwt.base.dto.TokenVerificationResult;
+import eu.fraho.spring.securityJwt.base.metrics.LoginPhase;
+import eu.fraho.spring.securityJwt.base.metrics.MicrometerJwtMetrics;
+import eu.fraho.spring.securityJwt.base.service.VerifiedTokenCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class MicrometerJwtMetricsTest {
+    @Test
+    public void testTokenMetrics() {
+        MeterRegistry registry = new SimpleMeterRegistry();
+        MicrometerJwtMetrics metrics = new MicrometerJwtMetrics(registry);
+
+        metrics.recordTokenGeneration(1_000, true);
+        metrics.recordTokenVerification(1_000, TokenVerificationResult.EXPIRED);
+        metrics.recordTokenVerification(1_000, TokenVerificationResult.EXPIRED);
+        metrics.recordTokenParse(1_000, false);
+
+        Assertions.assertEquals(1, registry.get("fraho.jwt.token.generate").tag("outcome", "success").timer().count());
+        Assertions.assertEquals(2, registry.get("fraho.jwt.token.verify").tag("result", "expired").timer().count());
+        Assertions.assertEquals(0, registry.get("fraho.jwt.token.verify").tag("result", "valid").timer().count());
+        Assertions.assertEquals(1, registry.get("fraho.jwt.token.parse").tag("outcome", "failure").timer().count());
+    }
+
+    @Test
+    public void testLoginMetrics() {
+        MeterRegistry registry = new SimpleMeterRegistry();
+        MicrometerJwtMetrics metrics = new MicrometerJwtMetrics(registry);
+
+        metrics.recordLoginPhase(LoginPhase.USER_LOAD, 1_000, true);
+        metrics.recordLoginPhase(LoginPhase.TOTP, 1_000, false);
+        metrics.recordRefresh(1_000, true);
+
+        Assertions.assertEquals(1, registry.get("fraho.jwt.login").tags("phase", "user_load", "outcome", "success").timer().count());
+        Assertions.assertEquals(1, registry.get("fraho.jwt.login").tags("phase", "totp", "outcome", "failure").timer().count());
+        Assertions.assertEquals(1, registry.get("fraho.jwt.refresh").tag("outcome", "success").timer().count());
+    }
+
+    @Test
+    public void testTokenCacheMetrics() {
+        MeterRegistry registry = new SimpleMeterRegistry();
+        MicrometerJwtMetrics metrics = new MicrometerJwtMetrics(registry);
+        VerifiedTokenCache cache = new VerifiedTokenCache(10);
+        metrics.bindTokenCache(cache);
+
+        cache.get("foo", this);
+
+        Assertions.assertEquals(1, registry.get("fraho.jwt.token.cache.requests").tag("result", "miss").functionCounter().count());
+        Assertions.assertEquals(0, registry.get("fraho.jwt.token.cache.requests").tag("result", "hit").functionCounter().count());
+        Assertions.assertEquals(0, registry.get("fraho.jwt.token.cache.size").gauge().value());
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ * MIT Licence
+ * Copyright (c) 2026 Simon Frankenberger
+ *
+ * Please see LICENCE.md for complete licence text.
+ */
+package eu.fraho.spring.securityJwt.tests.ut.metrics;
+
+import eu.fraho.spring.securityJwt.base.dto.JwtUser;
+import eu.fraho.spring.securityJwt.base.dto.RefreshToken;
+import eu.fraho.spring.securityJwt.base.dto.RefreshTokenEntry;
+import eu.fraho.spring.securityJwt.base.metrics.JwtMetrics;
+import eu.fraho.spring.securityJwt.base.metrics.MicrometerJwtMetrics;
+import eu.fraho.spring.securityJwt.base.metrics.RefreshStoreMetricsPostProcessor;
+import eu.fraho.spring.securityJwt.base.service.NullTokenStore;
+import eu.fraho.spring.securityJwt.base.service.RefreshTokenPages;
+import eu.fraho.spring.securityJwt.base.service.RefreshTokenStore;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+public class RefreshStoreMetricsPostProcessorTest {
+    private static RefreshStoreMetricsPostProcessor postProcessor(MeterRegistry registry) {
+        StaticListableBeanFactory beanFactory = new StaticListableBeanFactory();
+        if (registry != null) {
+            beanFactory.addBean("jwtMetrics", new MicrometerJwtMetrics(registry));
+        }
+        return new RefreshStoreMetricsPostProcessor(beanFactory.getBeanProvider(JwtMetrics.class));
+    }
+
+    @Test
+    public void testInstrumentStore() {
+        MeterRegistry registry = new SimpleMeterRegistry();
+        Object bean = postProcessor(registry).postProcessAfterInitialization(new DummyTokenStore(), "store");
+
+        Assertions.assertTrue(AopUtils.isCglibProxy(bean));
+        Assertions.assertInstanceOf(DummyTokenStore.class, bean);
+        DummyTokenStore store = (DummyTokenStore) bean;
+        store.saveToken(new JwtUser(), "foo");
+        store.useToken("foo");
+        store.revokeTokens();
+        Assertions.assertThrows(IllegalStateException.class, () -> store.revokeToken("foo"));
+
+        Assertions.assertEquals(1, registry.get("fraho.jwt.refresh.store")
+                .tags("store", "DummyTokenStore", "operation", "save_token", "outcome", "success").timer().count());
+        Assertions.assertEquals(1, registry.get("fraho.jwt.refresh.store")
+                .tags("store", "DummyTokenStore", "operation", "revoke_token", "outcome", "failure").timer().count());
+        Assertions.assertEquals(1, registry.get("fraho.jwt.refresh.store.results")
+                .tags("store", "DummyTokenStore", "operation", "use_token").summary().totalAmount());
+        Assertions.assertEquals(3, registry.get("fraho.jwt.refresh.store.results")
+                .tags("store", "DummyTokenStore", "operation", "revoke_all_tokens").summary().totalAmount());
+        Assertions.assertEquals(0, registry.get("fraho.jwt.refresh.store.results")
+                .tags("store", "DummyTokenStore", "operation", "save_token").summary().count());
+    }
+
+    @Test
+    public void testInstrumentStream() {
+        MeterRegistry registry = new SimpleMeterRegistry();
+        // the fields are only set on the target, not on the proxy
+        DummyTokenStore target = new DummyTokenStore();
+        DummyTokenStore store = (DummyTokenStore) postProcessor(registry).postProcessAfterInitialization(target, "store");
+
+        Stream<RefreshTokenEntry> stream = store.streamTokens(null, 2);
+        Assertions.assertEquals(0, target.fetchedPages.get(), "Pages fetched before consuming the stream");
+        Assertions.assertEquals(0, registry.get("fraho.jwt.refresh.store")
+                .tags("store", "DummyTokenStore", "operation", "stream_tokens", "outcome", "success").timer().count());
+        Assertions.assertEquals(4, stream.count());
+        Assertions.assertEquals(3, target.fetchedPages.get(), "Not all pages fetched");
+        Assertions.assertEquals(1, registry.get("fraho.jwt.refresh.store")
+                .tags("store", "DummyTokenStore", "operation", "stream_tokens", "outcome", "success").timer().count());
+        Assertions.assertEquals(4, registry.get("fraho.jwt.refresh.store.results")
+                .tags("store", "DummyTokenStore", "operation", "stream_tokens").summary().totalAmount());
+
+        // partially consumed streams are recorded when they are closed
+        try (Stream<RefreshTokenEntry> partial = store.streamTokens(null, 2)) {
+            Assertions.assertTrue(partial.findFirst().isPresent());
+            Assertions.assertEquals(1, registry.get("fraho.jwt.refresh.store")
+                    .tags("store", "DummyTokenStore", "operation", "stream_tokens", "outcome", "success").timer().count());
+        }
+        Assertions.assertEquals(2, registry.get("fraho.jwt.refresh.store")
+                .tags("store", "DummyTokenStore", "operation", "stream_tokens", "outcome", "success").timer().count());
+        Assertions.assertEquals(5, registry.get("fraho.jwt.refresh.store.results")
+                .tags("store", "DummyTokenStore", "operation", "stream_tokens").summary().totalAmount());
+
+        target.failPages = true;
+        Assertions.assertThrows(IllegalStateException.class, () -> store.streamTokens(null, 2).toList());
+        Assertions.assertEquals(1, registry.get("fraho.jwt.refresh.store")
+                .tags("store", "DummyTokenStore", "operation", "stream_tokens", "outcome", "failure").timer().count());
+    }
+
+    @Test
+    public void testSkipWithoutMetrics() {
+        DummyTokenStore store = new DummyTokenStore();
+        Assertions.assertSame(store, postProcessor(null).postProcessAfterInitialization(store, "store"));
+    }
+
+    @Test
+    public void testSkipNullTokenStore() {
+        NullTokenStore store = new NullTokenStore();
+        Assertions.assertSame(store, postProcessor(new SimpleMeterRegistry()).postProcessAfterInitialization(store, "store"));
+    }
+
+    @Test
+    public void testSkipOtherBeans() {
+        Object bean = new Object();
+        Assertions.assertSame(bean, postProcessor(new SimpleMeterRegistry()).postProcessAfterInitialization(bean, "bean"));
+    }
+
+    public static class DummyTokenStore implements RefreshTokenStore {
+        private final AtomicInteger fetchedPages = new AtomicInteger();
+        private volatile boolean failPages;
+
+        @Override
+        public void saveToken(JwtUser user, String token) {
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T extends JwtUser> Optional<T> useToken(String token) {
+            return Optional.of((T) new JwtUser());
+        }
+
+        @Override
+        public List<RefreshToken> listTokens(JwtUser user) {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public Map<Long, List<RefreshToken>> listTokens() {
+            return Collections.emptyMap();
+        }
+
+        @Override
+        public Stream<RefreshTokenEntry> streamTokens(Long userId, int pageSize) {
+            AtomicInteger page = new AtomicInteger();
+            return RefreshTokenPages.stream(() -> {
+                fetchedPages.incrementAndGet();
+                if (failPages) {
+                    throw new IllegalStateException("backend not available");
+                }
+                if (page.getAndIncrement() == 2) {
+                    return null;
+                }
+                return List.of(new RefreshTokenEntry(1L, RefreshToken.builder().token("foo").build()),
+                        new RefreshTokenEntry(2L, RefreshToken.builder().token("bar").build()));
+            });
+        }
+
+        @Override
+        public boolean revokeToken(String token) {
+            throw new IllegalStateException("backend not available");
+        }
+
+        @Override
+        public int revokeTokens(JwtUser user) {
+            return 0;
+        }
+
+        @Override
+        public int revokeTokens() {
+            return 3;
+        }
+
+        @Override
+        public void afterPropertiesSet() {
+        }
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * MIT Licence
+ * Copyright (c) 2026 Simon Frankenberger
+ *
+ * Please see LICENCE.md for complete licence text.
+ */
+package eu.fraho.spring.securityJwt.tests.ut.password;
+
+import eu.fraho.spring.securityJwt.base.exceptions.PasswordEncoderBusyException;
+import eu.fraho.spring.securityJwt.base.password.BoundedPasswordEncoder;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.password.NoOpPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class BoundedPasswordEncoderTest {
+    /**
+     * Blocks every check until {@link #release} is counted down.
+     */
+    private static class BlockingPasswordEncoder implements PasswordEncoder {
+        private final CountDownLatch started = new CountDownLatch(1);
+        private final CountDownLatch release = new CountDownLatch(1);
+
+        @Override
+        public String encode(CharSequence rawPassword) {
+            return rawPassword.toString();
+        }
+
+        @Override
+        public boolean matches(CharSequence rawPassword, String encodedPassword) {
+            started.countDown();
+            try {
+                return release.await(10, TimeUnit.SECONDS) && rawPassword.toString().equals(encodedPassword);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+    }
+
+    @Test
+    @SuppressWarnings("deprecation")
+    public void testDelegates() {
+        BoundedPasswordEncoder encoder = new BoundedPasswordEncoder(NoOpPasswordEncoder.getInstance(), 2, 0, 0);
+
+        Assertions.assertEquals("foobar", encoder.encode("foobar"));
+        Assertions.assertTrue(encoder.matches("foobar", "foobar"));
+        Assertions.assertFalse(encoder.matches("foobar", "foobaz"));
+        Assertions.assertFalse(encoder.upgradeEncoding("foobar"));
+        Assertions.assertEquals(0, encoder.getActive(), "Slot not released");
+        Assertions.assertEquals(0, encoder.getRejected());
+    }
+
+    @Test
+    public void testRejectWhenQueueFull() throws Exception {
+        BlockingPasswordEncoder delegate = new BlockingPasswordEncoder();
+        BoundedPasswordEncoder encoder = new BoundedPasswordEncoder(delegate, 1, 0, 10_000);
+
+        CompletableFuture<Boolean> first = CompletableFuture.supplyAsync(() -> encoder.matches("foobar", "foobar"));
+        Assertions.assertTrue(delegate.started.await(10, TimeUnit.SECONDS), "Check did not start");
+        Assertions.assertEquals(1, encoder.getActive());
+
+        Assertions.assertThrows(PasswordEncoderBusyException.class, () -> encoder.matches("foobar", "foobar"));
+        Assertions.assertEquals(1, encoder.getRejected());
+
+        delegate.release.countDown();
+        Assertions.assertTrue(first.get(10, TimeUnit.SECONDS), "Password didn't validate");
+        Assertions.assertEquals(0, encoder.getActive(), "Slot not released");
+    }
+
+    @Test
+    public void testRejectAfterTimeout() throws Exception {
+        BlockingPasswordEncoder delegate = new BlockingPasswordEncoder();
+        BoundedPasswordEncoder encoder = new BoundedPasswordEncoder(delegate, 1, 1, 50);
+
+        CompletableFuture<Boolean> first = CompletableFuture.supplyAsync(() -> encoder.matches("foobar", "foobar"));
+        Assertions.assertTrue(delegate.started.await(10, TimeUnit.SECONDS), "Check did not start");
+
+        Assertions.assertThrows(PasswordEncoderBusyException.class, () -> encoder.matches("foobar", "foobar"));
+        Assertions.assertEquals(0, encoder.getQueued(), "Waiting caller not removed");
+        Assertions.assertEquals(1, encoder.getRejected());
+
+        delegate.release.countDown();
+        Assertions.assertTrue(first.get(10, TimeUnit.SECONDS), "Password didn't validate");
+    }
+
+    @Test
+    public void testWaitForSlot() throws Exception {
+        BlockingPasswordEncoder delegate = new BlockingPasswordEncoder();
+        BoundedPasswordEncoder encoder = new BoundedPasswordEncoder(delegate, 1, 1, 10_000);
+
+        CompletableFuture<Boolean> first = CompletableFuture.supplyAsync(() -> encoder.matches("foobar", "foobar"));
+        Assertions.assertTrue(delegate.started.await(10, TimeUnit.SECONDS), "Check did not start");
+        CompletableFuture<Boolean> second = CompletableFuture.supplyAsync(() -> encoder.matches("foobar", "foobar"));
+
+        delegate.release.countDown();
+        Assertions.assertTrue(first.get(10, TimeUnit.SECONDS), "Password didn't validate");
+        Assertions.assertTrue(second.get(10, TimeUnit.SECONDS), "Waiting password didn't validate");
+        Assertions.assertEquals(0, encoder.getRejected());
+    }
+
+    @Test
+    @SuppressWarnings("deprecation")
+    public void testInvalidArguments() {
+        PasswordEncoder delegate = NoOpPasswordEncoder.getInstance();
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new BoundedPasswordEncoder(delegate, 0, 0, 0));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new BoundedPasswordEncoder(delegate, 1, -1, 0));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new BoundedPasswordEncoder(delegate, 1, 0, -1));
+    }
+}
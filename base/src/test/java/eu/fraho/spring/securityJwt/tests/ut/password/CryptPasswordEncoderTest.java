@@ -140,6 +140,38 @@ public class CryptPasswordEncoderTest {
         Assertions.assertTrue(testee.matches("foobar", hash));
     }
 
+    @Test
+    @SuppressWarnings("deprecation")
+    public void testUpgradeEncoding() {
+        CryptProperties config = getConfig();
+        config.setRounds(10_000);
+        config.afterPropertiesSet();
+        CryptPasswordEncoder encoder = getNewInstance(config);
+
+        Assertions.assertFalse(encoder.upgradeEncoding(encoder.encode("foobar")), "Current hash upgraded");
+        Assertions.assertFalse(encoder.upgradeEncoding(null), "Missing hash upgraded");
+        Assertions.assertTrue(encoder.upgradeEncoding("euw4A.DfkySuE"), "DES hash not upgraded");
+        Assertions.assertTrue(encoder.upgradeEncoding("$1$4XM02.Td$6QyF5djigTn7sHSpeVJC70"), "MD5 hash not upgraded");
+        Assertions.assertTrue(encoder.upgradeEncoding("$5$vW4oKb20Xu0OsQ1h$xRhEr3.pysPU..qHvUIwH0QK3RLyndmjCaps2deBwwA"), "SHA256 hash not upgraded");
+        Assertions.assertTrue(encoder.upgradeEncoding("$6$I0X0ugWXTKiCR/Hw$IMlZcf.amW6e5lPk2wQiIS3OCsOzon3p3GW1NCVFBelXKbvrmED4I7NqZ7J2fKpEtUK8OpdQbhdyW1nGOijfe/"), "Default rounds not upgraded");
+
+        config.setRounds(20_000);
+        Assertions.assertTrue(encoder.upgradeEncoding(encoder.encode("foobar").replace("rounds=20000", "rounds=10000")), "Other rounds not upgraded");
+    }
+
+    @Test
+    public void testUpgradeEncodingBlowfish() {
+        CryptProperties config = getConfig();
+        config.setAlgorithm(CryptAlgorithm.BLOWFISH);
+        config.setCost(10);
+        config.afterPropertiesSet();
+        CryptPasswordEncoder encoder = getNewInstance(config);
+
+        Assertions.assertFalse(encoder.upgradeEncoding(encoder.encode("foobar")), "Current hash upgraded");
+        Assertions.assertTrue(encoder.upgradeEncoding("$2a$12$jchmveFlNI/zfdV5LmB89eMt7C3ylGSzW10ojZs1IkPlZx2U12fgK"), "Higher cost not upgraded");
+        Assertions.assertTrue(encoder.upgradeEncoding("$6$I0X0ugWXTKiCR/Hw$IMlZcf.amW6e5lPk2wQiIS3OCsOzon3p3GW1NCVFBelXKbvrmED4I7NqZ7J2fKpEtUK8OpdQbhdyW1nGOijfe/"), "SHA512 hash not upgraded");
+    }
+
     private String generatePassword() {
         return "foobar_" + passwordNumber.getAndIncrement();
     }
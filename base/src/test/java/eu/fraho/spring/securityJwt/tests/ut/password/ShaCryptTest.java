@@ -0,0 +1,72 @@
+/*
+ * MIT Licence
+ * Copyright (c) 2026 Simon Frankenberger
+ *
+ * Please see LICENCE.md for complete licence text.
+ */
+package eu.fraho.spring.securityJwt.tests.ut.password;
+
+import eu.fraho.spring.securityJwt.base.dto.CryptAlgorithm;
+import eu.fraho.spring.securityJwt.base.password.ShaCrypt;
+import org.apache.commons.codec.digest.Crypt;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class ShaCryptTest {
+    private static final String[] PASSWORDS = {"", "foobar", "x".repeat(65), "pässwörd € 😀", "y".repeat(200)};
+    private static final String[] SALTS = {"a", "saltstring", "0123456789abcdef", "./AZaz09"};
+    private static final CryptAlgorithm[] ALGORITHMS = {CryptAlgorithm.SHA256, CryptAlgorithm.SHA512};
+
+    @Test
+    public void testSameAsCommonsCodec() {
+        for (CryptAlgorithm algorithm : ALGORITHMS) {
+            for (String password : PASSWORDS) {
+                for (String salt : SALTS) {
+                    String expected = Crypt.crypt(password, algorithm.getPrefix() + "rounds=1001$" + salt + "$");
+                    Assertions.assertEquals(expected, ShaCrypt.crypt(password, algorithm, 1001, salt), "Hash differs");
+                    Assertions.assertTrue(ShaCrypt.matches(password, expected), "Password didn't validate");
+                    Assertions.assertFalse(ShaCrypt.matches(password + "x", expected), "Wrong password validated");
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testDefaultRounds() {
+        for (CryptAlgorithm algorithm : ALGORITHMS) {
+            String encoded = Crypt.crypt("foobar", algorithm.getPrefix() + "saltstring$");
+            Assertions.assertTrue(ShaCrypt.matches("foobar", encoded), "Password didn't validate");
+            Assertions.assertFalse(ShaCrypt.matches("foobaz", encoded), "Wrong password validated");
+        }
+    }
+
+    @Test
+    public void testRoundsBounds() {
+        Assertions.assertTrue(ShaCrypt.crypt("foobar", CryptAlgorithm.SHA512, 10, "salt").startsWith("$6$rounds=1000$salt$"));
+        Assertions.assertEquals(Crypt.crypt("foobar", "$5$rounds=10$salt$"), ShaCrypt.crypt("foobar", CryptAlgorithm.SHA256, 10, "salt"));
+    }
+
+    @Test
+    public void testNotCanonical() {
+        // commons-codec normalizes the rounds and truncates the salt, so these never matched
+        String[] encoded = {
+                "$6$rounds=10$salt$" + Crypt.crypt("foobar", "$6$rounds=10$salt$").substring(20),
+                "$5$rounds=01000$salt$" + Crypt.crypt("foobar", "$5$rounds=1000$salt$").substring(20),
+                "$5$0123456789abcdefXYZ$" + Crypt.crypt("foobar", "$5$0123456789abcdef$").substring(20),
+                "$5$salt$tooShort",
+        };
+        for (String value : encoded) {
+            Assertions.assertEquals(value.equals(Crypt.crypt("foobar", value)), ShaCrypt.matches("foobar", value), value);
+        }
+    }
+
+    @Test
+    public void testInvalidArguments() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> ShaCrypt.crypt("foobar", CryptAlgorithm.BLOWFISH, 1000, "salt"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> ShaCrypt.crypt("foobar", CryptAlgorithm.SHA256, 1000, ""));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> ShaCrypt.crypt("foobar", CryptAlgorithm.SHA256, 1000, "salt$"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> ShaCrypt.crypt("foobar", CryptAlgorithm.SHA256, 1000, "0123456789abcdefX"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> ShaCrypt.matches("foobar", "$1$salt$hash"));
+        Assertions.assertFalse(ShaCrypt.isSupported("$2a$10$hash"));
+    }
+}
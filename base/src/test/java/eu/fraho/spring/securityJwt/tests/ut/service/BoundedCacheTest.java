@@ -0,0 +1,85 @@
+/*
+ * MIT Licence
+ * Copyright (c) 2026 Simon Frankenberger
+ *
+ * Please see LICENCE.md for complete licence text.
+ */
+package eu.fraho.spring.securityJwt.tests.ut.service;
+
+import eu.fraho.spring.securityJwt.base.service.BoundedCache;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+public class BoundedCacheTest {
+    @Test
+    public void testGetAndPut() {
+        BoundedCache<String, String> cache = new BoundedCache<>(10);
+        Assertions.assertNull(cache.get("foo"), "Unknown key was found");
+        cache.put("foo", "bar");
+        Assertions.assertEquals("bar", cache.get("foo"));
+        cache.put("foo", "baz");
+        Assertions.assertEquals("baz", cache.get("foo"));
+        Assertions.assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void testRemoveOnlyGivenValue() {
+        BoundedCache<String, String> cache = new BoundedCache<>(10);
+        cache.put("foo", "bar");
+        cache.remove("foo", "baz");
+        Assertions.assertEquals("bar", cache.get("foo"), "Replaced value was removed");
+        cache.remove("foo", cache.get("foo"));
+        Assertions.assertNull(cache.get("foo"), "Value was not removed");
+    }
+
+    @Test
+    public void testEvictLeastRecentlyUsed() {
+        BoundedCache<Integer, Integer> cache = new BoundedCache<>(32);
+        for (int i = 0; i < 32; i++) {
+            cache.put(i, i);
+        }
+        // the first half is used again, so the second half is the oldest
+        for (int i = 0; i < 16; i++) {
+            cache.get(i);
+        }
+        cache.put(32, 32);
+
+        Assertions.assertEquals(30, cache.size(), "Batch was not evicted");
+        for (int i = 0; i < 16; i++) {
+            Assertions.assertEquals(i, cache.get(i), "Recently used entry was evicted");
+        }
+        Assertions.assertNull(cache.get(16), "Least recently used entry was not evicted");
+        Assertions.assertNull(cache.get(17), "Least recently used entry was not evicted");
+        Assertions.assertEquals(32, cache.get(32), "New entry was evicted");
+    }
+
+    @Test
+    public void testConcurrentAccess() throws Exception {
+        BoundedCache<Integer, Integer> cache = new BoundedCache<>(100);
+        List<CompletableFuture<Void>> workers = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            final int offset = t * 10_000;
+            workers.add(CompletableFuture.runAsync(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    cache.put(offset + i, i);
+                    cache.get(offset + i / 2);
+                }
+            }));
+        }
+        CompletableFuture.allOf(workers.toArray(new CompletableFuture[0])).get(30, TimeUnit.SECONDS);
+
+        cache.put(-1, -1);
+        Assertions.assertTrue(cache.size() <= 100, "Cache not bounded");
+        Assertions.assertEquals(-1, cache.get(-1), "New entry was evicted");
+    }
+
+    @Test
+    public void testInvalidSize() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new BoundedCache<>(0));
+    }
+}
@@ -0,0 +1,37 @@
+/*
+ * MIT Licence
+ * Copyright (c) 2026 Simon Frankenberger
+ *
+ * Please see LICENCE.md for complete licence text.
+ */
+package eu.fraho.spring.securityJwt.tests.ut.service;
+
+import eu.fraho.spring.securityJwt.base.service.InMemoryTotpReplayStore;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+public class InMemoryTotpReplayStoreTest {
+    @Test
+    public void testMarkUsed() {
+        InMemoryTotpReplayStore store = new InMemoryTotpReplayStore();
+
+        Assertions.assertTrue(store.markUsed(42L, 1000, Duration.ofSeconds(10)), "Unused code rejected");
+        Assertions.assertFalse(store.markUsed(42L, 1000, Duration.ofSeconds(10)), "Code accepted twice");
+        Assertions.assertTrue(store.markUsed(42L, 1001, Duration.ofSeconds(10)), "Other step rejected");
+        Assertions.assertTrue(store.markUsed(43L, 1000, Duration.ofSeconds(10)), "Other user rejected");
+        Assertions.assertTrue(store.markUsed(null, 1000, Duration.ofSeconds(10)), "User without id rejected");
+        Assertions.assertFalse(store.markUsed(null, 1000, Duration.ofSeconds(10)), "Code accepted twice");
+    }
+
+    @Test
+    public void testExpiration() throws InterruptedException {
+        InMemoryTotpReplayStore store = new InMemoryTotpReplayStore();
+
+        Assertions.assertTrue(store.markUsed(42L, 1000, Duration.ofMillis(100)));
+        Thread.sleep(1_100);
+        Assertions.assertTrue(store.markUsed(42L, 1000, Duration.ofSeconds(10)), "Expired mark not removed");
+        Assertions.assertEquals(1, store.size(), "Expired mark not purged");
+    }
+}
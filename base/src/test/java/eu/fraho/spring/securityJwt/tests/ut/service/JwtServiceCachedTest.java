@@ -0,0 +1,56 @@
+/*
+ * MIT Licence
+ * Copyright (c) 2026 Simon Frankenberger
+ *
+ * Please see LICENCE.md for complete licence text.
+ */
+package eu.fraho.spring.securityJwt.tests.ut.service;
+
+import eu.fraho.spring.securityJwt.base.config.TokenCacheProperties;
+import eu.fraho.spring.securityJwt.base.dto.JwtUser;
+import eu.fraho.spring.securityJwt.base.service.JwtTokenService;
+import eu.fraho.spring.securityJwt.base.service.JwtTokenServiceImpl;
+import eu.fraho.spring.securityJwt.base.service.VerifiedTokenCache;
+import eu.fraho.spring.securityJwt.base.ut.service.AbstractJwtTokenServiceTest;
+import eu.fraho.spring.securityJwt.base.util.JwtTokens;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.Optional;
+
+public class JwtServiceCachedTest extends AbstractJwtTokenServiceTest {
+    public JwtServiceCachedTest() throws IOException {
+    }
+
+    @Override
+    protected TokenCacheProperties getTokenCacheProperties() {
+        TokenCacheProperties properties = new TokenCacheProperties();
+        properties.setEnabled(true);
+        properties.afterPropertiesSet();
+        return properties;
+    }
+
+    @Test
+    public void testParseUserCached() {
+        JwtTokenService service = getService();
+        VerifiedTokenCache cache = ((JwtTokenServiceImpl) service).getVerifiedTokenCache().orElseThrow();
+
+        Optional<JwtUser> first = service.parseUser(JwtTokens.VALID);
+        Optional<JwtUser> second = service.parseUser(JwtTokens.VALID);
+        Assertions.assertTrue(first.isPresent(), "User was not parsed from token");
+        Assertions.assertTrue(second.isPresent(), "User was not parsed from cached token");
+        Assertions.assertEquals(first.get().getUsername(), second.get().getUsername(), "Cached token resulted in another user");
+        Assertions.assertEquals(1, cache.getHits(), "Token was not taken from cache");
+    }
+
+    @Test
+    public void testInvalidTokenNotCached() {
+        JwtTokenService service = getService();
+        VerifiedTokenCache cache = ((JwtTokenServiceImpl) service).getVerifiedTokenCache().orElseThrow();
+
+        Assertions.assertFalse(service.parseUser(JwtTokens.INVALID_SIGNATURE).isPresent(), "User was parsed from token");
+        Assertions.assertFalse(service.parseUser(JwtTokens.INVALID_SIGNATURE).isPresent(), "User was parsed from token");
+        Assertions.assertEquals(0, cache.size(), "Invalid token was cached");
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * MIT Licence
+ * Copyright (c) 2026 Simon Frankenberger
+ *
+ * Please see LICENCE.md for complete licence text.
+ */
+package eu.fraho.spring.securityJwt.tests.ut.service;
+
+import com.nimbusds.jose.JOSEException;
+import eu.fraho.spring.securityJwt.base.dto.AbstractToken;
+import eu.fraho.spring.securityJwt.base.dto.AccessToken;
+import eu.fraho.spring.securityJwt.base.dto.AuthenticationRequest;
+import eu.fraho.spring.securityJwt.base.dto.AuthenticationResponse;
+import eu.fraho.spring.securityJwt.base.dto.JwtUser;
+import eu.fraho.spring.securityJwt.base.dto.RefreshToken;
+import eu.fraho.spring.securityJwt.base.exceptions.RefreshException;
+import eu.fraho.spring.securityJwt.base.service.JwtTokenService;
+import eu.fraho.spring.securityJwt.base.service.LoginServiceImpl;
+import eu.fraho.spring.securityJwt.base.service.PasswordUpgradeService;
+import eu.fraho.spring.securityJwt.base.service.TotpService;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.mockito.Mockito;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetailsService;
+
+import java.util.Collections;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+public class LoginServiceTest {
+    private final AuthenticationRequest request = AuthenticationRequest.builder().username("John Snow").password("winter").build();
+
+    protected JwtTokenService getTokenService() {
+        JwtTokenService service = Mockito.mock(JwtTokenService.class);
+        Mockito.when(service.isRefreshTokenSupported()).thenReturn(Boolean.TRUE);
+        try {
+            Mockito.when(service.generateToken(Mockito.any(JwtUser.class))).thenReturn(AccessToken.builder().token("foo").build());
+        } catch (JOSEException je) {
+            // cannot happen as we work on a mock
+        }
+        Mockito.when(service.generateRefreshToken(Mockito.any(JwtUser.class))).thenReturn(RefreshToken.builder().token("bar").build());
+        Mockito.when(service.generateRefreshTokenAsync(Mockito.any(JwtUser.class)))
+                .thenReturn(CompletableFuture.completedFuture(RefreshToken.builder().token("bar").build()));
+        return service;
+    }
+
+    protected JwtUser getJwtUser() {
+        JwtUser user = new JwtUser();
+        user.setId(42L);
+        user.setUsername("John Snow");
+        user.setAuthorities(Collections.singletonList(new SimpleGrantedAuthority("HOUSE_STARK")));
+        user.setApiAccessAllowed(true);
+        return user;
+    }
+
+    protected LoginServiceImpl getNewInstance(JwtTokenService tokenService) {
+        Authentication authentication = new UsernamePasswordAuthenticationToken(request.getUsername(), request.getPassword());
+        AuthenticationManager authenticationManager = Mockito.mock(AuthenticationManager.class);
+        Mockito.when(authenticationManager.authenticate(Mockito.any(Authentication.class))).thenReturn(authentication);
+        UserDetailsService userDetailsService = Mockito.mock(UserDetailsService.class);
+        Mockito.when(userDetailsService.loadUserByUsername(request.getUsername())).thenReturn(getJwtUser());
+
+        LoginServiceImpl service = new LoginServiceImpl();
+        service.setAuthenticationManager(authenticationManager);
+        service.setUserDetailsService(userDetailsService);
+        service.setTotpService(Mockito.mock(TotpService.class));
+        service.setJwtTokenService(tokenService);
+        return service;
+    }
+
+    @Test
+    public void testLogin() throws JOSEException {
+        JwtTokenService tokenService = getTokenService();
+        AuthenticationResponse response = getNewInstance(tokenService).checkLogin(request);
+
+        Assertions.assertEquals("foo", response.getAccessToken().getToken());
+        Assertions.assertEquals("bar", Optional.ofNullable(response.getRefreshToken()).map(AbstractToken::getToken).orElse(null));
+        InOrder inOrder = Mockito.inOrder(tokenService);
+        inOrder.verify(tokenService).generateToken(Mockito.any(JwtUser.class));
+        inOrder.verify(tokenService).generateRefreshToken(Mockito.any(JwtUser.class));
+        Mockito.verify(tokenService, Mockito.never()).generateRefreshTokenAsync(Mockito.any(JwtUser.class));
+    }
+
+    @Test
+    public void testLoginParallel() {
+        JwtTokenService tokenService = getTokenService();
+        Mockito.when(tokenService.isRefreshStoreParallel()).thenReturn(Boolean.TRUE);
+        AuthenticationResponse response = getNewInstance(tokenService).checkLogin(request);
+
+        Assertions.assertEquals("foo", response.getAccessToken().getToken());
+        Assertions.assertEquals("bar", Optional.ofNullable(response.getRefreshToken()).map(AbstractToken::getToken).orElse(null));
+        Mockito.verify(tokenService, Mockito.never()).generateRefreshToken(Mockito.any(JwtUser.class));
+    }
+
+    @Test
+    public void testLoginRefreshDisabled() {
+        JwtTokenService tokenService = getTokenService();
+        Mockito.when(tokenService.isRefreshTokenSupported()).thenReturn(Boolean.FALSE);
+        AuthenticationResponse response = getNewInstance(tokenService).checkLogin(request);
+
+        Assertions.assertEquals("foo", response.getAccessToken().getToken());
+        Assertions.assertNull(response.getRefreshToken());
+        Mockito.verify(tokenService, Mockito.never()).generateRefreshToken(Mockito.any(JwtUser.class));
+        Mockito.verify(tokenService, Mockito.never()).generateRefreshTokenAsync(Mockito.any(JwtUser.class));
+    }
+
+    @Test
+    public void testStoreFailed() {
+        JwtTokenService tokenService = getTokenService();
+        Mockito.when(tokenService.generateRefreshToken(Mockito.any(JwtUser.class))).thenThrow(new RefreshException("Store failed"));
+        LoginServiceImpl instance = getNewInstance(tokenService);
+
+        Assertions.assertThrows(RefreshException.class, () -> instance.checkLogin(request));
+    }
+
+    @Test
+    public void testParallelStoreFailed() {
+        JwtTokenService tokenService = getTokenService();
+        Mockito.when(tokenService.isRefreshStoreParallel()).thenReturn(Boolean.TRUE);
+        Mockito.when(tokenService.generateRefreshTokenAsync(Mockito.any(JwtUser.class)))
+                .thenReturn(CompletableFuture.failedFuture(new RefreshException("Store failed")));
+        LoginServiceImpl instance = getNewInstance(tokenService);
+
+        Assertions.assertThrows(RefreshException.class, () -> instance.checkLogin(request));
+        Mockito.verify(tokenService, Mockito.never()).revokeRefreshToken(Mockito.any(RefreshToken.class));
+    }
+
+    @Test
+    public void testSigningFailedStoresNothing() throws JOSEException {
+        JwtTokenService tokenService = getTokenService();
+        Mockito.when(tokenService.generateToken(Mockito.any(JwtUser.class))).thenThrow(new JOSEException("Signing failed"));
+        LoginServiceImpl instance = getNewInstance(tokenService);
+
+        Assertions.assertThrows(BadCredentialsException.class, () -> instance.checkLogin(request));
+        Mockito.verify(tokenService, Mockito.never()).generateRefreshToken(Mockito.any(JwtUser.class));
+    }
+
+    @Test
+    public void testSigningFailedRevokesRefreshToken() throws JOSEException {
+        JwtTokenService tokenService = getTokenService();
+        Mockito.when(tokenService.isRefreshStoreParallel()).thenReturn(Boolean.TRUE);
+        Mockito.when(tokenService.generateToken(Mockito.any(JwtUser.class))).thenThrow(new JOSEException("Signing failed"));
+        LoginServiceImpl instance = getNewInstance(tokenService);
+
+        Assertions.assertThrows(BadCredentialsException.class, () -> instance.checkLogin(request));
+        Mockito.verify(tokenService).revokeRefreshToken(RefreshToken.builder().token("bar").build());
+    }
+
+    @Test
+    public void testUnexpectedErrorRevokesRefreshToken() throws JOSEException {
+        JwtTokenService tokenService = getTokenService();
+        Mockito.when(tokenService.isRefreshStoreParallel()).thenReturn(Boolean.TRUE);
+        Mockito.when(tokenService.generateToken(Mockito.any(JwtUser.class))).thenThrow(new IllegalStateException("Signer broken"));
+        LoginServiceImpl instance = getNewInstance(tokenService);
+
+        Assertions.assertThrows(IllegalStateException.class, () -> instance.checkLogin(request));
+        Mockito.verify(tokenService).revokeRefreshToken(RefreshToken.builder().token("bar").build());
+    }
+
+    @Test
+    public void testPasswordUpgrade() {
+        PasswordUpgradeService passwordUpgradeService = Mockito.mock(PasswordUpgradeService.class);
+        LoginServiceImpl instance = getNewInstance(getTokenService());
+        instance.setPasswordUpgradeService(passwordUpgradeService);
+        instance.checkLogin(request);
+
+        Mockito.verify(passwordUpgradeService).upgradeIfNeeded(Mockito.any(JwtUser.class), Mockito.eq("winter"));
+    }
+}
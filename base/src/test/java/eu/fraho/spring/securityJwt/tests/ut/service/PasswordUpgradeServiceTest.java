@@ -0,0 +1,91 @@
+/*
+ * MIT Licence
+ * Copyright (c) 2026 Simon Frankenberger
+ *
+ * Please see LICENCE.md for complete licence text.
+ */
+package eu.fraho.spring.securityJwt.tests.ut.service;
+
+import eu.fraho.spring.securityJwt.base.dto.JwtUser;
+import eu.fraho.spring.securityJwt.base.service.PasswordUpgradeService;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+public class PasswordUpgradeServiceTest {
+    private final PasswordEncoder passwordEncoder = new BCryptPasswordEncoder(10);
+
+    protected JwtUser getJwtUser(String password) {
+        JwtUser user = new JwtUser();
+        user.setId(42L);
+        user.setUsername("John Snow");
+        user.setPassword(password);
+        return user;
+    }
+
+    protected PasswordUpgradeService getNewInstance(UserDetailsPasswordService userDetailsPasswordService, Executor executor) {
+        PasswordUpgradeService service = new PasswordUpgradeService();
+        service.setPasswordEncoder(passwordEncoder);
+        service.setUserDetailsPasswordService(userDetailsPasswordService);
+        service.setExecutor(executor);
+        service.afterPropertiesSet();
+        return service;
+    }
+
+    @Test
+    public void testUpgrade() {
+        UserDetailsPasswordService userDetailsPasswordService = Mockito.mock(UserDetailsPasswordService.class);
+        PasswordUpgradeService service = getNewInstance(userDetailsPasswordService, Runnable::run);
+        JwtUser user = getJwtUser(new BCryptPasswordEncoder(4).encode("foobar"));
+
+        Assertions.assertTrue(service.upgradeIfNeeded(user, "foobar"), "Upgrade not scheduled");
+        Mockito.verify(userDetailsPasswordService).updatePassword(Mockito.eq(user), Mockito.argThat(hash ->
+                hash.startsWith("$2a$10$") && passwordEncoder.matches("foobar", hash)));
+        Assertions.assertEquals(0, service.getPending(), "Upgrade still pending");
+    }
+
+    @Test
+    public void testUpToDate() {
+        UserDetailsPasswordService userDetailsPasswordService = Mockito.mock(UserDetailsPasswordService.class);
+        PasswordUpgradeService service = getNewInstance(userDetailsPasswordService, Runnable::run);
+
+        Assertions.assertFalse(service.upgradeIfNeeded(getJwtUser(passwordEncoder.encode("foobar")), "foobar"));
+        Assertions.assertFalse(service.upgradeIfNeeded(getJwtUser(null), "foobar"));
+        Mockito.verifyNoInteractions(userDetailsPasswordService);
+    }
+
+    @Test
+    public void testOncePerUser() {
+        UserDetailsPasswordService userDetailsPasswordService = Mockito.mock(UserDetailsPasswordService.class);
+        List<Runnable> tasks = new ArrayList<>();
+        PasswordUpgradeService service = getNewInstance(userDetailsPasswordService, tasks::add);
+        String outdated = new BCryptPasswordEncoder(4).encode("foobar");
+
+        Assertions.assertTrue(service.upgradeIfNeeded(getJwtUser(outdated), "foobar"));
+        Assertions.assertFalse(service.upgradeIfNeeded(getJwtUser(outdated), "foobar"), "Upgrade scheduled twice");
+        Assertions.assertEquals(1, service.getPending());
+
+        tasks.forEach(Runnable::run);
+        Assertions.assertEquals(0, service.getPending());
+        Mockito.verify(userDetailsPasswordService).updatePassword(Mockito.any(UserDetails.class), Mockito.anyString());
+    }
+
+    @Test
+    public void testFailedUpgrade() {
+        UserDetailsPasswordService userDetailsPasswordService = Mockito.mock(UserDetailsPasswordService.class);
+        Mockito.when(userDetailsPasswordService.updatePassword(Mockito.any(UserDetails.class), Mockito.anyString()))
+                .thenThrow(new IllegalStateException("Database unavailable"));
+        PasswordUpgradeService service = getNewInstance(userDetailsPasswordService, Runnable::run);
+
+        Assertions.assertTrue(service.upgradeIfNeeded(getJwtUser(new BCryptPasswordEncoder(4).encode("foobar")), "foobar"));
+        Assertions.assertEquals(0, service.getPending(), "Failed upgrade still pending");
+    }
+}
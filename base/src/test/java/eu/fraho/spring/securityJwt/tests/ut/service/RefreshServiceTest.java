@@ -12,17 +12,20 @@ import eu.fraho.spring.securityJwt.base.dto.AccessToken;
 import eu.fraho.spring.securityJwt.base.dto.AuthenticationResponse;
 import eu.fraho.spring.securityJwt.base.dto.JwtUser;
 import eu.fraho.spring.securityJwt.base.dto.RefreshToken;
+import eu.fraho.spring.securityJwt.base.exceptions.RefreshException;
 import eu.fraho.spring.securityJwt.base.service.JwtTokenService;
 import eu.fraho.spring.securityJwt.base.service.RefreshService;
 import eu.fraho.spring.securityJwt.base.service.RefreshServiceImpl;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
 import org.mockito.Mockito;
 import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 
 import java.util.Collections;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 public class RefreshServiceTest {
     protected JwtTokenService getTokenService() {
@@ -37,6 +40,8 @@ public class RefreshServiceTest {
             // cannot happen as we work on a mock
         }
         Mockito.when(service.generateRefreshToken(Mockito.any(JwtUser.class))).thenReturn(RefreshToken.builder().token("bar").build());
+        Mockito.when(service.generateRefreshTokenAsync(Mockito.any(JwtUser.class)))
+                .thenReturn(CompletableFuture.completedFuture(RefreshToken.builder().token("bar").build()));
         return service;
     }
 
@@ -81,4 +86,87 @@ public class RefreshServiceTest {
         Assertions.assertEquals("foo", response.getAccessToken().getToken());
         Assertions.assertEquals("bar", Optional.ofNullable(response.getRefreshToken()).map(AbstractToken::getToken).orElse(null));
     }
+
+    @Test
+    public void testValidTokenStoredAfterSigning() throws JOSEException {
+        JwtTokenService tokenService = getTokenService();
+        RefreshServiceImpl instance = new RefreshServiceImpl();
+        instance.setJwtTokenService(tokenService);
+        instance.checkRefresh("valid_active");
+
+        InOrder inOrder = Mockito.inOrder(tokenService);
+        inOrder.verify(tokenService).generateToken(Mockito.any(JwtUser.class));
+        inOrder.verify(tokenService).generateRefreshToken(Mockito.any(JwtUser.class));
+        Mockito.verify(tokenService, Mockito.never()).generateRefreshTokenAsync(Mockito.any(JwtUser.class));
+    }
+
+    @Test
+    public void testValidTokenParallel() {
+        JwtTokenService tokenService = getTokenService();
+        Mockito.when(tokenService.isRefreshStoreParallel()).thenReturn(Boolean.TRUE);
+        RefreshServiceImpl instance = new RefreshServiceImpl();
+        instance.setJwtTokenService(tokenService);
+        AuthenticationResponse response = instance.checkRefresh("valid_active");
+
+        Assertions.assertEquals("bar", Optional.ofNullable(response.getRefreshToken()).map(AbstractToken::getToken).orElse(null));
+        Mockito.verify(tokenService, Mockito.never()).generateRefreshToken(Mockito.any(JwtUser.class));
+    }
+
+    @Test
+    public void testStoreFailed() {
+        JwtTokenService tokenService = getTokenService();
+        Mockito.when(tokenService.generateRefreshToken(Mockito.any(JwtUser.class))).thenThrow(new RefreshException("Store failed"));
+        RefreshServiceImpl instance = new RefreshServiceImpl();
+        instance.setJwtTokenService(tokenService);
+
+        Assertions.assertThrows(RefreshException.class, () -> instance.checkRefresh("valid_active"));
+    }
+
+    @Test
+    public void testParallelStoreFailed() {
+        JwtTokenService tokenService = getTokenService();
+        Mockito.when(tokenService.isRefreshStoreParallel()).thenReturn(Boolean.TRUE);
+        Mockito.when(tokenService.generateRefreshTokenAsync(Mockito.any(JwtUser.class)))
+                .thenReturn(CompletableFuture.failedFuture(new RefreshException("Store failed")));
+        RefreshServiceImpl instance = new RefreshServiceImpl();
+        instance.setJwtTokenService(tokenService);
+
+        Assertions.assertThrows(RefreshException.class, () -> instance.checkRefresh("valid_active"));
+        Mockito.verify(tokenService, Mockito.never()).revokeRefreshToken(Mockito.any(RefreshToken.class));
+    }
+
+    @Test
+    public void testSigningFailedStoresNothing() throws JOSEException {
+        JwtTokenService tokenService = getTokenService();
+        Mockito.when(tokenService.generateToken(Mockito.any(JwtUser.class))).thenThrow(new JOSEException("Signing failed"));
+        RefreshServiceImpl instance = new RefreshServiceImpl();
+        instance.setJwtTokenService(tokenService);
+
+        Assertions.assertThrows(BadCredentialsException.class, () -> instance.checkRefresh("valid_active"));
+        Mockito.verify(tokenService, Mockito.never()).generateRefreshToken(Mockito.any(JwtUser.class));
+    }
+
+    @Test
+    public void testSigningFailedRevokesRefreshToken() throws JOSEException {
+        JwtTokenService tokenService = getTokenService();
+        Mockito.when(tokenService.isRefreshStoreParallel()).thenReturn(Boolean.TRUE);
+        Mockito.when(tokenService.generateToken(Mockito.any(JwtUser.class))).thenThrow(new JOSEException("Signing failed"));
+        RefreshServiceImpl instance = new RefreshServiceImpl();
+        instance.setJwtTokenService(tokenService);
+
+        Assertions.assertThrows(BadCredentialsException.class, () -> instance.checkRefresh("valid_active"));
+        Mockito.verify(tokenService).revokeRefreshToken(RefreshToken.builder().token("bar").build());
+    }
+
+    @Test
+    public void testUnexpectedErrorRevokesRefreshToken() throws JOSEException {
+        JwtTokenService tokenService = getTokenService();
+        Mockito.when(tokenService.isRefreshStoreParallel()).thenReturn(Boolean.TRUE);
+        Mockito.when(tokenService.generateToken(Mockito.any(JwtUser.class))).thenThrow(new IllegalStateException("Signer broken"));
+        RefreshServiceImpl instance = new RefreshServiceImpl();
+        instance.setJwtTokenService(tokenService);
+
+        Assertions.assertThrows(IllegalStateException.class, () -> instance.checkRefresh("valid_active"));
+        Mockito.verify(tokenService).revokeRefreshToken(RefreshToken.builder().token("bar").build());
+    }
 }
\ No newline at end of file
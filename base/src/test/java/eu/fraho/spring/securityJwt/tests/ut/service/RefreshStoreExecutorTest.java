@@ -0,0 +1,64 @@
+/*
+ * MIT Licence
+ * Copyright (c) 2026 Simon Frankenberger
+ *
+ * Please see LICENCE.md for complete licence text.
+ */
+package eu.fraho.spring.securityJwt.tests.ut.service;
+
+import eu.fraho.spring.securityJwt.base.service.RefreshStoreExecutor;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+public class RefreshStoreExecutorTest {
+    @Test
+    public void testRunsOperations() throws Exception {
+        RefreshStoreExecutor executor = new RefreshStoreExecutor();
+        try {
+            Assertions.assertEquals("foo", CompletableFuture.supplyAsync(() -> "foo", executor.getExecutor()).get(10, TimeUnit.SECONDS));
+        } finally {
+            executor.destroy();
+        }
+    }
+
+    @Test
+    public void testCallerRunsWhenFull() throws Exception {
+        Assumptions.assumeTrue(Runtime.version().feature() < 21, "Virtual threads are never saturated");
+        RefreshStoreExecutor executor = new RefreshStoreExecutor();
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            Executor pool = executor.getExecutor();
+            for (int i = 0; i < RefreshStoreExecutor.POOL_SIZE + RefreshStoreExecutor.MAX_QUEUED; i++) {
+                pool.execute(() -> {
+                    try {
+                        release.await(10, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                });
+            }
+
+            Thread[] runner = new Thread[1];
+            pool.execute(() -> runner[0] = Thread.currentThread());
+            Assertions.assertSame(Thread.currentThread(), runner[0], "Operation was not run by the caller");
+        } finally {
+            release.countDown();
+            executor.destroy();
+        }
+    }
+
+    @Test
+    public void testRejectAfterDestroy() {
+        RefreshStoreExecutor executor = new RefreshStoreExecutor();
+        executor.destroy();
+        Assertions.assertThrows(RejectedExecutionException.class, () -> executor.getExecutor().execute(() -> {
+        }));
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * MIT Licence
+ * Copyright (c) 2026 Simon Frankenberger
+ *
+ * Please see LICENCE.md for complete licence text.
+ */
+package eu.fraho.spring.securityJwt.tests.ut.service;
+
+import eu.fraho.spring.securityJwt.base.config.TokenCookieProperties;
+import eu.fraho.spring.securityJwt.base.config.TokenHeaderProperties;
+import eu.fraho.spring.securityJwt.base.service.TokenExtractor;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+public class TokenExtractorTest {
+    @Test
+    public void testHeaderOrder() {
+        TokenExtractor extractor = new TokenExtractor(new String[]{"X-First", "X-Second"}, new String[0]);
+
+        HttpServletRequest request = Mockito.mock(HttpServletRequest.class);
+        Mockito.when(request.getHeader("X-First")).thenReturn(null, "first");
+        Mockito.when(request.getHeader("X-Second")).thenReturn("Bearer second");
+
+        Assertions.assertEquals("second", extractor.extract(request), "Token not extracted from second header");
+        Assertions.assertEquals("first", extractor.extract(request), "Token not extracted from first header");
+    }
+
+    @Test
+    public void testCookiePriority() {
+        TokenExtractor extractor = new TokenExtractor(new String[0], new String[]{"first", "second"});
+
+        HttpServletRequest request = Mockito.mock(HttpServletRequest.class);
+        Mockito.when(request.getCookies()).thenReturn(new Cookie[]{
+                new Cookie("other", "other"),
+                new Cookie("second", "second"),
+                new Cookie("first", "first"),
+                new Cookie("first", "duplicate")
+        });
+
+        Assertions.assertEquals("first", extractor.extract(request), "Cookie with wrong priority was used");
+        Mockito.verify(request, Mockito.never()).getHeader(Mockito.anyString());
+    }
+
+    @Test
+    public void testNoCookies() {
+        TokenExtractor extractor = new TokenExtractor(new String[0], new String[]{"first"});
+
+        HttpServletRequest request = Mockito.mock(HttpServletRequest.class);
+        Mockito.when(request.getCookies()).thenReturn(null, new Cookie[]{new Cookie("other", "other")});
+
+        Assertions.assertNull(extractor.extract(request), "Token extracted without cookies");
+        Assertions.assertNull(extractor.extract(request), "Token extracted from foreign cookie");
+    }
+
+    @Test
+    public void testDisabledSources() {
+        TokenHeaderProperties headerProperties = new TokenHeaderProperties();
+        headerProperties.setEnabled(false);
+        TokenExtractor extractor = TokenExtractor.of(headerProperties, new TokenCookieProperties());
+
+        HttpServletRequest request = Mockito.mock(HttpServletRequest.class);
+        Mockito.when(request.getHeader("Authorization")).thenReturn("foobar");
+        Mockito.when(request.getCookies()).thenReturn(new Cookie[]{new Cookie("JWT-ACCESSTOKEN", "foobar")});
+
+        Assertions.assertNull(extractor.extract(request), "Token extracted from disabled source");
+    }
+}
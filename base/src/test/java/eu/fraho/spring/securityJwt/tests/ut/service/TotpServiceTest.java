@@ -52,6 +52,30 @@ public class TotpServiceTest {
         Assertions.assertFalse(service.verifyCode(secret, invalidCode), "Code out of variance was valid");
     }
 
+    @Test
+    public void testVerifyOnce() {
+        TotpProperties config = getConfig();
+        config.setReplayProtection(true);
+        TotpService service = getNewInstance(config);
+        String secret = service.generateSecret();
+        int curCode = TotpUtil.getCodeForTesting(secret, 0);
+
+        Assertions.assertTrue(service.verifyCodeOnce(42L, secret, curCode), "Current code was invalid");
+        Assertions.assertFalse(service.verifyCodeOnce(42L, secret, curCode), "Code was accepted twice");
+        Assertions.assertTrue(service.verifyCodeOnce(43L, secret, curCode), "Code of other user was rejected");
+        Assertions.assertFalse(service.verifyCodeOnce(44L, secret, TotpUtil.getCodeForTesting(secret, 4)), "Code out of variance was valid");
+    }
+
+    @Test
+    public void testVerifyOnceDisabled() {
+        TotpService service = getNewInstance(getConfig());
+        String secret = service.generateSecret();
+        int curCode = TotpUtil.getCodeForTesting(secret, 0);
+
+        Assertions.assertTrue(service.verifyCodeOnce(42L, secret, curCode), "Current code was invalid");
+        Assertions.assertTrue(service.verifyCodeOnce(42L, secret, curCode), "Code was rejected without replay protection");
+    }
+
     @Test
     public void testVerifyShortSecret() {
         TotpProperties config = getConfig();
@@ -0,0 +1,74 @@
+/*
+ * MIT Licence
+ * Copyright (c) 2026 Simon Frankenberger
+ *
+ * Please see LICENCE.md for complete licence text.
+ */
+package eu.fraho.spring.securityJwt.tests.ut.service;
+
+import eu.fraho.spring.securityJwt.base.service.TotpVerifier;
+import eu.fraho.spring.securityJwt.base.util.TotpUtil;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class TotpVerifierTest {
+    // "12345678901234567890", the secret of the RFC 6238 test vectors
+    private static final String RFC_SECRET = "GEZDGNBVGY3TQOJQGEZDGNBVGY3TQOJQ";
+
+    @Test
+    public void testRfcVectors() {
+        TotpVerifier verifier = new TotpVerifier(0, 16);
+
+        Assertions.assertTrue(verifier.verifyCode(RFC_SECRET, 287082, 59_000L));
+        Assertions.assertTrue(verifier.verifyCode(RFC_SECRET, 81804, 1_111_111_109_000L));
+        Assertions.assertTrue(verifier.verifyCode(RFC_SECRET, 5924, 1_234_567_890_000L));
+        Assertions.assertTrue(verifier.verifyCode(RFC_SECRET, 279037, 2_000_000_000_000L));
+        Assertions.assertFalse(verifier.verifyCode(RFC_SECRET, 279038, 2_000_000_000_000L));
+    }
+
+    @Test
+    public void testVariance() {
+        TotpVerifier verifier = new TotpVerifier(1, 16);
+
+        Assertions.assertTrue(verifier.verifyCode(RFC_SECRET, 287082, 59_000L + 30_000L), "Last code was invalid");
+        Assertions.assertTrue(verifier.verifyCode(RFC_SECRET, 287082, 59_000L - 30_000L), "Next code was invalid");
+        Assertions.assertFalse(verifier.verifyCode(RFC_SECRET, 287082, 59_000L + 60_000L), "Code out of variance was valid");
+    }
+
+    @Test
+    public void testSameAsLibrary() {
+        TotpVerifier verifier = new TotpVerifier(3, 16);
+        String secret = "JBSWY3DPEHPK3PXPJBSWY3DPEHPK3PXP";
+
+        Assertions.assertTrue(verifier.verifyCode(secret, TotpUtil.getCodeForTesting(secret, 0)), "Current code was invalid");
+        Assertions.assertTrue(verifier.verifyCode(secret, TotpUtil.getCodeForTesting(secret, -2)), "Last code was invalid");
+        Assertions.assertFalse(verifier.verifyCode(secret, TotpUtil.getCodeForTesting(secret, 5)), "Code out of variance was valid");
+    }
+
+    @Test
+    public void testCache() {
+        TotpVerifier verifier = new TotpVerifier(0, 2);
+        verifier.verifyCode("JBSWY3DP", 0);
+        verifier.verifyCode("MFRGGZDF", 0);
+        verifier.verifyCode("JBSWY3DP", 0);
+        verifier.verifyCode("GEZDGNBV", 0);
+        Assertions.assertEquals(2, verifier.size(), "Cache not bounded");
+
+        verifier.clear();
+        Assertions.assertEquals(0, verifier.size(), "Cache not cleared");
+    }
+
+    @Test
+    public void testEmptySecret() {
+        TotpVerifier verifier = new TotpVerifier(3, 16);
+
+        Assertions.assertFalse(verifier.verifyCode("", 0), "Empty secret was accepted");
+        Assertions.assertEquals(0, verifier.size(), "Empty secret was cached");
+    }
+
+    @Test
+    public void testInvalidArguments() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new TotpVerifier(-1, 16));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new TotpVerifier(3, 0));
+    }
+}
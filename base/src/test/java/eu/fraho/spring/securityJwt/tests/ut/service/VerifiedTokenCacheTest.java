@@ -0,0 +1,87 @@
+/*
+ * MIT Licence
+ * Copyright (c) 2026 Simon Frankenberger
+ *
+ * Please see LICENCE.md for complete licence text.
+ */
+package eu.fraho.spring.securityJwt.tests.ut.service;
+
+import com.nimbusds.jwt.JWTClaimsSet;
+import eu.fraho.spring.securityJwt.base.service.VerifiedTokenCache;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Date;
+
+public class VerifiedTokenCacheTest {
+    private final Object verifier = new Object();
+
+    private JWTClaimsSet getClaims(long expiresIn) {
+        return new JWTClaimsSet.Builder()
+                .subject("foo")
+                .expirationTime(new Date(System.currentTimeMillis() + expiresIn))
+                .build();
+    }
+
+    @Test
+    public void testHitAndMiss() {
+        VerifiedTokenCache cache = new VerifiedTokenCache(10);
+        JWTClaimsSet claims = getClaims(60_000);
+
+        Assertions.assertNull(cache.get("foo", verifier), "Unknown token was found");
+        cache.put("foo", claims, verifier);
+        Assertions.assertSame(claims, cache.get("foo", verifier), "Cached token not found");
+        Assertions.assertNull(cache.get("bar", verifier), "Unknown token was found");
+
+        Assertions.assertEquals(1, cache.getHits(), "Wrong number of hits");
+        Assertions.assertEquals(2, cache.getMisses(), "Wrong number of misses");
+    }
+
+    @Test
+    public void testExpiredToken() {
+        VerifiedTokenCache cache = new VerifiedTokenCache(10);
+        cache.put("foo", getClaims(-1_000), verifier);
+        Assertions.assertNull(cache.get("foo", verifier), "Expired token was found");
+        Assertions.assertEquals(0, cache.size(), "Expired token was not removed");
+    }
+
+    @Test
+    public void testNoExpiration() {
+        VerifiedTokenCache cache = new VerifiedTokenCache(10);
+        cache.put("foo", new JWTClaimsSet.Builder().subject("foo").build(), verifier);
+        Assertions.assertEquals(0, cache.size(), "Token without expiration was cached");
+    }
+
+    @Test
+    public void testOtherVerifier() {
+        VerifiedTokenCache cache = new VerifiedTokenCache(10);
+        cache.put("foo", getClaims(60_000), verifier);
+        Assertions.assertNull(cache.get("foo", new Object()), "Token verified by another verifier was found");
+    }
+
+    @Test
+    public void testEviction() {
+        VerifiedTokenCache cache = new VerifiedTokenCache(2);
+        cache.put("foo", getClaims(60_000), verifier);
+        cache.put("bar", getClaims(60_000), verifier);
+        Assertions.assertNotNull(cache.get("foo", verifier), "Cached token not found");
+        cache.put("baz", getClaims(60_000), verifier);
+
+        Assertions.assertEquals(2, cache.size(), "Cache exceeded its size");
+        Assertions.assertNotNull(cache.get("foo", verifier), "Recently used token was evicted");
+        Assertions.assertNull(cache.get("bar", verifier), "Least recently used token was not evicted");
+    }
+
+    @Test
+    public void testClear() {
+        VerifiedTokenCache cache = new VerifiedTokenCache(10);
+        cache.put("foo", getClaims(60_000), verifier);
+        cache.clear();
+        Assertions.assertNull(cache.get("foo", verifier), "Token found after clear");
+    }
+
+    @Test
+    public void testInvalidSize() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new VerifiedTokenCache(0));
+    }
+}
@@ -8,6 +8,7 @@ package eu.fraho.spring.securityJwt.base.ut.service;
 
 import eu.fraho.spring.securityJwt.base.config.RefreshCookieProperties;
 import eu.fraho.spring.securityJwt.base.config.RefreshProperties;
+import eu.fraho.spring.securityJwt.base.config.TokenCacheProperties;
 import eu.fraho.spring.securityJwt.base.config.TokenCookieProperties;
 import eu.fraho.spring.securityJwt.base.config.TokenHeaderProperties;
 import eu.fraho.spring.securityJwt.base.config.TokenProperties;
@@ -122,6 +123,10 @@ public abstract class AbstractJwtTokenServiceTest {
         return new RefreshCookieProperties();
     }
 
+    protected TokenCacheProperties getTokenCacheProperties() {
+        return new TokenCacheProperties();
+    }
+
     protected JwtTokenService getService() {
         return getService(getTokenProperties(), getRefreshProperties(), getRefreshStore(), new JwtUser(),
                 getTokenCookieProperties(), getTokenHeaderProperties(), getRefreshCookieProperties());
@@ -162,6 +167,7 @@ public abstract class AbstractJwtTokenServiceTest {
         tokenService.setRefreshCookieProperties(refreshCookieProperties);
         tokenService.setJwtUser(() -> jwtUser);
         tokenService.setTokenCookieProperties(tokenCookieProperties);
+        tokenService.setTokenCacheProperties(getTokenCacheProperties());
         tokenService.afterPropertiesSet();
         tokenService.setRefreshTokenStore(refreshTokenStore);
         return tokenService;
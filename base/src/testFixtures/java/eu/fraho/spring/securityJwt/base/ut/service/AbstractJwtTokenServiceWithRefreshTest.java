@@ -10,7 +10,10 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import eu.fraho.spring.securityJwt.base.config.TokenProperties;
 import eu.fraho.spring.securityJwt.base.dto.JwtUser;
 import eu.fraho.spring.securityJwt.base.dto.RefreshToken;
+import eu.fraho.spring.securityJwt.base.dto.RefreshTokenEntry;
 import eu.fraho.spring.securityJwt.base.exceptions.FeatureNotConfiguredException;
+import eu.fraho.spring.securityJwt.base.service.AsyncRefreshTokenStore;
+import eu.fraho.spring.securityJwt.base.service.ExecutorAsyncRefreshTokenStore;
 import eu.fraho.spring.securityJwt.base.service.JwtTokenService;
 import eu.fraho.spring.securityJwt.base.service.RefreshTokenStore;
 import org.junit.jupiter.api.Assertions;
@@ -23,7 +26,9 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 public abstract class AbstractJwtTokenServiceWithRefreshTest extends AbstractJwtTokenServiceTest {
     public AbstractJwtTokenServiceWithRefreshTest() throws IOException {
@@ -106,6 +111,38 @@ public abstract class AbstractJwtTokenServiceWithRefreshTest extends AbstractJwt
         Assertions.assertTrue(allTokens.containsAll(Arrays.asList(tokenA, tokenB, tokenC)), "Not all tokens returned");
     }
 
+    @Test
+    public void testStreamRefreshTokens() {
+        JwtTokenService service = getService();
+
+        JwtUser jsmith = getJwtUser();
+        jsmith.setUsername("jsmith");
+        JwtUser xsmith = getJwtUser();
+        xsmith.setUsername("xsmith");
+
+        RefreshToken tokenA = service.generateRefreshToken(jsmith);
+        RefreshToken tokenB = service.generateRefreshToken(jsmith);
+        RefreshToken tokenC = service.generateRefreshToken(xsmith);
+        RefreshToken tokenD = service.generateRefreshToken(xsmith);
+        RefreshToken tokenE = service.generateRefreshToken(xsmith);
+
+        try (Stream<RefreshTokenEntry> stream = service.streamRefreshTokens(null, 2)) {
+            final Map<Long, Set<String>> tokenMap = stream.collect(Collectors.groupingBy(RefreshTokenEntry::getUserId,
+                    Collectors.mapping(entry -> entry.getToken().getToken(), Collectors.toSet())));
+            Assertions.assertEquals(Set.of(tokenA.getToken(), tokenB.getToken()), tokenMap.get(jsmith.getId()), "Wrong tokens for jsmith");
+            Assertions.assertEquals(Set.of(tokenC.getToken(), tokenD.getToken(), tokenE.getToken()), tokenMap.get(xsmith.getId()), "Wrong tokens for xsmith");
+            Assertions.assertEquals(2, tokenMap.size(), "User count don't match");
+        }
+
+        try (Stream<RefreshTokenEntry> stream = service.streamRefreshTokens(xsmith.getId(), 1)) {
+            final List<RefreshTokenEntry> entries = stream.toList();
+            Assertions.assertEquals(3, entries.size(), "RefreshToken count don't match");
+            Assertions.assertTrue(entries.stream().allMatch(entry -> xsmith.getId().equals(entry.getUserId())), "Tokens of other user returned");
+        }
+
+        Assertions.assertThrows(IllegalArgumentException.class, () -> service.streamRefreshTokens(null, 0));
+    }
+
     @Test
     public void testListRefreshTokensExpiration() throws Exception {
         JwtTokenService service = getService();
@@ -207,6 +244,67 @@ public abstract class AbstractJwtTokenServiceWithRefreshTest extends AbstractJwt
         Assertions.assertEquals(3, count, "Revoked token count should be 3");
     }
 
+    @Test
+    public void testRemoveTokenList() {
+        JwtTokenService service = getService();
+
+        JwtUser jsmith = getJwtUser();
+        jsmith.setUsername("jsmith");
+        JwtUser xsmith = getJwtUser();
+        xsmith.setUsername("xsmith");
+
+        RefreshToken tokenA = service.generateRefreshToken(jsmith);
+        RefreshToken tokenB = service.generateRefreshToken(jsmith);
+        RefreshToken tokenC = service.generateRefreshToken(xsmith);
+
+        int count = service.revokeRefreshTokens(List.of(tokenA.getToken(), tokenC.getToken(), "unknown"));
+        Assertions.assertEquals(2, count, "Revoked token count should be 2");
+        Assertions.assertEquals(List.of(tokenB), service.listRefreshTokens(jsmith), "Wrong tokens revoked");
+        Assertions.assertTrue(service.listRefreshTokens(xsmith).isEmpty(), "Tokens were not revoked");
+        Assertions.assertEquals(0, service.revokeRefreshTokens(List.of(tokenA.getToken())), "Token revoked twice");
+        Assertions.assertEquals(0, service.revokeRefreshTokens(List.of()), "Revoked without tokens");
+    }
+
+    @Test
+    public void testRemoveAllTokensForUsers() {
+        JwtTokenService service = getService();
+
+        JwtUser jsmith = getJwtUser();
+        jsmith.setUsername("jsmith");
+        JwtUser xsmith = getJwtUser();
+        xsmith.setUsername("xsmith");
+        JwtUser asmith = getJwtUser();
+        asmith.setUsername("asmith");
+
+        service.generateRefreshToken(jsmith);
+        service.generateRefreshToken(jsmith);
+        service.generateRefreshToken(xsmith);
+        RefreshToken tokenD = service.generateRefreshToken(asmith);
+
+        int count = service.revokeRefreshTokensOfUsers(List.of(jsmith.getId(), xsmith.getId(), -42L));
+        Assertions.assertEquals(3, count, "Revoked token count should be 3");
+        Assertions.assertTrue(service.listRefreshTokens(jsmith).isEmpty(), "Tokens were not revoked");
+        Assertions.assertTrue(service.listRefreshTokens(xsmith).isEmpty(), "Tokens were not revoked");
+        Assertions.assertEquals(List.of(tokenD), service.listRefreshTokens(asmith), "Tokens of other user revoked");
+        Assertions.assertEquals(0, service.revokeRefreshTokensOfUsers(List.of()), "Revoked without users");
+    }
+
+    @Test
+    public void testAsyncRefreshTokenStore() {
+        AsyncRefreshTokenStore store = getAsyncRefreshStore();
+        JwtUser jsmith = getJwtUser();
+
+        store.saveTokenAsync(jsmith, "asyncA").join();
+        store.saveTokenAsync(jsmith, "asyncB").join();
+        Assertions.assertEquals(2, getRefreshStore().listTokens(jsmith).size(), "RefreshToken count don't match");
+
+        Assertions.assertTrue(store.useTokenAsync("asyncA").join().isPresent(), "Token should be usable");
+        Assertions.assertFalse(store.useTokenAsync("asyncA").join().isPresent(), "Token used twice");
+        Assertions.assertTrue(store.revokeTokenAsync("asyncB").join(), "Token should be revoked");
+        Assertions.assertFalse(store.revokeTokenAsync("asyncB").join(), "Token revoked twice");
+        Assertions.assertTrue(getRefreshStore().listTokens(jsmith).isEmpty(), "Tokens not removed");
+    }
+
     @Test
     public void testUseRefreshTokenOnlyStrings() {
         JwtTokenService service = getService();
@@ -237,4 +335,18 @@ public abstract class AbstractJwtTokenServiceWithRefreshTest extends AbstractJwt
 
     @Override
     protected abstract RefreshTokenStore getRefreshStore();
+
+    /**
+     * @return The store itself if it supports asynchronous operations, otherwise the store wrapped by an executor
+     */
+    protected AsyncRefreshTokenStore getAsyncRefreshStore() {
+        if (getRefreshStore() instanceof AsyncRefreshTokenStore store) {
+            return store;
+        }
+        ExecutorAsyncRefreshTokenStore store = new ExecutorAsyncRefreshTokenStore();
+        store.setRefreshTokenStore(getRefreshStore());
+        store.setExecutor(Runnable::run);
+        store.afterPropertiesSet();
+        return store;
+    }
 }
@@ -0,0 +1,58 @@
+/*
+ * MIT Licence
+ * Copyright (c) 2026 Simon Frankenberger
+ *
+ * Please see LICENCE.md for complete licence text.
+ */
+package eu.fraho.spring.securityJwt.benchmark;
+
+import eu.fraho.spring.securityJwt.base.config.CryptProperties;
+import eu.fraho.spring.securityJwt.base.dto.CryptAlgorithm;
+import eu.fraho.spring.securityJwt.base.password.CryptPasswordEncoder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hashing and checking passwords with every {@link CryptAlgorithm}, using the default rounds and cost.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class CryptPasswordEncoderBenchmark {
+    private static final String PASSWORD = "correct horse battery staple";
+
+    @Param({"DES", "MD5", "BLOWFISH", "SHA256", "SHA512"})
+    public String algorithm;
+
+    private CryptPasswordEncoder encoder;
+    private String encoded;
+
+    @Setup
+    public void setup() {
+        CryptProperties cryptProperties = new CryptProperties();
+        cryptProperties.setAlgorithm(CryptAlgorithm.valueOf(algorithm));
+        cryptProperties.afterPropertiesSet();
+
+        encoder = new CryptPasswordEncoder();
+        encoder.setCryptProperties(cryptProperties);
+        encoded = encoder.encode(PASSWORD);
+    }
+
+    @Benchmark
+    public String encode() {
+        return encoder.encode(PASSWORD);
+    }
+
+    @Benchmark
+    public boolean matches() {
+        return encoder.matches(PASSWORD, encoded);
+    }
+}
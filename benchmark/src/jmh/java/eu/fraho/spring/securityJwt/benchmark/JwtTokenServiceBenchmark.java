@@ -0,0 +1,151 @@
+/*
+ * MIT Licence
+ * Copyright (c) 2026 Simon Frankenberger
+ *
+ * Please see LICENCE.md for complete licence text.
+ */
+package eu.fraho.spring.securityJwt.benchmark;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.jwk.Curve;
+import eu.fraho.spring.securityJwt.base.config.RefreshCookieProperties;
+import eu.fraho.spring.securityJwt.base.config.RefreshProperties;
+import eu.fraho.spring.securityJwt.base.config.TokenCacheProperties;
+import eu.fraho.spring.securityJwt.base.config.TokenCookieProperties;
+import eu.fraho.spring.securityJwt.base.config.TokenHeaderProperties;
+import eu.fraho.spring.securityJwt.base.config.TokenProperties;
+import eu.fraho.spring.securityJwt.base.dto.AccessToken;
+import eu.fraho.spring.securityJwt.base.dto.JwtUser;
+import eu.fraho.spring.securityJwt.base.service.JwtTokenServiceImpl;
+import eu.fraho.spring.securityJwt.base.service.NullTokenStore;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.SecureRandom;
+import java.security.Security;
+import java.util.Collections;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Signing, verifying and parsing of access tokens for every supported signature algorithm.
+ * The keys are generated on startup and loaded through {@link TokenProperties#loadKeys()}, just like in production.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class JwtTokenServiceBenchmark {
+    @Param({"HS256", "HS384", "HS512",
+            "RS256", "RS384", "RS512",
+            "PS256", "PS384", "PS512",
+            "ES256", "ES384", "ES512"})
+    public String algorithm;
+
+    private Path pub;
+    private Path priv;
+    private JwtTokenServiceImpl service;
+    private JwtUser user;
+    private String token;
+
+    @Setup
+    public void setup() throws Exception {
+        if (Security.getProvider("BC") == null) {
+            Security.addProvider(new BouncyCastleProvider());
+        }
+
+        JWSAlgorithm jwsAlgorithm = JWSAlgorithm.parse(algorithm);
+        TokenProperties tokenProperties = new TokenProperties();
+        tokenProperties.setAlgorithm(algorithm);
+        if (JWSAlgorithm.Family.HMAC_SHA.contains(jwsAlgorithm)) {
+            byte[] secret = new byte[64];
+            new SecureRandom().nextBytes(secret);
+            priv = Files.createTempFile("security-jwt-bench-", ".key");
+            Files.write(priv, secret);
+            tokenProperties.setHmac(priv);
+        } else {
+            writeKeyPair(jwsAlgorithm);
+            tokenProperties.setPub(pub);
+            tokenProperties.setPriv(priv);
+        }
+        tokenProperties.afterPropertiesSet();
+
+        TokenCookieProperties tokenCookieProperties = new TokenCookieProperties();
+        TokenHeaderProperties tokenHeaderProperties = new TokenHeaderProperties();
+        RefreshCookieProperties refreshCookieProperties = new RefreshCookieProperties();
+        TokenCacheProperties tokenCacheProperties = new TokenCacheProperties();
+        RefreshProperties refreshProperties = new RefreshProperties();
+        refreshProperties.afterPropertiesSet();
+
+        service = new JwtTokenServiceImpl();
+        service.setTokenProperties(tokenProperties);
+        service.setRefreshProperties(refreshProperties);
+        service.setTokenCookieProperties(tokenCookieProperties);
+        service.setTokenHeaderProperties(tokenHeaderProperties);
+        service.setRefreshCookieProperties(refreshCookieProperties);
+        service.setTokenCacheProperties(tokenCacheProperties);
+        service.setJwtUser(JwtUser::new);
+        service.setRefreshTokenStore(new NullTokenStore());
+        service.afterPropertiesSet();
+
+        user = new JwtUser();
+        user.setId(42L);
+        user.setUsername("benchmark");
+        user.setAuthorities(Collections.singletonList(new SimpleGrantedAuthority("ROLE_USER")));
+        token = service.generateToken(user).getToken();
+    }
+
+    private void writeKeyPair(JWSAlgorithm jwsAlgorithm) throws GeneralSecurityException, IOException {
+        KeyPairGenerator generator;
+        if (JWSAlgorithm.Family.EC.contains(jwsAlgorithm)) {
+            generator = KeyPairGenerator.getInstance("ECDSA", "BC");
+            generator.initialize(Curve.forJWSAlgorithm(jwsAlgorithm).iterator().next().toECParameterSpec());
+        } else {
+            generator = KeyPairGenerator.getInstance("RSA");
+            generator.initialize(2048);
+        }
+        KeyPair keyPair = generator.generateKeyPair();
+        pub = Files.createTempFile("security-jwt-bench-", ".pub");
+        priv = Files.createTempFile("security-jwt-bench-", ".key");
+        Files.write(pub, keyPair.getPublic().getEncoded());
+        Files.write(priv, keyPair.getPrivate().getEncoded());
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        if (pub != null) {
+            Files.deleteIfExists(pub);
+        }
+        Files.deleteIfExists(priv);
+    }
+
+    @Benchmark
+    public AccessToken generateToken() throws JOSEException {
+        return service.generateToken(user);
+    }
+
+    @Benchmark
+    public boolean validateToken() {
+        return service.validateToken(token);
+    }
+
+    @Benchmark
+    public Optional<JwtUser> parseUser() {
+        return service.parseUser(token);
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * MIT Licence
+ * Copyright (c) 2026 Simon Frankenberger
+ *
+ * Please see LICENCE.md for complete licence text.
+ */
+package eu.fraho.spring.securityJwt.benchmark;
+
+import eu.fraho.spring.securityJwt.base.dto.CryptAlgorithm;
+import eu.fraho.spring.securityJwt.base.password.ShaCrypt;
+import org.apache.commons.codec.digest.Crypt;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Checking SHA-256 and SHA-512 crypt passwords with {@link ShaCrypt} and commons-codec (as used before).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ShaCryptBenchmark {
+    private static final String PASSWORD = "correct horse battery staple";
+
+    @Param({"SHA256", "SHA512"})
+    public String algorithm;
+
+    @Param({"5000", "50000"})
+    public int rounds;
+
+    private String encoded;
+
+    private static boolean slowEquals(CharSequence a, CharSequence b) {
+        int diff = a.length() ^ b.length();
+        for (int i = 0; i < a.length() && i < b.length(); i++) {
+            diff |= a.charAt(i) ^ b.charAt(i);
+        }
+        return diff == 0;
+    }
+
+    @Setup
+    public void setup() {
+        encoded = ShaCrypt.crypt(PASSWORD, CryptAlgorithm.valueOf(algorithm), rounds, "I0X0ugWXTKiCR/Hw");
+    }
+
+    @Benchmark
+    public boolean shaCrypt() {
+        return ShaCrypt.matches(PASSWORD, encoded);
+    }
+
+    @Benchmark
+    public boolean commonsCodec() {
+        return slowEquals(encoded, Crypt.crypt(PASSWORD, encoded));
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ * MIT Licence
+ * Copyright (c) 2026 Simon Frankenberger
+ *
+ * Please see LICENCE.md for complete licence text.
+ */
+package eu.fraho.spring.securityJwt.benchmark;
+
+import eu.fraho.spring.securityJwt.base.config.TotpProperties;
+import eu.fraho.spring.securityJwt.base.service.TotpServiceImpl;
+import eu.fraho.spring.securityJwt.base.util.TotpUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Verification of TOTP codes. An invalid code is the worst case, as every window within the variance is checked.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class TotpServiceBenchmark {
+    private TotpServiceImpl service;
+    private String secret;
+    private int validCode;
+    private int invalidCode;
+
+    @Setup
+    public void setup() {
+        TotpProperties totpProperties = new TotpProperties();
+        totpProperties.afterPropertiesSet();
+
+        service = new TotpServiceImpl();
+        service.setTotpProperties(totpProperties);
+        service.afterPropertiesSet();
+
+        secret = service.generateSecret();
+        validCode = TotpUtil.getCodeForTesting(secret, 0);
+        invalidCode = TotpUtil.getCodeForTesting(secret, 10);
+    }
+
+    @Benchmark
+    public boolean verifyValidCode() {
+        return service.verifyCode(secret, validCode);
+    }
+
+    @Benchmark
+    public boolean verifyInvalidCode() {
+        return service.verifyCode(secret, invalidCode);
+    }
+}
@@ -7,6 +7,7 @@
 package eu.fraho.spring.securityJwt.dataRedis.starter;
 
 import eu.fraho.spring.securityJwt.base.config.RefreshProperties;
+import eu.fraho.spring.securityJwt.base.service.RefreshStoreExecutor;
 import eu.fraho.spring.securityJwt.base.service.RefreshTokenStore;
 import eu.fraho.spring.securityJwt.base.starter.SecurityJwtBaseAutoConfiguration;
 import eu.fraho.spring.securityJwt.base.starter.SecurityJwtNoRefreshStoreAutoConfiguration;
@@ -19,7 +20,9 @@ import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean
 import org.springframework.boot.autoconfigure.condition.ConditionalOnSingleCandidate;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.ReactiveRedisConnectionFactory;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
 import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.security.core.userdetails.UserDetailsService;
 
@@ -43,17 +46,23 @@ public class SecurityJwtDataRedisAutoConfiguration {
     }
 
     @Bean
-    @ConditionalOnMissingBean
-    public RefreshTokenStore refreshTokenStore(final RefreshProperties refreshProperties,
-                                               final DataRedisProperties dataRedisProperties,
-                                               final UserDetailsService userDetailsService,
-                                               final StringRedisTemplate jwtStringRedisTemplate) {
+    @ConditionalOnMissingBean(RefreshTokenStore.class)
+    public DataRedisTokenStore refreshTokenStore(final RefreshProperties refreshProperties,
+                                                 final DataRedisProperties dataRedisProperties,
+                                                 final UserDetailsService userDetailsService,
+                                                 final StringRedisTemplate jwtStringRedisTemplate,
+                                                 final RefreshStoreExecutor refreshStoreExecutor) {
         log.debug("Register RedisTokenStore");
         DataRedisTokenStore store = new DataRedisTokenStore();
         store.setRefreshProperties(refreshProperties);
         store.setDataRedisProperties(dataRedisProperties);
         store.setUserDetailsService(userDetailsService);
         store.setStringRedisTemplate(jwtStringRedisTemplate);
+        store.setExecutor(refreshStoreExecutor.getExecutor());
+        if (jwtStringRedisTemplate.getConnectionFactory() instanceof ReactiveRedisConnectionFactory reactiveConnectionFactory) {
+            // e.g. lettuce, which sends the asynchronous operations without blocking a thread
+            store.setReactiveStringRedisTemplate(new ReactiveStringRedisTemplate(reactiveConnectionFactory));
+        }
         return store;
     }
 }
@@ -24,8 +24,30 @@ public class DataRedisProperties implements InitializingBean {
      */
     private String prefix = "fraho-refresh";
 
+    /**
+     * Number of keys fetched per SCAN call when listing or revoking all tokens.
+     */
+    private int scanBatchSize = 1_000;
+
+    /**
+     * Add the tokens saved by versions without the user index to the index in the background after startup.
+     * Scans all tokens, so it should only be enabled once after upgrading.
+     */
+    private boolean backfillUserIndex = false;
+
+    /**
+     * Additionally scan all tokens when listing or revoking the tokens of a single user, to find the tokens which
+     * are not part of the user index. Enable this during a rolling upgrade, while nodes of earlier versions still
+     * save tokens without the user index.
+     */
+    private boolean scanUnindexedTokens = false;
+
     @Override
     public void afterPropertiesSet() {
-        // nothing to check here
+        if (scanBatchSize < 1 || scanBatchSize > 100_000) {
+            log.warn("Scan batch size out of bounds ({} <= {} <= {}), forcing to default ({})",
+                    1, scanBatchSize, 100_000, 1_000);
+            scanBatchSize = 1_000;
+        }
     }
 }
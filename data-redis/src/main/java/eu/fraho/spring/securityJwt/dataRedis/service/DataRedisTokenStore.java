@@ -9,33 +9,75 @@ package eu.fraho.spring.securityJwt.dataRedis.service;
 import eu.fraho.spring.securityJwt.base.config.RefreshProperties;
 import eu.fraho.spring.securityJwt.base.dto.JwtUser;
 import eu.fraho.spring.securityJwt.base.dto.RefreshToken;
-import eu.fraho.spring.securityJwt.base.dto.TimeWithPeriod;
+import eu.fraho.spring.securityJwt.base.dto.RefreshTokenEntry;
+import eu.fraho.spring.securityJwt.base.service.AsyncRefreshTokenStore;
+import eu.fraho.spring.securityJwt.base.service.RefreshStoreExecutor;
+import eu.fraho.spring.securityJwt.base.service.RefreshTokenPages;
 import eu.fraho.spring.securityJwt.base.service.RefreshTokenStore;
+import eu.fraho.spring.securityJwt.base.service.TotpReplayStore;
 import eu.fraho.spring.securityJwt.dataRedis.config.DataRedisProperties;
 import eu.fraho.spring.securityJwt.dataRedis.dto.DataRedisEntry;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.Iterator;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 import lombok.NoArgsConstructor;
 import lombok.NonNull;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.redis.connection.RedisKeyCommands;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
 import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.ScanOptions;
 import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.types.Expiration;
 import org.springframework.security.core.userdetails.UserDetailsService;
+import reactor.core.publisher.Mono;
 
+/**
+ * Stores the refresh tokens at a redis server.
+ * <p>
+ * Each token is saved as a string key ({@code <prefix><token>}) holding the id and username of the user, expiring
+ * together with the token. Additionally, the tokens of each user are indexed in a set
+ * ({@code <prefix>:user:<id>}), whose expiration is restarted whenever a token is added. This way listing and
+ * revoking the tokens of a user only touches the keys of that user. Members of the set whose token already expired
+ * are removed when the tokens of that user are listed.
+ * <p>
+ * Tokens saved by earlier versions are not part of the user index. They are added using {@link #backfillUserIndex()},
+ * which runs in the background after startup if {@link DataRedisProperties#isBackfillUserIndex()} is enabled. Nodes of
+ * earlier versions keep saving tokens without the index during a rolling upgrade, these are only found per user if
+ * {@link DataRedisProperties#isScanUnindexedTokens()} is enabled.
+ * <p>
+ * Operations on all tokens iterate the keys using {@code SCAN} in batches, the blocking {@code KEYS} command is
+ * never used.
+ * <p>
+ * Used TOTP codes are marked using {@code SET NX} on {@code <prefix>:totp:<id>:<step>}, so all nodes share them.
+ * <p>
+ * If a {@link ReactiveStringRedisTemplate} is set, the asynchronous operations are sent without blocking a thread,
+ * otherwise the blocking operations are run on other threads.
+ */
 @SuppressWarnings("SpringJavaAutowiredMembersInspection")
 @Slf4j
 @NoArgsConstructor
-public class DataRedisTokenStore implements RefreshTokenStore {
+public class DataRedisTokenStore implements RefreshTokenStore, AsyncRefreshTokenStore, TotpReplayStore, DisposableBean {
+    // tokens are base64 encoded and never contain a colon, all other keys start with one
+    private static final String INTERNAL_KEYS = ":";
+    private static final String USER_INDEX = ":user:";
+    private static final String TOTP_CODES = ":totp:";
+
     private RefreshProperties refreshProperties;
 
     private DataRedisProperties dataRedisProperties;
@@ -44,28 +86,106 @@ public class DataRedisTokenStore implements RefreshTokenStore {
 
     private StringRedisTemplate redisTemplate;
 
+    private ReactiveStringRedisTemplate reactiveRedisTemplate;
+
+    private Executor executor;
+
+    private RefreshStoreExecutor ownedExecutor;
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
     @Override
     public void saveToken(JwtUser user, String token) {
-        String key = dataRedisProperties.getPrefix() + token;
-        String entry = DataRedisEntry.from(user).toString();
-        TimeWithPeriod period = refreshProperties.getExpiration();
-        redisTemplate.opsForValue().set(key, entry, period.getQuantity(), period.getTimeUnit());
+        byte[] key = bytes(tokenKey(token));
+        byte[] entry = bytes(DataRedisEntry.from(user).toString());
+        byte[] userKey = bytes(userKey(user.getId()));
+        long expiration = refreshProperties.getExpiration().toMillis();
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            connection.stringCommands().set(key, entry, Expiration.milliseconds(expiration),
+                    RedisStringCommands.SetOption.upsert());
+            connection.setCommands().sAdd(userKey, bytes(token));
+            connection.keyCommands().pExpire(userKey, expiration);
+            return null;
+        });
     }
 
     @Override
     @SuppressWarnings("unchecked")
     public <T extends JwtUser> Optional<T> useToken(String token) {
-        String key = dataRedisProperties.getPrefix() + token;
-        return Optional.ofNullable(redisTemplate.opsForValue().getAndDelete(key)).map(entry -> {
-            String username = DataRedisEntry.from(entry).getUsername();
-            return (T) userDetailsService.loadUserByUsername(username);
-        });
+        return removeToken(token).map(entry -> (T) userDetailsService.loadUserByUsername(entry.getUsername()));
     }
 
+    @Override
+    public CompletableFuture<Void> saveTokenAsync(JwtUser user, String token) {
+        if (reactiveRedisTemplate == null) {
+            return CompletableFuture.runAsync(() -> saveToken(user, token), executor);
+        }
+        String userKey = userKey(user.getId());
+        Duration expiration = refreshProperties.getExpiration();
+        return Mono.when(
+                reactiveRedisTemplate.opsForValue().set(tokenKey(token), DataRedisEntry.from(user).toString(), expiration),
+                reactiveRedisTemplate.opsForSet().add(userKey, token).then(reactiveRedisTemplate.expire(userKey, expiration))
+        ).toFuture();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T extends JwtUser> CompletableFuture<Optional<T>> useTokenAsync(String token) {
+        if (reactiveRedisTemplate == null) {
+            return CompletableFuture.supplyAsync(() -> useToken(token), executor);
+        }
+        // the user is loaded on another thread, as the user details service may block
+        return removeTokenAsync(token).toFuture().thenApplyAsync(entry -> Optional.ofNullable(entry)
+                .map(found -> (T) userDetailsService.loadUserByUsername(found.getUsername())), executor);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> revokeTokenAsync(String token) {
+        if (reactiveRedisTemplate == null) {
+            return CompletableFuture.supplyAsync(() -> revokeToken(token), executor);
+        }
+        return removeTokenAsync(token).map(entry -> true).defaultIfEmpty(false).toFuture();
+    }
+
+    @Override
+    public boolean markUsed(Long userId, long step, Duration expiration) {
+        String key = dataRedisProperties.getPrefix() + TOTP_CODES + userId + ":" + step;
+        return Boolean.TRUE.equals(redisTemplate.opsForValue().setIfAbsent(key, "1", expiration));
+    }
 
     @Override
     public List<RefreshToken> listTokens(JwtUser user) {
-        return listTokens().getOrDefault(user.getId(), Collections.emptyList());
+        String userKey = userKey(user.getId());
+        Set<String> members = redisTemplate.opsForSet().members(userKey);
+        Set<String> found = withUnindexedTokens(user.getId(), members);
+        if (found.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<String> tokens = new ArrayList<>(found);
+
+        List<Object> ttlResults = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (String token : tokens) {
+                connection.keyCommands().ttl(bytes(tokenKey(token)));
+            }
+            return null;
+        });
+
+        final List<RefreshToken> result = new ArrayList<>();
+        final List<Object> expired = new ArrayList<>();
+        for (int i = 0; i < tokens.size(); i++) {
+            Long expiresIn = (Long) ttlResults.get(i);
+            if (expiresIn == null || expiresIn < 0) {
+                expired.add(tokens.get(i));
+            } else {
+                result.add(RefreshToken.builder().token(tokens.get(i)).expiresIn(expiresIn).build());
+            }
+        }
+        if (!expired.isEmpty()) {
+            redisTemplate.opsForSet().remove(userKey, expired.toArray());
+        }
+        return Collections.unmodifiableList(result);
     }
 
     @Override
@@ -73,70 +193,241 @@ public class DataRedisTokenStore implements RefreshTokenStore {
         final Map<Long, List<RefreshToken>> result = new HashMap<>();
         final int prefixLen = dataRedisProperties.getPrefix().length();
 
-        Map<String, String> entries = listKeysWithValues();
-        List<Map.Entry<Long, String>> meta = new ArrayList<>();
-
-        List<Object> ttlResults = redisTemplate.executePipelined(
-            (RedisCallback<Object>) connection -> {
-                RedisKeyCommands redisKeyCommands = connection.keyCommands();
-                for (Map.Entry<String, String> entry : entries.entrySet()) {
-                    Long id = DataRedisEntry.from(entry.getValue()).getId();
-                    String token = entry.getKey().substring(prefixLen);
-                    meta.add(Map.entry(id, token));
-                    redisKeyCommands.ttl(entry.getKey().getBytes(StandardCharsets.UTF_8));
+        scanTokenKeys(keys -> {
+            List<Object> results = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                for (String key : keys) {
+                    connection.stringCommands().get(bytes(key));
+                    connection.keyCommands().ttl(bytes(key));
                 }
                 return null;
-            }
-        );
-
-        for (int i = 0; i < ttlResults.size(); i++) {
-            Long id = meta.get(i).getKey();
-            String token = meta.get(i).getValue();
-            Long expiresIn = (Long) ttlResults.get(i);
+            });
 
-            result.computeIfAbsent(id, k -> new ArrayList<>()).add(RefreshToken.builder()
-                .token(token)
-                .expiresIn(expiresIn)
-                .build());
-        }
+            for (int i = 0; i < keys.size(); i++) {
+                String value = (String) results.get(i * 2);
+                Long expiresIn = (Long) results.get(i * 2 + 1);
+                if (value == null || expiresIn == null || expiresIn < 0) {
+                    // expired in the meantime
+                    continue;
+                }
+                Long id = DataRedisEntry.from(value).getId();
+                result.computeIfAbsent(id, k -> new ArrayList<>()).add(RefreshToken.builder()
+                        .token(keys.get(i).substring(prefixLen))
+                        .expiresIn(expiresIn)
+                        .build());
+            }
+        });
 
+        result.replaceAll((s, t) -> Collections.unmodifiableList(t));
         return Collections.unmodifiableMap(result);
+    }
+
+    /**
+     * Stream the tokens using a {@code SCAN} cursor, or a {@code SSCAN} cursor on the user index if a user is given.
+     * For each page the entries and their expiration are fetched using a single pipeline.
+     * The cursor holds a connection until the stream is closed.
+     */
+    @Override
+    public Stream<RefreshTokenEntry> streamTokens(Long userId, int pageSize) {
+        RefreshTokenPages.checkPageSize(pageSize);
+        final String prefix = dataRedisProperties.getPrefix();
+        final String internalPrefix = prefix + INTERNAL_KEYS;
+        Cursor<String> cursor = userId == null
+                ? redisTemplate.scan(ScanOptions.scanOptions().match(prefix + "*").count(pageSize).build())
+                : redisTemplate.opsForSet().scan(userKey(userId), ScanOptions.scanOptions().count(pageSize).build());
 
+        return RefreshTokenPages.stream(() -> {
+            if (!cursor.hasNext()) {
+                return null;
+            }
+            List<String> tokens = new ArrayList<>(pageSize);
+            while (tokens.size() < pageSize && cursor.hasNext()) {
+                String value = cursor.next();
+                if (userId != null) {
+                    tokens.add(value);
+                } else if (!value.startsWith(internalPrefix)) {
+                    tokens.add(value.substring(prefix.length()));
+                }
+            }
+            return readEntries(tokens);
+        }).onClose(cursor::close);
     }
 
     @Override
-    @SuppressWarnings("PointlessBooleanExpression")
     public boolean revokeToken(String token) {
-        String key = dataRedisProperties.getPrefix() + token;
-        return Boolean.TRUE.equals(redisTemplate.delete(key));
+        return removeToken(token).isPresent();
     }
 
     @Override
     public int revokeTokens(JwtUser user) {
-        List<String> keys = new ArrayList<>(redisTemplate.keys(dataRedisProperties.getPrefix() + "*"));
-        List<String> values = redisTemplate.opsForValue().multiGet(keys);
+        String userKey = userKey(user.getId());
+        Set<String> tokens = withUnindexedTokens(user.getId(), redisTemplate.opsForSet().members(userKey));
+        if (tokens.isEmpty()) {
+            return 0;
+        }
+
+        List<String> keys = new ArrayList<>(tokens.size());
+        for (String token : tokens) {
+            keys.add(tokenKey(token));
+        }
+        Long count = redisTemplate.delete(keys);
+        // only remove the revoked members, tokens may have been added concurrently
+        redisTemplate.opsForSet().remove(userKey, tokens.toArray());
+        return count == null ? 0 : count.intValue();
+    }
 
-        List<String> deleteKeys = new ArrayList<>();
-        for (int i = 0; i < keys.size(); i++) {
-            //noinspection DataFlowIssue
-            if (values.get(i) == null) continue;
-            DataRedisEntry dto = DataRedisEntry.from(values.get(i));
-            if (Objects.equals(dto.getId(), user.getId())) {
-                deleteKeys.add(keys.get(i));
+    @Override
+    public int revokeTokens(Collection<String> tokens) {
+        List<String> list = new ArrayList<>(tokens);
+        if (list.isEmpty()) {
+            return 0;
+        }
+        List<Object> values = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (String token : list) {
+                connection.stringCommands().getDel(bytes(tokenKey(token)));
             }
+            return null;
+        });
+
+        Map<String, List<String>> revoked = new HashMap<>();
+        for (int i = 0; i < list.size(); i++) {
+            String value = (String) values.get(i);
+            if (value != null) {
+                revoked.computeIfAbsent(userKey(DataRedisEntry.from(value).getId()), k -> new ArrayList<>()).add(list.get(i));
+            }
+        }
+        if (!revoked.isEmpty()) {
+            redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                revoked.forEach((userKey, members) -> connection.setCommands().sRem(bytes(userKey),
+                        members.stream().map(DataRedisTokenStore::bytes).toArray(byte[][]::new)));
+                return null;
+            });
         }
-        return redisTemplate.delete(deleteKeys).intValue();
+        return revoked.values().stream().mapToInt(List::size).sum();
+    }
+
+    @Override
+    public int revokeTokensOfUsers(Collection<Long> userIds) {
+        List<String> userKeys = userIds.stream().map(this::userKey).toList();
+        if (userKeys.isEmpty()) {
+            return 0;
+        }
+        Map<Long, Set<String>> unindexed = dataRedisProperties.isScanUnindexedTokens()
+                ? scanTokensOfUsers(Set.copyOf(userIds)) : Collections.emptyMap();
+        List<Object> members = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (String userKey : userKeys) {
+                connection.setCommands().sMembers(bytes(userKey));
+            }
+            return null;
+        });
+
+        Map<String, Set<String>> tokens = new HashMap<>();
+        for (int i = 0; i < userKeys.size(); i++) {
+            @SuppressWarnings("unchecked")
+            Set<String> userTokens = (Set<String>) members.get(i);
+            tokens.put(userKeys.get(i), userTokens == null ? new HashSet<>() : new HashSet<>(userTokens));
+        }
+        unindexed.forEach((userId, userTokens) -> tokens.get(userKey(userId)).addAll(userTokens));
+        tokens.values().removeIf(Set::isEmpty);
+        if (tokens.isEmpty()) {
+            return 0;
+        }
+
+        List<Object> results = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            tokens.forEach((userKey, userTokens) -> connection.keyCommands().del(
+                    userTokens.stream().map(token -> bytes(tokenKey(token))).toArray(byte[][]::new)));
+            // only remove the revoked members, tokens may have been added concurrently
+            tokens.forEach((userKey, userTokens) -> connection.setCommands().sRem(bytes(userKey),
+                    userTokens.stream().map(DataRedisTokenStore::bytes).toArray(byte[][]::new)));
+            return null;
+        });
+        int count = 0;
+        for (int i = 0; i < tokens.size(); i++) {
+            Long deleted = (Long) results.get(i);
+            count += deleted == null ? 0 : deleted.intValue();
+        }
+        return count;
     }
 
     @Override
     public int revokeTokens() {
-        Set<String> keys = redisTemplate.keys(dataRedisProperties.getPrefix() + "*");
-        return redisTemplate.delete(keys).intValue();
+        final int[] count = new int[1];
+        scanTokenKeys(keys -> {
+            Long deleted = redisTemplate.delete(keys);
+            count[0] += deleted == null ? 0 : deleted.intValue();
+        });
+        scanKeys(dataRedisProperties.getPrefix() + USER_INDEX + "*", redisTemplate::delete);
+        return count[0];
     }
 
     @Override
     public void afterPropertiesSet() {
         log.info("Using redis implementation to handle refresh tokens");
+        if (executor == null) {
+            ownedExecutor = new RefreshStoreExecutor();
+            executor = ownedExecutor.getExecutor();
+        }
+
+        if (dataRedisProperties.isBackfillUserIndex()) {
+            // runs in the background, so the startup neither waits for the scan nor fails if redis is unavailable
+            CompletableFuture.runAsync(() -> {
+                int count = backfillUserIndex();
+                log.info("Added {} existing refresh tokens to the user index", count);
+            }, executor).exceptionally(e -> {
+                log.warn("Could not add the existing refresh tokens to the user index", e);
+                return null;
+            });
+        }
+    }
+
+    /**
+     * Add all saved tokens to the index of their user. Tokens saved by earlier versions of this module are not
+     * indexed, so without this they would neither be listed nor revoked per user.
+     * <p>
+     * This scans all tokens. Adding a token twice has no effect, so this may run concurrently on several nodes and
+     * may be repeated after a rolling upgrade.
+     *
+     * @return The number of tokens processed
+     */
+    public int backfillUserIndex() {
+        final long expiration = refreshProperties.getExpiration().toMillis();
+        final int prefixLen = dataRedisProperties.getPrefix().length();
+        final int[] count = new int[1];
+
+        scanTokenKeys(keys -> {
+            List<Object> values = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                for (String key : keys) {
+                    connection.stringCommands().get(bytes(key));
+                }
+                return null;
+            });
+
+            Map<String, List<byte[]>> index = new HashMap<>();
+            for (int i = 0; i < keys.size(); i++) {
+                String value = (String) values.get(i);
+                if (value != null) {
+                    index.computeIfAbsent(userKey(DataRedisEntry.from(value).getId()), k -> new ArrayList<>())
+                            .add(bytes(keys.get(i).substring(prefixLen)));
+                }
+            }
+            if (!index.isEmpty()) {
+                redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                    index.forEach((userKey, tokens) -> {
+                        connection.setCommands().sAdd(bytes(userKey), tokens.toArray(byte[][]::new));
+                        connection.keyCommands().pExpire(bytes(userKey), expiration);
+                    });
+                    return null;
+                });
+                count[0] += index.values().stream().mapToInt(List::size).sum();
+            }
+        });
+        return count[0];
+    }
+
+    @Override
+    public void destroy() {
+        if (ownedExecutor != null) {
+            ownedExecutor.destroy();
+        }
     }
 
     @Autowired
@@ -159,30 +450,167 @@ public class DataRedisTokenStore implements RefreshTokenStore {
         this.redisTemplate = redisTemplate;
     }
 
-    protected <K, V> Map<K, V> zipToMap(List<K> keys, List<V> values) {
-        Iterator<K> keyIter = keys.iterator();
-        Iterator<V> valIter = values.iterator();
-        Map<K, V> result = new HashMap<>();
-        while (keyIter.hasNext() && valIter.hasNext()) {
-            K key = keyIter.next();
-            V val = valIter.next();
+    @Autowired(required = false)
+    public void setReactiveStringRedisTemplate(@NonNull ReactiveStringRedisTemplate reactiveRedisTemplate) {
+        this.reactiveRedisTemplate = reactiveRedisTemplate;
+    }
+
+    /**
+     * @param executor Used to run the blocking operations and to load users, by default a private
+     *                 {@link RefreshStoreExecutor} is used
+     */
+    public void setExecutor(@NonNull Executor executor) {
+        this.executor = executor;
+    }
 
-            if (key != null && val != null) {
-                result.put(key, val);
+    protected String tokenKey(String token) {
+        return dataRedisProperties.getPrefix() + token;
+    }
+
+    protected String userKey(Long userId) {
+        return dataRedisProperties.getPrefix() + USER_INDEX + userId;
+    }
+
+    /**
+     * Atomically remove the token and its entry in the user index.
+     *
+     * @param token The token to remove
+     * @return The entry of the token, if it existed
+     */
+    protected Optional<DataRedisEntry> removeToken(String token) {
+        String value = redisTemplate.opsForValue().getAndDelete(tokenKey(token));
+        if (value == null) {
+            return Optional.empty();
+        }
+        DataRedisEntry entry = DataRedisEntry.from(value);
+        redisTemplate.opsForSet().remove(userKey(entry.getId()), token);
+        return Optional.of(entry);
+    }
+
+    /**
+     * Non-blocking variant of {@link #removeToken(String)}.
+     *
+     * @param token The token to remove
+     * @return The entry of the token, empty if it did not exist
+     */
+    protected Mono<DataRedisEntry> removeTokenAsync(String token) {
+        return reactiveRedisTemplate.opsForValue().getAndDelete(tokenKey(token))
+                .map(DataRedisEntry::from)
+                .flatMap(entry -> reactiveRedisTemplate.opsForSet().remove(userKey(entry.getId()), token).thenReturn(entry));
+    }
+
+    /**
+     * Fetch the entries and expiration of the given tokens using a single pipeline.
+     *
+     * @param tokens The tokens to fetch
+     * @return The entries, tokens which do not exist (anymore) are skipped
+     */
+    protected List<RefreshTokenEntry> readEntries(List<String> tokens) {
+        if (tokens.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<Object> results = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (String token : tokens) {
+                byte[] key = bytes(tokenKey(token));
+                connection.stringCommands().get(key);
+                connection.keyCommands().ttl(key);
             }
+            return null;
+        });
+
+        List<RefreshTokenEntry> result = new ArrayList<>(tokens.size());
+        for (int i = 0; i < tokens.size(); i++) {
+            String value = (String) results.get(i * 2);
+            Long expiresIn = (Long) results.get(i * 2 + 1);
+            if (value == null || expiresIn == null || expiresIn < 0) {
+                // expired in the meantime
+                continue;
+            }
+            result.add(new RefreshTokenEntry(DataRedisEntry.from(value).getId(),
+                    RefreshToken.builder().token(tokens.get(i)).expiresIn(expiresIn).build()));
         }
         return result;
     }
 
-    protected Map<String, String> listKeysWithValues() {
-        List<String> keys = new ArrayList<>(redisTemplate.keys(dataRedisProperties.getPrefix() + "*"));
-        if (keys.isEmpty()) {
-            return Collections.emptyMap();
+    /**
+     * Add the tokens of the user which are not part of the user index, if
+     * {@link DataRedisProperties#isScanUnindexedTokens()} is enabled.
+     *
+     * @param userId  The id of the user
+     * @param members The members of the user index, may be null
+     * @return All known tokens of the user
+     */
+    protected Set<String> withUnindexedTokens(Long userId, Set<String> members) {
+        Set<String> tokens = members == null ? new HashSet<>() : new HashSet<>(members);
+        if (dataRedisProperties.isScanUnindexedTokens()) {
+            tokens.addAll(scanTokensOfUsers(Set.of(userId)).getOrDefault(userId, Collections.emptySet()));
         }
+        return tokens;
+    }
+
+    /**
+     * Find the tokens of the given users by scanning all tokens, regardless of the user index.
+     *
+     * @param userIds The ids of the users
+     * @return The tokens of each user, users without tokens are missing
+     */
+    protected Map<Long, Set<String>> scanTokensOfUsers(Set<Long> userIds) {
+        final int prefixLen = dataRedisProperties.getPrefix().length();
+        final Map<Long, Set<String>> result = new HashMap<>();
+        scanTokenKeys(keys -> {
+            List<Object> values = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                for (String key : keys) {
+                    connection.stringCommands().get(bytes(key));
+                }
+                return null;
+            });
+            for (int i = 0; i < keys.size(); i++) {
+                String value = (String) values.get(i);
+                Long id = value == null ? null : DataRedisEntry.from(value).getId();
+                if (id != null && userIds.contains(id)) {
+                    result.computeIfAbsent(id, k -> new HashSet<>()).add(keys.get(i).substring(prefixLen));
+                }
+            }
+        });
+        return result;
+    }
 
-        List<String> values = redisTemplate.opsForValue().multiGet(keys);
+    /**
+     * Iterate all token keys (excluding the user index and used TOTP codes) in batches.
+     *
+     * @param batchConsumer Called for each non-empty batch of keys
+     */
+    protected void scanTokenKeys(Consumer<List<String>> batchConsumer) {
+        String internalPrefix = dataRedisProperties.getPrefix() + INTERNAL_KEYS;
+        scanKeys(dataRedisProperties.getPrefix() + "*", keys -> {
+            keys.removeIf(key -> key.startsWith(internalPrefix));
+            if (!keys.isEmpty()) {
+                batchConsumer.accept(keys);
+            }
+        });
+    }
 
-        //noinspection DataFlowIssue
-        return zipToMap(keys, values);
+    /**
+     * Iterate all keys matching the pattern using {@code SCAN}.
+     *
+     * @param pattern       The pattern to match
+     * @param batchConsumer Called for each non-empty batch of keys, the list may be modified
+     */
+    protected void scanKeys(String pattern, Consumer<List<String>> batchConsumer) {
+        int batchSize = dataRedisProperties.getScanBatchSize();
+        ScanOptions options = ScanOptions.scanOptions().match(pattern).count(batchSize).build();
+        try (Cursor<String> cursor = redisTemplate.scan(options)) {
+            List<String> batch = new ArrayList<>(batchSize);
+            while (cursor.hasNext()) {
+                batch.add(cursor.next());
+                if (batch.size() >= batchSize) {
+                    batchConsumer.accept(batch);
+                    batch = new ArrayList<>(batchSize);
+                }
+            }
+            if (!batch.isEmpty()) {
+                batchConsumer.accept(batch);
+            }
+        }
     }
 }
@@ -20,12 +20,16 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.data.redis.connection.ReactiveRedisConnectionFactory;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
 import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
 import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
@@ -34,12 +38,19 @@ public class AbstractJwtServiceRefreshRedisTest extends AbstractJwtTokenServiceW
     private final DataRedisTokenStore refreshTokenStore;
 
     public AbstractJwtServiceRefreshRedisTest() throws Exception {
-        refreshTokenStore = new DataRedisTokenStore();
-        refreshTokenStore.setRefreshProperties(getRefreshProperties());
-        refreshTokenStore.setDataRedisProperties(getRedisProperties());
-        refreshTokenStore.setUserDetailsService(getUserdetailsService());
-        refreshTokenStore.setStringRedisTemplate(getStringRedisTemplate(getLettuceConnectionFactory()));
-        refreshTokenStore.afterPropertiesSet();
+        refreshTokenStore = createStore(getRedisProperties());
+    }
+
+    private DataRedisTokenStore createStore(DataRedisProperties properties) throws Exception {
+        DataRedisTokenStore store = new DataRedisTokenStore();
+        store.setRefreshProperties(getRefreshProperties());
+        store.setDataRedisProperties(properties);
+        store.setUserDetailsService(getUserdetailsService());
+        RedisConnectionFactory connectionFactory = getLettuceConnectionFactory();
+        store.setStringRedisTemplate(getStringRedisTemplate(connectionFactory));
+        store.setReactiveStringRedisTemplate(new ReactiveStringRedisTemplate((ReactiveRedisConnectionFactory) connectionFactory));
+        store.afterPropertiesSet();
+        return store;
     }
 
     protected DataRedisProperties getRedisProperties() {
@@ -96,9 +107,104 @@ public class AbstractJwtServiceRefreshRedisTest extends AbstractJwtTokenServiceW
         Assertions.assertTrue(allTokens.containsAll(Arrays.asList(tokenA, tokenB, tokenC)), "Not all tokens returned");
     }
 
+    @Test
+    public void testUserIndex() throws Exception {
+        JwtTokenService service = getService();
+        JwtUser jsmith = getJwtUser();
+        jsmith.setUsername("jsmith");
+        String userKey = getRedisProperties().getPrefix() + ":user:" + jsmith.getId();
+
+        RefreshToken tokenA = service.generateRefreshToken(jsmith);
+        RefreshToken tokenB = service.generateRefreshToken(jsmith);
+        Assertions.assertEquals(Set.of(tokenA.getToken(), tokenB.getToken()), getStringRedisTemplate().opsForSet().members(userKey));
+
+        Assertions.assertTrue(service.useRefreshToken(tokenA.getToken()).isPresent());
+        Assertions.assertEquals(Set.of(tokenB.getToken()), getStringRedisTemplate().opsForSet().members(userKey));
+
+        Assertions.assertEquals(1, service.revokeRefreshTokens(jsmith));
+        Assertions.assertFalse(getStringRedisTemplate().hasKey(userKey), "User index was not removed");
+    }
+
+    @Test
+    public void testBackfillUserIndex() throws Exception {
+        JwtUser jsmith = getJwtUser();
+        jsmith.setUsername("jsmith");
+        String prefix = getRedisProperties().getPrefix();
+
+        // saved by an earlier version, without the user index
+        getStringRedisTemplate().opsForValue().set(prefix + "legacy", jsmith.getId() + ",jsmith", Duration.ofSeconds(10));
+        Assertions.assertTrue(refreshTokenStore.listTokens(jsmith).isEmpty(), "Token already indexed");
+
+        Assertions.assertEquals(1, refreshTokenStore.backfillUserIndex());
+        Assertions.assertEquals(List.of("legacy"), refreshTokenStore.listTokens(jsmith).stream().map(RefreshToken::getToken).toList());
+        Assertions.assertEquals(1, refreshTokenStore.revokeTokens(jsmith));
+        Assertions.assertFalse(getStringRedisTemplate().hasKey(prefix + "legacy"), "Token was not revoked");
+    }
+
+    @Test
+    public void testBackfillUserIndexOnStartup() throws Exception {
+        JwtUser jsmith = getJwtUser();
+        jsmith.setUsername("jsmith");
+        String prefix = getRedisProperties().getPrefix();
+        getStringRedisTemplate().opsForValue().set(prefix + "legacy", jsmith.getId() + ",jsmith", Duration.ofSeconds(10));
+
+        DataRedisProperties properties = getRedisProperties();
+        properties.setBackfillUserIndex(true);
+        DataRedisTokenStore store = createStore(properties);
+        try {
+            Assertions.assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+                while (store.listTokens(jsmith).isEmpty()) {
+                    Thread.sleep(10);
+                }
+            }, "Token was not indexed in the background");
+        } finally {
+            store.destroy();
+        }
+    }
+
+    @Test
+    public void testScanUnindexedTokens() throws Exception {
+        JwtUser jsmith = getJwtUser();
+        jsmith.setUsername("jsmith");
+        String prefix = getRedisProperties().getPrefix();
+
+        DataRedisProperties properties = getRedisProperties();
+        properties.setScanUnindexedTokens(true);
+        DataRedisTokenStore store = createStore(properties);
+        try {
+            store.saveToken(jsmith, "indexed");
+            // saved by a node of an earlier version during a rolling upgrade
+            getStringRedisTemplate().opsForValue().set(prefix + "legacy", jsmith.getId() + ",jsmith", Duration.ofSeconds(10));
+
+            Assertions.assertEquals(Set.of("indexed", "legacy"),
+                    store.listTokens(jsmith).stream().map(RefreshToken::getToken).collect(Collectors.toSet()));
+            Assertions.assertEquals(2, store.revokeTokens(jsmith));
+            Assertions.assertFalse(getStringRedisTemplate().hasKey(prefix + "legacy"), "Token was not revoked");
+
+            getStringRedisTemplate().opsForValue().set(prefix + "legacy", jsmith.getId() + ",jsmith", Duration.ofSeconds(10));
+            Assertions.assertEquals(1, store.revokeTokensOfUsers(List.of(jsmith.getId())));
+            Assertions.assertFalse(getStringRedisTemplate().hasKey(prefix + "legacy"), "Token was not revoked");
+        } finally {
+            store.destroy();
+        }
+    }
+
     private StringRedisTemplate getStringRedisTemplate() throws Exception {
         Field memcachedClient = DataRedisTokenStore.class.getDeclaredField("redisTemplate");
         memcachedClient.setAccessible(true);
         return ((StringRedisTemplate) memcachedClient.get(refreshTokenStore));
     }
+
+    @Test
+    public void testMarkTotpUsed() {
+        long step = System.currentTimeMillis() / 30_000L;
+        JwtUser user = getJwtUser();
+        Assertions.assertTrue(refreshTokenStore.markUsed(user.getId(), step, Duration.ofSeconds(5)), "Unused code rejected");
+        Assertions.assertFalse(refreshTokenStore.markUsed(user.getId(), step, Duration.ofSeconds(5)), "Code accepted twice");
+        Assertions.assertTrue(refreshTokenStore.markUsed(user.getId(), step + 1, Duration.ofSeconds(5)), "Other step rejected");
+
+        // the marks are no refresh tokens
+        Assertions.assertTrue(refreshTokenStore.listTokens(user).isEmpty(), "Mark listed as token");
+        Assertions.assertTrue(refreshTokenStore.listTokens().isEmpty(), "Mark listed as token");
+    }
 }
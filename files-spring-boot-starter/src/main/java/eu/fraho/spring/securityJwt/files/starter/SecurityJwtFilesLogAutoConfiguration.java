@@ -0,0 +1,41 @@
+/*
+ * MIT Licence
+ * Copyright (c) 2026 Simon Frankenberger
+ *
+ * Please see LICENCE.md for complete licence text.
+ */
+package eu.fraho.spring.securityJwt.files.starter;
+
+import eu.fraho.spring.securityJwt.base.config.RefreshProperties;
+import eu.fraho.spring.securityJwt.base.service.RefreshTokenStore;
+import eu.fraho.spring.securityJwt.base.starter.SecurityJwtNoRefreshStoreAutoConfiguration;
+import eu.fraho.spring.securityJwt.files.config.FilesProperties;
+import eu.fraho.spring.securityJwt.files.service.FilesLogTokenStore;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.AutoConfigureBefore;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.security.core.userdetails.UserDetailsService;
+
+@Configuration
+@AutoConfigureBefore({SecurityJwtNoRefreshStoreAutoConfiguration.class,
+        SecurityJwtFilesAutoConfigurationJackson2.class, SecurityJwtFilesAutoConfigurationJackson3.class})
+@ConditionalOnProperty(prefix = "fraho.jwt.refresh.files", name = "engine", havingValue = "log")
+@Slf4j
+public class SecurityJwtFilesLogAutoConfiguration {
+    @Bean
+    @ConditionalOnMissingBean
+    public RefreshTokenStore refreshTokenStore(final RefreshProperties refreshProperties,
+                                               final UserDetailsService userDetailsService,
+                                               final FilesProperties filesProperties) {
+        log.debug("Register FilesLogTokenStore");
+        FilesLogTokenStore store = new FilesLogTokenStore();
+        store.setRefreshProperties(refreshProperties);
+        store.setUserDetailsService(userDetailsService);
+        store.setFilesProperties(filesProperties);
+        // initialized by the container, replaying the log twice would duplicate its records
+        return store;
+    }
+}
@@ -0,0 +1,21 @@
+/*
+ * MIT Licence
+ * Copyright (c) 2026 Simon Frankenberger
+ *
+ * Please see LICENCE.md for complete licence text.
+ */
+package eu.fraho.spring.securityJwt.files.config;
+
+/**
+ * The storage engines of the files module.
+ */
+public enum FilesEngine {
+    /**
+     * Store all tokens as a json document, which is rewritten on every change.
+     */
+    JSON,
+    /**
+     * Append each change to a log, which is compacted in the background.
+     */
+    LOG
+}
@@ -41,11 +41,34 @@ public class FilesProperties implements InitializingBean {
      */
     private Path databaseFile = Paths.get("db.json");
 
+    /**
+     * The storage engine to use. Only used by the boot-starter to choose the implementation.
+     */
+    private FilesEngine engine = FilesEngine.JSON;
+
+    /**
+     * Filename of the log which stores the tokens when using the {@link FilesEngine#LOG} engine,
+     * relative to {@link #dataDir}.
+     */
+    private Path logFile = Paths.get("tokens.log");
+
+    /**
+     * Number of records appended to the {@link #logFile} before it is compacted in the background.
+     * The log is only compacted if it contains at least twice as many records as there are valid tokens.
+     */
+    private int compactionThreshold = 10_000;
+
     @Override
     public void afterPropertiesSet() throws IOException {
         if (!Files.exists(dataDir)) {
             Files.createDirectories(dataDir);
         }
         databaseFile = dataDir.resolve(databaseFile);
+        logFile = dataDir.resolve(logFile);
+        if (compactionThreshold < 100 || compactionThreshold > 10_000_000) {
+            log.warn("Compaction threshold out of bounds ({} <= {} <= {}), forcing to default ({})",
+                    100, compactionThreshold, 10_000_000, 10_000);
+            compactionThreshold = 10_000;
+        }
     }
 }
@@ -3,8 +3,10 @@ package eu.fraho.spring.securityJwt.files.service;
 import eu.fraho.spring.securityJwt.base.config.RefreshProperties;
 import eu.fraho.spring.securityJwt.base.dto.JwtUser;
 import eu.fraho.spring.securityJwt.base.dto.RefreshToken;
+import eu.fraho.spring.securityJwt.base.dto.RefreshTokenEntry;
 import eu.fraho.spring.securityJwt.base.dto.TimeWithPeriod;
 import eu.fraho.spring.securityJwt.base.exceptions.RefreshException;
+import eu.fraho.spring.securityJwt.base.service.RefreshTokenPages;
 import eu.fraho.spring.securityJwt.base.service.RefreshTokenStore;
 import eu.fraho.spring.securityJwt.files.config.FilesProperties;
 import eu.fraho.spring.securityJwt.files.dto.DatabaseEntry;
@@ -17,43 +19,47 @@ import java.io.IOException;
 import java.nio.channels.FileLock;
 import java.time.ZonedDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Objects;
 import java.util.Optional;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.stream.Stream;
 
 abstract class CommonFilesTokenStore implements RefreshTokenStore {
     private final ReentrantLock lock = new ReentrantLock(true);
+    // guarded by lock
+    final DatabaseIndex database = new DatabaseIndex();
 
     protected RefreshProperties refreshProperties;
     protected UserDetailsService userDetailsService;
     protected FilesProperties filesProperties;
 
-    protected void withLock(Consumer<List<DatabaseEntry>> consumer) {
+    protected void withLock(Consumer<DatabaseIndex> consumer) {
         withLock(db -> {
             consumer.accept(db);
             return null;
         });
     }
 
-    protected <T> T withLock(Function<List<DatabaseEntry>, T> consumer) {
+    protected <T> T withLock(Function<DatabaseIndex, T> consumer) {
         try {
             if (!lock.tryLock(5, TimeUnit.SECONDS)) {
                 throw new RefreshException("Lock timed out");
             }
+            database.removeExpired(ZonedDateTime.now());
             if (filesProperties.isExternalLocks()) {
                 try (FileOutputStream fos = new FileOutputStream(filesProperties.getDataDir().resolve("__lock").toFile());
                      FileLock ignored = fos.getChannel().lock()) {
-                    return consumer.apply(getDatabase());
+                    return consumer.apply(database);
                 }
             } else {
-                return consumer.apply(getDatabase());
+                return consumer.apply(database);
             }
         } catch (InterruptedException ie) {
             throw new RefreshException("Interrupted", ie);
@@ -64,7 +70,31 @@ abstract class CommonFilesTokenStore implements RefreshTokenStore {
         }
     }
 
-    protected abstract List<DatabaseEntry> getDatabase();
+    /**
+     * Replace the in-memory database with the given entries, dropping the expired ones.
+     *
+     * @param entries The entries as read from the databaseFile
+     */
+    protected void loadDatabase(List<DatabaseEntry> entries) {
+        withLock(db -> {
+            db.clear();
+            db.putAll(entries);
+            db.removeExpired(ZonedDateTime.now());
+        });
+    }
+
+    /**
+     * Returns a copy of the valid entries. Changes to the returned list are not stored.
+     *
+     * @return The valid entries of the database
+     * @deprecated The entries are kept in an index now, use {@link #loadDatabase(List)} to replace them
+     */
+    @Deprecated
+    protected List<DatabaseEntry> getDatabase() {
+        return withLock(db -> {
+            return db.toList();
+        });
+    }
 
     protected abstract void saveDatabase(List<DatabaseEntry> database);
 
@@ -72,13 +102,13 @@ abstract class CommonFilesTokenStore implements RefreshTokenStore {
     public void saveToken(JwtUser user, String token) {
         withLock(db -> {
             TimeWithPeriod expiration = refreshProperties.getExpiration();
-            db.add(DatabaseEntry.builder()
+            db.put(DatabaseEntry.builder()
                     .userId(user.getId())
                     .token(token)
                     .username(user.getUsername())
                     .expires(ZonedDateTime.now().plus(expiration.getQuantity(), expiration.getChronoUnit()))
                     .build());
-            saveDatabase(db);
+            saveDatabase(db.toList());
         });
     }
 
@@ -86,14 +116,11 @@ abstract class CommonFilesTokenStore implements RefreshTokenStore {
     @SuppressWarnings("unchecked")
     public <T extends JwtUser> Optional<T> useToken(String token) {
         return withLock(db -> {
-            return db.stream().filter(e -> Objects.equals(e.getToken(), token)).findAny().map(e -> {
+            return Optional.ofNullable(db.get(token)).map(e -> {
                 T user = (T) userDetailsService.loadUserByUsername(e.getUsername());
-                if (db.remove(e)) {
-                    saveDatabase(db);
-                    return user;
-                } else {
-                    return null;
-                }
+                db.remove(token);
+                saveDatabase(db.toList());
+                return user;
             });
         });
     }
@@ -103,8 +130,7 @@ abstract class CommonFilesTokenStore implements RefreshTokenStore {
     public List<RefreshToken> listTokens(JwtUser user) {
         return withLock(db -> {
             long now = ZonedDateTime.now().toEpochSecond();
-            return db.stream()
-                    .filter(e -> Objects.equals(e.getUserId(), user.getId()))
+            return db.getUser(user.getId()).stream()
                     .map(e -> RefreshToken.builder().token(e.getToken()).expiresIn(e.getExpires().toEpochSecond() - now).build())
                     .toList();
         });
@@ -116,7 +142,7 @@ abstract class CommonFilesTokenStore implements RefreshTokenStore {
         return withLock(db -> {
             long now = ZonedDateTime.now().toEpochSecond();
             Map<Long, List<RefreshToken>> result = new HashMap<>();
-            for (DatabaseEntry entry : db) {
+            for (DatabaseEntry entry : db.values()) {
                 RefreshToken token = RefreshToken.builder().token(entry.getToken()).expiresIn(entry.getExpires().toEpochSecond() - now).build();
                 result.computeIfAbsent(entry.getUserId(), s -> new ArrayList<>()).add(token);
             }
@@ -124,25 +150,55 @@ abstract class CommonFilesTokenStore implements RefreshTokenStore {
         });
     }
 
+    @Override
+    public Stream<RefreshTokenEntry> streamTokens(Long userId, int pageSize) {
+        RefreshTokenPages.checkPageSize(pageSize);
+        // the database is kept in memory, only the references to the entries are copied while holding the lock
+        List<DatabaseEntry> entries = withLock(db -> userId == null ? db.toList() : db.getUser(userId));
+        long now = ZonedDateTime.now().toEpochSecond();
+        return entries.stream().map(e -> new RefreshTokenEntry(e.getUserId(),
+                RefreshToken.builder().token(e.getToken()).expiresIn(e.getExpires().toEpochSecond() - now).build()));
+    }
+
     @Override
     public boolean revokeToken(String token) {
         return withLock(db -> {
-            Optional<DatabaseEntry> entry = db.stream().filter(e -> Objects.equals(e.getToken(), token)).findAny();
-            if (entry.isPresent()) {
-                db.remove(entry.get());
-                saveDatabase(db);
-            }
-            return entry.isPresent();
+            boolean removed = db.remove(token) != null;
+            if (removed) saveDatabase(db.toList());
+            return removed;
         });
     }
 
     @Override
     public int revokeTokens(JwtUser user) {
         return withLock(db -> {
-            List<DatabaseEntry> entries = db.stream().filter(e -> Objects.equals(e.getUserId(), user.getId())).toList();
-            entries.forEach(db::remove);
-            if (!entries.isEmpty()) saveDatabase(db);
-            return entries.size();
+            int count = db.removeUser(user.getId()).size();
+            if (count > 0) saveDatabase(db.toList());
+            return count;
+        });
+    }
+
+    @Override
+    public int revokeTokens(Collection<String> tokens) {
+        return withLock(db -> {
+            int count = 0;
+            for (String token : tokens) {
+                if (db.remove(token) != null) count++;
+            }
+            if (count > 0) saveDatabase(db.toList());
+            return count;
+        });
+    }
+
+    @Override
+    public int revokeTokensOfUsers(Collection<Long> userIds) {
+        return withLock(db -> {
+            int count = 0;
+            for (Long userId : userIds) {
+                count += db.removeUser(userId).size();
+            }
+            if (count > 0) saveDatabase(db.toList());
+            return count;
         });
     }
 
@@ -151,7 +207,7 @@ abstract class CommonFilesTokenStore implements RefreshTokenStore {
         return withLock(db -> {
             int count = db.size();
             db.clear();
-            if (count > 0) saveDatabase(db);
+            if (count > 0) saveDatabase(db.toList());
             return count;
         });
     }
@@ -0,0 +1,170 @@
+/*
+ * MIT Licence
+ * Copyright (c) 2026 Simon Frankenberger
+ *
+ * Please see LICENCE.md for complete licence text.
+ */
+package eu.fraho.spring.securityJwt.files.service;
+
+import eu.fraho.spring.securityJwt.files.dto.DatabaseEntry;
+
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * In-memory database of the files token stores.
+ * <p>
+ * The entries are indexed by token, by user id and by their expiration (in buckets of one second), so lookups
+ * don't have to scan all entries and expired entries can be removed incrementally.
+ * This class is not thread-safe, the callers have to synchronize the access.
+ */
+class DatabaseIndex {
+    private final Map<String, DatabaseEntry> byToken = new LinkedHashMap<>();
+    private final Map<Long, Set<String>> byUser = new HashMap<>();
+    private final TreeMap<Long, Set<String>> byExpiration = new TreeMap<>();
+
+    /**
+     * Add or replace an entry.
+     *
+     * @param entry The entry
+     */
+    void put(DatabaseEntry entry) {
+        remove(entry.getToken());
+        byToken.put(entry.getToken(), entry);
+        byUser.computeIfAbsent(entry.getUserId(), k -> new LinkedHashSet<>()).add(entry.getToken());
+        byExpiration.computeIfAbsent(entry.getExpires().toEpochSecond(), k -> new LinkedHashSet<>()).add(entry.getToken());
+    }
+
+    void putAll(Collection<DatabaseEntry> entries) {
+        for (DatabaseEntry entry : entries) {
+            put(entry);
+        }
+    }
+
+    DatabaseEntry get(String token) {
+        return byToken.get(token);
+    }
+
+    /**
+     * Remove a single entry.
+     *
+     * @param token The token of the entry
+     * @return The removed entry, or {@code null} if it was not found
+     */
+    DatabaseEntry remove(String token) {
+        DatabaseEntry entry = byToken.remove(token);
+        if (entry != null) {
+            unindex(byUser, entry.getUserId(), token);
+            unindex(byExpiration, entry.getExpires().toEpochSecond(), token);
+        }
+        return entry;
+    }
+
+    /**
+     * Remove all entries of a user.
+     *
+     * @param userId The id of the user
+     * @return The removed entries
+     */
+    List<DatabaseEntry> removeUser(Long userId) {
+        Set<String> tokens = byUser.get(userId);
+        if (tokens == null) {
+            return Collections.emptyList();
+        }
+        List<DatabaseEntry> result = new ArrayList<>(tokens.size());
+        for (String token : new ArrayList<>(tokens)) {
+            result.add(remove(token));
+        }
+        return result;
+    }
+
+    /**
+     * List the entries of a user.
+     *
+     * @param userId The id of the user
+     * @return The entries of that user
+     */
+    List<DatabaseEntry> getUser(Long userId) {
+        Set<String> tokens = byUser.getOrDefault(userId, Collections.emptySet());
+        List<DatabaseEntry> result = new ArrayList<>(tokens.size());
+        for (String token : tokens) {
+            result.add(byToken.get(token));
+        }
+        return result;
+    }
+
+    /**
+     * @return All entries, in the order they were added
+     */
+    Collection<DatabaseEntry> values() {
+        return Collections.unmodifiableCollection(byToken.values());
+    }
+
+    /**
+     * @return A copy of all entries, in the order they were added
+     */
+    List<DatabaseEntry> toList() {
+        return new ArrayList<>(byToken.values());
+    }
+
+    int size() {
+        return byToken.size();
+    }
+
+    boolean isEmpty() {
+        return byToken.isEmpty();
+    }
+
+    void clear() {
+        byToken.clear();
+        byUser.clear();
+        byExpiration.clear();
+    }
+
+    /**
+     * Remove all entries which expired before the given time. Only the expired buckets are visited.
+     *
+     * @param now The current time
+     * @return The number of removed entries
+     */
+    int removeExpired(ZonedDateTime now) {
+        int count = 0;
+        while (!byExpiration.isEmpty() && byExpiration.firstKey() <= now.toEpochSecond()) {
+            Set<String> tokens = byExpiration.firstEntry().getValue();
+            boolean removedAll = true;
+            for (String token : new ArrayList<>(tokens)) {
+                DatabaseEntry entry = byToken.get(token);
+                if (entry.getExpires().isBefore(now)) {
+                    remove(token);
+                    count++;
+                } else {
+                    // expires within the current second
+                    removedAll = false;
+                }
+            }
+            if (!removedAll) {
+                break;
+            }
+        }
+        return count;
+    }
+
+    private static <K> void unindex(Map<K, Set<String>> index, K key, String token) {
+        Set<String> tokens = index.get(key);
+        if (tokens != null) {
+            tokens.remove(token);
+            if (tokens.isEmpty()) {
+                index.remove(key);
+            }
+        }
+    }
+}
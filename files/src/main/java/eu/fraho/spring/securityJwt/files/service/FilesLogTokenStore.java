@@ -0,0 +1,490 @@
+/*
+ * MIT Licence
+ * Copyright (c) 2026 Simon Frankenberger
+ *
+ * Please see LICENCE.md for complete licence text.
+ */
+package eu.fraho.spring.securityJwt.files.service;
+
+import eu.fraho.spring.securityJwt.base.config.RefreshProperties;
+import eu.fraho.spring.securityJwt.base.dto.JwtUser;
+import eu.fraho.spring.securityJwt.base.dto.RefreshToken;
+import eu.fraho.spring.securityJwt.base.dto.RefreshTokenEntry;
+import eu.fraho.spring.securityJwt.base.dto.TimeWithPeriod;
+import eu.fraho.spring.securityJwt.base.exceptions.RefreshException;
+import eu.fraho.spring.securityJwt.base.service.RefreshTokenPages;
+import eu.fraho.spring.securityJwt.base.service.RefreshTokenStore;
+import eu.fraho.spring.securityJwt.files.config.FilesProperties;
+import eu.fraho.spring.securityJwt.files.dto.DatabaseEntry;
+import lombok.NoArgsConstructor;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.core.userdetails.UserDetailsService;
+
+import java.io.IOException;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Stores the refresh tokens in an append-only log within the filesystem.
+ * <p>
+ * Every change is appended as a single tab separated line to the {@link FilesProperties#getLogFile() logFile}
+ * instead of rewriting the whole database. The tokens are kept in memory and the log is replayed on startup,
+ * an incomplete last line (e.g. after a crash) is discarded.
+ * <p>
+ * Changes are flushed to the disk using group commits: a single {@code fsync} covers all records appended by
+ * concurrent threads in the meantime, and each call returns only after its records are durable.
+ * When the log contains many obsolete records, it is compacted in the background.
+ * <p>
+ * Records:
+ * <ul>
+ * <li>{@code P <token> <userId> <expires (epoch millis)> <username (url encoded)>} - a token was saved</li>
+ * <li>{@code C <token>} - a token was used</li>
+ * <li>{@code R <token>} - a token was revoked</li>
+ * <li>{@code U <userId>} - all tokens of a user were revoked</li>
+ * <li>{@code A} - all tokens were revoked</li>
+ * </ul>
+ * This engine does not support {@link FilesProperties#isExternalLocks() external locks}, the log may only be used by
+ * a single application.
+ */
+@SuppressWarnings("SpringJavaAutowiredMembersInspection")
+@Slf4j
+@NoArgsConstructor
+public class FilesLogTokenStore implements RefreshTokenStore, DisposableBean {
+    private static final String PUT = "P";
+    private static final String CONSUME = "C";
+    private static final String REVOKE = "R";
+    private static final String REVOKE_USER = "U";
+    private static final String REVOKE_ALL = "A";
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Object syncMonitor = new Object();
+
+    // guarded by lock
+    private final DatabaseIndex database = new DatabaseIndex();
+    private long records;
+    private boolean compactionScheduled;
+    private List<String> compactionBacklog;
+
+    private volatile FileChannel channel;
+    private volatile long writtenSeq;
+
+    // guarded by syncMonitor
+    private long syncedSeq;
+    private boolean syncing;
+
+    private ExecutorService compactor;
+
+    protected RefreshProperties refreshProperties;
+    protected UserDetailsService userDetailsService;
+    protected FilesProperties filesProperties;
+
+    private static String putRecord(DatabaseEntry entry) {
+        return PUT + '\t' + entry.getToken() + '\t' + entry.getUserId() + '\t' + entry.getExpires().toInstant().toEpochMilli()
+                + '\t' + URLEncoder.encode(entry.getUsername(), StandardCharsets.UTF_8);
+    }
+
+    private static void write(FileChannel target, String record) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap((record + '\n').getBytes(StandardCharsets.UTF_8));
+        while (buffer.hasRemaining()) {
+            target.write(buffer);
+        }
+    }
+
+    @Override
+    public void saveToken(JwtUser user, String token) {
+        TimeWithPeriod expiration = refreshProperties.getExpiration();
+        DatabaseEntry entry = DatabaseEntry.builder()
+                .userId(user.getId())
+                .token(token)
+                .username(user.getUsername())
+                .expires(ZonedDateTime.now().plus(expiration.getQuantity(), expiration.getChronoUnit()))
+                .build();
+        withLock(() -> {
+            append(putRecord(entry));
+            database.put(entry);
+            return null;
+        });
+        awaitDurable(writtenSeq);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T extends JwtUser> Optional<T> useToken(String token) {
+        return removeToken(token, CONSUME)
+                .map(e -> (T) userDetailsService.loadUserByUsername(e.getUsername()));
+    }
+
+    @Override
+    public List<RefreshToken> listTokens(JwtUser user) {
+        return withLock(() -> {
+            ZonedDateTime now = ZonedDateTime.now();
+            List<RefreshToken> result = new ArrayList<>();
+            for (DatabaseEntry entry : database.getUser(user.getId())) {
+                result.add(toRefreshToken(entry, now));
+            }
+            return Collections.unmodifiableList(result);
+        });
+    }
+
+    @Override
+    public Map<Long, List<RefreshToken>> listTokens() {
+        return withLock(() -> {
+            ZonedDateTime now = ZonedDateTime.now();
+            Map<Long, List<RefreshToken>> result = new HashMap<>();
+            for (DatabaseEntry entry : database.values()) {
+                result.computeIfAbsent(entry.getUserId(), s -> new ArrayList<>()).add(toRefreshToken(entry, now));
+            }
+            result.replaceAll((s, t) -> Collections.unmodifiableList(t));
+            return Collections.unmodifiableMap(result);
+        });
+    }
+
+    @Override
+    public Stream<RefreshTokenEntry> streamTokens(Long userId, int pageSize) {
+        RefreshTokenPages.checkPageSize(pageSize);
+        // the database is kept in memory, only the references to the entries are copied while holding the lock
+        List<DatabaseEntry> entries = withLock(() -> userId == null ? database.toList() : database.getUser(userId));
+        ZonedDateTime now = ZonedDateTime.now();
+        return entries.stream().map(e -> new RefreshTokenEntry(e.getUserId(), toRefreshToken(e, now)));
+    }
+
+    @Override
+    public boolean revokeToken(String token) {
+        return removeToken(token, REVOKE).isPresent();
+    }
+
+    @Override
+    public int revokeTokens(JwtUser user) {
+        int count = withLock(() -> {
+            List<DatabaseEntry> entries = database.removeUser(user.getId());
+            if (!entries.isEmpty()) {
+                append(REVOKE_USER + '\t' + user.getId());
+            }
+            return entries.size();
+        });
+        awaitDurable(writtenSeq);
+        return count;
+    }
+
+    @Override
+    public int revokeTokens(Collection<String> tokens) {
+        int count = withLock(() -> {
+            int removed = 0;
+            for (String token : tokens) {
+                if (database.remove(token) != null) {
+                    append(REVOKE + '\t' + token);
+                    removed++;
+                }
+            }
+            return removed;
+        });
+        // a single group commit for all records
+        awaitDurable(writtenSeq);
+        return count;
+    }
+
+    @Override
+    public int revokeTokensOfUsers(Collection<Long> userIds) {
+        int count = withLock(() -> {
+            int removed = 0;
+            for (Long userId : userIds) {
+                List<DatabaseEntry> entries = database.removeUser(userId);
+                if (!entries.isEmpty()) {
+                    append(REVOKE_USER + '\t' + userId);
+                    removed += entries.size();
+                }
+            }
+            return removed;
+        });
+        awaitDurable(writtenSeq);
+        return count;
+    }
+
+    @Override
+    public int revokeTokens() {
+        int count = withLock(() -> {
+            int size = database.size();
+            if (size > 0) {
+                append(REVOKE_ALL);
+                database.clear();
+            }
+            return size;
+        });
+        awaitDurable(writtenSeq);
+        return count;
+    }
+
+    @Override
+    public synchronized void afterPropertiesSet() throws IOException {
+        if (channel != null) {
+            // already initialized, the log must not be replayed twice
+            return;
+        }
+        log.info("Using files implementation (log engine) to handle refresh tokens");
+        Path logFile = filesProperties.getLogFile();
+        if (Files.exists(logFile)) {
+            log.debug("Replaying existing log");
+            replay(logFile);
+        }
+        channel = FileChannel.open(logFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        compactor = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "fraho-jwt-files-compaction");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public void destroy() throws Exception {
+        if (compactor != null) {
+            compactor.shutdown();
+            if (!compactor.awaitTermination(30, TimeUnit.SECONDS)) {
+                log.warn("Compaction of the log did not finish in time");
+            }
+        }
+        if (channel != null) {
+            channel.close();
+        }
+    }
+
+    @Autowired
+    public void setRefreshProperties(@NonNull RefreshProperties refreshProperties) {
+        this.refreshProperties = refreshProperties;
+    }
+
+    @Autowired
+    public void setUserDetailsService(@NonNull UserDetailsService userDetailsService) {
+        this.userDetailsService = userDetailsService;
+    }
+
+    @Autowired
+    public void setFilesProperties(@NonNull FilesProperties filesProperties) {
+        this.filesProperties = filesProperties;
+    }
+
+    protected <T> T withLock(Supplier<T> action) {
+        try {
+            if (!lock.tryLock(5, TimeUnit.SECONDS)) {
+                throw new RefreshException("Lock timed out");
+            }
+            database.removeExpired(ZonedDateTime.now());
+            return action.get();
+        } catch (InterruptedException ie) {
+            throw new RefreshException("Interrupted", ie);
+        } finally {
+            if (lock.isHeldByCurrentThread()) lock.unlock();
+        }
+    }
+
+    protected Optional<DatabaseEntry> removeToken(String token, String type) {
+        DatabaseEntry entry = withLock(() -> {
+            DatabaseEntry found = database.remove(token);
+            if (found != null) {
+                append(type + '\t' + token);
+            }
+            return found;
+        });
+        if (entry == null) {
+            return Optional.empty();
+        }
+        awaitDurable(writtenSeq);
+        return Optional.of(entry);
+    }
+
+    /**
+     * Append a record to the log. Has to be called while holding the lock.
+     *
+     * @param record The record, without the line break
+     */
+    protected void append(String record) {
+        try {
+            write(channel, record);
+        } catch (IOException ioe) {
+            throw new RefreshException("Unable to append to logFile", ioe);
+        }
+        if (compactionBacklog != null) {
+            compactionBacklog.add(record);
+        }
+        records++;
+        writtenSeq++;
+        if (!compactionScheduled && records >= filesProperties.getCompactionThreshold() && records >= 2L * database.size()) {
+            compactionScheduled = true;
+            compactor.execute(this::compact);
+        }
+    }
+
+    /**
+     * Wait until the given record is durable, syncing the log if no other thread is doing so.
+     *
+     * @param seq The sequence number of the record
+     */
+    protected void awaitDurable(long seq) {
+        while (true) {
+            long target;
+            synchronized (syncMonitor) {
+                try {
+                    while (syncing && syncedSeq < seq) {
+                        syncMonitor.wait();
+                    }
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    throw new RefreshException("Interrupted", ie);
+                }
+                if (syncedSeq >= seq) {
+                    return;
+                }
+                // become the leader, syncing the records of all waiting threads at once
+                syncing = true;
+                target = writtenSeq;
+            }
+
+            boolean synced = false;
+            try {
+                channel.force(false);
+                synced = true;
+            } catch (ClosedChannelException cce) {
+                // replaced by a compaction, which already synced all records
+            } catch (IOException ioe) {
+                throw new RefreshException("Unable to sync logFile", ioe);
+            } finally {
+                synchronized (syncMonitor) {
+                    syncing = false;
+                    if (synced) {
+                        syncedSeq = Math.max(syncedSeq, target);
+                    }
+                    syncMonitor.notifyAll();
+                }
+            }
+        }
+    }
+
+    protected void compact() {
+        Path logFile = filesProperties.getLogFile();
+        Path tmpFile = logFile.resolveSibling(logFile.getFileName() + ".tmp");
+        List<String> snapshot = withLock(() -> {
+            List<String> result = new ArrayList<>(database.size());
+            for (DatabaseEntry entry : database.values()) {
+                result.add(putRecord(entry));
+            }
+            compactionBacklog = new ArrayList<>();
+            return result;
+        });
+
+        log.debug("Compacting log to {} records", snapshot.size());
+        try (FileChannel out = FileChannel.open(tmpFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            for (String record : snapshot) {
+                write(out, record);
+            }
+            withLock(() -> {
+                try {
+                    for (String record : compactionBacklog) {
+                        write(out, record);
+                    }
+                    out.force(true);
+                    Files.move(tmpFile, logFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                    FileChannel old = channel;
+                    channel = FileChannel.open(logFile, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+                    old.close();
+                    records = snapshot.size() + compactionBacklog.size();
+                } catch (IOException ioe) {
+                    throw new RefreshException("Unable to compact logFile", ioe);
+                }
+                synchronized (syncMonitor) {
+                    syncedSeq = Math.max(syncedSeq, writtenSeq);
+                    syncMonitor.notifyAll();
+                }
+                return null;
+            });
+        } catch (IOException | RefreshException e) {
+            log.error("Compaction of the log failed", e);
+            try {
+                Files.deleteIfExists(tmpFile);
+            } catch (IOException ioe) {
+                log.warn("Unable to remove temporary file {}", tmpFile, ioe);
+            }
+        } finally {
+            withLock(() -> {
+                compactionBacklog = null;
+                compactionScheduled = false;
+                return null;
+            });
+        }
+    }
+
+    protected void replay(Path logFile) throws IOException {
+        byte[] data = Files.readAllBytes(logFile);
+        int start = 0;
+        for (int i = 0; i < data.length; i++) {
+            if (data[i] == '\n') {
+                String record = new String(data, start, i - start, StandardCharsets.UTF_8);
+                try {
+                    replay(record);
+                } catch (RuntimeException e) {
+                    log.warn("Ignoring invalid record in {}: {}", logFile, record);
+                }
+                records++;
+                start = i + 1;
+            }
+        }
+        if (start < data.length) {
+            log.warn("Discarding incomplete record at the end of {}", logFile);
+            try (FileChannel truncate = FileChannel.open(logFile, StandardOpenOption.WRITE)) {
+                truncate.truncate(start);
+            }
+        }
+
+        database.removeExpired(ZonedDateTime.now());
+        log.debug("Replayed {} records, {} valid tokens", records, database.size());
+    }
+
+    private void replay(String record) {
+        String[] parts = record.split("\t");
+        switch (parts[0]) {
+            case PUT -> database.put(DatabaseEntry.builder()
+                    .token(parts[1])
+                    .userId(Long.valueOf(parts[2]))
+                    .expires(ZonedDateTime.ofInstant(Instant.ofEpochMilli(Long.parseLong(parts[3])), ZoneId.systemDefault()))
+                    .username(URLDecoder.decode(parts[4], StandardCharsets.UTF_8))
+                    .build());
+            case CONSUME, REVOKE -> database.remove(parts[1]);
+            case REVOKE_USER -> database.removeUser(Long.valueOf(parts[1]));
+            case REVOKE_ALL -> database.clear();
+            default -> throw new IllegalArgumentException("Unknown record type");
+        }
+    }
+
+    private RefreshToken toRefreshToken(DatabaseEntry entry, ZonedDateTime now) {
+        return RefreshToken.builder()
+                .token(entry.getToken())
+                .expiresIn(entry.getExpires().toEpochSecond() - now.toEpochSecond())
+                .build();
+    }
+}
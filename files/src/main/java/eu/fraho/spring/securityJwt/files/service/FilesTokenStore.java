@@ -15,21 +15,12 @@ import org.springframework.beans.factory.annotation.Autowired;
 
 import java.io.IOException;
 import java.nio.file.Files;
-import java.time.ZonedDateTime;
-import java.util.ArrayList;
 import java.util.List;
 
 @Slf4j
 public class FilesTokenStore extends CommonFilesTokenStore {
-    protected final List<DatabaseEntry> database = new ArrayList<>();
     private ObjectMapper objectMapper;
 
-    protected List<DatabaseEntry> getDatabase() {
-        ZonedDateTime now = ZonedDateTime.now();
-        database.removeIf(e -> e.getExpires().isBefore(now));
-        return database;
-    }
-
     protected void saveDatabase(List<DatabaseEntry> database) {
         try {
             Files.write(filesProperties.getDatabaseFile(), objectMapper.writerWithDefaultPrettyPrinter().writeValueAsBytes(database));
@@ -43,7 +34,7 @@ public class FilesTokenStore extends CommonFilesTokenStore {
         log.info("Using files implementation to handle refresh tokens");
         if (Files.exists(filesProperties.getDatabaseFile())) {
             log.debug("Loading existing store");
-            database.addAll(objectMapper.readValue(Files.readAllBytes(filesProperties.getDatabaseFile()), new TypeReference<>() {
+            loadDatabase(objectMapper.readValue(Files.readAllBytes(filesProperties.getDatabaseFile()), new TypeReference<>() {
             }));
         }
     }
@@ -15,21 +15,12 @@ import tools.jackson.databind.ObjectMapper;
 
 import java.io.IOException;
 import java.nio.file.Files;
-import java.time.ZonedDateTime;
-import java.util.ArrayList;
 import java.util.List;
 
 @Slf4j
 public class FilesTokenStoreJackson3 extends CommonFilesTokenStore {
-    protected final List<DatabaseEntry> database = new ArrayList<>();
     private ObjectMapper objectMapper;
 
-    protected List<DatabaseEntry> getDatabase() {
-        ZonedDateTime now = ZonedDateTime.now();
-        database.removeIf(e -> e.getExpires().isBefore(now));
-        return database;
-    }
-
     protected void saveDatabase(List<DatabaseEntry> database) {
         try {
             Files.write(filesProperties.getDatabaseFile(), objectMapper.writerWithDefaultPrettyPrinter().writeValueAsBytes(database));
@@ -43,10 +34,8 @@ public class FilesTokenStoreJackson3 extends CommonFilesTokenStore {
         log.info("Using files implementation to handle refresh tokens");
         if (Files.exists(filesProperties.getDatabaseFile())) {
             log.debug("Loading existing store");
-            database.addAll(objectMapper.readValue(Files.readAllBytes(filesProperties.getDatabaseFile()), new TypeReference<>() {
+            loadDatabase(objectMapper.readValue(Files.readAllBytes(filesProperties.getDatabaseFile()), new TypeReference<>() {
             }));
-            ZonedDateTime now = ZonedDateTime.now();
-            database.removeIf(e -> e.getExpires().isBefore(now));
         }
     }
 
@@ -0,0 +1,148 @@
+/*
+ * MIT Licence
+ * Copyright (c) 2026 Simon Frankenberger
+ *
+ * Please see LICENCE.md for complete licence text.
+ */
+package eu.fraho.spring.securityJwt.files;
+
+import eu.fraho.spring.securityJwt.base.dto.JwtUser;
+import eu.fraho.spring.securityJwt.base.dto.RefreshToken;
+import eu.fraho.spring.securityJwt.base.service.RefreshTokenStore;
+import eu.fraho.spring.securityJwt.base.ut.service.AbstractJwtTokenServiceWithRefreshTest;
+import eu.fraho.spring.securityJwt.files.config.FilesProperties;
+import eu.fraho.spring.securityJwt.files.service.FilesLogTokenStore;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+public class AbstractJwtServiceRefreshFilesLogTest extends AbstractJwtTokenServiceWithRefreshTest {
+    private static final Logger logger = LoggerFactory.getLogger(AbstractJwtServiceRefreshFilesLogTest.class);
+    private final FilesLogTokenStore refreshTokenStore;
+
+    public AbstractJwtServiceRefreshFilesLogTest() throws Exception {
+        super();
+        refreshTokenStore = createStore();
+    }
+
+    @AfterAll
+    public static void cleanup() {
+        for (String file : List.of("tokens.log", "tokens.log.tmp", "")) {
+            try {
+                Files.deleteIfExists(Paths.get("test_datadir_log/", file));
+            } catch (IOException e) {
+                logger.error("Could not cleanup {}", file, e);
+            }
+        }
+    }
+
+    private FilesProperties getFilesProperties() throws IOException {
+        FilesProperties result = new FilesProperties();
+        result.setDataDir(Paths.get("test_datadir_log/"));
+        result.setCompactionThreshold(100);
+        result.afterPropertiesSet();
+        return result;
+    }
+
+    private FilesLogTokenStore createStore() throws Exception {
+        FilesLogTokenStore store = new FilesLogTokenStore();
+        store.setRefreshProperties(getRefreshProperties());
+        store.setUserDetailsService(getUserdetailsService());
+        store.setFilesProperties(getFilesProperties());
+        store.afterPropertiesSet();
+        return store;
+    }
+
+    @Override
+    protected RefreshTokenStore getRefreshStore() {
+        return refreshTokenStore;
+    }
+
+    @Test
+    public void testReplay() throws Exception {
+        JwtUser user = getJwtUser();
+        refreshTokenStore.saveToken(user, "tokenA");
+        refreshTokenStore.saveToken(user, "tokenB");
+        refreshTokenStore.saveToken(user, "tokenC");
+        refreshTokenStore.useToken("tokenA");
+        refreshTokenStore.revokeToken("tokenB");
+
+        FilesLogTokenStore replayed = createStore();
+        try {
+            List<RefreshToken> tokens = replayed.listTokens(user);
+            Assertions.assertEquals(1, tokens.size(), "Unexpected token count");
+            Assertions.assertEquals("tokenC", tokens.get(0).getToken());
+        } finally {
+            replayed.destroy();
+        }
+    }
+
+    @Test
+    public void testInitializeTwice() throws Exception {
+        JwtUser user = getJwtUser();
+        refreshTokenStore.saveToken(user, "tokenA");
+        Path logFile = getFilesProperties().getLogFile();
+
+        FilesLogTokenStore replayed = createStore();
+        try {
+            replayed.afterPropertiesSet();
+            Assertions.assertEquals(1, replayed.listTokens(user).size(), "Unexpected token count");
+            int records = Files.readAllLines(logFile).size();
+            replayed.saveToken(user, "tokenB");
+            Assertions.assertEquals(records + 1, Files.readAllLines(logFile).size(), "Record written twice");
+        } finally {
+            replayed.destroy();
+        }
+    }
+
+    @Test
+    public void testReplayIncompleteRecord() throws Exception {
+        JwtUser user = getJwtUser();
+        refreshTokenStore.saveToken(user, "tokenA");
+        Path logFile = getFilesProperties().getLogFile();
+        Files.write(logFile, "P\ttokenB\t1".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+
+        FilesLogTokenStore replayed = createStore();
+        try {
+            Assertions.assertEquals(1, replayed.listTokens(user).size(), "Unexpected token count");
+            Assertions.assertTrue(new String(Files.readAllBytes(logFile), StandardCharsets.UTF_8).endsWith("\n"),
+                    "Incomplete record was not discarded");
+        } finally {
+            replayed.destroy();
+        }
+    }
+
+    @Test
+    public void testCompaction() throws Exception {
+        JwtUser user = getJwtUser();
+        for (int i = 0; i < 200; i++) {
+            refreshTokenStore.saveToken(user, "token" + i);
+            refreshTokenStore.useToken("token" + i);
+        }
+        refreshTokenStore.saveToken(user, "tokenX");
+
+        Path logFile = getFilesProperties().getLogFile();
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (Files.readAllLines(logFile).size() >= 100 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+        Assertions.assertTrue(Files.readAllLines(logFile).size() < 100, "Log was not compacted");
+
+        FilesLogTokenStore replayed = createStore();
+        try {
+            Assertions.assertEquals(1, replayed.listTokens(user).size(), "Unexpected token count");
+        } finally {
+            replayed.destroy();
+        }
+    }
+}
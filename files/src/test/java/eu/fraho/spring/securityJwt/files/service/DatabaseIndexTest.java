@@ -0,0 +1,81 @@
+/*
+ * MIT Licence
+ * Copyright (c) 2026 Simon Frankenberger
+ *
+ * Please see LICENCE.md for complete licence text.
+ */
+package eu.fraho.spring.securityJwt.files.service;
+
+import eu.fraho.spring.securityJwt.files.dto.DatabaseEntry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.ZonedDateTime;
+import java.util.List;
+
+public class DatabaseIndexTest {
+    private final ZonedDateTime now = ZonedDateTime.now();
+
+    private DatabaseEntry entry(String token, long userId, long expiresInMillis) {
+        return DatabaseEntry.builder()
+                .token(token)
+                .userId(userId)
+                .username("user" + userId)
+                .expires(now.plusNanos(expiresInMillis * 1_000_000))
+                .build();
+    }
+
+    @Test
+    public void testPutAndRemove() {
+        DatabaseIndex index = new DatabaseIndex();
+        index.put(entry("a", 1, 10_000));
+        index.put(entry("b", 1, 10_000));
+        index.put(entry("c", 2, 10_000));
+
+        Assertions.assertEquals(3, index.size());
+        Assertions.assertEquals(2, index.getUser(1L).size());
+        Assertions.assertEquals("a", index.remove("a").getToken());
+        Assertions.assertNull(index.remove("a"));
+        Assertions.assertEquals(List.of("b"), index.getUser(1L).stream().map(DatabaseEntry::getToken).toList());
+    }
+
+    @Test
+    public void testReplace() {
+        DatabaseIndex index = new DatabaseIndex();
+        index.put(entry("a", 1, 10_000));
+        index.put(entry("a", 2, 20_000));
+
+        Assertions.assertEquals(1, index.size());
+        Assertions.assertTrue(index.getUser(1L).isEmpty(), "Old user index not updated");
+        Assertions.assertEquals(1, index.getUser(2L).size());
+        Assertions.assertEquals(0, index.removeExpired(now.plusSeconds(15)), "Old expiration index not updated");
+    }
+
+    @Test
+    public void testRemoveUser() {
+        DatabaseIndex index = new DatabaseIndex();
+        index.put(entry("a", 1, 10_000));
+        index.put(entry("b", 1, 10_000));
+        index.put(entry("c", 2, 10_000));
+
+        Assertions.assertEquals(2, index.removeUser(1L).size());
+        Assertions.assertEquals(0, index.removeUser(1L).size());
+        Assertions.assertEquals(1, index.size());
+    }
+
+    @Test
+    public void testRemoveExpired() {
+        DatabaseIndex index = new DatabaseIndex();
+        index.put(entry("a", 1, -1_000));
+        index.put(entry("b", 1, 100));
+        index.put(entry("c", 2, 10_000));
+
+        Assertions.assertEquals(1, index.removeExpired(now));
+        Assertions.assertNull(index.get("a"));
+        Assertions.assertEquals(1, index.removeExpired(now.plusSeconds(1)));
+        Assertions.assertNull(index.get("b"));
+        Assertions.assertEquals(List.of("c"), index.toList().stream().map(DatabaseEntry::getToken).toList());
+        Assertions.assertEquals(1, index.removeExpired(now.plusSeconds(11)));
+        Assertions.assertTrue(index.isEmpty());
+    }
+}
@@ -10,7 +10,9 @@ import eu.fraho.spring.securityJwt.base.config.RefreshProperties;
 import eu.fraho.spring.securityJwt.base.service.RefreshTokenStore;
 import eu.fraho.spring.securityJwt.base.starter.SecurityJwtBaseAutoConfiguration;
 import eu.fraho.spring.securityJwt.base.starter.SecurityJwtNoRefreshStoreAutoConfiguration;
+import eu.fraho.spring.securityJwt.hibernate.config.HibernateProperties;
 import eu.fraho.spring.securityJwt.hibernate.dto.RefreshTokenEntity;
+import eu.fraho.spring.securityJwt.hibernate.service.ExpiredTokenPurger;
 import eu.fraho.spring.securityJwt.hibernate.service.HibernateTokenStore;
 import jakarta.persistence.EntityManager;
 import lombok.extern.slf4j.Slf4j;
@@ -18,10 +20,12 @@ import org.springframework.boot.autoconfigure.AutoConfigurationPackage;
 import org.springframework.boot.autoconfigure.AutoConfigureAfter;
 import org.springframework.boot.autoconfigure.AutoConfigureBefore;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.autoconfigure.domain.EntityScan;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.transaction.PlatformTransactionManager;
 
 @Configuration
 @AutoConfigureAfter(SecurityJwtBaseAutoConfiguration.class)
@@ -29,16 +33,40 @@ import org.springframework.security.core.userdetails.UserDetailsService;
 @AutoConfigurationPackage(basePackageClasses = RefreshTokenEntity.class)
 @Slf4j
 public class SecurityJwtHibernateAutoConfiguration {
+    @Bean
+    public HibernateProperties hibernateProperties() {
+        log.debug("Register HibernateProperties");
+        return new HibernateProperties();
+    }
+
     @Bean
     @ConditionalOnMissingBean
     public RefreshTokenStore refreshTokenStore(final RefreshProperties refreshProperties,
+                                               final HibernateProperties hibernateProperties,
                                                final UserDetailsService userDetailsService,
                                                final EntityManager entityManager) {
         log.debug("Register HibernateTokenStore");
         HibernateTokenStore store = new HibernateTokenStore();
         store.setRefreshProperties(refreshProperties);
+        store.setHibernateProperties(hibernateProperties);
         store.setUserDetailsService(userDetailsService);
         store.setEntityManager(entityManager);
         return store;
     }
+
+    @Bean
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(prefix = "fraho.jwt.refresh.hibernate", name = "purge-enabled", havingValue = "true")
+    public ExpiredTokenPurger expiredTokenPurger(final RefreshProperties refreshProperties,
+                                                 final HibernateProperties hibernateProperties,
+                                                 final EntityManager entityManager,
+                                                 final PlatformTransactionManager transactionManager) {
+        log.debug("Register ExpiredTokenPurger");
+        ExpiredTokenPurger purger = new ExpiredTokenPurger();
+        purger.setRefreshProperties(refreshProperties);
+        purger.setHibernateProperties(hibernateProperties);
+        purger.setEntityManager(entityManager);
+        purger.setTransactionManager(transactionManager);
+        return purger;
+    }
 }
@@ -0,0 +1,75 @@
+/*
+ * MIT Licence
+ * Copyright (c) 2026 Simon Frankenberger
+ *
+ * Please see LICENCE.md for complete licence text.
+ */
+package eu.fraho.spring.securityJwt.hibernate.config;
+
+import eu.fraho.spring.securityJwt.base.dto.TimeWithPeriod;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@ConfigurationProperties(prefix = "fraho.jwt.refresh.hibernate")
+@Component
+@Getter
+@Setter
+@Slf4j
+public class HibernateProperties implements InitializingBean {
+    /**
+     * Regularly delete the expired tokens from the database? Only used by the boot-starter to register the purger.
+     */
+    private boolean purgeEnabled = false;
+
+    /**
+     * How often are the expired tokens deleted?
+     */
+    @NonNull
+    private TimeWithPeriod purgeInterval = new TimeWithPeriod("1 hour");
+
+    /**
+     * Maximum number of tokens deleted within a single transaction.
+     */
+    private int purgeBatchSize = 1_000;
+
+    /**
+     * Pause (in milliseconds) between two batches.
+     */
+    private int purgePause = 100;
+
+    /**
+     * Coordinate the purge between multiple nodes using a lease in the table "jwt_refresh_lease"?
+     * Only the node holding the lease purges the tokens during an interval.
+     */
+    private boolean purgeLease = false;
+
+    /**
+     * Consume the refresh tokens using a single {@code DELETE ... RETURNING} statement on PostgreSQL and MariaDB?
+     * The native statement uses the default table and column names ("jwt_refresh", "token_hash", "created" and
+     * "username") and is not covered by the automated tests against a real database.
+     */
+    private boolean deleteReturning = false;
+
+    @Override
+    public void afterPropertiesSet() {
+        if (purgeInterval.toSeconds() < 1) {
+            log.warn("Purge interval too short ({} < 1 second), forcing to default ({})", purgeInterval, "1 hour");
+            purgeInterval = new TimeWithPeriod("1 hour");
+        }
+        if (purgeBatchSize < 1 || purgeBatchSize > 100_000) {
+            log.warn("Purge batch size out of bounds ({} <= {} <= {}), forcing to default ({})",
+                    1, purgeBatchSize, 100_000, 1_000);
+            purgeBatchSize = 1_000;
+        }
+        if (purgePause < 0 || purgePause > 60_000) {
+            log.warn("Purge pause out of bounds ({} <= {} <= {}), forcing to default ({})",
+                    0, purgePause, 60_000, 100);
+            purgePause = 100;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+/*
+ * MIT Licence
+ * Copyright (c) 2026 Simon Frankenberger
+ *
+ * Please see LICENCE.md for complete licence text.
+ */
+package eu.fraho.spring.securityJwt.hibernate.dto;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Convert;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+
+import java.time.ZonedDateTime;
+
+@Entity
+@Table(name = "jwt_refresh_lease")
+@Getter
+@Setter
+@ToString
+@NoArgsConstructor
+@AllArgsConstructor
+public class PurgeLeaseEntity {
+    @Id
+    @Column(length = 64)
+    private String name;
+
+    @Column(nullable = false, length = 64)
+    private String owner;
+
+    @Column(nullable = false)
+    @Convert(converter = ZonedDateTimeConverter.class)
+    private ZonedDateTime expires;
+}
@@ -12,6 +12,8 @@ import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
 import lombok.AccessLevel;
 import lombok.Builder;
@@ -21,10 +23,17 @@ import lombok.NoArgsConstructor;
 import lombok.Setter;
 import lombok.ToString;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.ZonedDateTime;
+import java.util.HexFormat;
 
 @Entity
-@Table(name = "jwt_refresh")
+@Table(name = "jwt_refresh", indexes = {
+        @Index(name = "jwt_refresh_user_created_idx", columnList = "userId, created"),
+        @Index(name = "jwt_refresh_created_idx", columnList = "created")
+})
 @Getter
 @Setter
 @EqualsAndHashCode(of = {"userId", "username", "token"})
@@ -32,9 +41,10 @@ import java.time.ZonedDateTime;
 @NoArgsConstructor
 public class RefreshTokenEntity {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "jwt_refresh_seq")
+    @SequenceGenerator(name = "jwt_refresh_seq", sequenceName = "jwt_refresh_seq", allocationSize = 50)
     @Setter(AccessLevel.NONE)
-    private Long id = 0L;
+    private Long id;
 
     @Column(updatable = false)
     @Setter(AccessLevel.NONE)
@@ -45,13 +55,33 @@ public class RefreshTokenEntity {
 
     private String username;
 
-    @Column(unique = true)
     private String token;
 
+    /**
+     * SHA-256 of the {@link #token} (lowercase hex), used to look up the tokens with a fixed-length unique index.
+     */
+    @Column(unique = true, nullable = false, length = 64)
+    @Setter(AccessLevel.NONE)
+    private String tokenHash;
+
     @Builder
     private RefreshTokenEntity(Long userId, String username, String token) {
         this.userId = userId;
         this.username = username;
+        setToken(token);
+    }
+
+    public static String hashToken(String token) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException nsae) {
+            throw new IllegalStateException("SHA-256 not supported", nsae);
+        }
+    }
+
+    public void setToken(String token) {
         this.token = token;
+        this.tokenHash = token == null ? null : hashToken(token);
     }
 }
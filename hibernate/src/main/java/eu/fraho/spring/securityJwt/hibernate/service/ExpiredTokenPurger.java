@@ -0,0 +1,200 @@
+/*
+ * MIT Licence
+ * Copyright (c) 2026 Simon Frankenberger
+ *
+ * Please see LICENCE.md for complete licence text.
+ */
+package eu.fraho.spring.securityJwt.hibernate.service;
+
+import eu.fraho.spring.securityJwt.base.config.RefreshProperties;
+import eu.fraho.spring.securityJwt.hibernate.config.HibernateProperties;
+import eu.fraho.spring.securityJwt.hibernate.dto.PurgeLeaseEntity;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.NoArgsConstructor;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Regularly deletes the expired refresh tokens from the database.
+ * <p>
+ * The tokens are deleted in batches of {@link HibernateProperties#getPurgeBatchSize()} rows, each within its own
+ * transaction and with a short pause in between, so no long running locks are held.
+ * If {@link HibernateProperties#isPurgeLease()} is enabled, only the node holding the lease in the table
+ * "jwt_refresh_lease" purges the tokens during an interval.
+ */
+@SuppressWarnings({"SpringJavaAutowiredMembersInspection", "JpaQlInspection"})
+@Slf4j
+@NoArgsConstructor
+public class ExpiredTokenPurger implements InitializingBean, DisposableBean {
+    public static final String LEASE_NAME = "purge";
+
+    private final String owner = UUID.randomUUID().toString();
+    private final AtomicLong purgedTokens = new AtomicLong();
+    private volatile int lastPurgedTokens;
+    private volatile boolean stopped;
+    private ScheduledExecutorService scheduler;
+
+    private RefreshProperties refreshProperties;
+    private HibernateProperties hibernateProperties;
+    private EntityManager entityManager;
+    private TransactionTemplate transactionTemplate;
+
+    /**
+     * Delete all expired tokens.
+     *
+     * @return The number of deleted tokens, 0 if the lease is held by another node
+     */
+    public int purge() {
+        if (hibernateProperties.isPurgeLease() && !acquireLease()) {
+            log.debug("Purge lease is held by another node, skipping");
+            return 0;
+        }
+
+        ZonedDateTime expiration = ZonedDateTime.now().minusSeconds(refreshProperties.getExpiration().toSeconds());
+        int total = 0;
+        while (!stopped) {
+            Integer deleted = transactionTemplate.execute(status -> deleteBatch(expiration));
+            total += deleted == null ? 0 : deleted;
+            if (deleted == null || deleted < hibernateProperties.getPurgeBatchSize()) {
+                break;
+            }
+            try {
+                Thread.sleep(hibernateProperties.getPurgePause());
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+
+        purgedTokens.addAndGet(total);
+        lastPurgedTokens = total;
+        log.debug("Purged {} expired refresh tokens", total);
+        return total;
+    }
+
+    /**
+     * @return The number of tokens deleted since the start of the application
+     */
+    public long getPurgedTokens() {
+        return purgedTokens.get();
+    }
+
+    /**
+     * @return The number of tokens deleted by the last purge
+     */
+    public int getLastPurgedTokens() {
+        return lastPurgedTokens;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        log.info("Purging expired refresh tokens every {}", hibernateProperties.getPurgeInterval());
+        long interval = hibernateProperties.getPurgeInterval().toSeconds();
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "fraho-jwt-refresh-purge");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::run, interval, interval, TimeUnit.SECONDS);
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        stopped = true;
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            if (!scheduler.awaitTermination(30, TimeUnit.SECONDS)) {
+                log.warn("Purge of expired refresh tokens did not finish in time");
+            }
+        }
+    }
+
+    @Autowired
+    public void setRefreshProperties(@NonNull RefreshProperties refreshProperties) {
+        this.refreshProperties = refreshProperties;
+    }
+
+    @Autowired
+    public void setHibernateProperties(@NonNull HibernateProperties hibernateProperties) {
+        this.hibernateProperties = hibernateProperties;
+    }
+
+    @PersistenceContext
+    public void setEntityManager(@NonNull EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    @Autowired
+    public void setTransactionManager(@NonNull PlatformTransactionManager transactionManager) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    protected void run() {
+        try {
+            purge();
+        } catch (RuntimeException e) {
+            log.warn("Purging expired refresh tokens failed", e);
+        }
+    }
+
+    /**
+     * Delete a single batch of expired tokens. Has to be called within a transaction.
+     *
+     * @param expiration Tokens created before this time are expired
+     * @return The number of deleted tokens
+     */
+    protected int deleteBatch(ZonedDateTime expiration) {
+        List<Long> ids = entityManager.createQuery("SELECT o.id FROM RefreshTokenEntity o WHERE o.created < :expiration", Long.class)
+                .setParameter("expiration", expiration)
+                .setMaxResults(hibernateProperties.getPurgeBatchSize())
+                .getResultList();
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        return entityManager.createQuery("DELETE FROM RefreshTokenEntity o WHERE o.id IN :ids")
+                .setParameter("ids", ids)
+                .executeUpdate();
+    }
+
+    /**
+     * Acquire or renew the lease for the current interval.
+     *
+     * @return {@code true} if this node holds the lease
+     */
+    protected boolean acquireLease() {
+        ZonedDateTime now = ZonedDateTime.now();
+        ZonedDateTime expires = now.plusSeconds(hibernateProperties.getPurgeInterval().toSeconds());
+        Integer updated = transactionTemplate.execute(status -> entityManager.createQuery(
+                        "UPDATE PurgeLeaseEntity o SET o.owner = :owner, o.expires = :expires WHERE o.name = :name AND (o.expires < :now OR o.owner = :owner)")
+                .setParameter("owner", owner)
+                .setParameter("expires", expires)
+                .setParameter("name", LEASE_NAME)
+                .setParameter("now", now)
+                .executeUpdate());
+        if (updated != null && updated == 1) {
+            return true;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> entityManager.persist(new PurgeLeaseEntity(LEASE_NAME, owner, expires)));
+            return true;
+        } catch (RuntimeException e) {
+            // the lease exists and is held by another node
+            log.trace("Unable to create purge lease", e);
+            return false;
+        }
+    }
+}
@@ -9,7 +9,10 @@ package eu.fraho.spring.securityJwt.hibernate.service;
 import eu.fraho.spring.securityJwt.base.config.RefreshProperties;
 import eu.fraho.spring.securityJwt.base.dto.JwtUser;
 import eu.fraho.spring.securityJwt.base.dto.RefreshToken;
+import eu.fraho.spring.securityJwt.base.dto.RefreshTokenEntry;
+import eu.fraho.spring.securityJwt.base.service.RefreshTokenPages;
 import eu.fraho.spring.securityJwt.base.service.RefreshTokenStore;
+import eu.fraho.spring.securityJwt.hibernate.config.HibernateProperties;
 import eu.fraho.spring.securityJwt.hibernate.dto.RefreshTokenEntity;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
@@ -19,59 +22,49 @@ import lombok.AllArgsConstructor;
 import lombok.NoArgsConstructor;
 import lombok.NonNull;
 import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Session;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.sql.Timestamp;
 import java.time.ZonedDateTime;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @SuppressWarnings({"SpringJavaAutowiredMembersInspection", "JpaQlInspection"})
 @Slf4j
 @NoArgsConstructor
 @AllArgsConstructor
 public class HibernateTokenStore implements RefreshTokenStore {
+    private static final Set<String> DELETE_RETURNING_DATABASES = Set.of("PostgreSQL", "MariaDB");
+    // stay well below the parameter limits of the databases (e.g. 1000 elements of an IN-list on oracle)
+    private static final int IN_LIST_BATCH_SIZE = 1000;
+
     private RefreshProperties refreshProperties;
     private UserDetailsService userDetailsService;
     private EntityManager entityManager;
+    // null while not yet detected, final to keep it out of the generated all-args constructor
+    private final AtomicReference<Boolean> deleteReturning = new AtomicReference<>(Boolean.FALSE);
 
     @Override
     @Transactional
     @SuppressWarnings("unchecked")
     public <T extends JwtUser> Optional<T> useToken(String token) {
-        ZonedDateTime expiration = ZonedDateTime.now().minusSeconds(refreshProperties.getExpiration().toSeconds());
-        // first load the token from the database
-        TypedQuery<RefreshTokenEntity> queryLoad = entityManager.createQuery("SELECT o FROM RefreshTokenEntity o WHERE o.token = :token AND o.created >= :expiration", RefreshTokenEntity.class);
-        queryLoad.setParameter("token", token);
-        queryLoad.setParameter("expiration", expiration);
-        List<RefreshTokenEntity> loadResultList = queryLoad.getResultList();
-        if (loadResultList.size() != 1) {
-            return Optional.empty();
-        }
-
-        RefreshTokenEntity refreshToken = loadResultList.get(0);
-        Optional<T> resultUser = Optional.ofNullable((T) userDetailsService.loadUserByUsername(refreshToken.getUsername()));
-
-        if (resultUser.isPresent()) {
-            Query query = entityManager.createQuery("DELETE FROM RefreshTokenEntity o WHERE o.id = :id");
-            query.setParameter("id", refreshToken.getId());
-
-            if (query.executeUpdate() == 0) {
-                resultUser = Optional.empty();
-            }
-        }
-
-        return resultUser;
+        Optional<String> username = supportsDeleteReturning() ? consumeReturning(token) : consumeConditional(token);
+        return username.map(u -> (T) userDetailsService.loadUserByUsername(u));
     }
 
-
     @Override
     @Transactional(readOnly = true)
     public List<RefreshToken> listTokens(JwtUser user) {
@@ -121,11 +114,42 @@ public class HibernateTokenStore implements RefreshTokenStore {
         return Collections.unmodifiableMap(result);
     }
 
+    /**
+     * Stream the tokens using keyset pagination on the id: each page is a separate query for the next
+     * {@code pageSize} rows after the last id of the previous page. Contrary to scrollable results no
+     * connection or transaction is held between the pages, so the stream may be consumed slowly.
+     * Only the required columns are selected, the rows are not attached to the persistence context.
+     */
+    @Override
+    public Stream<RefreshTokenEntry> streamTokens(Long userId, int pageSize) {
+        RefreshTokenPages.checkPageSize(pageSize);
+        ZonedDateTime expiration = ZonedDateTime.now().minusSeconds(refreshProperties.getExpiration().toSeconds());
+        long[] lastId = {Long.MIN_VALUE};
+        boolean[] finished = {false};
+        return RefreshTokenPages.stream(() -> {
+            if (finished[0]) {
+                return null;
+            }
+            List<Object[]> rows = createPageQuery(userId, expiration, lastId[0]).setMaxResults(pageSize).getResultList();
+            finished[0] = rows.size() < pageSize;
+            if (rows.isEmpty()) {
+                return null;
+            }
+            lastId[0] = (Long) rows.get(rows.size() - 1)[0];
+            return rows.stream()
+                    .map(r -> new RefreshTokenEntry((Long) r[1], RefreshToken.builder()
+                            .token((String) r[2])
+                            .expiresIn(calculateExpiration((ZonedDateTime) r[3]))
+                            .build()))
+                    .toList();
+        });
+    }
+
     @Override
     @Transactional
     public boolean revokeToken(String token) {
-        Query query = entityManager.createQuery("DELETE FROM RefreshTokenEntity o WHERE o.token = :token ");
-        query.setParameter("token", token);
+        Query query = entityManager.createQuery("DELETE FROM RefreshTokenEntity o WHERE o.tokenHash = :tokenHash");
+        query.setParameter("tokenHash", RefreshTokenEntity.hashToken(token));
         return query.executeUpdate() != 0;
     }
 
@@ -137,6 +161,19 @@ public class HibernateTokenStore implements RefreshTokenStore {
         return query.executeUpdate();
     }
 
+    @Override
+    @Transactional
+    public int revokeTokens(Collection<String> tokens) {
+        List<String> tokenHashes = tokens.stream().map(RefreshTokenEntity::hashToken).toList();
+        return deleteIn("DELETE FROM RefreshTokenEntity o WHERE o.tokenHash IN :values", tokenHashes);
+    }
+
+    @Override
+    @Transactional
+    public int revokeTokensOfUsers(Collection<Long> userIds) {
+        return deleteIn("DELETE FROM RefreshTokenEntity o WHERE o.userId IN :values", new ArrayList<>(userIds));
+    }
+
     @Override
     @Transactional
     public int revokeTokens() {
@@ -159,11 +196,105 @@ public class HibernateTokenStore implements RefreshTokenStore {
         this.entityManager = entityManager;
     }
 
+    @Autowired(required = false)
+    public void setHibernateProperties(@NonNull HibernateProperties hibernateProperties) {
+        // the database is detected on first use
+        deleteReturning.set(hibernateProperties.isDeleteReturning() ? null : Boolean.FALSE);
+    }
+
     @Override
     public void afterPropertiesSet() {
         log.info("Using hibernate implementation to handle refresh tokens");
     }
 
+    /**
+     * Consume the token using a single {@code DELETE ... RETURNING} statement. The native statement relies on the
+     * default table and column names of {@link RefreshTokenEntity}.
+     *
+     * @param token The token to consume
+     * @return The username of the deleted token
+     */
+    protected Optional<String> consumeReturning(String token) {
+        ZonedDateTime expiration = ZonedDateTime.now().minusSeconds(refreshProperties.getExpiration().toSeconds());
+        Query query = entityManager.createNativeQuery("DELETE FROM jwt_refresh WHERE token_hash = :tokenHash AND created >= :expiration RETURNING username");
+        query.setParameter("tokenHash", RefreshTokenEntity.hashToken(token));
+        query.setParameter("expiration", Timestamp.from(expiration.toInstant()));
+        List<?> result = query.getResultList();
+        return result.size() == 1 ? Optional.of((String) result.get(0)) : Optional.empty();
+    }
+
+    /**
+     * Consume the token by loading its username and deleting it conditionally afterwards.
+     * Only the caller whose delete matched the token wins, no row lock is held in between.
+     *
+     * @param token The token to consume
+     * @return The username of the deleted token
+     */
+    protected Optional<String> consumeConditional(String token) {
+        String tokenHash = RefreshTokenEntity.hashToken(token);
+        ZonedDateTime expiration = ZonedDateTime.now().minusSeconds(refreshProperties.getExpiration().toSeconds());
+        TypedQuery<String> queryLoad = entityManager.createQuery("SELECT o.username FROM RefreshTokenEntity o WHERE o.tokenHash = :tokenHash AND o.created >= :expiration", String.class);
+        queryLoad.setParameter("tokenHash", tokenHash);
+        queryLoad.setParameter("expiration", expiration);
+        List<String> usernames = queryLoad.getResultList();
+        if (usernames.size() != 1) {
+            return Optional.empty();
+        }
+
+        Query query = entityManager.createQuery("DELETE FROM RefreshTokenEntity o WHERE o.tokenHash = :tokenHash AND o.created >= :expiration");
+        query.setParameter("tokenHash", tokenHash);
+        query.setParameter("expiration", expiration);
+        return query.executeUpdate() == 1 ? Optional.of(usernames.get(0)) : Optional.empty();
+    }
+
+    /**
+     * Check if {@code DELETE ... RETURNING} is enabled (see {@link HibernateProperties#isDeleteReturning()}) and
+     * supported by the database. The result is cached after the first call.
+     *
+     * @return {@code true} if {@link #consumeReturning(String)} may be used
+     */
+    protected boolean supportsDeleteReturning() {
+        Boolean result = deleteReturning.get();
+        if (result == null) {
+            String product = entityManager.unwrap(Session.class).doReturningWork(c -> c.getMetaData().getDatabaseProductName());
+            result = DELETE_RETURNING_DATABASES.contains(product);
+            if (!result) {
+                log.warn("DELETE ... RETURNING is not supported by {}, consuming the tokens conditionally", product);
+            }
+            deleteReturning.set(result);
+        }
+        return result;
+    }
+
+    /**
+     * Execute the delete statement with the IN-list parameter {@code values}, split into batches of
+     * {@value #IN_LIST_BATCH_SIZE} values.
+     *
+     * @param statement The delete statement
+     * @param values    The values of the IN-list
+     * @return The number of deleted tokens
+     */
+    protected int deleteIn(String statement, List<?> values) {
+        int count = 0;
+        for (int i = 0; i < values.size(); i += IN_LIST_BATCH_SIZE) {
+            Query query = entityManager.createQuery(statement);
+            query.setParameter("values", values.subList(i, Math.min(i + IN_LIST_BATCH_SIZE, values.size())));
+            count += query.executeUpdate();
+        }
+        return count;
+    }
+
+    protected TypedQuery<Object[]> createPageQuery(Long userId, ZonedDateTime expiration, long lastId) {
+        String filter = userId == null ? "" : " AND o.userId = :userId";
+        TypedQuery<Object[]> query = entityManager.createQuery("SELECT o.id, o.userId, o.token, o.created FROM RefreshTokenEntity o WHERE o.id > :lastId AND o.created >= :expiration" + filter + " ORDER BY o.id", Object[].class);
+        query.setParameter("lastId", lastId);
+        query.setParameter("expiration", expiration);
+        if (userId != null) {
+            query.setParameter("userId", userId);
+        }
+        return query;
+    }
+
     protected int calculateExpiration(ZonedDateTime created) {
         return (int) ChronoUnit.SECONDS.between(created, ZonedDateTime.now());
     }
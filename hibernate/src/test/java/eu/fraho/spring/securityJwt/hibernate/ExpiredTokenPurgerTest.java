@@ -0,0 +1,115 @@
+/*
+ * MIT Licence
+ * Copyright (c) 2026 Simon Frankenberger
+ *
+ * Please see LICENCE.md for complete licence text.
+ */
+package eu.fraho.spring.securityJwt.hibernate;
+
+import eu.fraho.spring.securityJwt.base.config.RefreshProperties;
+import eu.fraho.spring.securityJwt.base.dto.JwtUser;
+import eu.fraho.spring.securityJwt.base.it.spring.TestApiApplication;
+import eu.fraho.spring.securityJwt.base.service.RefreshTokenStore;
+import eu.fraho.spring.securityJwt.hibernate.config.HibernateProperties;
+import eu.fraho.spring.securityJwt.hibernate.service.ExpiredTokenPurger;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@SpringBootTest(properties = "spring.config.location=classpath:hibernate-test.yaml", classes = TestApiApplication.class)
+@EntityScan(basePackages = {"eu.fraho.spring.securityJwt.hibernate"})
+@ExtendWith(SpringExtension.class)
+public class ExpiredTokenPurgerTest {
+    private final List<ExpiredTokenPurger> purgers = new ArrayList<>();
+
+    @Autowired
+    private RefreshTokenStore refreshTokenStore;
+    @Autowired
+    private RefreshProperties refreshProperties;
+    @Autowired
+    private EntityManager entityManager;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private static JwtUser user(long id) {
+        JwtUser user = new JwtUser();
+        user.setId(id);
+        user.setUsername("user" + id);
+        return user;
+    }
+
+    @BeforeEach
+    public void revokeTokens() {
+        refreshTokenStore.revokeTokens();
+        new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+                entityManager.createQuery("DELETE FROM PurgeLeaseEntity o").executeUpdate());
+    }
+
+    @AfterEach
+    public void destroyPurgers() throws InterruptedException {
+        for (ExpiredTokenPurger purger : purgers) {
+            purger.destroy();
+        }
+    }
+
+    private ExpiredTokenPurger createPurger(boolean lease) {
+        HibernateProperties properties = new HibernateProperties();
+        properties.setPurgeBatchSize(2);
+        properties.setPurgePause(0);
+        properties.setPurgeLease(lease);
+        properties.afterPropertiesSet();
+
+        ExpiredTokenPurger purger = new ExpiredTokenPurger();
+        purger.setRefreshProperties(refreshProperties);
+        purger.setHibernateProperties(properties);
+        purger.setEntityManager(entityManager);
+        purger.setTransactionManager(transactionManager);
+        purger.afterPropertiesSet();
+        purgers.add(purger);
+        return purger;
+    }
+
+    @Test
+    public void testPurge() throws InterruptedException {
+        JwtUser user = user(42);
+        for (int i = 0; i < 5; i++) {
+            refreshTokenStore.saveToken(user, "expired" + i);
+        }
+        Thread.sleep(refreshProperties.getExpiration().toMillis() + 500);
+        refreshTokenStore.saveToken(user, "valid");
+
+        ExpiredTokenPurger purger = createPurger(false);
+        Assertions.assertEquals(5, purger.purge(), "Unexpected number of purged tokens");
+        Assertions.assertEquals(0, purger.purge(), "Tokens purged twice");
+        Assertions.assertEquals(5, purger.getPurgedTokens());
+        Assertions.assertEquals(0, purger.getLastPurgedTokens());
+        Assertions.assertEquals(1, refreshTokenStore.listTokens(user).size(), "Valid token was purged");
+    }
+
+    @Test
+    public void testLease() throws InterruptedException {
+        JwtUser user = user(42);
+        refreshTokenStore.saveToken(user, "expired");
+        Thread.sleep(refreshProperties.getExpiration().toMillis() + 500);
+
+        ExpiredTokenPurger first = createPurger(true);
+        ExpiredTokenPurger second = createPurger(true);
+        Assertions.assertEquals(1, first.purge(), "Lease holder did not purge");
+        refreshTokenStore.saveToken(user, "expired2");
+        Thread.sleep(refreshProperties.getExpiration().toMillis() + 500);
+        Assertions.assertEquals(0, second.purge(), "Purged without holding the lease");
+        Assertions.assertEquals(1, first.purge(), "Lease holder could not renew the lease");
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * MIT Licence
+ * Copyright (c) 2026 Simon Frankenberger
+ *
+ * Please see LICENCE.md for complete licence text.
+ */
+package eu.fraho.spring.securityJwt.hibernate;
+
+import eu.fraho.spring.securityJwt.base.config.RefreshProperties;
+import eu.fraho.spring.securityJwt.base.dto.JwtUser;
+import eu.fraho.spring.securityJwt.hibernate.config.HibernateProperties;
+import eu.fraho.spring.securityJwt.hibernate.dto.RefreshTokenEntity;
+import eu.fraho.spring.securityJwt.hibernate.service.HibernateTokenStore;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Query;
+import jakarta.persistence.TypedQuery;
+import org.hibernate.Session;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.springframework.security.core.userdetails.UserDetailsService;
+
+import java.sql.Timestamp;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * The tests against H2 always consume tokens conditionally, as H2 does not support {@code DELETE ... RETURNING}.
+ * This test checks the statement and its parameters, which are used for PostgreSQL and MariaDB if enabled.
+ * It does not run against a real database.
+ */
+public class HibernateTokenStoreReturningTest {
+    private static final String STATEMENT = "DELETE FROM jwt_refresh WHERE token_hash = :tokenHash AND created >= :expiration RETURNING username";
+
+    private final EntityManager entityManager = Mockito.mock(EntityManager.class);
+    private final Session session = Mockito.mock(Session.class);
+    private final Query query = Mockito.mock(Query.class);
+    private final UserDetailsService userDetailsService = Mockito.mock(UserDetailsService.class);
+    private final RefreshProperties refreshProperties = new RefreshProperties();
+    private HibernateTokenStore store;
+
+    @BeforeEach
+    public void setUp() {
+        refreshProperties.afterPropertiesSet();
+        Mockito.when(entityManager.unwrap(Session.class)).thenReturn(session);
+        Mockito.when(entityManager.createNativeQuery(Mockito.anyString())).thenReturn(query);
+        Mockito.when(session.doReturningWork(Mockito.any())).thenReturn("PostgreSQL");
+
+        HibernateProperties hibernateProperties = new HibernateProperties();
+        hibernateProperties.setDeleteReturning(true);
+        hibernateProperties.afterPropertiesSet();
+
+        store = new HibernateTokenStore();
+        store.setRefreshProperties(refreshProperties);
+        store.setHibernateProperties(hibernateProperties);
+        store.setUserDetailsService(userDetailsService);
+        store.setEntityManager(entityManager);
+        store.afterPropertiesSet();
+    }
+
+    @Test
+    public void testUseToken() {
+        JwtUser user = new JwtUser();
+        user.setUsername("jsmith");
+        Mockito.when(query.getResultList()).thenReturn(List.of("jsmith"));
+        Mockito.when(userDetailsService.loadUserByUsername("jsmith")).thenReturn(user);
+
+        long expirationMillis = refreshProperties.getExpiration().toMillis();
+        long before = System.currentTimeMillis();
+        Optional<JwtUser> result = store.useToken("foobar");
+        long after = System.currentTimeMillis();
+        Assertions.assertSame(user, result.orElseThrow(), "Token was not consumed");
+
+        Mockito.verify(entityManager).createNativeQuery(STATEMENT);
+        Mockito.verify(entityManager, Mockito.never()).createQuery(Mockito.anyString());
+        Mockito.verify(query).setParameter("tokenHash", RefreshTokenEntity.hashToken("foobar"));
+        ArgumentCaptor<Object> expiration = ArgumentCaptor.forClass(Object.class);
+        Mockito.verify(query).setParameter(Mockito.eq("expiration"), expiration.capture());
+        Assertions.assertInstanceOf(Timestamp.class, expiration.getValue(), "Expiration not bound as timestamp");
+        long bound = ((Timestamp) expiration.getValue()).getTime();
+        Assertions.assertTrue(bound >= before - expirationMillis && bound <= after - expirationMillis,
+                "Expiration not bound as creation time of the oldest valid token");
+    }
+
+    @Test
+    public void testUseUnknownToken() {
+        Mockito.when(query.getResultList()).thenReturn(Collections.emptyList());
+
+        Assertions.assertTrue(store.useToken("foobar").isEmpty(), "Unknown token was consumed");
+        Mockito.verify(entityManager).createNativeQuery(STATEMENT);
+        Mockito.verifyNoInteractions(userDetailsService);
+    }
+
+    @Test
+    public void testOtherDatabase() {
+        Mockito.when(session.doReturningWork(Mockito.any())).thenReturn("H2");
+        mockConditionalQuery();
+
+        Assertions.assertTrue(store.useToken("foobar").isEmpty(), "Unknown token was consumed");
+        Mockito.verify(entityManager, Mockito.never()).createNativeQuery(Mockito.anyString());
+    }
+
+    @Test
+    public void testDisabledByDefault() {
+        mockConditionalQuery();
+        store.setHibernateProperties(new HibernateProperties());
+
+        Assertions.assertTrue(store.useToken("foobar").isEmpty(), "Unknown token was consumed");
+        Mockito.verify(entityManager, Mockito.never()).createNativeQuery(Mockito.anyString());
+        Mockito.verifyNoInteractions(session);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void mockConditionalQuery() {
+        TypedQuery<String> typedQuery = Mockito.mock(TypedQuery.class);
+        Mockito.when(entityManager.createQuery(Mockito.anyString(), Mockito.eq(String.class))).thenReturn(typedQuery);
+        Mockito.when(typedQuery.getResultList()).thenReturn(Collections.emptyList());
+    }
+}
@@ -0,0 +1,309 @@
+/*
+ * MIT Licence
+ * Copyright (c) 2026 Simon Frankenberger
+ *
+ * Please see LICENCE.md for complete licence text.
+ */
+package eu.fraho.spring.securityJwt.internal.service;
+
+import eu.fraho.spring.securityJwt.base.dto.JwtUser;
+import eu.fraho.spring.securityJwt.base.dto.RefreshToken;
+import eu.fraho.spring.securityJwt.base.dto.RefreshTokenEntry;
+import lombok.NonNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/**
+ * Concurrent in-memory storage of refresh tokens, where each token expires a fixed time after it was saved.
+ * <p>
+ * No method takes a global lock: the tokens are kept in a {@link ConcurrentHashMap} and using a token is a single
+ * atomic remove. Expired tokens are never returned, regardless if they were already purged or not.
+ * <p>
+ * A secondary index from the user id to its tokens is kept consistent with every save, removal and expiration
+ * of a token, so listing and revoking the tokens of a single user only touches the tokens of that user.
+ * The index is updated while holding the lock of the token within the {@link ConcurrentHashMap}.
+ * <p>
+ * To purge expired tokens without scanning the whole map, each token is additionally registered in a bucket
+ * covering one second of expiration time. Whenever a second has passed, the next caller (which does not have
+ * to wait for this) drops all buckets in the past and removes their tokens if they were not saved again
+ * in the meantime.
+ */
+public class ExpiringTokenMap {
+    private static final long BUCKET_MILLIS = 1_000;
+
+    private final long expirationMillis;
+    private final LongSupplier clock;
+
+    //                       Token   Entry
+    private final ConcurrentHashMap<String, Entry> tokens = new ConcurrentHashMap<>();
+    //                       UserId  Tokens of that user
+    private final ConcurrentHashMap<Long, Set<String>> users = new ConcurrentHashMap<>();
+    //                       Bucket  Tokens expiring within that second
+    private final ConcurrentHashMap<Long, Set<String>> buckets = new ConcurrentHashMap<>();
+    private final AtomicBoolean purging = new AtomicBoolean();
+    private volatile long purgedUntil;
+
+    public ExpiringTokenMap(long expirationMillis) {
+        this(expirationMillis, System::currentTimeMillis);
+    }
+
+    protected ExpiringTokenMap(long expirationMillis, @NonNull LongSupplier clock) {
+        if (expirationMillis <= 0) {
+            throw new IllegalArgumentException("expirationMillis has to be positive");
+        }
+        this.expirationMillis = expirationMillis;
+        this.clock = clock;
+        this.purgedUntil = clock.getAsLong() / BUCKET_MILLIS;
+    }
+
+    private static long expiresIn(Entry entry, long now) {
+        // round up, so a token saved just now reports the full expiration
+        return (entry.expiresAt - now + 999) / 1000;
+    }
+
+    /**
+     * Save the token for the given user. If the token already exists it is replaced and the expiration restarts.
+     *
+     * @param token The token
+     * @param user  The user
+     */
+    public void put(@NonNull String token, @NonNull JwtUser user) {
+        long now = clock.getAsLong();
+        long expiresAt = now + expirationMillis;
+        Entry entry = new Entry(user, expiresAt);
+        tokens.compute(token, (k, old) -> {
+            if (old != null && !old.user.getId().equals(user.getId())) {
+                unindex(old, token);
+            }
+            index(entry, token);
+            return entry;
+        });
+        long bucket = Math.max(expiresAt / BUCKET_MILLIS, purgedUntil);
+        buckets.computeIfAbsent(bucket, k -> ConcurrentHashMap.newKeySet()).add(token);
+        purgeExpired(now);
+    }
+
+    /**
+     * Atomically remove the token.
+     *
+     * @param token The token
+     * @return The user of the token, or {@code null} if the token was not found or already expired
+     */
+    public JwtUser remove(@NonNull String token) {
+        Entry entry = remove(token, e -> true);
+        long now = clock.getAsLong();
+        purgeExpired(now);
+        return entry == null || entry.isExpired(now) ? null : entry.user;
+    }
+
+    /**
+     * List the tokens of a single user.
+     *
+     * @param userId The id of the user
+     * @return The tokens of that user, an empty list if none were found
+     */
+    public List<RefreshToken> list(Long userId) {
+        Set<String> userTokens = users.get(userId);
+        if (userTokens == null) {
+            return Collections.emptyList();
+        }
+        long now = clock.getAsLong();
+        final List<RefreshToken> result = new ArrayList<>(userTokens.size());
+        for (String token : userTokens) {
+            Entry entry = tokens.get(token);
+            if (entry != null && !entry.isExpired(now)) {
+                result.add(RefreshToken.builder().token(token).expiresIn(expiresIn(entry, now)).build());
+            }
+        }
+        return Collections.unmodifiableList(result);
+    }
+
+    /**
+     * List all tokens which are not yet expired.
+     *
+     * @return All tokens, grouped by the user id
+     */
+    public Map<Long, List<RefreshToken>> list() {
+        long now = clock.getAsLong();
+        purgeExpired(now);
+        final Map<Long, List<RefreshToken>> result = new HashMap<>();
+        tokens.forEach((token, entry) -> {
+            if (!entry.isExpired(now)) {
+                result.computeIfAbsent(entry.user.getId(), s -> new ArrayList<>()).add(
+                        RefreshToken.builder().token(token).expiresIn(expiresIn(entry, now)).build()
+                );
+            }
+        });
+        result.replaceAll((s, t) -> Collections.unmodifiableList(t));
+        return Collections.unmodifiableMap(result);
+    }
+
+    /**
+     * Lazily stream the tokens which are not yet expired, without copying them first.
+     * Like the iterators of {@link ConcurrentHashMap}, the stream is weakly consistent: tokens which are saved
+     * or removed while the stream is consumed may or may not be returned.
+     *
+     * @param userId Only return the tokens of this user, or {@code null} to return all tokens
+     * @return The tokens
+     */
+    public Stream<RefreshTokenEntry> stream(Long userId) {
+        long now = clock.getAsLong();
+        if (userId == null) {
+            return tokens.entrySet().stream()
+                    .map(e -> toEntry(e.getKey(), e.getValue(), now))
+                    .filter(Objects::nonNull);
+        }
+        Set<String> userTokens = users.get(userId);
+        if (userTokens == null) {
+            return Stream.empty();
+        }
+        return userTokens.stream()
+                .map(token -> toEntry(token, tokens.get(token), now))
+                .filter(Objects::nonNull);
+    }
+
+    /**
+     * Remove all tokens of a single user.
+     *
+     * @param userId The id of the user
+     * @return The number of removed tokens which were not yet expired
+     */
+    public int removeUser(Long userId) {
+        long now = clock.getAsLong();
+        Set<String> userTokens = users.get(userId);
+        if (userTokens == null) {
+            return 0;
+        }
+        int count = 0;
+        for (String token : userTokens) {
+            Entry entry = remove(token, e -> userId.equals(e.user.getId()));
+            if (entry != null && !entry.isExpired(now)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Remove all tokens.
+     *
+     * @return The number of removed tokens which were not yet expired
+     */
+    public int clear() {
+        long now = clock.getAsLong();
+        int count = 0;
+        for (String token : tokens.keySet()) {
+            Entry entry = remove(token, e -> true);
+            if (entry != null && !entry.isExpired(now)) {
+                count++;
+            }
+        }
+        buckets.clear();
+        return count;
+    }
+
+    /**
+     * @return The number of stored tokens, including expired ones which were not yet purged
+     */
+    public int size() {
+        return tokens.size();
+    }
+
+    /**
+     * @return The number of users with stored tokens, including expired ones which were not yet purged
+     */
+    public int userCount() {
+        return users.size();
+    }
+
+    /**
+     * Remove all expired tokens now. This is done automatically while using this map.
+     */
+    public void purgeExpired() {
+        purgeExpired(clock.getAsLong());
+    }
+
+    private void purgeExpired(long now) {
+        long current = now / BUCKET_MILLIS;
+        // only one thread purges, all others continue immediately
+        if (current <= purgedUntil || !purging.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            for (long bucket = purgedUntil; bucket < current; bucket++) {
+                Set<String> expired = buckets.remove(bucket);
+                if (expired != null) {
+                    for (String token : expired) {
+                        // the token may have been saved again with a new expiration
+                        remove(token, e -> e.isExpired(now));
+                    }
+                }
+            }
+            purgedUntil = current;
+        } finally {
+            purging.set(false);
+        }
+    }
+
+    private static RefreshTokenEntry toEntry(String token, Entry entry, long now) {
+        if (entry == null || entry.isExpired(now)) {
+            return null;
+        }
+        return new RefreshTokenEntry(entry.user.getId(),
+                RefreshToken.builder().token(token).expiresIn(expiresIn(entry, now)).build());
+    }
+
+    private Entry remove(String token, Predicate<Entry> condition) {
+        final Entry[] removed = new Entry[1];
+        tokens.computeIfPresent(token, (k, e) -> {
+            if (!condition.test(e)) {
+                return e;
+            }
+            unindex(e, token);
+            removed[0] = e;
+            return null;
+        });
+        return removed[0];
+    }
+
+    private void index(Entry entry, String token) {
+        // modify the set within compute, as unindex drops empty sets
+        users.compute(entry.user.getId(), (k, userTokens) -> {
+            Set<String> result = userTokens == null ? ConcurrentHashMap.newKeySet() : userTokens;
+            result.add(token);
+            return result;
+        });
+    }
+
+    private void unindex(Entry entry, String token) {
+        users.computeIfPresent(entry.user.getId(), (k, userTokens) -> {
+            userTokens.remove(token);
+            return userTokens.isEmpty() ? null : userTokens;
+        });
+    }
+
+    private static final class Entry {
+        private final JwtUser user;
+        private final long expiresAt;
+
+        private Entry(JwtUser user, long expiresAt) {
+            this.user = user;
+            this.expiresAt = expiresAt;
+        }
+
+        private boolean isExpired(long now) {
+            return expiresAt <= now;
+        }
+    }
+}
@@ -9,22 +9,19 @@ package eu.fraho.spring.securityJwt.internal.service;
 import eu.fraho.spring.securityJwt.base.config.RefreshProperties;
 import eu.fraho.spring.securityJwt.base.dto.JwtUser;
 import eu.fraho.spring.securityJwt.base.dto.RefreshToken;
+import eu.fraho.spring.securityJwt.base.dto.RefreshTokenEntry;
+import eu.fraho.spring.securityJwt.base.service.RefreshTokenPages;
 import eu.fraho.spring.securityJwt.base.service.RefreshTokenStore;
 import lombok.NoArgsConstructor;
 import lombok.NonNull;
 import lombok.extern.slf4j.Slf4j;
-import net.jodah.expiringmap.ExpirationPolicy;
-import net.jodah.expiringmap.ExpiringMap;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.core.userdetails.UserDetailsService;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Objects;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @SuppressWarnings("SpringJavaAutowiredMembersInspection")
 @Slf4j
@@ -34,17 +31,16 @@ public class InternalTokenStore implements RefreshTokenStore {
 
     private UserDetailsService userDetailsService;
 
-    //                  AbstractToken   User
-    private ExpiringMap<String, JwtUser> refreshTokenMap;
+    private ExpiringTokenMap refreshTokenMap;
 
     @Override
-    public synchronized void saveToken(JwtUser user, String token) {
+    public void saveToken(JwtUser user, String token) {
         refreshTokenMap.put(token, user);
     }
 
     @Override
     @SuppressWarnings("unchecked")
-    public synchronized <T extends JwtUser> Optional<T> useToken(String token) {
+    public <T extends JwtUser> Optional<T> useToken(String token) {
         return Optional.ofNullable(refreshTokenMap.remove(token))
                 .map(JwtUser::getUsername)
                 .map(userDetailsService::loadUserByUsername)
@@ -53,53 +49,42 @@ public class InternalTokenStore implements RefreshTokenStore {
 
 
     @Override
-    public synchronized List<RefreshToken> listTokens(JwtUser user) {
-        return listTokens().getOrDefault(user.getId(), Collections.emptyList());
+    public List<RefreshToken> listTokens(JwtUser user) {
+        return refreshTokenMap.list(user.getId());
     }
 
 
     @Override
-    public synchronized Map<Long, List<RefreshToken>> listTokens() {
-        final Map<Long, List<RefreshToken>> result = new HashMap<>();
-        for (Map.Entry<String, JwtUser> entry : refreshTokenMap.entrySet()) {
-            String token = entry.getKey();
-            int expiresIn = (int) refreshTokenMap.getExpiration(entry.getKey());
-
-            result.computeIfAbsent(entry.getValue().getId(), s -> new ArrayList<>()).add(
-                    RefreshToken.builder().token(token).expiresIn(expiresIn).build()
-            );
-        }
-        result.replaceAll((s, t) -> Collections.unmodifiableList(t));
-        return Collections.unmodifiableMap(result);
+    public Map<Long, List<RefreshToken>> listTokens() {
+        return refreshTokenMap.list();
     }
 
     @Override
-    public synchronized boolean revokeToken(String token) {
+    public Stream<RefreshTokenEntry> streamTokens(Long userId, int pageSize) {
+        RefreshTokenPages.checkPageSize(pageSize);
+        // the tokens are already in memory, there is nothing to fetch in pages
+        return refreshTokenMap.stream(userId);
+    }
+
+    @Override
+    public boolean revokeToken(String token) {
         return refreshTokenMap.remove(token) != null;
     }
 
     @Override
-    public synchronized int revokeTokens(JwtUser user) {
-        return (int) listTokens(user).stream()
-                .map(RefreshToken::getToken)
-                .map(refreshTokenMap::remove)
-                .filter(Objects::nonNull).count();
+    public int revokeTokens(JwtUser user) {
+        return refreshTokenMap.removeUser(user.getId());
     }
 
     @Override
-    public synchronized int revokeTokens() {
-        int size = refreshTokenMap.size();
-        refreshTokenMap.clear();
-        return size;
+    public int revokeTokens() {
+        return refreshTokenMap.clear();
     }
 
     @Override
     public void afterPropertiesSet() {
         log.info("Using in-memory implementation to handle refresh tokens");
-        refreshTokenMap = ExpiringMap.builder()
-                .expirationPolicy(ExpirationPolicy.CREATED)
-                .expiration(refreshProperties.getExpiration().getQuantity(), refreshProperties.getExpiration().getTimeUnit())
-                .build();
+        refreshTokenMap = new ExpiringTokenMap(refreshProperties.getExpiration().toMillis());
     }
 
     @Autowired
@@ -112,11 +97,11 @@ public class InternalTokenStore implements RefreshTokenStore {
         this.userDetailsService = userDetailsService;
     }
 
-    protected ExpiringMap<String, JwtUser> getRefreshTokenMap() {
+    protected ExpiringTokenMap getRefreshTokenMap() {
         return refreshTokenMap;
     }
 
-    protected void setRefreshTokenMap(ExpiringMap<String, JwtUser> refreshTokenMap) {
+    protected void setRefreshTokenMap(ExpiringTokenMap refreshTokenMap) {
         this.refreshTokenMap = refreshTokenMap;
     }
 }
@@ -0,0 +1,202 @@
+/*
+ * MIT Licence
+ * Copyright (c) 2026 Simon Frankenberger
+ *
+ * Please see LICENCE.md for complete licence text.
+ */
+package eu.fraho.spring.securityJwt.internal;
+
+import eu.fraho.spring.securityJwt.base.dto.JwtUser;
+import eu.fraho.spring.securityJwt.base.dto.RefreshToken;
+import eu.fraho.spring.securityJwt.base.dto.RefreshTokenEntry;
+import eu.fraho.spring.securityJwt.internal.service.ExpiringTokenMap;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import java.util.stream.Collectors;
+
+public class ExpiringTokenMapTest {
+    private final AtomicLong now = new AtomicLong(1_000_000);
+
+    private static JwtUser user(long id) {
+        JwtUser user = new JwtUser();
+        user.setId(id);
+        user.setUsername("user" + id);
+        return user;
+    }
+
+    private ExpiringTokenMap map() {
+        LongSupplier clock = now::get;
+        return new ExpiringTokenMap(2_000, clock) {
+        };
+    }
+
+    @Test
+    public void testPutAndRemove() {
+        ExpiringTokenMap map = map();
+        map.put("foo", user(1));
+
+        Assertions.assertEquals("user1", map.remove("foo").getUsername());
+        Assertions.assertNull(map.remove("foo"), "Token was used twice");
+    }
+
+    @Test
+    public void testExpiration() {
+        ExpiringTokenMap map = map();
+        map.put("foo", user(1));
+        map.put("bar", user(1));
+
+        now.addAndGet(2_000);
+        Assertions.assertNull(map.remove("foo"), "Expired token was returned");
+        Assertions.assertTrue(map.list().isEmpty(), "Expired token was listed");
+        Assertions.assertEquals(0, map.removeUser(1L));
+    }
+
+    @Test
+    public void testPurgeExpired() {
+        ExpiringTokenMap map = map();
+        map.put("foo", user(1));
+        now.addAndGet(1_000);
+        map.put("bar", user(2));
+
+        now.addAndGet(2_000);
+        map.purgeExpired();
+        Assertions.assertEquals(1, map.size(), "Expired token was not purged");
+
+        now.addAndGet(1_000);
+        map.purgeExpired();
+        Assertions.assertEquals(0, map.size(), "Expired token was not purged");
+    }
+
+    @Test
+    public void testSaveAgainRestartsExpiration() {
+        ExpiringTokenMap map = map();
+        map.put("foo", user(1));
+        now.addAndGet(1_500);
+        map.put("foo", user(1));
+
+        now.addAndGet(1_500);
+        map.purgeExpired();
+        Assertions.assertEquals(1, map.size(), "Saved token was purged");
+        Assertions.assertNotNull(map.remove("foo"), "Saved token expired");
+    }
+
+    @Test
+    public void testList() {
+        ExpiringTokenMap map = map();
+        map.put("foo", user(1));
+        map.put("bar", user(1));
+        map.put("baz", user(2));
+        now.addAndGet(500);
+
+        List<RefreshToken> tokens = map.list(1L);
+        Assertions.assertEquals(2, tokens.size());
+        Assertions.assertEquals(2, tokens.get(0).getExpiresIn());
+        Assertions.assertEquals(2, map.list().size());
+        Assertions.assertTrue(map.list(3L).isEmpty());
+    }
+
+    @Test
+    public void testStream() {
+        ExpiringTokenMap map = map();
+        map.put("foo", user(1));
+        now.addAndGet(1_000);
+        map.put("bar", user(1));
+        map.put("baz", user(2));
+        now.addAndGet(1_000);
+
+        Assertions.assertEquals(Set.of("bar", "baz"), map.stream(null).map(e -> e.getToken().getToken()).collect(Collectors.toSet()),
+                "Expired token was streamed");
+        List<RefreshTokenEntry> tokens = map.stream(2L).toList();
+        Assertions.assertEquals(1, tokens.size());
+        Assertions.assertEquals(2L, tokens.get(0).getUserId());
+        Assertions.assertEquals(0, map.stream(3L).count());
+    }
+
+    @Test
+    public void testRemoveUserAndClear() {
+        ExpiringTokenMap map = map();
+        map.put("foo", user(1));
+        map.put("bar", user(1));
+        map.put("baz", user(2));
+
+        Assertions.assertEquals(2, map.removeUser(1L));
+        Assertions.assertEquals(1, map.size());
+        Assertions.assertEquals(1, map.clear());
+        Assertions.assertEquals(0, map.size());
+    }
+
+    @Test
+    public void testUserIndex() {
+        ExpiringTokenMap map = map();
+        map.put("foo", user(1));
+        map.put("bar", user(1));
+        map.put("baz", user(2));
+        Assertions.assertEquals(2, map.userCount());
+
+        // saving a token for another user moves it
+        map.put("bar", user(2));
+        Assertions.assertEquals(1, map.list(1L).size());
+        Assertions.assertEquals(2, map.list(2L).size());
+
+        map.remove("foo");
+        Assertions.assertEquals(1, map.userCount(), "Index was not updated on removal");
+
+        now.addAndGet(3_000);
+        map.purgeExpired();
+        Assertions.assertEquals(0, map.userCount(), "Index was not updated on expiration");
+    }
+
+    @Test
+    public void testRemoveUserKeepsOthers() {
+        ExpiringTokenMap map = map();
+        for (int i = 0; i < 100; i++) {
+            map.put("token" + i, user(i % 4));
+        }
+
+        Assertions.assertEquals(25, map.removeUser(0L));
+        Assertions.assertEquals(75, map.size());
+        Assertions.assertEquals(3, map.userCount());
+        Assertions.assertTrue(map.list(0L).isEmpty());
+        Assertions.assertEquals(25, map.list(1L).size());
+    }
+
+    @Test
+    public void testConcurrentUse() throws Exception {
+        ExpiringTokenMap map = map();
+        for (int i = 0; i < 1_000; i++) {
+            map.put("token" + i, user(i % 10));
+        }
+
+        AtomicInteger used = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            Future<?>[] futures = new Future<?>[8];
+            for (int t = 0; t < futures.length; t++) {
+                futures[t] = executor.submit(() -> {
+                    for (int i = 0; i < 1_000; i++) {
+                        if (map.remove("token" + i) != null) {
+                            used.incrementAndGet();
+                        }
+                    }
+                });
+            }
+            for (Future<?> future : futures) {
+                future.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        Assertions.assertEquals(1_000, used.get(), "Each token has to be used exactly once");
+        Assertions.assertEquals(0, map.size());
+    }
+}
@@ -7,6 +7,7 @@
 package eu.fraho.spring.securityJwt.memcache.starter;
 
 import eu.fraho.spring.securityJwt.base.config.RefreshProperties;
+import eu.fraho.spring.securityJwt.base.service.RefreshStoreExecutor;
 import eu.fraho.spring.securityJwt.base.service.RefreshTokenStore;
 import eu.fraho.spring.securityJwt.base.starter.SecurityJwtBaseAutoConfiguration;
 import eu.fraho.spring.securityJwt.base.starter.SecurityJwtNoRefreshStoreAutoConfiguration;
@@ -33,15 +34,17 @@ public class SecurityJwtMemcacheAutoConfiguration {
     }
 
     @Bean
-    @ConditionalOnMissingBean
-    public RefreshTokenStore refreshTokenStore(final RefreshProperties refreshProperties,
-                                               final MemcacheProperties memcacheProperties,
-                                               final UserDetailsService userDetailsService) {
+    @ConditionalOnMissingBean(RefreshTokenStore.class)
+    public MemcacheTokenStore refreshTokenStore(final RefreshProperties refreshProperties,
+                                                final MemcacheProperties memcacheProperties,
+                                                final UserDetailsService userDetailsService,
+                                                final RefreshStoreExecutor refreshStoreExecutor) {
         log.debug("Register MemcacheTokenStore");
         MemcacheTokenStore store = new MemcacheTokenStore();
         store.setRefreshProperties(refreshProperties);
         store.setMemcacheProperties(memcacheProperties);
         store.setUserDetailsService(userDetailsService);
+        store.setExecutor(refreshStoreExecutor.getExecutor());
         return store;
     }
 }
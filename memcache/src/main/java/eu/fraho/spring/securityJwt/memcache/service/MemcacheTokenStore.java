@@ -9,8 +9,13 @@ package eu.fraho.spring.securityJwt.memcache.service;
 import eu.fraho.spring.securityJwt.base.config.RefreshProperties;
 import eu.fraho.spring.securityJwt.base.dto.JwtUser;
 import eu.fraho.spring.securityJwt.base.dto.RefreshToken;
+import eu.fraho.spring.securityJwt.base.dto.RefreshTokenEntry;
 import eu.fraho.spring.securityJwt.base.exceptions.RefreshException;
+import eu.fraho.spring.securityJwt.base.service.AsyncRefreshTokenStore;
+import eu.fraho.spring.securityJwt.base.service.RefreshStoreExecutor;
+import eu.fraho.spring.securityJwt.base.service.RefreshTokenPages;
 import eu.fraho.spring.securityJwt.base.service.RefreshTokenStore;
+import eu.fraho.spring.securityJwt.base.service.TotpReplayStore;
 import eu.fraho.spring.securityJwt.memcache.config.MemcacheProperties;
 import eu.fraho.spring.securityJwt.memcache.dto.LruMetadumpEntry;
 import eu.fraho.spring.securityJwt.memcache.dto.MemcacheEntry;
@@ -18,39 +23,67 @@ import eu.fraho.spring.securityJwt.memcache.exceptions.RequestTimedOutException;
 import lombok.NoArgsConstructor;
 import lombok.NonNull;
 import lombok.extern.slf4j.Slf4j;
+import net.spy.memcached.CASResponse;
 import net.spy.memcached.MemcachedClient;
 import net.spy.memcached.internal.OperationFuture;
 import net.spy.memcached.ops.OperationStatus;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.core.userdetails.UserDetailsService;
 
 import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.net.SocketAddress;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.function.Predicate;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
+/**
+ * Stores the refresh tokens at a memcache server.
+ * <p>
+ * Tokens are consumed atomically using {@code gets} and {@code cas}: the entry is replaced by an empty tombstone
+ * which expires after a second, and only the client whose {@code cas} succeeded may use the token. The ascii
+ * protocol neither supports a {@code delete} with cas nor a {@code getdel}, so this is the only way to prevent
+ * two clients from using the same token concurrently. Tombstones are ignored when listing or revoking tokens.
+ * <p>
+ * Used TOTP codes are marked using {@code add} on {@code <prefix>totp:<id>:<step>}, so all clients share them.
+ * These keys are never listed as tokens, so revoking all tokens keeps the marks.
+ */
 @SuppressWarnings("SpringJavaAutowiredMembersInspection")
 @Slf4j
 @NoArgsConstructor
-public class MemcacheTokenStore implements RefreshTokenStore {
+public class MemcacheTokenStore implements RefreshTokenStore, AsyncRefreshTokenStore, TotpReplayStore, DisposableBean {
+    private static final String TOMBSTONE = "";
+    private static final int TOMBSTONE_EXPIRATION = 1;
+    // tokens are base64 encoded and never contain a colon
+    private static final String TOTP_CODES = "totp:";
+
     private RefreshProperties refreshProperties;
     private MemcacheProperties memcacheProperties;
     private UserDetailsService userDetailsService;
     private MemcachedClient memcachedClient;
     private boolean lruCrawlerAvailable;
+    private Executor userLoader;
+    private RefreshStoreExecutor ownedExecutor;
 
     @Override
     public void saveToken(JwtUser user, String token) {
@@ -67,20 +100,41 @@ public class MemcacheTokenStore implements RefreshTokenStore {
     @Override
     @SuppressWarnings("unchecked")
     public <T extends JwtUser> Optional<T> useToken(String token) {
+        // load the user only when the token was consumed by this call
+        return consumeToken(token).map(entry -> (T) userDetailsService.loadUserByUsername(entry.getUsername()));
+    }
+
+    @Override
+    public CompletableFuture<Void> saveTokenAsync(JwtUser user, String token) {
         String key = memcacheProperties.getPrefix() + token;
-        // will be "null" if invalid token
-        Object found = memcachedClient.get(key);
+        String entry = MemcacheEntry.from(user).toString();
+        OperationFuture<Boolean> future = memcachedClient.set(key, (int) refreshProperties.getExpiration().toSeconds(), entry);
+        return toCompletableFuture("Error while saving refresh token on memcache server", future).thenAccept(success -> {
+            if (!future.getStatus().isSuccess()) {
+                throw new RefreshException("Could not save the token, memcached responded with '!Status.isSuccess()': " + future.getStatus().getMessage());
+            }
+        });
+    }
 
-        Optional<T> result = Optional.empty();
-        if (found != null) {
-            String username = MemcacheEntry.from((String) found).getUsername();
-            result = Optional.ofNullable((T) userDetailsService.loadUserByUsername(username));
-        }
-        if (!getAndWait("Error while removing refresh token on memcache server", () -> memcachedClient.delete(key)).getStatus().isSuccess()) {
-            result = Optional.empty();
-        }
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T extends JwtUser> CompletableFuture<Optional<T>> useTokenAsync(String token) {
+        // the user is loaded on another thread, as the user details service may block
+        return consumeTokenAsync(token).thenApplyAsync(found -> found.map(entry ->
+                (T) userDetailsService.loadUserByUsername(entry.getUsername())), userLoader);
+    }
 
-        return result;
+    @Override
+    public CompletableFuture<Boolean> revokeTokenAsync(String token) {
+        return consumeTokenAsync(token).thenApply(Optional::isPresent);
+    }
+
+    @Override
+    public boolean markUsed(Long userId, long step, Duration expiration) {
+        String key = memcacheProperties.getPrefix() + TOTP_CODES + userId + ":" + step;
+        int seconds = (int) Math.max(1, (expiration.toMillis() + 999) / 1000);
+        return Boolean.TRUE.equals(waitFor("Error while marking TOTP code as used on memcache server",
+                memcachedClient.add(key, seconds, TOMBSTONE)));
     }
 
     @Override
@@ -95,6 +149,9 @@ public class MemcacheTokenStore implements RefreshTokenStore {
         Map<String, Object> entries = memcachedClient.getBulk(keys);
         int prefixLen = memcacheProperties.getPrefix().length();
         for (Map.Entry<String, Object> entry : entries.entrySet()) {
+            if (isTombstone(entry.getValue())) {
+                continue;
+            }
             MemcacheEntry dto = MemcacheEntry.from((String) entry.getValue());
             int expiresIn = -1;
             String token = entry.getKey().substring(prefixLen);
@@ -109,26 +166,68 @@ public class MemcacheTokenStore implements RefreshTokenStore {
         return Collections.unmodifiableMap(result);
     }
 
+    /**
+     * Stream the tokens by listing the keys first and fetching their values in pages using {@code getBulk}.
+     * Memcache neither supports a server-side cursor nor an index per user, so only the keys of all tokens
+     * are held in memory and the values of the other users are skipped.
+     */
+    @Override
+    public Stream<RefreshTokenEntry> streamTokens(Long userId, int pageSize) {
+        RefreshTokenPages.checkPageSize(pageSize);
+        List<String> keys = listAllKeys();
+        int prefixLen = memcacheProperties.getPrefix().length();
+        int[] offset = {0};
+        return RefreshTokenPages.stream(() -> {
+            if (offset[0] >= keys.size()) {
+                return null;
+            }
+            List<String> page = keys.subList(offset[0], Math.min(offset[0] + pageSize, keys.size()));
+            offset[0] += page.size();
+            List<RefreshTokenEntry> result = new ArrayList<>(page.size());
+            for (Map.Entry<String, Object> entry : memcachedClient.getBulk(page).entrySet()) {
+                if (isTombstone(entry.getValue())) {
+                    continue;
+                }
+                MemcacheEntry dto = MemcacheEntry.from((String) entry.getValue());
+                if (userId == null || Objects.equals(dto.getId(), userId)) {
+                    result.add(new RefreshTokenEntry(dto.getId(), RefreshToken.builder()
+                            .token(entry.getKey().substring(prefixLen))
+                            .expiresIn(-1)
+                            .build()));
+                }
+            }
+            return result;
+        });
+    }
+
     @Override
     public boolean revokeToken(String token) {
-        String key = memcacheProperties.getPrefix() + token;
-        return getAndWait("Error while revoking refresh token on memcache server", () ->
-                memcachedClient.delete(key)).getStatus().isSuccess();
+        return consumeToken(token).isPresent();
     }
 
     @Override
     public int revokeTokens(JwtUser user) {
-        List<String> allKeys = listAllKeys();
-        Map<String, Object> entries = memcachedClient.getBulk(allKeys);
-        List<OperationFuture<Boolean>> futures = new ArrayList<>();
-        for (Map.Entry<String, Object> entry : entries.entrySet()) {
-            MemcacheEntry dto = MemcacheEntry.from((String) entry.getValue());
-            if (Objects.equals(dto.getId(), user.getId())) {
-                futures.add(memcachedClient.delete(entry.getKey()));
-            }
-        }
+        return revokeTokensOfUsers(Collections.singleton(user.getId()));
+    }
 
-        return submitAndCountSuccess(allKeys, futures);
+    /**
+     * Revoke the tokens using a single {@code getBulk} to skip unknown and consumed tokens,
+     * followed by the deletes which are sent without waiting for each other.
+     */
+    @Override
+    public int revokeTokens(Collection<String> tokens) {
+        String prefix = memcacheProperties.getPrefix();
+        List<String> keys = tokens.stream().map(token -> prefix + token).toList();
+        return deleteEntries(keys, value -> true);
+    }
+
+    /**
+     * Revoke the tokens by listing all keys once, memcache does not support an index per user.
+     */
+    @Override
+    public int revokeTokensOfUsers(Collection<Long> userIds) {
+        Set<Long> users = new HashSet<>(userIds);
+        return deleteEntries(listAllKeys(), value -> users.contains(value.getId()));
     }
 
     @Override
@@ -155,6 +254,17 @@ public class MemcacheTokenStore implements RefreshTokenStore {
         String version = memcachedClient.getVersions().get(address);
         String[] parts = version.split("\\.", 3);
         lruCrawlerAvailable = Integer.parseInt(parts[0]) > 1 || (Integer.parseInt(parts[0]) == 1 && Integer.parseInt(parts[1]) >= 5);
+        if (userLoader == null) {
+            ownedExecutor = new RefreshStoreExecutor();
+            userLoader = ownedExecutor.getExecutor();
+        }
+    }
+
+    @Override
+    public void destroy() {
+        if (ownedExecutor != null) {
+            ownedExecutor.destroy();
+        }
     }
 
     @Autowired
@@ -172,6 +282,14 @@ public class MemcacheTokenStore implements RefreshTokenStore {
         this.userDetailsService = userDetailsService;
     }
 
+    /**
+     * @param executor Used to load the users of asynchronously consumed tokens, by default a private
+     *                 {@link RefreshStoreExecutor} is used
+     */
+    public void setExecutor(@NonNull Executor executor) {
+        this.userLoader = executor;
+    }
+
     protected OperationFuture<Boolean> getAndWait(String message, Supplier<OperationFuture<Boolean>> action) {
         try {
             OperationFuture<Boolean> future = action.get();
@@ -182,6 +300,75 @@ public class MemcacheTokenStore implements RefreshTokenStore {
         }
     }
 
+    protected <T> T waitFor(String message, Future<T> future) {
+        try {
+            return future.get(memcacheProperties.getTimeout(), TimeUnit.SECONDS);
+        } catch (TimeoutException | InterruptedException | ExecutionException e) {
+            throw new RefreshException(message, e);
+        }
+    }
+
+    protected boolean isTombstone(Object value) {
+        return TOMBSTONE.equals(value);
+    }
+
+    /**
+     * Atomically consume the token by replacing it with a tombstone.
+     *
+     * @param token The token to consume
+     * @return The entry of the token, if it existed and was not consumed concurrently
+     */
+    protected Optional<MemcacheEntry> consumeToken(String token) {
+        return waitFor("Error while consuming refresh token on memcache server", consumeTokenAsync(token));
+    }
+
+    /**
+     * Asynchronous variant of {@link #consumeToken(String)}, the {@code cas} is sent when the {@code gets} completed.
+     *
+     * @param token The token to consume
+     * @return A future of the entry of the token, if it existed and was not consumed concurrently
+     */
+    protected CompletableFuture<Optional<MemcacheEntry>> consumeTokenAsync(String token) {
+        String key = memcacheProperties.getPrefix() + token;
+        return toCompletableFuture("Error while loading refresh token from memcache server", memcachedClient.asyncGets(key))
+                .thenCompose(found -> {
+                    if (found == null || isTombstone(found.getValue())) {
+                        return CompletableFuture.completedFuture(Optional.<MemcacheEntry>empty());
+                    }
+                    return toCompletableFuture("Error while removing refresh token on memcache server",
+                            memcachedClient.asyncCAS(key, found.getCas(), TOMBSTONE_EXPIRATION, TOMBSTONE, memcachedClient.getTranscoder()))
+                            .thenApply(response -> {
+                                if (response != CASResponse.OK) {
+                                    // used, revoked or saved again by someone else in the meantime
+                                    log.debug("Concurrent modification of refresh token detected: {}", response);
+                                    return Optional.<MemcacheEntry>empty();
+                                }
+                                return Optional.of(MemcacheEntry.from((String) found.getValue()));
+                            });
+                });
+    }
+
+    /**
+     * Complete a future when the memcache operation completed, without blocking a thread in the meantime.
+     * The future is completed on the IO thread of the memcache client, so no blocking work may be chained to it.
+     *
+     * @param message The message of the exception if the operation failed
+     * @param future  The future of the operation
+     * @param <T>     The type of the result
+     * @return A future of the result
+     */
+    protected <T> CompletableFuture<T> toCompletableFuture(String message, OperationFuture<T> future) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        future.addListener(f -> {
+            try {
+                result.complete(future.get());
+            } catch (Exception e) {
+                result.completeExceptionally(new RefreshException(message, e));
+            }
+        });
+        return result.orTimeout(memcacheProperties.getTimeout(), TimeUnit.SECONDS);
+    }
+
     protected List<String> listAllKeys() {
         if (lruCrawlerAvailable) {
             return listAllKeysModern();
@@ -195,7 +382,7 @@ public class MemcacheTokenStore implements RefreshTokenStore {
         return entries.values().stream()
                 .flatMap(List::stream)
                 .map(LruMetadumpEntry::getKey)
-                .filter(e -> e.startsWith(memcacheProperties.getPrefix()))
+                .filter(this::isTokenKey)
                 .collect(Collectors.toList());
     }
 
@@ -254,13 +441,48 @@ public class MemcacheTokenStore implements RefreshTokenStore {
                             .getValue().get(slab + ":used_chunks"));
             Set<String> entries = memcachedClient.getStats("cachedump " + slab + " " + used_chunks)
                     .entrySet().iterator().next().getValue().keySet()
-                    .stream().filter(e -> e.startsWith(memcacheProperties.getPrefix()))
+                    .stream().filter(this::isTokenKey)
                     .collect(Collectors.toSet());
             result.addAll(entries);
         }
         return Collections.unmodifiableList(result);
     }
 
+    /**
+     * @param key The key to check
+     * @return {@code true} if the key belongs to a refresh token, {@code false} for foreign keys and used TOTP codes
+     */
+    protected boolean isTokenKey(String key) {
+        String prefix = memcacheProperties.getPrefix();
+        return key.startsWith(prefix) && !key.startsWith(TOTP_CODES, prefix.length());
+    }
+
+    /**
+     * Delete the entries of the given keys which match the filter. Tombstones are skipped.
+     *
+     * @param keys   The keys to check
+     * @param filter Returns {@code true} for the entries to delete
+     * @return The number of deleted entries
+     */
+    protected int deleteEntries(List<String> keys, Predicate<MemcacheEntry> filter) {
+        if (keys.isEmpty()) {
+            return 0;
+        }
+        Map<String, Object> entries = memcachedClient.getBulk(keys);
+        List<String> deleted = new ArrayList<>();
+        List<OperationFuture<Boolean>> futures = new ArrayList<>();
+        for (Map.Entry<String, Object> entry : entries.entrySet()) {
+            if (isTombstone(entry.getValue())) {
+                continue;
+            }
+            if (filter.test(MemcacheEntry.from((String) entry.getValue()))) {
+                deleted.add(entry.getKey());
+                futures.add(memcachedClient.delete(entry.getKey()));
+            }
+        }
+        return submitAndCountSuccess(deleted, futures);
+    }
+
     protected int submitAndCountSuccess(List<String> keys, List<OperationFuture<Boolean>> futures) {
         int count = keys.size();
         for (OperationFuture<Boolean> future : futures) {
@@ -25,10 +25,14 @@ import org.springframework.test.context.junit.jupiter.SpringExtension;
 import java.lang.reflect.Field;
 import java.time.Duration;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
@@ -88,6 +92,28 @@ public class AbstractJwtServiceRefreshMemcacheTest extends AbstractJwtTokenServi
         Assertions.assertTrue(allTokens.containsAll(Arrays.asList(tokenA, tokenB, tokenC)), "Not all tokens returned");
     }
 
+    @Test
+    public void testUseRefreshTokenConcurrently() throws Exception {
+        JwtTokenService service = getService();
+        RefreshToken token = service.generateRefreshToken(getJwtUser());
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Boolean>> futures = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                futures.add(executor.submit(() -> service.useRefreshToken(token.getToken()).isPresent()));
+            }
+            int used = 0;
+            for (Future<Boolean> future : futures) {
+                used += future.get(5, TimeUnit.SECONDS) ? 1 : 0;
+            }
+            Assertions.assertEquals(1, used, "Token was used more than once");
+        } finally {
+            executor.shutdownNow();
+        }
+        Assertions.assertTrue(service.listRefreshTokens().isEmpty(), "Used token was listed");
+    }
+
     private MemcachedClient getMemcachedClient() throws Exception {
         Field memcachedClient = MemcacheTokenStore.class.getDeclaredField("memcachedClient");
         memcachedClient.setAccessible(true);
@@ -106,4 +132,19 @@ public class AbstractJwtServiceRefreshMemcacheTest extends AbstractJwtTokenServi
             expiration.set(refreshProperties, oldValue);
         }
     }
+
+    @Test
+    public void testMarkTotpUsed() {
+        long step = System.currentTimeMillis() / 30_000L;
+        JwtUser user = getJwtUser();
+        Assertions.assertTrue(refreshTokenStore.markUsed(user.getId(), step, Duration.ofSeconds(5)), "Unused code rejected");
+        Assertions.assertFalse(refreshTokenStore.markUsed(user.getId(), step, Duration.ofSeconds(5)), "Code accepted twice");
+        Assertions.assertTrue(refreshTokenStore.markUsed(user.getId(), step + 1, Duration.ofSeconds(5)), "Other step rejected");
+
+        // the marks are no refresh tokens
+        Assertions.assertTrue(refreshTokenStore.listTokens(user).isEmpty(), "Mark listed as token");
+        Assertions.assertTrue(refreshTokenStore.listTokens().isEmpty(), "Mark listed as token");
+        Assertions.assertEquals(0, refreshTokenStore.revokeTokens(), "Mark revoked as token");
+        Assertions.assertFalse(refreshTokenStore.markUsed(user.getId(), step, Duration.ofSeconds(5)), "Mark removed by revoking all tokens");
+    }
 }
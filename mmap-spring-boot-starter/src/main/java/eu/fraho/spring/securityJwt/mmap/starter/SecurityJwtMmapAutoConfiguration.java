@@ -0,0 +1,47 @@
+/*
+ * MIT Licence
+ * Copyright (c) 2026 Simon Frankenberger
+ *
+ * Please see LICENCE.md for complete licence text.
+ */
+package eu.fraho.spring.securityJwt.mmap.starter;
+
+import eu.fraho.spring.securityJwt.base.config.RefreshProperties;
+import eu.fraho.spring.securityJwt.base.service.RefreshTokenStore;
+import eu.fraho.spring.securityJwt.base.starter.SecurityJwtBaseAutoConfiguration;
+import eu.fraho.spring.securityJwt.base.starter.SecurityJwtNoRefreshStoreAutoConfiguration;
+import eu.fraho.spring.securityJwt.mmap.config.MmapProperties;
+import eu.fraho.spring.securityJwt.mmap.service.MmapTokenStore;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.AutoConfigureAfter;
+import org.springframework.boot.autoconfigure.AutoConfigureBefore;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.security.core.userdetails.UserDetailsService;
+
+@SuppressWarnings("SpringJavaInjectionPointsAutowiringInspection")
+@Configuration
+@AutoConfigureAfter(SecurityJwtBaseAutoConfiguration.class)
+@AutoConfigureBefore(SecurityJwtNoRefreshStoreAutoConfiguration.class)
+@Slf4j
+public class SecurityJwtMmapAutoConfiguration {
+    @Bean
+    public MmapProperties mmapProperties() {
+        log.debug("Register MmapProperties");
+        return new MmapProperties();
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    public RefreshTokenStore refreshTokenStore(final RefreshProperties refreshProperties,
+                                               final MmapProperties mmapProperties,
+                                               final UserDetailsService userDetailsService) {
+        log.debug("Register MmapTokenStore");
+        MmapTokenStore store = new MmapTokenStore();
+        store.setRefreshProperties(refreshProperties);
+        store.setMmapProperties(mmapProperties);
+        store.setUserDetailsService(userDetailsService);
+        return store;
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * MIT Licence
+ * Copyright (c) 2026 Simon Frankenberger
+ *
+ * Please see LICENCE.md for complete licence text.
+ */
+package eu.fraho.spring.securityJwt.mmap.config;
+
+import eu.fraho.spring.securityJwt.base.dto.TimeWithPeriod;
+import eu.fraho.spring.securityJwt.mmap.service.MmapTokenStore;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+@ConfigurationProperties(prefix = "fraho.jwt.refresh.mmap")
+@Component
+@Getter
+@Setter
+@Slf4j
+public class MmapProperties implements InitializingBean {
+    /**
+     * The memory-mapped file which stores the tokens.<br>
+     * The file and its parent directories will be created if they don't exist.
+     */
+    private Path file = Paths.get("data/tokens.mmap");
+
+    /**
+     * Number of slots in the file, which is the maximum number of refresh tokens that can be stored at once
+     * (including expired ones which were not yet purged). As each token is stored near the slot addressed by its
+     * hash, saving a token may fail before all slots are used, keep some headroom.<br>
+     * Will be rounded up to the next power of two. Has to be between 1024 and 4194304 (inclusive).
+     */
+    private int slots = 65_536;
+
+    /**
+     * Maximum length of the usernames in bytes (UTF-8 encoded). Has to be between 16 and 1024 (inclusive).
+     */
+    private int maxUsernameLength = 128;
+
+    /**
+     * Interval to delete expired tokens from the file. Slots of writers which did not finish within one interval
+     * (e.g. because their process crashed) are reclaimed as well.
+     */
+    private TimeWithPeriod purgeInterval = new TimeWithPeriod("10 minutes");
+
+    @Override
+    public void afterPropertiesSet() throws IOException {
+        if (file.getParent() != null && !Files.exists(file.getParent())) {
+            Files.createDirectories(file.getParent());
+        }
+        if (slots < 1024 || slots > 4_194_304) {
+            log.warn("Slots out of bounds ({} <= {} <= {}), forcing to default ({})",
+                    1024, slots, 4_194_304, 65_536);
+            slots = 65_536;
+        }
+        slots = Integer.highestOneBit(slots - 1) << 1;
+        if (maxUsernameLength < 16 || maxUsernameLength > 1024) {
+            log.warn("Max username length out of bounds ({} <= {} <= {}), forcing to default ({})",
+                    16, maxUsernameLength, 1024, 128);
+            maxUsernameLength = 128;
+        }
+        if (purgeInterval.toSeconds() < 1) {
+            log.warn("Purge interval too short ({} < 1 second), forcing to default ({})", purgeInterval, "10 minutes");
+            purgeInterval = new TimeWithPeriod("10 minutes");
+        }
+        if (MmapTokenStore.HEADER_SIZE + (long) slots * MmapTokenStore.slotSize(maxUsernameLength) > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("The mmap file may not exceed 2 GiB, please reduce the slots or maxUsernameLength");
+        }
+    }
+}
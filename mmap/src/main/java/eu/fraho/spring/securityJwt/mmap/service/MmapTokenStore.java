@@ -0,0 +1,638 @@
+/*
+ * MIT Licence
+ * Copyright (c) 2026 Simon Frankenberger
+ *
+ * Please see LICENCE.md for complete licence text.
+ */
+package eu.fraho.spring.securityJwt.mmap.service;
+
+import eu.fraho.spring.securityJwt.base.config.RefreshProperties;
+import eu.fraho.spring.securityJwt.base.dto.JwtUser;
+import eu.fraho.spring.securityJwt.base.dto.RefreshToken;
+import eu.fraho.spring.securityJwt.base.dto.RefreshTokenEntry;
+import eu.fraho.spring.securityJwt.base.exceptions.RefreshException;
+import eu.fraho.spring.securityJwt.base.service.RefreshTokenPages;
+import eu.fraho.spring.securityJwt.base.service.RefreshTokenStore;
+import eu.fraho.spring.securityJwt.mmap.config.MmapProperties;
+import lombok.NoArgsConstructor;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.core.userdetails.UserDetailsService;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.LongPredicate;
+import java.util.stream.Stream;
+
+/**
+ * Stores the refresh tokens in a memory-mapped file, organized as a hash table with a fixed number of slots.
+ * <p>
+ * Each slot is addressed by a hash of the token and contains the token, the user and the expiration.
+ * All changes to a slot are guarded by a single state word (status and version), which is updated using
+ * compare-and-set on the mapped buffer. As the mapping is shared with all processes using the same file,
+ * several applications on the same host may use the file concurrently without any locks.
+ * Only the initialization of the file is guarded by a region lock on its header.
+ * <p>
+ * A token is stored at most {@value #MAX_PROBE} slots away from the slot addressed by its hash, so each lookup inspects
+ * a bounded number of slots. Freed slots are marked as deleted (tombstones), which are turned back into empty slots
+ * as soon as the following slot is empty. While a tombstone is being cleared, it is marked as clearing: lookups step
+ * over it, and writers which stored a token behind it wait for the outcome. If the slot became empty, the writer
+ * discards its slot and stores the token again, so no token is ever stored behind an empty slot of its probe sequence.
+ * Expired tokens are reused by new tokens and purged in the background (see {@link MmapProperties#getPurgeInterval()}),
+ * which also reclaims slots left behind by crashed writers.
+ * The file is not synced to the disk explicitly, the tokens survive restarts of the application,
+ * but not necessarily a crash of the operating system.
+ * <p>
+ * File layout (native byte order):
+ * <ul>
+ * <li>Header ({@value #HEADER_SIZE} bytes): magic, version, slots, slot size, max username length</li>
+ * <li>Slots: state, hash of the token, user id, expiration (epoch millis), token length, username length,
+ * token ({@value #MAX_TOKEN_LENGTH} bytes), username ({@link MmapProperties#getMaxUsernameLength()} bytes)</li>
+ * </ul>
+ */
+@SuppressWarnings("SpringJavaAutowiredMembersInspection")
+@Slf4j
+@NoArgsConstructor
+public class MmapTokenStore implements RefreshTokenStore, DisposableBean {
+    public static final int HEADER_SIZE = 64;
+    public static final int MAX_TOKEN_LENGTH = 64;
+    /**
+     * Maximum distance of a token from the slot addressed by its hash.
+     */
+    public static final int MAX_PROBE = 64;
+    // attempts to store a token, each one is only repeated after a conflicting clearing of a tombstone
+    private static final int MAX_ATTEMPTS = 16;
+    private static final int MAX_SPINS = 10_000;
+
+    private static final int MAGIC = 0x464A5754;
+    private static final int VERSION = 2;
+
+    private static final int STATE = 0;
+    private static final int HASH = 8;
+    private static final int USER_ID = 16;
+    private static final int EXPIRES = 24;
+    private static final int TOKEN_LENGTH = 32;
+    private static final int USERNAME_LENGTH = 34;
+    private static final int TOKEN = 40;
+
+    private static final long STATUS_MASK = 0b111;
+    private static final long EMPTY = 0;
+    private static final long WRITING = 1;
+    private static final long USED = 2;
+    private static final long DELETED = 3;
+    private static final long CLEARING = 4;
+    private static final long NEXT_VERSION = STATUS_MASK + 1;
+
+    private static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+
+    private MappedByteBuffer buffer;
+    private int slots;
+    private int slotSize;
+    private ScheduledExecutorService purger;
+    // slots seen in the writing or clearing state by the last purge, with their state and when it was first seen
+    private Map<Integer, PendingSlot> pendingSlots = new HashMap<>();
+
+    protected RefreshProperties refreshProperties;
+    protected UserDetailsService userDetailsService;
+    protected MmapProperties mmapProperties;
+
+    /**
+     * Calculate the size of a single slot.
+     *
+     * @param maxUsernameLength The maximum length of the usernames
+     * @return The size of a slot in bytes, aligned to 8 bytes
+     */
+    public static int slotSize(int maxUsernameLength) {
+        return (TOKEN + MAX_TOKEN_LENGTH + maxUsernameLength + 7) & ~7;
+    }
+
+    private static long hash(byte[] token) {
+        // FNV-1a
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : token) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    private static long withStatus(long state, long status) {
+        return (state & ~STATUS_MASK) | status;
+    }
+
+    @Override
+    public void saveToken(JwtUser user, String token) {
+        byte[] tokenBytes = token.getBytes(StandardCharsets.UTF_8);
+        byte[] username = user.getUsername().getBytes(StandardCharsets.UTF_8);
+        if (tokenBytes.length > MAX_TOKEN_LENGTH) {
+            throw new RefreshException("Refresh token too long");
+        }
+        if (username.length > mmapProperties.getMaxUsernameLength()) {
+            throw new RefreshException("Username too long to store refresh token");
+        }
+
+        long hash = hash(tokenBytes);
+        for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+            if (tryStore(hash, user.getId(), tokenBytes, username)) {
+                return;
+            }
+            Thread.onSpinWait();
+        }
+        throw new RefreshException("Could not store refresh token due to concurrent modifications");
+    }
+
+    /**
+     * Store the token in the first free slot of its probe sequence.
+     *
+     * @return {@code true} if the token was stored, {@code false} if a slot before it became empty concurrently
+     * @throws RefreshException if there is no free slot
+     */
+    private boolean tryStore(long hash, long userId, byte[] tokenBytes, byte[] username) {
+        long now = System.currentTimeMillis();
+        int mask = slots - 1;
+        int i = 0;
+        while (i < MAX_PROBE) {
+            int slot = (int) (hash + i) & mask;
+            int offset = offset(slot);
+            long state = (long) LONGS.getAcquire(buffer, offset + STATE);
+            long status = state & STATUS_MASK;
+            boolean free = status == EMPTY || status == DELETED || (status == USED && buffer.getLong(offset + EXPIRES) < now);
+            if (!free) {
+                i++;
+                continue;
+            }
+            // the new version lets concurrent readers of the old contents detect the change
+            long claimed = withStatus(state + NEXT_VERSION, WRITING);
+            if (!LONGS.compareAndSet(buffer, offset + STATE, state, claimed)) {
+                // changed concurrently (e.g. the tombstone was cleared), inspect the same slot again
+                continue;
+            }
+            buffer.putLong(offset + HASH, hash);
+            buffer.putLong(offset + USER_ID, userId);
+            buffer.putLong(offset + EXPIRES, now + refreshProperties.getExpiration().toMillis());
+            buffer.putShort(offset + TOKEN_LENGTH, (short) tokenBytes.length);
+            buffer.putShort(offset + USERNAME_LENGTH, (short) username.length);
+            buffer.put(offset + TOKEN, tokenBytes);
+            buffer.put(offset + TOKEN + MAX_TOKEN_LENGTH, username);
+            if (!probeSequenceIntact(hash, i)) {
+                // the tombstone keeps the probe sequences of other tokens passing this slot intact
+                if (LONGS.compareAndSet(buffer, offset + STATE, claimed, withStatus(claimed, DELETED))) {
+                    clearTombstones(slot);
+                }
+                return false;
+            }
+            // fails if the purge considered this write as abandoned and reclaimed the slot
+            if (LONGS.compareAndSet(buffer, offset + STATE, claimed, withStatus(claimed, USED))) {
+                return true;
+            }
+            log.warn("Slot was reclaimed while storing refresh token, retrying");
+            return false;
+        }
+        throw new RefreshException("No free slot left to store refresh token");
+    }
+
+    /**
+     * Check that none of the slots before the claimed one is empty. A tombstone which is cleared after this check
+     * sees the claimed slot behind it and is kept, so this only has to wait for clearings already in progress.
+     *
+     * @param hash    The hash of the token
+     * @param claimed The position of the claimed slot within the probe sequence
+     * @return {@code true} if the token is reachable by lookups
+     */
+    private boolean probeSequenceIntact(long hash, int claimed) {
+        int mask = slots - 1;
+        for (int i = 0; i < claimed; i++) {
+            int offset = offset((int) (hash + i) & mask);
+            long status = (long) LONGS.getAcquire(buffer, offset + STATE) & STATUS_MASK;
+            for (int spins = 0; status == CLEARING && spins < MAX_SPINS; spins++) {
+                Thread.onSpinWait();
+                status = (long) LONGS.getAcquire(buffer, offset + STATE) & STATUS_MASK;
+            }
+            if (status == EMPTY || status == CLEARING) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T extends JwtUser> Optional<T> useToken(String token) {
+        return removeToken(token).map(e -> (T) userDetailsService.loadUserByUsername(e.username));
+    }
+
+    @Override
+    public List<RefreshToken> listTokens(JwtUser user) {
+        List<RefreshToken> result = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        forEachEntry(e -> {
+            if (Objects.equals(e.userId, user.getId()) && e.expires >= now) {
+                result.add(toRefreshToken(e, now));
+            }
+        });
+        return Collections.unmodifiableList(result);
+    }
+
+    @Override
+    public Map<Long, List<RefreshToken>> listTokens() {
+        Map<Long, List<RefreshToken>> result = new HashMap<>();
+        long now = System.currentTimeMillis();
+        forEachEntry(e -> {
+            if (e.expires >= now) {
+                result.computeIfAbsent(e.userId, s -> new ArrayList<>()).add(toRefreshToken(e, now));
+            }
+        });
+        result.replaceAll((s, t) -> Collections.unmodifiableList(t));
+        return Collections.unmodifiableMap(result);
+    }
+
+    @Override
+    public Stream<RefreshTokenEntry> streamTokens(Long userId, int pageSize) {
+        RefreshTokenPages.checkPageSize(pageSize);
+        int[] cursor = {0};
+        return RefreshTokenPages.stream(() -> {
+            if (cursor[0] >= slots) {
+                return null;
+            }
+            long now = System.currentTimeMillis();
+            List<RefreshTokenEntry> page = new ArrayList<>();
+            while (cursor[0] < slots && page.size() < pageSize) {
+                Entry entry = readSlot(cursor[0]++);
+                if (entry != null && entry.expires >= now && (userId == null || userId == entry.userId)) {
+                    page.add(new RefreshTokenEntry(entry.userId, toRefreshToken(entry, now)));
+                }
+            }
+            return page;
+        });
+    }
+
+    @Override
+    public boolean revokeToken(String token) {
+        return removeToken(token).isPresent();
+    }
+
+    @Override
+    public int revokeTokens(JwtUser user) {
+        long userId = user.getId();
+        return deleteTokens(id -> id == userId);
+    }
+
+    @Override
+    public int revokeTokensOfUsers(Collection<Long> userIds) {
+        Set<Long> users = new HashSet<>(userIds);
+        return deleteTokens(users::contains);
+    }
+
+    @Override
+    public int revokeTokens() {
+        return deleteTokens(id -> true);
+    }
+
+    @Override
+    public void afterPropertiesSet() throws IOException {
+        log.info("Using memory-mapped file implementation to handle refresh tokens");
+        slots = mmapProperties.getSlots();
+        slotSize = slotSize(mmapProperties.getMaxUsernameLength());
+        long size = HEADER_SIZE + (long) slots * slotSize;
+
+        try (FileChannel channel = FileChannel.open(mmapProperties.getFile(),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+             FileLock ignored = channel.lock(0, HEADER_SIZE, false)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.nativeOrder());
+            channel.read(header, 0);
+            header.flip();
+            if (header.remaining() < HEADER_SIZE || header.getInt(0) == 0) {
+                log.debug("Initializing new file with {} slots", slots);
+                channel.truncate(0);
+                channel.write(ByteBuffer.allocate(1), size - 1);
+                header.clear();
+                header.putInt(MAGIC).putInt(VERSION).putInt(slots).putInt(slotSize).putInt(mmapProperties.getMaxUsernameLength());
+                header.clear();
+                channel.write(header, 0);
+                channel.force(true);
+            } else {
+                checkHeader(header);
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            buffer.order(ByteOrder.nativeOrder());
+        }
+
+        long interval = mmapProperties.getPurgeInterval().toMillis();
+        purger = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "fraho-jwt-mmap-purge");
+            thread.setDaemon(true);
+            return thread;
+        });
+        purger.scheduleWithFixedDelay(() -> {
+            try {
+                purge();
+            } catch (RuntimeException e) {
+                log.warn("Could not purge expired tokens", e);
+            }
+        }, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void destroy() {
+        if (purger != null) {
+            purger.shutdownNow();
+        }
+        if (buffer != null) {
+            buffer.force();
+        }
+    }
+
+    @Autowired
+    public void setRefreshProperties(@NonNull RefreshProperties refreshProperties) {
+        this.refreshProperties = refreshProperties;
+    }
+
+    @Autowired
+    public void setUserDetailsService(@NonNull UserDetailsService userDetailsService) {
+        this.userDetailsService = userDetailsService;
+    }
+
+    @Autowired
+    public void setMmapProperties(@NonNull MmapProperties mmapProperties) {
+        this.mmapProperties = mmapProperties;
+    }
+
+    protected Optional<Entry> removeToken(String token) {
+        byte[] tokenBytes = token.getBytes(StandardCharsets.UTF_8);
+        if (tokenBytes.length > MAX_TOKEN_LENGTH) {
+            return Optional.empty();
+        }
+        long hash = hash(tokenBytes);
+        int mask = slots - 1;
+        for (int i = 0; i < MAX_PROBE; i++) {
+            int slot = (int) (hash + i) & mask;
+            int offset = offset(slot);
+            long state = (long) LONGS.getAcquire(buffer, offset + STATE);
+            long status = state & STATUS_MASK;
+            if (status == EMPTY) {
+                break;
+            }
+            if (status == USED && buffer.getLong(offset + HASH) == hash && tokenEquals(offset, tokenBytes)) {
+                Entry entry = read(offset);
+                // fails if the token was consumed (or the expired slot reused) concurrently
+                if (!LONGS.compareAndSet(buffer, offset + STATE, state, withStatus(state, DELETED))) {
+                    break;
+                }
+                clearTombstones(slot);
+                return entry.expires >= System.currentTimeMillis() ? Optional.of(entry) : Optional.empty();
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Delete the tokens of the matching users using a single pass over all slots.
+     *
+     * @param userFilter Returns {@code true} for the ids of the users whose tokens should be deleted
+     * @return The number of deleted, not yet expired tokens
+     */
+    protected int deleteTokens(LongPredicate userFilter) {
+        long now = System.currentTimeMillis();
+        int count = 0;
+        for (int slot = 0; slot < slots; slot++) {
+            int offset = offset(slot);
+            long state = (long) LONGS.getAcquire(buffer, offset + STATE);
+            if ((state & STATUS_MASK) != USED) {
+                continue;
+            }
+            long expires = buffer.getLong(offset + EXPIRES);
+            if (userFilter.test(buffer.getLong(offset + USER_ID))
+                    && LONGS.compareAndSet(buffer, offset + STATE, state, withStatus(state, DELETED))) {
+                clearTombstones(slot);
+                if (expires >= now) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Delete all expired tokens, clear remaining tombstones and reclaim the slots of writers which did not finish
+     * within the purge interval (e.g. because their process crashed).
+     *
+     * @return The number of purged slots
+     */
+    public synchronized int purge() {
+        long now = System.currentTimeMillis();
+        long grace = mmapProperties.getPurgeInterval().toMillis();
+        Map<Integer, PendingSlot> pending = new HashMap<>();
+        int count = 0;
+        for (int slot = 0; slot < slots; slot++) {
+            int offset = offset(slot);
+            long state = (long) LONGS.getAcquire(buffer, offset + STATE);
+            long status = state & STATUS_MASK;
+            boolean stale;
+            if (status == USED) {
+                stale = buffer.getLong(offset + EXPIRES) < now;
+            } else if (status == WRITING || status == CLEARING) {
+                // the version changes with each write, so an unchanged state means the same change is still pending
+                PendingSlot seen = pendingSlots.get(slot);
+                if (seen == null || seen.state != state) {
+                    seen = new PendingSlot(state, now);
+                }
+                // a writer which is only slow must never be reclaimed, it would overwrite the next token of the slot
+                stale = now - seen.since >= grace;
+                if (!stale) {
+                    pending.put(slot, seen);
+                }
+            } else {
+                if (status == DELETED) {
+                    // e.g. left behind by a writer which had to store its token again
+                    clearTombstones(slot);
+                }
+                stale = false;
+            }
+            // a stale clearing is turned back into a tombstone, as the slots behind it were not checked
+            if (stale && LONGS.compareAndSet(buffer, offset + STATE, state, withStatus(state, DELETED))) {
+                clearTombstones(slot);
+                count++;
+            }
+        }
+        pendingSlots = pending;
+        log.debug("Purged {} slots", count);
+        return count;
+    }
+
+    /**
+     * Get the number of slots a lookup of the token inspects, which is the cost of a miss.
+     *
+     * @param token The token
+     * @return The number of inspected slots (1 to {@value #MAX_PROBE})
+     */
+    public int probeLength(String token) {
+        long hash = hash(token.getBytes(StandardCharsets.UTF_8));
+        int mask = slots - 1;
+        int i = 0;
+        while (i < MAX_PROBE) {
+            long state = (long) LONGS.getAcquire(buffer, offset((int) (hash + i++) & mask) + STATE);
+            if ((state & STATUS_MASK) == EMPTY) {
+                break;
+            }
+        }
+        return i;
+    }
+
+    /**
+     * Turn the deleted slot and the deleted slots before it back into empty slots, as long as the following slot
+     * is empty. No probe sequence passes an empty slot, so no lookup has to inspect them anymore.
+     * <p>
+     * The tombstone is marked as clearing before the following slot is checked. Lookups step over it, and a writer
+     * which claims the following slot afterwards waits for the outcome (see {@link #probeSequenceIntact(long, int)}).
+     *
+     * @param slot The deleted slot
+     */
+    private void clearTombstones(int slot) {
+        int mask = slots - 1;
+        for (int i = 0; i < slots; i++) {
+            int current = (slot - i) & mask;
+            int next = offset((current + 1) & mask);
+            int offset = offset(current);
+            long state = (long) LONGS.getAcquire(buffer, offset + STATE);
+            if ((state & STATUS_MASK) != DELETED || ((long) LONGS.getAcquire(buffer, next + STATE) & STATUS_MASK) != EMPTY) {
+                return;
+            }
+            long clearing = withStatus(state + NEXT_VERSION, CLEARING);
+            if (!LONGS.compareAndSet(buffer, offset + STATE, state, clearing)) {
+                return;
+            }
+            if (((long) LONGS.getVolatile(buffer, next + STATE) & STATUS_MASK) != EMPTY) {
+                // a token was stored behind this slot concurrently, keep its probe sequence intact
+                LONGS.compareAndSet(buffer, offset + STATE, clearing, withStatus(clearing, DELETED));
+                return;
+            }
+            if (!LONGS.compareAndSet(buffer, offset + STATE, clearing, withStatus(clearing + NEXT_VERSION, EMPTY))) {
+                // reverted by the purge in the meantime
+                return;
+            }
+        }
+    }
+
+    /**
+     * Call the consumer for each consistent snapshot of a used slot, including expired ones.
+     *
+     * @param consumer The consumer
+     */
+    protected void forEachEntry(Consumer<Entry> consumer) {
+        for (int slot = 0; slot < slots; slot++) {
+            Entry entry = readSlot(slot);
+            if (entry != null) {
+                consumer.accept(entry);
+            }
+        }
+    }
+
+    /**
+     * Read a consistent snapshot of the given slot.
+     *
+     * @param slot The slot
+     * @return The entry, or {@code null} if the slot is not in use or was modified while reading
+     */
+    protected Entry readSlot(int slot) {
+        int offset = offset(slot);
+        long state = (long) LONGS.getAcquire(buffer, offset + STATE);
+        if ((state & STATUS_MASK) != USED) {
+            return null;
+        }
+        Entry entry = read(offset);
+        VarHandle.loadLoadFence();
+        return (long) LONGS.getVolatile(buffer, offset + STATE) == state ? entry : null;
+    }
+
+    private int offset(int slot) {
+        return HEADER_SIZE + slot * slotSize;
+    }
+
+    private boolean tokenEquals(int offset, byte[] token) {
+        if (buffer.getShort(offset + TOKEN_LENGTH) != token.length) {
+            return false;
+        }
+        for (int i = 0; i < token.length; i++) {
+            if (buffer.get(offset + TOKEN + i) != token[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private Entry read(int offset) {
+        int tokenLength = Math.min(buffer.getShort(offset + TOKEN_LENGTH), MAX_TOKEN_LENGTH);
+        int usernameLength = Math.min(buffer.getShort(offset + USERNAME_LENGTH), mmapProperties.getMaxUsernameLength());
+        byte[] token = new byte[Math.max(tokenLength, 0)];
+        byte[] username = new byte[Math.max(usernameLength, 0)];
+        buffer.get(offset + TOKEN, token);
+        buffer.get(offset + TOKEN + MAX_TOKEN_LENGTH, username);
+        return new Entry(new String(token, StandardCharsets.UTF_8), buffer.getLong(offset + USER_ID),
+                new String(username, StandardCharsets.UTF_8), buffer.getLong(offset + EXPIRES));
+    }
+
+    private void checkHeader(ByteBuffer header) {
+        if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+            throw new IllegalStateException("The file " + mmapProperties.getFile() + " is not a compatible token store");
+        }
+        if (header.getInt(8) != slots || header.getInt(12) != slotSize || header.getInt(16) != mmapProperties.getMaxUsernameLength()) {
+            throw new IllegalStateException("The file " + mmapProperties.getFile() + " was created with slots=" + header.getInt(8)
+                    + " and maxUsernameLength=" + header.getInt(16) + ", please adjust the configuration or delete the file");
+        }
+    }
+
+    private RefreshToken toRefreshToken(Entry entry, long now) {
+        return RefreshToken.builder()
+                .token(entry.token)
+                .expiresIn((entry.expires - now) / 1000)
+                .build();
+    }
+
+    private static final class PendingSlot {
+        private final long state;
+        private final long since;
+
+        private PendingSlot(long state, long since) {
+            this.state = state;
+            this.since = since;
+        }
+    }
+
+    protected static final class Entry {
+        private final String token;
+        private final long userId;
+        private final String username;
+        private final long expires;
+
+        private Entry(String token, long userId, String username, long expires) {
+            this.token = token;
+            this.userId = userId;
+            this.username = username;
+            this.expires = expires;
+        }
+    }
+}
@@ -0,0 +1,211 @@
+/*
+ * MIT Licence
+ * Copyright (c) 2026 Simon Frankenberger
+ *
+ * Please see LICENCE.md for complete licence text.
+ */
+package eu.fraho.spring.securityJwt.mmap;
+
+import eu.fraho.spring.securityJwt.base.dto.JwtUser;
+import eu.fraho.spring.securityJwt.base.dto.RefreshToken;
+import eu.fraho.spring.securityJwt.base.exceptions.RefreshException;
+import eu.fraho.spring.securityJwt.base.service.RefreshTokenStore;
+import eu.fraho.spring.securityJwt.base.ut.service.AbstractJwtTokenServiceWithRefreshTest;
+import eu.fraho.spring.securityJwt.mmap.config.MmapProperties;
+import eu.fraho.spring.securityJwt.mmap.service.MmapTokenStore;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class AbstractJwtServiceRefreshMmapTest extends AbstractJwtTokenServiceWithRefreshTest {
+    private static final Logger logger = LoggerFactory.getLogger(AbstractJwtServiceRefreshMmapTest.class);
+    private final MmapTokenStore refreshTokenStore;
+
+    public AbstractJwtServiceRefreshMmapTest() throws Exception {
+        super();
+        refreshTokenStore = createStore(1024);
+    }
+
+    @AfterAll
+    public static void cleanup() {
+        for (String file : List.of("tokens.mmap", "")) {
+            try {
+                Files.deleteIfExists(Paths.get("test_datadir_mmap/", file));
+            } catch (IOException e) {
+                logger.error("Could not cleanup {}", file, e);
+            }
+        }
+    }
+
+    private MmapTokenStore createStore(int slots) throws Exception {
+        MmapProperties properties = new MmapProperties();
+        properties.setFile(Paths.get("test_datadir_mmap/tokens.mmap"));
+        properties.setSlots(slots);
+        properties.afterPropertiesSet();
+
+        MmapTokenStore store = new MmapTokenStore();
+        store.setRefreshProperties(getRefreshProperties());
+        store.setUserDetailsService(getUserdetailsService());
+        store.setMmapProperties(properties);
+        store.afterPropertiesSet();
+        return store;
+    }
+
+    @Override
+    protected RefreshTokenStore getRefreshStore() {
+        return refreshTokenStore;
+    }
+
+    @Test
+    public void testRestart() throws Exception {
+        JwtUser user = getJwtUser();
+        refreshTokenStore.saveToken(user, "tokenA");
+        refreshTokenStore.saveToken(user, "tokenB");
+        refreshTokenStore.useToken("tokenA");
+
+        MmapTokenStore reopened = createStore(1024);
+        List<RefreshToken> tokens = reopened.listTokens(user);
+        Assertions.assertEquals(1, tokens.size(), "Unexpected token count");
+        Assertions.assertEquals("tokenB", tokens.get(0).getToken());
+        Assertions.assertTrue(reopened.useToken("tokenB").isPresent(), "Token not usable after restart");
+        Assertions.assertFalse(refreshTokenStore.useToken("tokenB").isPresent(), "Token used twice");
+    }
+
+    @Test
+    public void testIncompatibleFile() {
+        Assertions.assertThrows(IllegalStateException.class, () -> createStore(2048));
+    }
+
+    @Test
+    public void testFull() {
+        JwtUser user = getJwtUser();
+        int saved = 0;
+        try {
+            while (saved < 1024) {
+                refreshTokenStore.saveToken(user, "token" + saved);
+                saved++;
+            }
+        } catch (RefreshException e) {
+            // the probe sequences are bounded, so the table may not be filled completely
+        }
+        Assertions.assertTrue(saved >= 768, "Too few tokens stored: " + saved);
+        Assertions.assertEquals(saved, refreshTokenStore.revokeTokens(user));
+        refreshTokenStore.saveToken(user, "tokenX");
+        Assertions.assertTrue(refreshTokenStore.useToken("tokenX").isPresent(), "Freed slots not reused");
+    }
+
+    @Test
+    public void testMissCostAfterDrain() {
+        JwtUser user = getJwtUser();
+        int saved = 0;
+        try {
+            while (saved < 1024) {
+                refreshTokenStore.saveToken(user, "token" + saved);
+                saved++;
+            }
+        } catch (RefreshException e) {
+            // table is filled as far as possible
+        }
+        for (int i = 0; i < 1024; i++) {
+            Assertions.assertTrue(refreshTokenStore.probeLength("unknown" + i) <= MmapTokenStore.MAX_PROBE, "Probe not bounded");
+        }
+
+        // consume in a different order than saved, so tombstones have to be cleared from both sides
+        for (int i = saved - 1; i >= 0; i -= 2) {
+            Assertions.assertTrue(refreshTokenStore.useToken("token" + i).isPresent(), "Token " + i + " not found");
+        }
+        for (int i = saved - 2; i >= 0; i -= 2) {
+            Assertions.assertTrue(refreshTokenStore.useToken("token" + i).isPresent(), "Token " + i + " not found");
+        }
+        for (int i = 0; i < 1024; i++) {
+            Assertions.assertEquals(1, refreshTokenStore.probeLength("unknown" + i), "Tombstones left behind");
+            Assertions.assertFalse(refreshTokenStore.useToken("token" + i).isPresent(), "Token used twice");
+        }
+    }
+
+    @Test
+    public void testPurge() {
+        JwtUser user = getJwtUser();
+        refreshTokenStore.saveToken(user, "tokenA");
+        Assertions.assertEquals(0, refreshTokenStore.purge(), "Valid token purged");
+        Assertions.assertTrue(refreshTokenStore.useToken("tokenA").isPresent(), "Valid token purged");
+    }
+
+    @Test
+    public void testUseRefreshTokenConcurrently() throws Exception {
+        JwtUser user = getJwtUser();
+        refreshTokenStore.saveToken(user, "tokenA");
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                results.add(executor.submit(() -> refreshTokenStore.useToken("tokenA").isPresent()));
+            }
+            int used = 0;
+            for (Future<Boolean> result : results) {
+                used += result.get() ? 1 : 0;
+            }
+            Assertions.assertEquals(1, used, "Token was used more than once");
+        } finally {
+            executor.shutdown();
+            Assertions.assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    public void testSaveUseAndPurgeConcurrently() throws Exception {
+        JwtUser user = getJwtUser();
+        ExecutorService executor = Executors.newFixedThreadPool(5);
+        AtomicBoolean running = new AtomicBoolean(true);
+        try {
+            // keeps clearing tombstones while the workers store tokens behind them
+            Future<?> purger = executor.submit(() -> {
+                while (running.get()) {
+                    refreshTokenStore.purge();
+                }
+            });
+            List<Future<?>> workers = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                final String prefix = "worker" + t + "-";
+                workers.add(executor.submit(() -> {
+                    // a few tokens of each worker stay stored, so the slots are reused in a different order
+                    for (int i = 0; i < 5_000 + 32; i++) {
+                        if (i < 5_000) {
+                            refreshTokenStore.saveToken(user, prefix + i);
+                        }
+                        if (i >= 32) {
+                            String token = prefix + (i - 32);
+                            Assertions.assertTrue(refreshTokenStore.useToken(token).isPresent(), "Token " + token + " lost");
+                            Assertions.assertFalse(refreshTokenStore.useToken(token).isPresent(), "Token " + token + " used twice");
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> worker : workers) {
+                worker.get(60, TimeUnit.SECONDS);
+            }
+            running.set(false);
+            purger.get(5, TimeUnit.SECONDS);
+        } finally {
+            running.set(false);
+            executor.shutdown();
+            Assertions.assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+        }
+        Assertions.assertEquals(0, refreshTokenStore.revokeTokens(), "Tokens left behind");
+    }
+}
@@ -9,6 +9,8 @@ package eu.fraho.spring.securityJwt.redis.service;
 import eu.fraho.spring.securityJwt.base.config.RefreshProperties;
 import eu.fraho.spring.securityJwt.base.dto.JwtUser;
 import eu.fraho.spring.securityJwt.base.dto.RefreshToken;
+import eu.fraho.spring.securityJwt.base.dto.RefreshTokenEntry;
+import eu.fraho.spring.securityJwt.base.service.RefreshTokenPages;
 import eu.fraho.spring.securityJwt.base.service.RefreshTokenStore;
 import eu.fraho.spring.securityJwt.redis.config.RedisProperties;
 import eu.fraho.spring.securityJwt.redis.dto.RedisEntry;
@@ -22,21 +24,46 @@ import redis.clients.jedis.DefaultJedisClientConfig;
 import redis.clients.jedis.Pipeline;
 import redis.clients.jedis.RedisClient;
 import redis.clients.jedis.Response;
+import redis.clients.jedis.params.ScanParams;
+import redis.clients.jedis.params.SetParams;
+import redis.clients.jedis.resps.ScanResult;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.Iterator;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
+/**
+ * Stores the refresh tokens at a redis server using jedis.
+ * <p>
+ * Each token is saved as a string key ({@code <prefix><token>}) holding the id and username of the user, expiring
+ * together with the token. Within the same transaction, the token is added to a set of the user
+ * ({@code <prefix>:user:<id>}), whose expiration is restarted with every new token. Listing and revoking the
+ * tokens of a user only touches the keys of that user, operations on all tokens use {@code SCAN} in batches.
+ * <p>
+ * Tokens saved by earlier versions are not part of the user index. They are added using {@link #backfillUserIndex()},
+ * which runs in the background after startup if {@link RedisProperties#isBackfillUserIndex()} is enabled. Nodes of
+ * earlier versions keep saving tokens without the index during a rolling upgrade, these are only found per user if
+ * {@link RedisProperties#isScanUnindexedTokens()} is enabled.
+ *
+ * @deprecated Use the data-redis module instead
+ */
 @SuppressWarnings("SpringJavaAutowiredMembersInspection")
 @Slf4j
 @NoArgsConstructor
 @Deprecated
 public class RedisTokenStore implements RefreshTokenStore {
+    // tokens are base64 encoded and never contain a colon, all other keys start with one
+    private static final String INTERNAL_KEYS = ":";
+    private static final String USER_INDEX = ":user:";
+
     private RefreshProperties refreshProperties;
 
     private RedisProperties redisProperties;
@@ -47,11 +74,14 @@ public class RedisTokenStore implements RefreshTokenStore {
 
     @Override
     public void saveToken(JwtUser user, String token) {
-        String key = redisProperties.getPrefix() + token;
+        String key = tokenKey(token);
+        String userKey = userKey(user.getId());
         String entry = RedisEntry.from(user).toString();
+        long expiration = refreshProperties.getExpiration().toMillis();
         try (AbstractTransaction t = client.multi()) {
-            t.set(key, entry);
-            t.pexpire(key, refreshProperties.getExpiration().toMillis());
+            t.set(key, entry, SetParams.setParams().px(expiration));
+            t.sadd(userKey, token);
+            t.pexpire(userKey, expiration);
             t.exec();
         }
     }
@@ -59,82 +89,218 @@ public class RedisTokenStore implements RefreshTokenStore {
     @Override
     @SuppressWarnings("unchecked")
     public <T extends JwtUser> Optional<T> useToken(String token) {
-        String key = redisProperties.getPrefix() + token;
-        Optional<T> result = Optional.empty();
-        try (AbstractTransaction transaction = client.multi()) {
-            Response<String> tmp = transaction.get(key);
-            Response<Long> del = transaction.del(key);
-            transaction.exec();
-            String found = tmp.get();
-            if (found != null && del.get() == 1) {
-                String username = RedisEntry.from(found).getUsername();
-                result = Optional.ofNullable((T) userDetailsService.loadUserByUsername(username));
-            }
-        }
-        return result;
+        return removeToken(token).map(entry -> (T) userDetailsService.loadUserByUsername(entry.getUsername()));
     }
 
 
     @Override
     public List<RefreshToken> listTokens(JwtUser user) {
-        return listTokens().getOrDefault(user.getId(), Collections.emptyList());
+        String userKey = userKey(user.getId());
+        List<String> tokens = new ArrayList<>(withUnindexedTokens(user.getId(), client.smembers(userKey)));
+        if (tokens.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        List<Response<Long>> ttls = new ArrayList<>(tokens.size());
+        try (Pipeline p = client.pipelined()) {
+            for (String token : tokens) {
+                ttls.add(p.ttl(tokenKey(token)));
+            }
+            p.sync();
+        }
+
+        final List<RefreshToken> result = new ArrayList<>();
+        final List<String> expired = new ArrayList<>();
+        for (int i = 0; i < tokens.size(); i++) {
+            long expiresIn = ttls.get(i).get();
+            if (expiresIn < 0) {
+                expired.add(tokens.get(i));
+            } else {
+                result.add(RefreshToken.builder().token(tokens.get(i)).expiresIn(expiresIn).build());
+            }
+        }
+        if (!expired.isEmpty()) {
+            client.srem(userKey, expired.toArray(new String[0]));
+        }
+        return Collections.unmodifiableList(result);
     }
 
     @Override
     public Map<Long, List<RefreshToken>> listTokens() {
         final Map<Long, List<RefreshToken>> result = new HashMap<>();
         final int prefixLen = redisProperties.getPrefix().length();
-        Map<String, String> entries = listKeysWithValues();
-        List<Runnable> resultBuilder = new ArrayList<>();
-        try (Pipeline p = client.pipelined()) {
-            for (Map.Entry<String, String> entry : entries.entrySet()) {
-                Long id = RedisEntry.from(entry.getValue()).getId();
-                String token = entry.getKey().substring(prefixLen);
-                List<RefreshToken> tokenList = result.computeIfAbsent(id, s -> new ArrayList<>());
-                Response<Long> expiresIn = p.ttl(entry.getKey());
-                resultBuilder.add(() -> tokenList.add(
-                                RefreshToken.builder()
-                                        .token(token)
-                                        .expiresIn(expiresIn.get())
-                                        .build()
-                        )
-                );
+        scanTokenKeys(keys -> {
+            List<Response<String>> values = new ArrayList<>(keys.size());
+            List<Response<Long>> ttls = new ArrayList<>(keys.size());
+            try (Pipeline p = client.pipelined()) {
+                for (String key : keys) {
+                    values.add(p.get(key));
+                    ttls.add(p.ttl(key));
+                }
+                p.sync();
             }
-            p.sync();
-            resultBuilder.forEach(Runnable::run);
-        }
+
+            for (int i = 0; i < keys.size(); i++) {
+                String value = values.get(i).get();
+                long expiresIn = ttls.get(i).get();
+                if (value == null || expiresIn < 0) {
+                    // expired in the meantime
+                    continue;
+                }
+                Long id = RedisEntry.from(value).getId();
+                result.computeIfAbsent(id, s -> new ArrayList<>()).add(RefreshToken.builder()
+                        .token(keys.get(i).substring(prefixLen))
+                        .expiresIn(expiresIn)
+                        .build());
+            }
+        });
+        result.replaceAll((s, t) -> Collections.unmodifiableList(t));
         return Collections.unmodifiableMap(result);
     }
 
+    /**
+     * Stream the tokens using {@code SCAN}, or {@code SSCAN} on the user index if a user is given.
+     * Each page is the result of a single call, so its size is only a hint to the server.
+     * For each page the entries and their expiration are fetched using a single pipeline.
+     */
+    @Override
+    public Stream<RefreshTokenEntry> streamTokens(Long userId, int pageSize) {
+        RefreshTokenPages.checkPageSize(pageSize);
+        final String prefix = redisProperties.getPrefix();
+        final String internalPrefix = prefix + INTERNAL_KEYS;
+        final String userKey = userId == null ? null : userKey(userId);
+        ScanParams params = new ScanParams().count(pageSize);
+        if (userKey == null) {
+            params.match(prefix + "*");
+        }
+        String[] cursor = {ScanParams.SCAN_POINTER_START};
+        boolean[] finished = {false};
+
+        return RefreshTokenPages.stream(() -> {
+            if (finished[0]) {
+                return null;
+            }
+            ScanResult<String> batch = userKey == null ? client.scan(cursor[0], params) : client.sscan(userKey, cursor[0], params);
+            cursor[0] = batch.getCursor();
+            finished[0] = ScanParams.SCAN_POINTER_START.equals(cursor[0]);
+            List<String> tokens = new ArrayList<>(batch.getResult().size());
+            for (String value : batch.getResult()) {
+                if (userKey != null) {
+                    tokens.add(value);
+                } else if (!value.startsWith(internalPrefix)) {
+                    tokens.add(value.substring(prefix.length()));
+                }
+            }
+            return readEntries(tokens);
+        });
+    }
+
     @Override
     public boolean revokeToken(String token) {
-        String key = redisProperties.getPrefix() + token;
-        return client.del(key) == 1L;
+        return removeToken(token).isPresent();
     }
 
     @Override
     public int revokeTokens(JwtUser user) {
-        List<String> keys = new ArrayList<>(client.keys(redisProperties.getPrefix() + "*"));
-        List<String> values = client.mget(keys.toArray(new String[0]));
+        String userKey = userKey(user.getId());
+        Set<String> tokens = withUnindexedTokens(user.getId(), client.smembers(userKey));
+        if (tokens.isEmpty()) {
+            return 0;
+        }
 
-        long counter = 0;
-        for (int i = 0; i < keys.size(); i++) {
-            if (values.get(i) == null) continue;
-            RedisEntry dto = RedisEntry.from(values.get(i));
-            if (Objects.equals(dto.getId(), user.getId())) {
-                counter += client.del(keys.get(i));
-            }
+        String[] members = tokens.toArray(new String[0]);
+        String[] keys = new String[members.length];
+        for (int i = 0; i < members.length; i++) {
+            keys[i] = tokenKey(members[i]);
+        }
+        try (AbstractTransaction transaction = client.multi()) {
+            Response<Long> deleted = transaction.del(keys);
+            // only remove the revoked members, tokens may have been added concurrently
+            transaction.srem(userKey, members);
+            transaction.exec();
+            return deleted.get().intValue();
         }
-        return (int) counter;
     }
 
     @Override
-    public int revokeTokens() {
-        List<String> keys = new ArrayList<>(client.keys(redisProperties.getPrefix() + "*"));
+    public int revokeTokens(Collection<String> tokens) {
+        List<String> list = new ArrayList<>(tokens);
+        if (list.isEmpty()) {
+            return 0;
+        }
+        List<Response<String>> values = new ArrayList<>(list.size());
+        List<Response<Long>> deleted = new ArrayList<>(list.size());
+        // GET and DEL within a transaction like removeToken, GETDEL requires redis 6.2
         try (AbstractTransaction transaction = client.multi()) {
-            keys.forEach(transaction::del);
-            return transaction.exec().size();
+            for (String token : list) {
+                String key = tokenKey(token);
+                values.add(transaction.get(key));
+                deleted.add(transaction.del(key));
+            }
+            transaction.exec();
         }
+
+        Map<String, List<String>> revoked = new HashMap<>();
+        for (int i = 0; i < list.size(); i++) {
+            String value = values.get(i).get();
+            if (value != null && deleted.get(i).get() == 1) {
+                revoked.computeIfAbsent(userKey(RedisEntry.from(value).getId()), k -> new ArrayList<>()).add(list.get(i));
+            }
+        }
+        if (!revoked.isEmpty()) {
+            try (Pipeline p = client.pipelined()) {
+                revoked.forEach((userKey, members) -> p.srem(userKey, members.toArray(new String[0])));
+                p.sync();
+            }
+        }
+        return revoked.values().stream().mapToInt(List::size).sum();
+    }
+
+    @Override
+    public int revokeTokensOfUsers(Collection<Long> userIds) {
+        List<String> userKeys = userIds.stream().map(this::userKey).toList();
+        if (userKeys.isEmpty()) {
+            return 0;
+        }
+        List<Response<Set<String>>> members = new ArrayList<>(userKeys.size());
+        try (Pipeline p = client.pipelined()) {
+            for (String userKey : userKeys) {
+                members.add(p.smembers(userKey));
+            }
+            p.sync();
+        }
+        List<Long> ids = List.copyOf(userIds);
+        Map<Long, Set<String>> unindexed = redisProperties.isScanUnindexedTokens()
+                ? scanTokensOfUsers(Set.copyOf(ids)) : Collections.emptyMap();
+
+        List<Response<Long>> deleted = new ArrayList<>(userKeys.size());
+        try (Pipeline p = client.pipelined()) {
+            for (int i = 0; i < userKeys.size(); i++) {
+                Set<String> userTokens = new HashSet<>(members.get(i).get());
+                userTokens.addAll(unindexed.getOrDefault(ids.get(i), Collections.emptySet()));
+                String[] tokens = userTokens.toArray(new String[0]);
+                if (tokens.length == 0) {
+                    continue;
+                }
+                String[] keys = new String[tokens.length];
+                for (int j = 0; j < tokens.length; j++) {
+                    keys[j] = tokenKey(tokens[j]);
+                }
+                deleted.add(p.del(keys));
+                // only remove the revoked members, tokens may have been added concurrently
+                p.srem(userKeys.get(i), tokens);
+            }
+            p.sync();
+        }
+        return deleted.stream().mapToInt(r -> r.get().intValue()).sum();
+    }
+
+    @Override
+    public int revokeTokens() {
+        final int[] count = new int[1];
+        scanTokenKeys(keys -> count[0] += (int) client.del(keys.toArray(new String[0])));
+        scanKeys(redisProperties.getPrefix() + USER_INDEX + "*", keys -> client.del(keys.toArray(new String[0])));
+        return count[0];
     }
 
     @Override
@@ -156,6 +322,65 @@ public class RedisTokenStore implements RefreshTokenStore {
                 .clientConfig(clientConfig.build())
                 .poolConfig(redisProperties.getPoolConfig())
                 .build();
+
+        if (redisProperties.isBackfillUserIndex()) {
+            // runs in the background, so the startup neither waits for the scan nor fails if redis is unavailable
+            Thread backfill = new Thread(() -> {
+                try {
+                    int count = backfillUserIndex();
+                    log.info("Added {} existing refresh tokens to the user index", count);
+                } catch (RuntimeException e) {
+                    log.warn("Could not add the existing refresh tokens to the user index", e);
+                }
+            }, "fraho-jwt-redis-backfill");
+            backfill.setDaemon(true);
+            backfill.start();
+        }
+    }
+
+    /**
+     * Add all saved tokens to the index of their user. Tokens saved by earlier versions of this module are not
+     * indexed, so without this they would neither be listed nor revoked per user.
+     * <p>
+     * This scans all tokens. Adding a token twice has no effect, so this may run concurrently on several nodes and
+     * may be repeated after a rolling upgrade.
+     *
+     * @return The number of tokens processed
+     */
+    public int backfillUserIndex() {
+        final long expiration = refreshProperties.getExpiration().toMillis();
+        final int prefixLen = redisProperties.getPrefix().length();
+        final int[] count = new int[1];
+
+        scanTokenKeys(keys -> {
+            List<Response<String>> values = new ArrayList<>(keys.size());
+            try (Pipeline p = client.pipelined()) {
+                for (String key : keys) {
+                    values.add(p.get(key));
+                }
+                p.sync();
+            }
+
+            Map<String, List<String>> index = new HashMap<>();
+            for (int i = 0; i < keys.size(); i++) {
+                String value = values.get(i).get();
+                if (value != null) {
+                    index.computeIfAbsent(userKey(RedisEntry.from(value).getId()), k -> new ArrayList<>())
+                            .add(keys.get(i).substring(prefixLen));
+                }
+            }
+            if (!index.isEmpty()) {
+                try (Pipeline p = client.pipelined()) {
+                    index.forEach((userKey, tokens) -> {
+                        p.sadd(userKey, tokens.toArray(new String[0]));
+                        p.pexpire(userKey, expiration);
+                    });
+                    p.sync();
+                }
+                count[0] += index.values().stream().mapToInt(List::size).sum();
+            }
+        });
+        return count[0];
     }
 
     @Autowired
@@ -174,27 +399,147 @@ public class RedisTokenStore implements RefreshTokenStore {
     }
 
 
-    protected <K, V> Map<K, V> zipToMap(List<K> keys, List<V> values) {
-        Iterator<K> keyIter = keys.iterator();
-        Iterator<V> valIter = values.iterator();
-        Map<K, V> result = new HashMap<>();
-        while (keyIter.hasNext() && valIter.hasNext()) {
-            K key = keyIter.next();
-            V val = valIter.next();
+    protected String tokenKey(String token) {
+        return redisProperties.getPrefix() + token;
+    }
+
+    protected String userKey(Long userId) {
+        return redisProperties.getPrefix() + USER_INDEX + userId;
+    }
 
-            if (key != null && val != null) {
-                result.put(key, val);
+    /**
+     * Atomically remove the token and afterwards its entry in the user index.
+     *
+     * @param token The token to remove
+     * @return The entry of the token, if it existed
+     */
+    protected Optional<RedisEntry> removeToken(String token) {
+        String key = tokenKey(token);
+        String found;
+        try (AbstractTransaction transaction = client.multi()) {
+            Response<String> tmp = transaction.get(key);
+            Response<Long> del = transaction.del(key);
+            transaction.exec();
+            found = del.get() == 1 ? tmp.get() : null;
+        }
+        if (found == null) {
+            return Optional.empty();
+        }
+        RedisEntry entry = RedisEntry.from(found);
+        client.srem(userKey(entry.getId()), token);
+        return Optional.of(entry);
+    }
+
+    /**
+     * Fetch the entries and expiration of the given tokens using a single pipeline.
+     *
+     * @param tokens The tokens to fetch
+     * @return The entries, tokens which do not exist (anymore) are skipped
+     */
+    protected List<RefreshTokenEntry> readEntries(List<String> tokens) {
+        if (tokens.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<Response<String>> values = new ArrayList<>(tokens.size());
+        List<Response<Long>> ttls = new ArrayList<>(tokens.size());
+        try (Pipeline p = client.pipelined()) {
+            for (String token : tokens) {
+                String key = tokenKey(token);
+                values.add(p.get(key));
+                ttls.add(p.ttl(key));
+            }
+            p.sync();
+        }
+
+        List<RefreshTokenEntry> result = new ArrayList<>(tokens.size());
+        for (int i = 0; i < tokens.size(); i++) {
+            String value = values.get(i).get();
+            long expiresIn = ttls.get(i).get();
+            if (value == null || expiresIn < 0) {
+                // expired in the meantime
+                continue;
             }
+            result.add(new RefreshTokenEntry(RedisEntry.from(value).getId(),
+                    RefreshToken.builder().token(tokens.get(i)).expiresIn(expiresIn).build()));
         }
         return result;
     }
 
-    protected Map<String, String> listKeysWithValues() {
-        List<String> keys = new ArrayList<>(client.keys(redisProperties.getPrefix() + "*"));
-        if (keys.isEmpty()) {
-            return Collections.emptyMap();
+    /**
+     * Add the tokens of the user which are not part of the user index, if
+     * {@link RedisProperties#isScanUnindexedTokens()} is enabled.
+     *
+     * @param userId  The id of the user
+     * @param members The members of the user index
+     * @return All known tokens of the user
+     */
+    protected Set<String> withUnindexedTokens(Long userId, Set<String> members) {
+        if (!redisProperties.isScanUnindexedTokens()) {
+            return members;
         }
-        List<String> values = client.mget(keys.toArray(new String[0]));
-        return zipToMap(keys, values);
+        Set<String> tokens = new HashSet<>(members);
+        tokens.addAll(scanTokensOfUsers(Set.of(userId)).getOrDefault(userId, Collections.emptySet()));
+        return tokens;
+    }
+
+    /**
+     * Find the tokens of the given users by scanning all tokens, regardless of the user index.
+     *
+     * @param userIds The ids of the users
+     * @return The tokens of each user, users without tokens are missing
+     */
+    protected Map<Long, Set<String>> scanTokensOfUsers(Set<Long> userIds) {
+        final int prefixLen = redisProperties.getPrefix().length();
+        final Map<Long, Set<String>> result = new HashMap<>();
+        scanTokenKeys(keys -> {
+            List<Response<String>> values = new ArrayList<>(keys.size());
+            try (Pipeline p = client.pipelined()) {
+                for (String key : keys) {
+                    values.add(p.get(key));
+                }
+                p.sync();
+            }
+            for (int i = 0; i < keys.size(); i++) {
+                String value = values.get(i).get();
+                Long id = value == null ? null : RedisEntry.from(value).getId();
+                if (id != null && userIds.contains(id)) {
+                    result.computeIfAbsent(id, k -> new HashSet<>()).add(keys.get(i).substring(prefixLen));
+                }
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Iterate all token keys (excluding the user index) in batches.
+     *
+     * @param batchConsumer Called for each non-empty batch of keys
+     */
+    protected void scanTokenKeys(Consumer<List<String>> batchConsumer) {
+        String internalPrefix = redisProperties.getPrefix() + INTERNAL_KEYS;
+        scanKeys(redisProperties.getPrefix() + "*", keys -> {
+            keys.removeIf(key -> key.startsWith(internalPrefix));
+            if (!keys.isEmpty()) {
+                batchConsumer.accept(keys);
+            }
+        });
+    }
+
+    /**
+     * Iterate all keys matching the pattern using {@code SCAN}.
+     *
+     * @param pattern       The pattern to match
+     * @param batchConsumer Called for each non-empty batch of keys, the list may be modified
+     */
+    protected void scanKeys(String pattern, Consumer<List<String>> batchConsumer) {
+        ScanParams params = new ScanParams().match(pattern).count(redisProperties.getScanBatchSize());
+        String cursor = ScanParams.SCAN_POINTER_START;
+        do {
+            ScanResult<String> batch = client.scan(cursor, params);
+            if (!batch.getResult().isEmpty()) {
+                batchConsumer.accept(new ArrayList<>(batch.getResult()));
+            }
+            cursor = batch.getCursor();
+        } while (!ScanParams.SCAN_POINTER_START.equals(cursor));
     }
 }
@@ -26,17 +26,24 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @ExtendWith(SpringExtension.class)
 public class AbstractJwtServiceRefreshRedisTest extends AbstractJwtTokenServiceWithRefreshTest {
     private final RedisTokenStore refreshTokenStore;
 
     public AbstractJwtServiceRefreshRedisTest() throws Exception {
-        refreshTokenStore = new RedisTokenStore();
-        refreshTokenStore.setRefreshProperties(getRefreshProperties());
-        refreshTokenStore.setRedisProperties(getRedisProperties());
-        refreshTokenStore.setUserDetailsService(getUserdetailsService());
-        refreshTokenStore.afterPropertiesSet();
+        refreshTokenStore = createStore(getRedisProperties());
+    }
+
+    private RedisTokenStore createStore(RedisProperties properties) throws Exception {
+        RedisTokenStore store = new RedisTokenStore();
+        store.setRefreshProperties(getRefreshProperties());
+        store.setRedisProperties(properties);
+        store.setUserDetailsService(getUserdetailsService());
+        store.afterPropertiesSet();
+        return store;
     }
 
     protected RedisProperties getRedisProperties() {
@@ -75,6 +82,80 @@ public class AbstractJwtServiceRefreshRedisTest extends AbstractJwtTokenServiceW
         Assertions.assertTrue(allTokens.containsAll(Arrays.asList(tokenA, tokenB, tokenC)), "Not all tokens returned");
     }
 
+    @Test
+    public void testUserIndex() throws Exception {
+        JwtTokenService service = getService();
+        JwtUser jsmith = getJwtUser();
+        jsmith.setUsername("jsmith");
+        String userKey = getRedisProperties().getPrefix() + ":user:" + jsmith.getId();
+
+        RefreshToken tokenA = service.generateRefreshToken(jsmith);
+        RefreshToken tokenB = service.generateRefreshToken(jsmith);
+        Assertions.assertEquals(Set.of(tokenA.getToken(), tokenB.getToken()), getRedisClient().smembers(userKey));
+
+        Assertions.assertTrue(service.useRefreshToken(tokenA.getToken()).isPresent());
+        Assertions.assertEquals(Set.of(tokenB.getToken()), getRedisClient().smembers(userKey));
+
+        Assertions.assertEquals(1, service.revokeRefreshTokens(jsmith));
+        Assertions.assertFalse(getRedisClient().exists(userKey), "User index was not removed");
+    }
+
+    @Test
+    public void testBackfillUserIndex() throws Exception {
+        JwtUser jsmith = getJwtUser();
+        jsmith.setUsername("jsmith");
+        String prefix = getRedisProperties().getPrefix();
+
+        // saved by an earlier version, without the user index
+        getRedisClient().set(prefix + "legacy", jsmith.getId() + ",jsmith", new SetParams().ex(10));
+        Assertions.assertTrue(refreshTokenStore.listTokens(jsmith).isEmpty(), "Token already indexed");
+
+        Assertions.assertEquals(1, refreshTokenStore.backfillUserIndex());
+        Assertions.assertEquals(List.of("legacy"), refreshTokenStore.listTokens(jsmith).stream().map(RefreshToken::getToken).toList());
+        Assertions.assertEquals(1, refreshTokenStore.revokeTokens(jsmith));
+        Assertions.assertFalse(getRedisClient().exists(prefix + "legacy"), "Token was not revoked");
+    }
+
+    @Test
+    public void testBackfillUserIndexOnStartup() throws Exception {
+        JwtUser jsmith = getJwtUser();
+        jsmith.setUsername("jsmith");
+        String prefix = getRedisProperties().getPrefix();
+        getRedisClient().set(prefix + "legacy", jsmith.getId() + ",jsmith", new SetParams().ex(10));
+
+        RedisProperties properties = getRedisProperties();
+        properties.setBackfillUserIndex(true);
+        RedisTokenStore store = createStore(properties);
+        Assertions.assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+            while (store.listTokens(jsmith).isEmpty()) {
+                Thread.sleep(10);
+            }
+        }, "Token was not indexed in the background");
+    }
+
+    @Test
+    public void testScanUnindexedTokens() throws Exception {
+        JwtUser jsmith = getJwtUser();
+        jsmith.setUsername("jsmith");
+        String prefix = getRedisProperties().getPrefix();
+
+        RedisProperties properties = getRedisProperties();
+        properties.setScanUnindexedTokens(true);
+        RedisTokenStore store = createStore(properties);
+        store.saveToken(jsmith, "indexed");
+        // saved by a node of an earlier version during a rolling upgrade
+        getRedisClient().set(prefix + "legacy", jsmith.getId() + ",jsmith", new SetParams().ex(10));
+
+        Assertions.assertEquals(Set.of("indexed", "legacy"),
+                store.listTokens(jsmith).stream().map(RefreshToken::getToken).collect(Collectors.toSet()));
+        Assertions.assertEquals(2, store.revokeTokens(jsmith));
+        Assertions.assertFalse(getRedisClient().exists(prefix + "legacy"), "Token was not revoked");
+
+        getRedisClient().set(prefix + "legacy", jsmith.getId() + ",jsmith", new SetParams().ex(10));
+        Assertions.assertEquals(1, store.revokeTokensOfUsers(List.of(jsmith.getId())));
+        Assertions.assertFalse(getRedisClient().exists(prefix + "legacy"), "Token was not revoked");
+    }
+
     private RedisClient getRedisClient() throws Exception {
         Field memcachedClient = RedisTokenStore.class.getDeclaredField("client");
         memcachedClient.setAccessible(true);